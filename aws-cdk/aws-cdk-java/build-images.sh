@@ -0,0 +1,128 @@
+#!/bin/sh
+# Builds and pushes the Docker images of the gatling-monitoring services to ECR, but only the images whose directory
+# changed since the last build. The digests of the pushed images are written to the image manifest, synth the ECS
+# stack with IMAGE_MANIFEST=<manifest> to use these images instead of building Docker image assets.
+# Every image is tagged with the content hash of its directory, an image that is already in ECR is not built again.
+
+help_text() {
+    cat <<EOF
+    Usage: $0 [ -m | --manifest IMAGE_MANIFEST ] [ -i | --image IMAGE ] [ -c | --cache ] [ -f | --force ] [--help]
+        --manifest IMAGE_MANIFEST      (optional) The image manifest to update (default: image-manifest.properties).
+        --image IMAGE                  (optional) Build only this image, a directory of gatling-monitoring, e.g. gatling-runner.
+        --cache                        (optional) Use the latest images in ECR as layer cache, also for the build stage of
+                                                  multi-stage images (the Maven build of the runner and the relay).
+        --force                        (optional) Rebuild and push all images, also the unchanged ones.
+EOF
+    exit 1
+}
+
+IMAGE_MANIFEST="image-manifest.properties"
+IMAGES="gatling-runner graphite-relay grafana influxdb"
+DOCKER_CACHE=false
+FORCE=false
+PROJECT_NAME=${PROJECT_NAME:-"gatling"}
+MONITORING_DIR="$(cd "$(dirname "$0")/../../gatling-monitoring" && pwd)"
+
+while [ $# -gt 0 ]; do
+    arg=$1
+    case $arg in
+        --help)
+            help_text
+        ;;
+        -m|--manifest)
+            IMAGE_MANIFEST="$2"
+            shift; shift
+        ;;
+        -i|--image)
+            IMAGES="$2"
+            shift; shift
+        ;;
+        -c|--cache)
+            DOCKER_CACHE=true
+            shift
+        ;;
+        -f|--force)
+            FORCE=true
+            shift
+        ;;
+        *)
+            echo "ERROR: Unrecognised option: ${arg}"
+            help_text
+            exit 1
+        ;;
+    esac
+done
+
+set -e
+
+ACCOUNT=${CDK_DEFAULT_ACCOUNT:-$(aws sts get-caller-identity --query Account --output text)}
+REGION=${CDK_DEFAULT_REGION:-${AWS_REGION:-$(aws configure get region)}}
+REGISTRY="${ACCOUNT}.dkr.ecr.${REGION}.amazonaws.com"
+
+touch "${IMAGE_MANIFEST}"
+aws ecr get-login-password --region "${REGION}" | docker login --username AWS --password-stdin "${REGISTRY}"
+
+# the same hash as ImageManifest.contentHash: the SHA-256 of the sha256sum listing of all files, sorted by path
+content_hash() {
+    (cd "$1" && find . -type f ! -path './target/*' ! -path './node_modules/*' ! -name dependency-reduced-pom.xml \
+        | LC_ALL=C sort | xargs sha256sum | sha256sum | cut -d' ' -f1)
+}
+
+manifest_value() {
+    grep "^$1=" "${IMAGE_MANIFEST}" | cut -d= -f2- || true
+}
+
+set_manifest_value() {
+    grep -v "^$1=" "${IMAGE_MANIFEST}" > "${IMAGE_MANIFEST}.tmp" || true
+    echo "$1=$2" >> "${IMAGE_MANIFEST}.tmp"
+    mv "${IMAGE_MANIFEST}.tmp" "${IMAGE_MANIFEST}"
+}
+
+build_image() {
+    name=$1
+    directory="${MONITORING_DIR}/${name}"
+    repository_name="${PROJECT_NAME}/${name}"
+    repository="${REGISTRY}/${repository_name}"
+    hash=$(content_hash "${directory}")
+
+    if [ "${FORCE}" != true ] && [ "$(manifest_value "${name}.hash")" = "${hash}" ]; then
+        echo "${name}: unchanged, keeping $(manifest_value "${name}.image")"
+        return
+    fi
+
+    aws ecr describe-repositories --repository-names "${repository_name}" > /dev/null 2>&1 \
+        || aws ecr create-repository --repository-name "${repository_name}" > /dev/null
+
+    # an image of the same content may have been pushed by another build, e.g. a previous pipeline execution
+    digest=$(aws ecr describe-images --repository-name "${repository_name}" --image-ids imageTag="${hash}" \
+        --query 'imageDetails[0].imageDigest' --output text 2> /dev/null || true)
+    if [ "${FORCE}" = true ] || [ -z "${digest}" ] || [ "${digest}" = "None" ]; then
+        cache_from=""
+        if [ "${DOCKER_CACHE}" = true ]; then
+            docker pull "${repository}:latest" > /dev/null 2>&1 || true
+            cache_from="--cache-from ${repository}:latest"
+            # the final image doesn't contain the layers of the build stage, these are cached with their own tag
+            if grep -qi '^FROM .* as build$' "${directory}/Dockerfile"; then
+                docker pull "${repository}:build-cache" > /dev/null 2>&1 || true
+                docker build --target build --cache-from "${repository}:build-cache" -t "${repository}:build-cache" "${directory}"
+                docker push "${repository}:build-cache"
+                cache_from="--cache-from ${repository}:build-cache ${cache_from}"
+            fi
+        fi
+
+        docker build ${cache_from} -t "${repository}:${hash}" -t "${repository}:latest" "${directory}"
+        docker push "${repository}:${hash}"
+        docker push "${repository}:latest"
+        digest=$(docker inspect --format '{{index .RepoDigests 0}}' "${repository}:${hash}" | cut -d@ -f2)
+    else
+        echo "${name}: image ${hash} is already in ECR"
+    fi
+
+    set_manifest_value "${name}.hash" "${hash}"
+    set_manifest_value "${name}.image" "${repository}@${digest}"
+    echo "${name}: ${repository}@${digest}"
+}
+
+for image in ${IMAGES}; do
+    build_image "${image}"
+done
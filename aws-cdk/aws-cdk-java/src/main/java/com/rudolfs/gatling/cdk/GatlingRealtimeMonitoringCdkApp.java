@@ -1,6 +1,12 @@
 package com.rudolfs.gatling.cdk;
 
+import com.rudolfs.gatling.cdk.capacity.CapacityCalibration;
+import com.rudolfs.gatling.cdk.capacity.CapacityPlan;
+import com.rudolfs.gatling.cdk.capacity.CapacityPlanner;
 import com.rudolfs.gatling.cdk.ecs.GatlingEcsStack;
+import com.rudolfs.gatling.cdk.ecs.GraphiteListeners;
+import com.rudolfs.gatling.cdk.ecs.InfluxdbStorage;
+import com.rudolfs.gatling.cdk.image.ImageManifest;
 import com.rudolfs.gatling.cdk.pipeline.GatlingPipelineStack;
 import com.rudolfs.gatling.cdk.vpc.ExistingVpcStack;
 import com.rudolfs.gatling.cdk.vpc.GatlingVpcStack;
@@ -9,6 +15,7 @@ import software.amazon.awscdk.core.Environment;
 import software.amazon.awscdk.core.StackProps;
 import software.amazon.awscdk.services.ec2.IVpc;
 
+import java.nio.file.Paths;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -17,6 +24,7 @@ import java.util.function.Supplier;
  */
 public class GatlingRealtimeMonitoringCdkApp {
     private static final String DEFAULT_PROJECT_NAME = "gatling";
+    private static final int DEFAULT_RUNNER_SHARD_COUNT = 1;
 
     public static void main(final String[] args) {
         App app = new App();
@@ -25,6 +33,16 @@ public class GatlingRealtimeMonitoringCdkApp {
         final String region = Objects.requireNonNull(System.getenv("CDK_DEFAULT_REGION"), "CDK_DEFAULT_REGION is required.");
         final String projectName = System.getenv("PROJECT_NAME") == null ? DEFAULT_PROJECT_NAME : System.getenv("PROJECT_NAME");
         final String vpcName = System.getenv("VPC_NAME");
+        final int runnerShardCount = System.getenv("RUNNER_SHARD_COUNT") == null ? DEFAULT_RUNNER_SHARD_COUNT : Integer.parseInt(System.getenv("RUNNER_SHARD_COUNT"));
+        final boolean graphiteRelay = Boolean.parseBoolean(System.getenv("GRAPHITE_RELAY"));
+        final boolean influxdbTsiIndex = Boolean.parseBoolean(System.getenv("INFLUXDB_TSI_INDEX"));
+        final boolean runnerSpot = Boolean.parseBoolean(System.getenv("RUNNER_SPOT"));
+        final boolean reportWorker = Boolean.parseBoolean(System.getenv("REPORT_WORKER"));
+        final boolean regressionGate = Boolean.parseBoolean(System.getenv("REGRESSION_GATE"));
+        final CapacityPlan capacityPlan = System.getenv("TARGET_RPS") == null ? CapacityPlan.fixed(runnerShardCount) : capacityPlan(runnerShardCount, graphiteRelay);
+        final InfluxdbStorage influxdbStorage = influxdbStorage(System.getenv("INFLUXDB_STORAGE"), capacityPlan);
+        final GraphiteListeners graphiteListeners = graphiteListeners(System.getenv("INFLUXDB_GRAPHITE_LISTENERS"), capacityPlan, graphiteRelay);
+        final ImageManifest imageManifest = System.getenv("IMAGE_MANIFEST") == null ? ImageManifest.empty() : ImageManifest.load(Paths.get(System.getenv("IMAGE_MANIFEST")));
         final String vpcStackName = projectName + "VpcStack";
         final String ecsStackName = projectName + "EcsStack";
         final String pipelineStackName = projectName + "PipelineStack";
@@ -44,14 +62,77 @@ public class GatlingRealtimeMonitoringCdkApp {
         GatlingEcsStack.builder().scope(app).id(ecsStackName).stackProps(stackProps)
                 .namespace(projectName)
                 .vpc(vpcSupplier)
+                .capacityPlan(capacityPlan)
+                .graphiteRelay(graphiteRelay)
+                .influxdbTsiIndex(influxdbTsiIndex)
+                .influxdbStorage(influxdbStorage)
+                .influxdbGraphiteListeners(graphiteListeners)
+                .runnerSpot(runnerSpot)
+                .reportWorker(reportWorker)
+                .imageManifest(imageManifest)
                 .build();
 
         GatlingPipelineStack.builder().scope(app).id(pipelineStackName).stackProps(stackProps)
+                .namespace(projectName)
                 .pipelineName(pipelineName)
                 .vpcStackName(vpcStackName)
                 .ecsStackName(ecsStackName)
+                .regressionGate(regressionGate)
+                .vpc(vpcSupplier)
+                .runnerShardCount(capacityPlan.getRunnerShardCount())
+                .graphiteRelay(graphiteRelay)
                 .build();
 
         app.synth();
     }
+
+    /**
+     * The volumes of InfluxDB for INFLUXDB_STORAGE: gp2 (or unset) for the original single gp2 volume, gp3 for a gp3 data
+     * volume and a separate WAL volume, sized for the write load of the capacity plan.
+     */
+    private static InfluxdbStorage influxdbStorage(String storageType, CapacityPlan capacityPlan) {
+        if (storageType == null || InfluxdbStorage.VolumeType.GP2.getValue().equals(storageType)) {
+            return InfluxdbStorage.defaults();
+        }
+        if (InfluxdbStorage.VolumeType.GP3.getValue().equals(storageType)) {
+            return InfluxdbStorage.forWriteLoad(capacityPlan.getInfluxdbValuesPerSecond());
+        }
+        throw new IllegalArgumentException("INFLUXDB_STORAGE must be gp2 or gp3, but was " + storageType);
+    }
+
+    /**
+     * The Graphite listeners of InfluxDB for INFLUXDB_GRAPHITE_LISTENERS: a number of listeners, or (unset) as many as the
+     * write load of the capacity plan needs. The runners send to the graphite-relay instead, when there is one.
+     */
+    private static GraphiteListeners graphiteListeners(String listeners, CapacityPlan capacityPlan, boolean graphiteRelay) {
+        if (listeners != null) {
+            return GraphiteListeners.forWriteLoad(capacityPlan.getInfluxdbValuesPerSecond(), Integer.parseInt(listeners));
+        }
+        if (capacityPlan.getInfluxdbValuesPerSecond() > 0) {
+            int senders = graphiteRelay ? 1 : capacityPlan.getRunnerShardCount();
+            return GraphiteListeners.forWriteLoad(capacityPlan.getInfluxdbValuesPerSecond(), capacityPlan.getInfluxdbCpu(), senders);
+        }
+        return GraphiteListeners.defaults();
+    }
+
+    /**
+     * Sizes the runners and InfluxDB for TARGET_RPS and TARGET_VIRTUAL_USERS with the figures of the calibration run
+     * in CAPACITY_CALIBRATION, RUNNER_SHARD_COUNT is the minimum number of shards. Fails when the plan exceeds the limits.
+     */
+    private static CapacityPlan capacityPlan(int minShardCount, boolean graphiteRelay) {
+        final String targetVirtualUsers = Objects.requireNonNull(System.getenv("TARGET_VIRTUAL_USERS"), "TARGET_VIRTUAL_USERS is required with TARGET_RPS.");
+        final String calibration = Objects.requireNonNull(System.getenv("CAPACITY_CALIBRATION"), "CAPACITY_CALIBRATION is required with TARGET_RPS.");
+
+        CapacityPlanner.Builder planner = CapacityPlanner.builder()
+                .targetRequestsPerSecond(Double.parseDouble(System.getenv("TARGET_RPS")))
+                .virtualUsers(Integer.parseInt(targetVirtualUsers))
+                .calibration(CapacityCalibration.load(Paths.get(calibration)))
+                .graphiteRelay(graphiteRelay)
+                .minShardCount(minShardCount);
+        if (System.getenv("FARGATE_TASK_QUOTA") != null) {
+            planner.fargateTaskQuota(Integer.parseInt(System.getenv("FARGATE_TASK_QUOTA")));
+        }
+
+        return planner.build().plan();
+    }
 }
@@ -0,0 +1,96 @@
+package com.rudolfs.gatling.cdk.capacity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * The resource usage of one gatling-runner task measured by a calibration run, a run of the simulation on a single
+ * shard with a fixed number of virtual users. The figures are read from the CloudWatch metrics of the runner service
+ * (CPUUtilization and MemoryUtilization multiplied by the task size) and the Grafana dashboard:
+ * <pre>
+ * # concurrent virtual users and the request rate they generated
+ * virtualUsers=200
+ * requestsPerSecond=1500
+ * # average CPU units and peak memory of the runner task during the run
+ * cpuUnits=640
+ * memoryMiB=900
+ * # memory of the runner task before the injection started
+ * idleMemoryMiB=300
+ * # distinct request names of the simulation
+ * requestNames=12
+ * </pre>
+ */
+public final class CapacityCalibration {
+    private final int virtualUsers;
+    private final double requestsPerSecond;
+    private final double cpuUnits;
+    private final double memoryMiB;
+    private final double idleMemoryMiB;
+    private final int requestNames;
+
+    public CapacityCalibration(int virtualUsers, double requestsPerSecond, double cpuUnits, double memoryMiB,
+                               double idleMemoryMiB, int requestNames) {
+        if (virtualUsers < 1 || requestsPerSecond <= 0 || cpuUnits <= 0 || requestNames < 1) {
+            throw new IllegalArgumentException("virtualUsers, requestsPerSecond, cpuUnits and requestNames of a calibration run must be positive");
+        }
+        if (memoryMiB < idleMemoryMiB) {
+            throw new IllegalArgumentException(String.format("memoryMiB (%s) of a calibration run must not be below idleMemoryMiB (%s)", memoryMiB, idleMemoryMiB));
+        }
+        this.virtualUsers = virtualUsers;
+        this.requestsPerSecond = requestsPerSecond;
+        this.cpuUnits = cpuUnits;
+        this.memoryMiB = memoryMiB;
+        this.idleMemoryMiB = idleMemoryMiB;
+        this.requestNames = requestNames;
+    }
+
+    public static CapacityCalibration load(Path calibration) {
+        Properties figures = new Properties();
+        try (InputStream in = Files.newInputStream(calibration)) {
+            figures.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read capacity calibration " + calibration, e);
+        }
+        return new CapacityCalibration(
+                Integer.parseInt(required(figures, "virtualUsers", calibration)),
+                Double.parseDouble(required(figures, "requestsPerSecond", calibration)),
+                Double.parseDouble(required(figures, "cpuUnits", calibration)),
+                Double.parseDouble(required(figures, "memoryMiB", calibration)),
+                Double.parseDouble(required(figures, "idleMemoryMiB", calibration)),
+                Integer.parseInt(required(figures, "requestNames", calibration)));
+    }
+
+    private static String required(Properties figures, String key, Path calibration) {
+        String value = figures.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("%s is missing in capacity calibration %s", key, calibration));
+        }
+        return value.trim();
+    }
+
+    /**
+     * CPU units a runner needs for every request per second it sends.
+     */
+    public double cpuUnitsPerRequestPerSecond() {
+        return cpuUnits / requestsPerSecond;
+    }
+
+    /**
+     * Memory a runner needs for every concurrent virtual user on top of its idle memory.
+     */
+    public double memoryMiBPerVirtualUser() {
+        return (memoryMiB - idleMemoryMiB) / virtualUsers;
+    }
+
+    public double getIdleMemoryMiB() {
+        return idleMemoryMiB;
+    }
+
+    public int getRequestNames() {
+        return requestNames;
+    }
+}
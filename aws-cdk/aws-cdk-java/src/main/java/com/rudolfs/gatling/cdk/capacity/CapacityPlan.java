@@ -0,0 +1,90 @@
+package com.rudolfs.gatling.cdk.capacity;
+
+/**
+ * The task sizes and shard count of the gatling-runner services and the instance type, container resources and cache
+ * size of InfluxDB, either fixed or derived from a target load by the {@link CapacityPlanner}. A planned load also
+ * has the field values per second InfluxDB ingests, which the storage of InfluxDB can be sized for.
+ */
+public final class CapacityPlan {
+    private static final int DEFAULT_RUNNER_CPU = 1024;
+    private static final int DEFAULT_RUNNER_MEMORY_LIMIT_MIB = 2048;
+    private static final String DEFAULT_INFLUXDB_INSTANCE_TYPE = "t3a.medium";
+    private static final int DEFAULT_INFLUXDB_CPU = 2048;
+    private static final int DEFAULT_INFLUXDB_MEMORY_RESERVATION_MIB = 3896;
+    private static final int DEFAULT_INFLUXDB_CACHE_MAX_MEMORY_MIB = 1024;
+
+    private final int runnerShardCount;
+    private final int runnerCpu;
+    private final int runnerMemoryLimitMiB;
+    private final String influxdbInstanceType;
+    private final int influxdbCpu;
+    private final int influxdbMemoryReservationMiB;
+    private final int influxdbCacheMaxMemoryMiB;
+    private final long influxdbValuesPerSecond;
+
+    CapacityPlan(int runnerShardCount, int runnerCpu, int runnerMemoryLimitMiB, String influxdbInstanceType,
+                 int influxdbCpu, int influxdbMemoryReservationMiB, int influxdbCacheMaxMemoryMiB, long influxdbValuesPerSecond) {
+        this.runnerShardCount = runnerShardCount;
+        this.runnerCpu = runnerCpu;
+        this.runnerMemoryLimitMiB = runnerMemoryLimitMiB;
+        this.influxdbInstanceType = influxdbInstanceType;
+        this.influxdbCpu = influxdbCpu;
+        this.influxdbMemoryReservationMiB = influxdbMemoryReservationMiB;
+        this.influxdbCacheMaxMemoryMiB = influxdbCacheMaxMemoryMiB;
+        this.influxdbValuesPerSecond = influxdbValuesPerSecond;
+    }
+
+    /**
+     * The default task sizes (1 vCPU and 2 GiB per runner, InfluxDB on a t3a.medium) with the given number of runner shards.
+     */
+    public static CapacityPlan fixed(int runnerShardCount) {
+        if (runnerShardCount < 1) {
+            throw new IllegalArgumentException("runnerShardCount must be at least 1, but was " + runnerShardCount);
+        }
+        return new CapacityPlan(runnerShardCount, DEFAULT_RUNNER_CPU, DEFAULT_RUNNER_MEMORY_LIMIT_MIB,
+                DEFAULT_INFLUXDB_INSTANCE_TYPE, DEFAULT_INFLUXDB_CPU, DEFAULT_INFLUXDB_MEMORY_RESERVATION_MIB,
+                DEFAULT_INFLUXDB_CACHE_MAX_MEMORY_MIB, 0);
+    }
+
+    public int getRunnerShardCount() {
+        return runnerShardCount;
+    }
+
+    public int getRunnerCpu() {
+        return runnerCpu;
+    }
+
+    public int getRunnerMemoryLimitMiB() {
+        return runnerMemoryLimitMiB;
+    }
+
+    public String getInfluxdbInstanceType() {
+        return influxdbInstanceType;
+    }
+
+    public int getInfluxdbCpu() {
+        return influxdbCpu;
+    }
+
+    public int getInfluxdbMemoryReservationMiB() {
+        return influxdbMemoryReservationMiB;
+    }
+
+    public int getInfluxdbCacheMaxMemoryMiB() {
+        return influxdbCacheMaxMemoryMiB;
+    }
+
+    /**
+     * The field values per second the runners write to InfluxDB, 0 for a fixed plan.
+     */
+    public long getInfluxdbValuesPerSecond() {
+        return influxdbValuesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d gatling-runner shard(s) with %d CPU units and %d MiB, InfluxDB on %s with %d CPU units, %d MiB and a %d MiB cache",
+                runnerShardCount, runnerCpu, runnerMemoryLimitMiB, influxdbInstanceType, influxdbCpu,
+                influxdbMemoryReservationMiB, influxdbCacheMaxMemoryMiB);
+    }
+}
@@ -0,0 +1,211 @@
+package com.rudolfs.gatling.cdk.capacity;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Derives a {@link CapacityPlan} from a target request rate and number of concurrent virtual users, based on the
+ * resource usage per request and per virtual user of a {@link CapacityCalibration} run.
+ * <p>
+ * The planner uses as few runner shards as possible and the smallest Fargate task size that serves the load of one
+ * shard at the target utilization. InfluxDB is sized by the number of series and field values per second the runners
+ * write. When the load does not fit into the largest Fargate task size within the Fargate task quota, or the series
+ * exceed the series limit of InfluxDB, planning fails and with it the synth, instead of saturating during the test.
+ */
+public final class CapacityPlanner {
+    private static final double DEFAULT_TARGET_UTILIZATION = 0.7;
+    private static final int DEFAULT_FARGATE_TASK_QUOTA = 100;
+    // Gatling writes ok, ko and all metrics for every request name and for allRequests
+    private static final int STATUSES = 3;
+    // count, min, max, mean, stdDev and four percentiles
+    private static final int FIELDS_PER_SERIES = 9;
+    // max-series-per-database in influxdb.conf
+    private static final int INFLUXDB_MAX_SERIES = 1_000_000;
+    // memory of the EC2 instance that is left for the ECS agent and the operating system
+    private static final int EC2_RESERVED_MEMORY_MIB = 200;
+    private static final int MIN_INFLUXDB_CACHE_MAX_MEMORY_MIB = 1024;
+
+    // valid Fargate task sizes: CPU units with the memory sizes in MiB that Fargate accepts for them
+    private static final List<FargateTaskSize> FARGATE_TASK_SIZES = List.of(
+            new FargateTaskSize(256, 512, 1024, 2048),
+            new FargateTaskSize(512, 1024, 2048, 3072, 4096),
+            new FargateTaskSize(1024, gibibytes(2, 8)),
+            new FargateTaskSize(2048, gibibytes(4, 16)),
+            new FargateTaskSize(4096, gibibytes(8, 30)));
+
+    // InfluxDB instance types by write load, following the InfluxDB hardware sizing guidelines
+    private static final List<InfluxdbInstance> INFLUXDB_INSTANCES = List.of(
+            new InfluxdbInstance("t3a.medium", 2, 4096, 5_000, 100_000),
+            new InfluxdbInstance("m5a.xlarge", 4, 16384, 100_000, 500_000),
+            new InfluxdbInstance("m5a.2xlarge", 8, 32768, 250_000, INFLUXDB_MAX_SERIES),
+            new InfluxdbInstance("m5a.4xlarge", 16, 65536, 500_000, INFLUXDB_MAX_SERIES));
+
+    private final Builder builder;
+
+    private CapacityPlanner(Builder builder) {
+        this.builder = builder;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public CapacityPlan plan() {
+        CapacityCalibration calibration = builder.calibration;
+        double cpuUnits = builder.targetRequestsPerSecond * calibration.cpuUnitsPerRequestPerSecond();
+
+        for (int shardCount = builder.minShardCount; shardCount <= builder.fargateTaskQuota; shardCount++) {
+            double shardCpuUnits = cpuUnits / shardCount / builder.targetUtilization;
+            double shardMemoryMiB = (calibration.getIdleMemoryMiB()
+                    + Math.ceil((double) builder.virtualUsers / shardCount) * calibration.memoryMiBPerVirtualUser())
+                    / builder.targetUtilization;
+
+            for (FargateTaskSize taskSize : FARGATE_TASK_SIZES) {
+                if (taskSize.cpu >= shardCpuUnits && taskSize.maxMemoryMiB() >= shardMemoryMiB) {
+                    return influxdbPlan(shardCount, taskSize.cpu, taskSize.memoryMiB(shardMemoryMiB));
+                }
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "%s requests/s with %d virtual users need more than %d gatling-runner shards of the largest Fargate task size " +
+                        "(4096 CPU units, 30720 MiB) at %.0f%% utilization, which exceeds the Fargate task quota",
+                builder.targetRequestsPerSecond, builder.virtualUsers, builder.fargateTaskQuota, builder.targetUtilization * 100));
+    }
+
+    private CapacityPlan influxdbPlan(int shardCount, int runnerCpu, int runnerMemoryLimitMiB) {
+        // the shard tag multiplies the series, unless the relay merges the metrics of all shards
+        int series = ((builder.calibration.getRequestNames() + 1) * STATUSES + 1) * (builder.graphiteRelay ? 1 : shardCount);
+        int valuesPerSecond = series * FIELDS_PER_SERIES;
+
+        for (InfluxdbInstance instance : INFLUXDB_INSTANCES) {
+            if (instance.maxValuesPerSecond >= valuesPerSecond && instance.maxSeries >= series) {
+                int memoryReservationMiB = instance.memoryMiB - EC2_RESERVED_MEMORY_MIB;
+                return new CapacityPlan(shardCount, runnerCpu, runnerMemoryLimitMiB, instance.instanceType,
+                        instance.vCpus * 1024, memoryReservationMiB,
+                        Math.max(MIN_INFLUXDB_CACHE_MAX_MEMORY_MIB, memoryReservationMiB / 4), valuesPerSecond);
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "%d gatling-runner shards write %d series with %d field values/s, which exceeds the largest InfluxDB instance " +
+                        "(at most %d series, %d values/s), use the graphite relay or fewer request names",
+                shardCount, series, valuesPerSecond, INFLUXDB_MAX_SERIES, INFLUXDB_INSTANCES.get(INFLUXDB_INSTANCES.size() - 1).maxValuesPerSecond));
+    }
+
+    // every whole number of GiB from the first to the last, in MiB
+    private static int[] gibibytes(int first, int last) {
+        return IntStream.rangeClosed(first, last).map(gib -> gib * 1024).toArray();
+    }
+
+    private static final class FargateTaskSize {
+        private final int cpu;
+        private final int[] memorySizesMiB;
+
+        private FargateTaskSize(int cpu, int... memorySizesMiB) {
+            this.cpu = cpu;
+            this.memorySizesMiB = memorySizesMiB;
+        }
+
+        private int maxMemoryMiB() {
+            return memorySizesMiB[memorySizesMiB.length - 1];
+        }
+
+        // the smallest valid memory size of this CPU size that holds the given memory
+        private int memoryMiB(double requiredMemoryMiB) {
+            for (int memorySizeMiB : memorySizesMiB) {
+                if (memorySizeMiB >= requiredMemoryMiB) {
+                    return memorySizeMiB;
+                }
+            }
+            throw new IllegalArgumentException(String.format("%.0f MiB exceed the largest memory size of %d CPU units", requiredMemoryMiB, cpu));
+        }
+    }
+
+    private static final class InfluxdbInstance {
+        private final String instanceType;
+        private final int vCpus;
+        private final int memoryMiB;
+        private final int maxValuesPerSecond;
+        private final int maxSeries;
+
+        private InfluxdbInstance(String instanceType, int vCpus, int memoryMiB, int maxValuesPerSecond, int maxSeries) {
+            this.instanceType = instanceType;
+            this.vCpus = vCpus;
+            this.memoryMiB = memoryMiB;
+            this.maxValuesPerSecond = maxValuesPerSecond;
+            this.maxSeries = maxSeries;
+        }
+    }
+
+    public static final class Builder {
+        private double targetRequestsPerSecond;
+        private int virtualUsers;
+        private CapacityCalibration calibration;
+        private boolean graphiteRelay;
+        private int minShardCount = 1;
+        private int fargateTaskQuota = DEFAULT_FARGATE_TASK_QUOTA;
+        private double targetUtilization = DEFAULT_TARGET_UTILIZATION;
+
+        public Builder targetRequestsPerSecond(double targetRequestsPerSecond) {
+            this.targetRequestsPerSecond = targetRequestsPerSecond;
+            return this;
+        }
+
+        /**
+         * The number of concurrent virtual users at the peak of the injection profile.
+         */
+        public Builder virtualUsers(int virtualUsers) {
+            this.virtualUsers = virtualUsers;
+            return this;
+        }
+
+        public Builder calibration(CapacityCalibration calibration) {
+            this.calibration = calibration;
+            return this;
+        }
+
+        /**
+         * Whether the runners send their metrics to the graphite relay, which merges the series of all shards.
+         */
+        public Builder graphiteRelay(boolean graphiteRelay) {
+            this.graphiteRelay = graphiteRelay;
+            return this;
+        }
+
+        public Builder minShardCount(int minShardCount) {
+            this.minShardCount = minShardCount;
+            return this;
+        }
+
+        /**
+         * The maximum number of Fargate tasks in the region (service quota), defaults to 100.
+         */
+        public Builder fargateTaskQuota(int fargateTaskQuota) {
+            this.fargateTaskQuota = fargateTaskQuota;
+            return this;
+        }
+
+        /**
+         * The share of the CPU and memory of a runner task the plan may use, the rest is headroom. Defaults to 0.7.
+         */
+        public Builder targetUtilization(double targetUtilization) {
+            this.targetUtilization = targetUtilization;
+            return this;
+        }
+
+        public CapacityPlanner build() {
+            Objects.requireNonNull(calibration, "calibration is required.");
+            if (targetRequestsPerSecond <= 0 || virtualUsers < 1) {
+                throw new IllegalArgumentException("targetRequestsPerSecond and virtualUsers must be positive");
+            }
+            if (targetUtilization <= 0 || targetUtilization > 1) {
+                throw new IllegalArgumentException("targetUtilization must be in (0, 1], but was " + targetUtilization);
+            }
+            if (minShardCount < 1 || minShardCount > fargateTaskQuota) {
+                throw new IllegalArgumentException(String.format("minShardCount must be between 1 and the Fargate task quota (%d), but was %d",
+                        fargateTaskQuota, minShardCount));
+            }
+            return new CapacityPlanner(this);
+        }
+    }
+}
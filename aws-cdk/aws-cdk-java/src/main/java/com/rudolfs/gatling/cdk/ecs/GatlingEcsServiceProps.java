@@ -1,5 +1,6 @@
 package com.rudolfs.gatling.cdk.ecs;
 
+import com.rudolfs.gatling.cdk.image.ImageManifest;
 import software.amazon.awscdk.services.ec2.IVpc;
 import software.amazon.awscdk.services.ecs.ICluster;
 import software.amazon.awscdk.services.iam.Role;
@@ -21,6 +22,8 @@ public interface GatlingEcsServiceProps {
 
     String getClusterNamespace();
 
+    ImageManifest getImageManifest();
+
     class Builder {
         private IVpc vpc;
         private ICluster ecsCluster;
@@ -28,6 +31,7 @@ public interface GatlingEcsServiceProps {
         private Role fargateTaskRole;
         private String serviceName;
         private String clusterNamespace;
+        private ImageManifest imageManifest = ImageManifest.empty();
 
         public Builder vpc(final IVpc vpc) {
             this.vpc = vpc;
@@ -59,6 +63,11 @@ public interface GatlingEcsServiceProps {
             return this;
         }
 
+        public Builder imageManifest(final ImageManifest imageManifest) {
+            this.imageManifest = imageManifest;
+            return this;
+        }
+
         GatlingEcsServiceProps build() {
             return new GatlingEcsServiceProps() {
                 @Override
@@ -90,6 +99,11 @@ public interface GatlingEcsServiceProps {
                 public Role getFargateTaskRole() {
                     return fargateTaskRole;
                 }
+
+                @Override
+                public ImageManifest getImageManifest() {
+                    return imageManifest;
+                }
             };
         }
 
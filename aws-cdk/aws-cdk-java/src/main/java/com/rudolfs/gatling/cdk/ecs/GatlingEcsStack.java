@@ -1,20 +1,27 @@
 package com.rudolfs.gatling.cdk.ecs;
 
 import com.rudolfs.gatling.cdk.StackBuilder;
+import com.rudolfs.gatling.cdk.capacity.CapacityPlan;
+import com.rudolfs.gatling.cdk.image.ImageManifest;
+import software.amazon.awscdk.core.CfnOutput;
+import software.amazon.awscdk.core.Duration;
 import software.amazon.awscdk.core.Stack;
 import software.amazon.awscdk.services.autoscaling.AutoScalingGroup;
 import software.amazon.awscdk.services.ec2.ISubnet;
 import software.amazon.awscdk.services.ec2.IVpc;
-import software.amazon.awscdk.services.ec2.InstanceClass;
-import software.amazon.awscdk.services.ec2.InstanceSize;
 import software.amazon.awscdk.services.ec2.InstanceType;
 import software.amazon.awscdk.services.ec2.SubnetSelection;
 import software.amazon.awscdk.services.ec2.UserData;
+import software.amazon.awscdk.services.ecs.CfnCluster;
 import software.amazon.awscdk.services.ecs.CloudMapNamespaceOptions;
 import software.amazon.awscdk.services.ecs.Cluster;
 import software.amazon.awscdk.services.ecs.EcsOptimizedImage;
 import software.amazon.awscdk.services.iam.IRole;
 import software.amazon.awscdk.services.iam.Role;
+import software.amazon.awscdk.services.s3.BlockPublicAccess;
+import software.amazon.awscdk.services.s3.Bucket;
+import software.amazon.awscdk.services.s3.BucketEncryption;
+import software.amazon.awscdk.services.s3.LifecycleRule;
 import software.amazon.awscdk.services.servicediscovery.NamespaceType;
 
 import java.util.List;
@@ -28,7 +35,12 @@ public class GatlingEcsStack extends Stack {
     private static final String DEFAULT_GATLING_RUNNER_SERVICE_NAME = "gatling-runner";
     private static final String DEFAULT_GRAFANA_SERVICE_NAME = "grafana";
     private static final String DEFAULT_INFLUXDB_SERVICE_NAME = "influxdb";
+    private static final String DEFAULT_GRAPHITE_RELAY_SERVICE_NAME = "graphite-relay";
+    private static final String DEFAULT_REPORT_WORKER_SERVICE_NAME = "report-worker";
+    // the uploaded logs and reports of a run are deleted after this many days
+    private static final int RESULTS_EXPIRATION_DAYS = 30;
     private static final String DEFAULT_AVAILABILITY_ZONE_EBS_VOLUME = "eu-west-1a";
+    private static final String FARGATE_CAPACITY_PROVIDER = "FARGATE";
 
     private GatlingEcsStack(Builder builder) {
         super(builder.getScope(), builder.getId(), builder.getStackProps());
@@ -48,6 +60,12 @@ public class GatlingEcsStack extends Stack {
                 .vpc(vpc)
                 .build();
 
+        if (builder.runnerSpot) {
+            // CDK 1.50 can't associate capacity providers with a cluster, the services without a strategy keep their launch type
+            ((CfnCluster) ecsCluster.getNode().getDefaultChild()).addPropertyOverride("CapacityProviders",
+                    List.of(FARGATE_CAPACITY_PROVIDER, GatlingRunnerFargateService.FARGATE_SPOT_CAPACITY_PROVIDER));
+        }
+
         // Role used for the EC2 service types, this role contains the correct statements to allow Rexray volume driver to do its work
         IRole instanceProfileRole = new Ec2InstanceProfileRole(this, "InstanceProfileRole", builder.namespace);
 
@@ -66,8 +84,8 @@ public class GatlingEcsStack extends Stack {
                                 "stop ecs\n" +
                                 "start ecs"
                         , ecsClusterName, availabilityZone)))
-                // use t3a.medium
-                .instanceType(InstanceType.of(InstanceClass.BURSTABLE3_AMD, InstanceSize.MEDIUM))
+                // t3a.medium unless the capacity plan needs a larger instance for InfluxDB
+                .instanceType(new InstanceType(builder.capacityPlan.getInfluxdbInstanceType()))
                 .machineImage(EcsOptimizedImage.amazonLinux2())
                 .role(instanceProfileRole)
                 // limitation of EBS volume attachment within same AZ requires to allow EC2 instance creation in 1 AZ (and therefore subnet) only
@@ -96,24 +114,90 @@ public class GatlingEcsStack extends Stack {
                                 .fargateExecutionRole(fargateExecutionRole)
                                 .fargateTaskRole(fargateTaskRole)
                                 .vpc(vpc)
+                                .imageManifest(builder.imageManifest)
                                 .build()
                 ).build(this, "GrafanaFargateService");
 
         // EC2 (stateful) service for InfluxDB
-        new InfluxdbEc2Service(this, "InfluxdbEc2Service",
-                GatlingEcsServiceProps.builder()
-                        .serviceName(DEFAULT_INFLUXDB_SERVICE_NAME)
-                        .clusterNamespace(builder.namespace)
-                        .ecsCluster(ecsCluster)
-                        .fargateExecutionRole(fargateExecutionRole)
-                        .fargateTaskRole(fargateTaskRole)
-                        .vpc(vpc)
-                        .build()
-        );
+        InfluxdbEc2Service.builder()
+                .cpu(builder.capacityPlan.getInfluxdbCpu())
+                .memoryReservationMiB(builder.capacityPlan.getInfluxdbMemoryReservationMiB())
+                .cacheMaxMemoryMiB(builder.capacityPlan.getInfluxdbCacheMaxMemoryMiB())
+                .tsiIndex(builder.influxdbTsiIndex)
+                .storage(builder.influxdbStorage)
+                .graphiteListeners(builder.influxdbGraphiteListeners)
+                .availabilityZone(availabilityZone)
+                .serviceProps(
+                        GatlingEcsServiceProps.builder()
+                                .serviceName(DEFAULT_INFLUXDB_SERVICE_NAME)
+                                .clusterNamespace(builder.namespace)
+                                .ecsCluster(ecsCluster)
+                                .fargateExecutionRole(fargateExecutionRole)
+                                .fargateTaskRole(fargateTaskRole)
+                                .vpc(vpc)
+                                .imageManifest(builder.imageManifest)
+                                .build()
+                ).build(this, "InfluxdbEc2Service");
+
+        // Fargate service for the Graphite relay that merges the metrics of all runner shards
+        String graphiteHostName = influxdbHostName;
+        if (builder.graphiteRelay) {
+            GraphiteRelayFargateService.builder()
+                    .influxdbHostName(influxdbHostName)
+                    .fargateServiceProps(
+                            GatlingEcsServiceProps.builder()
+                                    .serviceName(DEFAULT_GRAPHITE_RELAY_SERVICE_NAME)
+                                    .clusterNamespace(builder.namespace)
+                                    .ecsCluster(ecsCluster)
+                                    .fargateExecutionRole(fargateExecutionRole)
+                                    .fargateTaskRole(fargateTaskRole)
+                                    .vpc(vpc)
+                                    .imageManifest(builder.imageManifest)
+                                    .build()
+                    ).build(this, "GraphiteRelayFargateService");
+            graphiteHostName = DEFAULT_GRAPHITE_RELAY_SERVICE_NAME + "." + builder.namespace;
+        }
+
+        // S3 bucket for the simulation.log chunks of the runners and the reports of the report worker
+        String resultsBucketName = null;
+        if (builder.reportWorker) {
+            Bucket resultsBucket = Bucket.Builder.create(this, "ResultsBucket")
+                    .encryption(BucketEncryption.S3_MANAGED)
+                    .blockPublicAccess(BlockPublicAccess.BLOCK_ALL)
+                    .lifecycleRules(List.of(LifecycleRule.builder()
+                            .expiration(Duration.days(RESULTS_EXPIRATION_DAYS))
+                            .build()))
+                    .build();
+            resultsBucket.grantReadWrite(fargateTaskRole);
+            resultsBucketName = resultsBucket.getBucketName();
+
+            ReportWorkerFargateService.builder()
+                    .bucketName(resultsBucketName)
+                    .shardCount(builder.capacityPlan.getRunnerShardCount())
+                    .fargateServiceProps(
+                            GatlingEcsServiceProps.builder()
+                                    .serviceName(DEFAULT_REPORT_WORKER_SERVICE_NAME)
+                                    .clusterNamespace(builder.namespace)
+                                    .ecsCluster(ecsCluster)
+                                    .fargateExecutionRole(fargateExecutionRole)
+                                    .fargateTaskRole(fargateTaskRole)
+                                    .vpc(vpc)
+                                    .imageManifest(builder.imageManifest)
+                                    .build()
+                    ).build(this, "ReportWorkerFargateService");
+        }
 
         // Fargate service for Gatling runner
         GatlingRunnerFargateService.builder()
                 .influxdbHostName(influxdbHostName)
+                .graphiteHostName(graphiteHostName)
+                .shardCount(builder.capacityPlan.getRunnerShardCount())
+                .cpu(builder.capacityPlan.getRunnerCpu())
+                .memoryLimitMiB(builder.capacityPlan.getRunnerMemoryLimitMiB())
+                .spot(builder.runnerSpot)
+                .logBucketName(resultsBucketName)
+                // the graphite-relay has a single listener, without it the shards are spread over the listeners of InfluxDB
+                .graphitePorts(builder.graphiteRelay ? shardIndex -> GraphiteListeners.FIRST_PORT : builder.influxdbGraphiteListeners::port)
                 .fargateServiceProps(
                         GatlingEcsServiceProps.builder()
                                 .serviceName(DEFAULT_GATLING_RUNNER_SERVICE_NAME)
@@ -122,8 +206,22 @@ public class GatlingEcsStack extends Stack {
                                 .fargateExecutionRole(fargateExecutionRole)
                                 .fargateTaskRole(fargateTaskRole)
                                 .vpc(vpc)
+                                .imageManifest(builder.imageManifest)
                                 .build()
                 ).build(this, "GatlingRunnerFargateService");
+
+        CfnOutput.Builder.create(this, "CapacityPlan")
+                .description("Runner shards and the resources of the runners and InfluxDB")
+                .value(builder.capacityPlan.toString())
+                .build();
+        CfnOutput.Builder.create(this, "InfluxdbStorage")
+                .description("EBS volumes of InfluxDB")
+                .value(builder.influxdbStorage.toString())
+                .build();
+        CfnOutput.Builder.create(this, "InfluxdbGraphiteListeners")
+                .description("Graphite listeners of InfluxDB")
+                .value(builder.influxdbGraphiteListeners.toString())
+                .build();
     }
 
     public static Builder builder() {
@@ -133,6 +231,14 @@ public class GatlingEcsStack extends Stack {
     public static final class Builder extends StackBuilder<Builder> {
         private Supplier<IVpc> vpcSupplier;
         private String namespace;
+        private CapacityPlan capacityPlan = CapacityPlan.fixed(1);
+        private boolean graphiteRelay;
+        private boolean influxdbTsiIndex;
+        private boolean runnerSpot;
+        private boolean reportWorker;
+        private InfluxdbStorage influxdbStorage = InfluxdbStorage.defaults();
+        private GraphiteListeners influxdbGraphiteListeners = GraphiteListeners.defaults();
+        private ImageManifest imageManifest = ImageManifest.empty();
 
         public Builder vpc(Supplier<IVpc> vpc) {
             this.vpcSupplier = vpc;
@@ -144,6 +250,68 @@ public class GatlingEcsStack extends Stack {
             return this;
         }
 
+        /**
+         * The runner shard count and the resources of the runners and InfluxDB, defaults to a single runner.
+         */
+        public Builder capacityPlan(CapacityPlan capacityPlan) {
+            this.capacityPlan = capacityPlan;
+            return this;
+        }
+
+        public Builder graphiteRelay(boolean graphiteRelay) {
+            this.graphiteRelay = graphiteRelay;
+            return this;
+        }
+
+        /**
+         * Lets InfluxDB use the disk-based TSI index instead of the in-memory index.
+         */
+        public Builder influxdbTsiIndex(boolean influxdbTsiIndex) {
+            this.influxdbTsiIndex = influxdbTsiIndex;
+            return this;
+        }
+
+        /**
+         * The EBS volumes of InfluxDB, defaults to a single 20 GiB gp2 volume.
+         */
+        public Builder influxdbStorage(InfluxdbStorage influxdbStorage) {
+            this.influxdbStorage = influxdbStorage;
+            return this;
+        }
+
+        /**
+         * The Graphite listeners of InfluxDB, defaults to a single listener on 2003. The graphite-relay only sends to 2003.
+         */
+        public Builder influxdbGraphiteListeners(GraphiteListeners influxdbGraphiteListeners) {
+            this.influxdbGraphiteListeners = influxdbGraphiteListeners;
+            return this;
+        }
+
+        /**
+         * Runs the runner tasks on Fargate Spot, the other services stay on Fargate and EC2.
+         */
+        public Builder runnerSpot(boolean runnerSpot) {
+            this.runnerSpot = runnerSpot;
+            return this;
+        }
+
+        /**
+         * Adds a results bucket and a report worker service: the runners upload their simulation.log to the bucket and
+         * stop after the injection, the report worker renders one report of all shards into the bucket.
+         */
+        public Builder reportWorker(boolean reportWorker) {
+            this.reportWorker = reportWorker;
+            return this;
+        }
+
+        /**
+         * Prebuilt images of the services, images that are not in the manifest or outdated are built during synth.
+         */
+        public Builder imageManifest(ImageManifest imageManifest) {
+            this.imageManifest = imageManifest;
+            return this;
+        }
+
         public GatlingEcsStack build() {
             return new GatlingEcsStack(this);
         }
@@ -1,12 +1,14 @@
 package com.rudolfs.gatling.cdk.ecs;
 
 import software.amazon.awscdk.core.Construct;
+import software.amazon.awscdk.core.Duration;
 import software.amazon.awscdk.core.RemovalPolicy;
+import software.amazon.awscdk.core.Stack;
 import software.amazon.awscdk.services.ec2.SecurityGroup;
 import software.amazon.awscdk.services.ec2.SecurityGroupProps;
 import software.amazon.awscdk.services.ec2.SubnetSelection;
-import software.amazon.awscdk.services.ecr.assets.DockerImageAsset;
 import software.amazon.awscdk.services.ecs.AwsLogDriverProps;
+import software.amazon.awscdk.services.ecs.CfnService;
 import software.amazon.awscdk.services.ecs.ContainerDefinitionOptions;
 import software.amazon.awscdk.services.ecs.ContainerImage;
 import software.amazon.awscdk.services.ecs.FargateService;
@@ -16,8 +18,14 @@ import software.amazon.awscdk.services.logs.LogGroup;
 import software.amazon.awscdk.services.logs.RetentionDays;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 public class GatlingRunnerFargateService extends Construct {
+    public static final String FARGATE_SPOT_CAPACITY_PROVIDER = "FARGATE_SPOT";
+    // ECS sends SIGTERM and kills the runner after the stop timeout, 120 seconds is the maximum of Fargate and the notice
+    // Fargate Spot gives before it reclaims a task. The runner flushes its metrics and simulation.log in this time.
+    private static final Duration STOP_TIMEOUT = Duration.seconds(120);
 
     public GatlingRunnerFargateService(Construct scope, String id, Builder builder) {
         super(scope, id);
@@ -27,44 +35,71 @@ public class GatlingRunnerFargateService extends Construct {
                 .description(String.format("%s security group", builder.serviceProps.getServiceName()))
                 .build());
 
-        FargateTaskDefinition fargateTaskDefinition = FargateTaskDefinition.Builder.create(this, "GatlingRunnerFargateTaskDefinition")
-                .cpu(1024)
-                .memoryLimitMiB(2048)
-                .executionRole(builder.serviceProps.getFargateExecutionRole())
-                .taskRole(builder.serviceProps.getFargateTaskRole())
-                .build();
-
         String logGroupName = String.format("/ecs/%s/%s", builder.serviceProps.getClusterNamespace(), builder.serviceProps.getServiceName());
 
-        DockerImageAsset gatlingRunnerAsset = DockerImageAsset.Builder.create(this, "gatlingRunnerAsset")
-                .directory("../../gatling-monitoring/gatling-runner")
-                .build();
+        ContainerImage gatlingRunnerImage = builder.serviceProps.getImageManifest()
+                .containerImage(this, "gatlingRunnerAsset", "../../gatling-monitoring/gatling-runner");
 
-        ContainerDefinitionOptions containerDefinitionOptions = ContainerDefinitionOptions.builder()
-                .image(ContainerImage.fromDockerImageAsset(gatlingRunnerAsset))
-                .command(List.of("-gh", builder.influxdbHostName))
-                .logging(LogDriver.awsLogs(AwsLogDriverProps.builder()
-                        .logGroup(LogGroup.Builder.create(this, "gatlingRunnerFargateLogGroup")
-                                .logGroupName(logGroupName)
-                                .retention(RetentionDays.TWO_WEEKS)
-                                .removalPolicy(RemovalPolicy.DESTROY)
-                                .build())
-                        .streamPrefix(builder.serviceProps.getServiceName())
-                        .build()))
+        LogGroup logGroup = LogGroup.Builder.create(this, "gatlingRunnerFargateLogGroup")
+                .logGroupName(logGroupName)
+                .retention(RetentionDays.TWO_WEEKS)
+                .removalPolicy(RemovalPolicy.DESTROY)
                 .build();
 
-        fargateTaskDefinition.addContainer("gatlingRunnerContainer", containerDefinitionOptions);
-
-        FargateService.Builder.create(this, id)
-                .serviceName(builder.serviceProps.getServiceName())
-                .taskDefinition(fargateTaskDefinition)
-                .desiredCount(0)
-                .cluster(builder.serviceProps.getEcsCluster())
-                .securityGroup(securityGroup)
-                .vpcSubnets(SubnetSelection.builder()
-                        .subnets(builder.serviceProps.getVpc().getPrivateSubnets())
-                        .build())
-                .build();
+        // with a results bucket the runners upload their simulation.log for the report worker instead of rendering a report
+        Map<String, String> environment = builder.logBucketName == null ? Map.of() : Map.of(
+                "GATLING_LOG_UPLOAD", "true",
+                "GATLING_LOG_UPLOAD_BUCKET", builder.logBucketName,
+                "GATLING_LOG_UPLOAD_REGION", Stack.of(this).getRegion());
+
+        // every shard gets its own task definition and service, because the shard index is passed as a container command
+        for (int shardIndex = 0; shardIndex < builder.shardCount; shardIndex++) {
+            String shardSuffix = builder.shardCount > 1 ? String.valueOf(shardIndex) : "";
+            String serviceName = builder.shardCount > 1 ?
+                    String.format("%s-%d", builder.serviceProps.getServiceName(), shardIndex) : builder.serviceProps.getServiceName();
+
+            FargateTaskDefinition fargateTaskDefinition = FargateTaskDefinition.Builder.create(this, "GatlingRunnerFargateTaskDefinition" + shardSuffix)
+                    .cpu(builder.cpu)
+                    .memoryLimitMiB(builder.memoryLimitMiB)
+                    .executionRole(builder.serviceProps.getFargateExecutionRole())
+                    .taskRole(builder.serviceProps.getFargateTaskRole())
+                    .build();
+
+            ContainerDefinitionOptions containerDefinitionOptions = ContainerDefinitionOptions.builder()
+                    .image(gatlingRunnerImage)
+                    .command(List.of("-gh", builder.graphiteHostName != null ? builder.graphiteHostName : builder.influxdbHostName,
+                            "-gp", String.valueOf(builder.graphitePorts.applyAsInt(shardIndex)),
+                            "-si", String.valueOf(shardIndex),
+                            "-sc", String.valueOf(builder.shardCount)))
+                    .environment(environment)
+                    .stopTimeout(STOP_TIMEOUT)
+                    .logging(LogDriver.awsLogs(AwsLogDriverProps.builder()
+                            .logGroup(logGroup)
+                            .streamPrefix(serviceName)
+                            .build()))
+                    .build();
+
+            fargateTaskDefinition.addContainer("gatlingRunnerContainer", containerDefinitionOptions);
+
+            FargateService service = FargateService.Builder.create(this, id + shardSuffix)
+                    .serviceName(serviceName)
+                    .taskDefinition(fargateTaskDefinition)
+                    .desiredCount(0)
+                    .cluster(builder.serviceProps.getEcsCluster())
+                    .securityGroup(securityGroup)
+                    .vpcSubnets(SubnetSelection.builder()
+                            .subnets(builder.serviceProps.getVpc().getPrivateSubnets())
+                            .build())
+                    .build();
+
+            if (builder.spot) {
+                // CDK 1.50 has no capacity provider strategies, the launch type of the service is replaced by the strategy
+                CfnService cfnService = (CfnService) service.getNode().getDefaultChild();
+                cfnService.addPropertyDeletionOverride("LaunchType");
+                cfnService.addPropertyOverride("CapacityProviderStrategy",
+                        List.of(Map.of("CapacityProvider", FARGATE_SPOT_CAPACITY_PROVIDER, "Weight", 1)));
+            }
+        }
     }
 
     public static Builder builder() {
@@ -74,6 +109,13 @@ public class GatlingRunnerFargateService extends Construct {
     public static final class Builder {
         private GatlingEcsServiceProps serviceProps;
         private String influxdbHostName;
+        private String graphiteHostName;
+        private int shardCount = 1;
+        private int cpu = 1024;
+        private int memoryLimitMiB = 2048;
+        private boolean spot;
+        private String logBucketName;
+        private IntUnaryOperator graphitePorts = shardIndex -> GraphiteListeners.FIRST_PORT;
 
         public Builder fargateServiceProps(GatlingEcsServiceProps props) {
             this.serviceProps = props;
@@ -85,6 +127,67 @@ public class GatlingRunnerFargateService extends Construct {
             return this;
         }
 
+        /**
+         * The host to which the runners send their Graphite metrics, defaults to the InfluxDB host. Set to the host of the
+         * Graphite relay to merge the metrics of all shards before they reach InfluxDB.
+         */
+        public Builder graphiteHostName(String graphiteHostName) {
+            this.graphiteHostName = graphiteHostName;
+            return this;
+        }
+
+        /**
+         * The Graphite port of every shard index, defaults to 2003 for all shards. Set to {@link GraphiteListeners#port(int)}
+         * to spread the runners over several Graphite listeners of InfluxDB.
+         */
+        public Builder graphitePorts(IntUnaryOperator graphitePorts) {
+            this.graphitePorts = graphitePorts;
+            return this;
+        }
+
+        /**
+         * The number of runner services that together inject the load of one simulation. Each shard injects
+         * 1/shardCount of the injection profile and reports its metrics with a shard specific Graphite root path prefix.
+         */
+        public Builder shardCount(int shardCount) {
+            if (shardCount < 1) {
+                throw new IllegalArgumentException("shardCount must be at least 1, but was " + shardCount);
+            }
+            this.shardCount = shardCount;
+            return this;
+        }
+
+        /**
+         * The CPU units of every runner task, must be a valid Fargate task size together with the memory limit.
+         */
+        public Builder cpu(int cpu) {
+            this.cpu = cpu;
+            return this;
+        }
+
+        public Builder memoryLimitMiB(int memoryLimitMiB) {
+            this.memoryLimitMiB = memoryLimitMiB;
+            return this;
+        }
+
+        /**
+         * Runs the runner tasks on Fargate Spot. The cluster must have the FARGATE_SPOT capacity provider. An interrupted
+         * runner stops injecting, flushes its metrics and marks its shard as truncated in InfluxDB.
+         */
+        public Builder spot(boolean spot) {
+            this.spot = spot;
+            return this;
+        }
+
+        /**
+         * The bucket the runners upload their simulation.log to in chunks, for the report worker. The runners then
+         * render no report and stop right after the injection. The run orchestrator passes the run id.
+         */
+        public Builder logBucketName(String logBucketName) {
+            this.logBucketName = logBucketName;
+            return this;
+        }
+
         public GatlingRunnerFargateService build(Construct scope, String id) {
             return new GatlingRunnerFargateService(scope, id, this);
         }
@@ -7,11 +7,9 @@ import software.amazon.awscdk.services.ec2.Port;
 import software.amazon.awscdk.services.ec2.SecurityGroup;
 import software.amazon.awscdk.services.ec2.SecurityGroupProps;
 import software.amazon.awscdk.services.ec2.SubnetSelection;
-import software.amazon.awscdk.services.ecr.assets.DockerImageAsset;
 import software.amazon.awscdk.services.ecs.AwsLogDriverProps;
 import software.amazon.awscdk.services.ecs.CloudMapOptions;
 import software.amazon.awscdk.services.ecs.ContainerDefinitionOptions;
-import software.amazon.awscdk.services.ecs.ContainerImage;
 import software.amazon.awscdk.services.ecs.FargateService;
 import software.amazon.awscdk.services.ecs.FargateTaskDefinition;
 import software.amazon.awscdk.services.ecs.LogDriver;
@@ -74,12 +72,8 @@ public class GrafanaFargateService extends Construct {
             environmentVariables.put("INFLUXDB_HOST", builder.influxdbHostName);
             environmentVariables.put("INFLUXDB_PORT", "8086");
 
-            DockerImageAsset grafanaAsset = DockerImageAsset.Builder.create(this, "grafanaAsset")
-                    .directory("../../gatling-monitoring/grafana")
-                    .build();
-
             this.containerDefinitionOptions = ContainerDefinitionOptions.builder()
-                    .image(ContainerImage.fromDockerImageAsset(grafanaAsset))
+                    .image(builder.serviceProps.getImageManifest().containerImage(this, "grafanaAsset", "../../gatling-monitoring/grafana"))
                     .logging(LogDriver.awsLogs(AwsLogDriverProps.builder()
                             .logGroup(LogGroup.Builder.create(this, "grafanaFargateLogGroup")
                                     .logGroupName(String.format("/ecs/%s/%s", builder.serviceProps.getClusterNamespace(), builder.serviceProps.getServiceName()))
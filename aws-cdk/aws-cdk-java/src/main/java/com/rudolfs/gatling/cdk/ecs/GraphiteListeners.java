@@ -0,0 +1,97 @@
+package com.rudolfs.gatling.cdk.ecs;
+
+/**
+ * The Graphite listeners of InfluxDB: count listeners on consecutive ports from 2003 with the same batch settings.
+ * A listener parses the lines of all its connections, but collects the points in one batcher that writes one batch
+ * after the other, with several runners a single listener becomes the ingest bottleneck while other cores are idle.
+ * The runners are spread over the listeners by their shard index, see {@link #port(int)}.
+ * <p>
+ * The default is the original configuration, a single listener on 2003 with batches of 5000 points and 10 pending batches.
+ */
+public final class GraphiteListeners {
+    public static final int FIRST_PORT = 2003;
+    // roughly the lines one listener parses and writes per second with one core, see GraphiteIngestBenchmark of the gatling-runner
+    private static final int VALUES_PER_SECOND_PER_LISTENER = 100_000;
+    private static final int MAX_LISTENERS = 16;
+    private static final int DEFAULT_BATCH_SIZE = 5000;
+    private static final int MAX_BATCH_SIZE = 50_000;
+    private static final int DEFAULT_BATCH_PENDING = 10;
+    private static final int MAX_BATCH_PENDING = 50;
+    // batch-pending buffers the load of this many seconds while the batcher waits for a write (e.g. during a compaction)
+    private static final int PENDING_SECONDS = 5;
+
+    private final int count;
+    private final int batchSize;
+    private final int batchPending;
+
+    private GraphiteListeners(int count, int batchSize, int batchPending) {
+        this.count = count;
+        this.batchSize = batchSize;
+        this.batchPending = batchPending;
+    }
+
+    /**
+     * A single listener on 2003 with the batch settings of influxdb.conf.
+     */
+    public static GraphiteListeners defaults() {
+        return new GraphiteListeners(1, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_PENDING);
+    }
+
+    public static GraphiteListeners of(int count, int batchSize, int batchPending) {
+        if (count < 1 || count > MAX_LISTENERS) {
+            throw new IllegalArgumentException(String.format("count must be 1 to %d, but was %d", MAX_LISTENERS, count));
+        }
+        if (batchSize < 1 || batchPending < 1) {
+            throw new IllegalArgumentException(String.format("batchSize and batchPending must be positive, but were %d and %d", batchSize, batchPending));
+        }
+        return new GraphiteListeners(count, batchSize, batchPending);
+    }
+
+    /**
+     * One listener per 100000 field values per second, at most one per sender (runner shard) and one core of InfluxDB
+     * left for the compactions and queries. A batch holds about one second of the load of a listener.
+     */
+    public static GraphiteListeners forWriteLoad(long valuesPerSecond, int influxdbCpu, int senders) {
+        int maxListeners = Math.max(1, Math.min(Math.min(influxdbCpu / 1024 - 1, senders), MAX_LISTENERS));
+        int count = (int) Math.max(1, Math.min(maxListeners, (valuesPerSecond + VALUES_PER_SECOND_PER_LISTENER - 1) / VALUES_PER_SECOND_PER_LISTENER));
+        return forWriteLoad(valuesPerSecond, count);
+    }
+
+    /**
+     * The given number of listeners with batches for their share of the field values per second.
+     */
+    public static GraphiteListeners forWriteLoad(long valuesPerSecond, int count) {
+        long valuesPerListener = valuesPerSecond / Math.max(1, count);
+        int batchSize = (int) Math.max(DEFAULT_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, valuesPerListener));
+        int batchPending = (int) Math.max(DEFAULT_BATCH_PENDING, Math.min(MAX_BATCH_PENDING, valuesPerListener * PENDING_SECONDS / batchSize));
+        return of(count, batchSize, batchPending);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBatchPending() {
+        return batchPending;
+    }
+
+    public int getLastPort() {
+        return FIRST_PORT + count - 1;
+    }
+
+    /**
+     * The port the runner with the given shard index sends to, the shards are spread round-robin over the listeners.
+     */
+    public int port(int shardIndex) {
+        return FIRST_PORT + shardIndex % count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d listener(s) on %d-%d, batches of %d points, %d pending", count, FIRST_PORT, getLastPort(), batchSize, batchPending);
+    }
+}
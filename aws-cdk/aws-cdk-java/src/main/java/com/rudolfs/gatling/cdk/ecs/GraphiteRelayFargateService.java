@@ -0,0 +1,96 @@
+package com.rudolfs.gatling.cdk.ecs;
+
+import software.amazon.awscdk.core.Construct;
+import software.amazon.awscdk.core.RemovalPolicy;
+import software.amazon.awscdk.services.ec2.Peer;
+import software.amazon.awscdk.services.ec2.Port;
+import software.amazon.awscdk.services.ec2.SecurityGroup;
+import software.amazon.awscdk.services.ec2.SecurityGroupProps;
+import software.amazon.awscdk.services.ec2.SubnetSelection;
+import software.amazon.awscdk.services.ecs.AwsLogDriverProps;
+import software.amazon.awscdk.services.ecs.CloudMapOptions;
+import software.amazon.awscdk.services.ecs.ContainerDefinitionOptions;
+import software.amazon.awscdk.services.ecs.FargateService;
+import software.amazon.awscdk.services.ecs.FargateTaskDefinition;
+import software.amazon.awscdk.services.ecs.LogDriver;
+import software.amazon.awscdk.services.logs.LogGroup;
+import software.amazon.awscdk.services.logs.RetentionDays;
+import software.amazon.awscdk.services.servicediscovery.DnsRecordType;
+
+import java.util.Map;
+
+/**
+ * Graphite relay between the runner shards and InfluxDB, merges the metrics of all shards per second before they are
+ * forwarded to the Graphite listener of InfluxDB.
+ */
+public class GraphiteRelayFargateService extends Construct {
+
+    public GraphiteRelayFargateService(Construct scope, String id, Builder builder) {
+        super(scope, id);
+
+        SecurityGroup securityGroup = new SecurityGroup(this, "GraphiteRelaySecurityGroup", SecurityGroupProps.builder()
+                .vpc(builder.serviceProps.getVpc())
+                .description(String.format("%s security group", builder.serviceProps.getServiceName()))
+                .build());
+        securityGroup.addIngressRule(Peer.anyIpv4(), Port.tcp(2003), "The Graphite port to which the runners send their metrics.");
+
+        FargateTaskDefinition fargateTaskDefinition = FargateTaskDefinition.Builder.create(this, "GraphiteRelayTaskDefinition")
+                .cpu(512)
+                .memoryLimitMiB(1024)
+                .executionRole(builder.serviceProps.getFargateExecutionRole())
+                .taskRole(builder.serviceProps.getFargateTaskRole())
+                .build();
+
+        fargateTaskDefinition.addContainer(builder.serviceProps.getServiceName(), ContainerDefinitionOptions.builder()
+                .image(builder.serviceProps.getImageManifest().containerImage(this, "graphiteRelayAsset", "../../gatling-monitoring/graphite-relay"))
+                .environment(Map.of("RELAY_TARGET_HOST", builder.influxdbHostName))
+                .logging(LogDriver.awsLogs(AwsLogDriverProps.builder()
+                        .logGroup(LogGroup.Builder.create(this, "graphiteRelayFargateLogGroup")
+                                .logGroupName(String.format("/ecs/%s/%s", builder.serviceProps.getClusterNamespace(), builder.serviceProps.getServiceName()))
+                                .retention(RetentionDays.TWO_WEEKS)
+                                .removalPolicy(RemovalPolicy.DESTROY)
+                                .build())
+                        .streamPrefix(builder.serviceProps.getServiceName())
+                        .build()))
+                .build());
+
+        FargateService.Builder.create(this, id)
+                .serviceName(builder.serviceProps.getServiceName())
+                .taskDefinition(fargateTaskDefinition)
+                .desiredCount(0)
+                .cloudMapOptions(CloudMapOptions.builder()
+                        .cloudMapNamespace(builder.serviceProps.getEcsCluster().getDefaultCloudMapNamespace())
+                        .dnsRecordType(DnsRecordType.A)
+                        .name(builder.serviceProps.getServiceName())
+                        .build())
+                .cluster(builder.serviceProps.getEcsCluster())
+                .securityGroup(securityGroup)
+                .vpcSubnets(SubnetSelection.builder()
+                        .subnets(builder.serviceProps.getVpc().getPrivateSubnets())
+                        .build())
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private GatlingEcsServiceProps serviceProps;
+        private String influxdbHostName;
+
+        public Builder fargateServiceProps(GatlingEcsServiceProps props) {
+            this.serviceProps = props;
+            return this;
+        }
+
+        public Builder influxdbHostName(String influxdbHostName) {
+            this.influxdbHostName = influxdbHostName;
+            return this;
+        }
+
+        public GraphiteRelayFargateService build(Construct scope, String id) {
+            return new GraphiteRelayFargateService(scope, id, this);
+        }
+    }
+}
@@ -1,16 +1,16 @@
 package com.rudolfs.gatling.cdk.ecs;
 
+import software.amazon.awscdk.core.CfnTag;
 import software.amazon.awscdk.core.Construct;
 import software.amazon.awscdk.core.RemovalPolicy;
+import software.amazon.awscdk.services.ec2.CfnVolume;
 import software.amazon.awscdk.services.ec2.Peer;
 import software.amazon.awscdk.services.ec2.Port;
 import software.amazon.awscdk.services.ec2.SecurityGroup;
 import software.amazon.awscdk.services.ec2.SecurityGroupProps;
-import software.amazon.awscdk.services.ecr.assets.DockerImageAsset;
 import software.amazon.awscdk.services.ecs.AwsLogDriverProps;
 import software.amazon.awscdk.services.ecs.CloudMapOptions;
 import software.amazon.awscdk.services.ecs.ContainerDefinitionOptions;
-import software.amazon.awscdk.services.ecs.ContainerImage;
 import software.amazon.awscdk.services.ecs.DockerVolumeConfiguration;
 import software.amazon.awscdk.services.ecs.Ec2Service;
 import software.amazon.awscdk.services.ecs.Ec2TaskDefinition;
@@ -23,49 +23,63 @@ import software.amazon.awscdk.services.logs.LogGroup;
 import software.amazon.awscdk.services.logs.RetentionDays;
 import software.amazon.awscdk.services.servicediscovery.DnsRecordType;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class InfluxdbEc2Service extends Construct {
     private static final String INFLUXDB_DATA_VOLUME_NAME = "influxdb-data";
+    private static final String INFLUXDB_WAL_VOLUME_NAME = "influxdb-wal";
     private static final String INFLUXDB_DATA_VOLUME_CONTAINER_PATH = "/var/lib/influxdb";
+    // wal-dir in influxdb.conf
+    private static final String INFLUXDB_WAL_VOLUME_CONTAINER_PATH = "/var/lib/influxdb/wal";
 
-    public InfluxdbEc2Service(Construct scope, String id, GatlingEcsServiceProps serviceProps) {
+    public InfluxdbEc2Service(Construct scope, String id, Builder builder) {
         super(scope, id);
 
+        GatlingEcsServiceProps serviceProps = builder.serviceProps;
+
         SecurityGroup securityGroup = new SecurityGroup(this, "InfluxdbSecurityGroup", SecurityGroupProps.builder()
                 .vpc(serviceProps.getVpc())
                 .description(String.format("%s security group", serviceProps.getServiceName()))
                 .build());
         securityGroup.addIngressRule(Peer.anyIpv4(), Port.tcp(8086), "The default port that runs the InfluxDB HTTP service.");
-        securityGroup.addIngressRule(Peer.anyIpv4(), Port.tcp(2003), "The default port that runs the Graphite service.");
+        GraphiteListeners graphiteListeners = builder.graphiteListeners;
+        for (int port = GraphiteListeners.FIRST_PORT; port <= graphiteListeners.getLastPort(); port++) {
+            securityGroup.addIngressRule(Peer.anyIpv4(), Port.tcp(port), port == GraphiteListeners.FIRST_PORT ?
+                    "The default port that runs the Graphite service." : "An additional Graphite listener, see graphite-listeners.sh.");
+        }
 
-        // use RexRay (Docker) volume driver to orchestrate EBS volume attachment to EC2 instances in the cluster
-        Volume dataVolume = Volume.builder()
-                .name(dataVolumeName(serviceProps.getClusterNamespace()))
-                .dockerVolumeConfiguration(DockerVolumeConfiguration.builder()
-                        .autoprovision(true)
-                        .driver("rexray/ebs")
-                        .driverOpts(Map.of("volumetype", "gp2", "size", "20"))
-                        .scope(Scope.SHARED)
-                        .build())
-                .build();
+        InfluxdbStorage storage = builder.storage;
+        String namespace = serviceProps.getClusterNamespace();
+        List<Volume> volumes = new ArrayList<>();
+        List<MountPoint> mountPoints = new ArrayList<>();
+
+        // the original gp2 volume keeps its name (and data), any other layout gets new volumes
+        String dataVolumeName = storage.isDefault() ? volumeName(namespace, INFLUXDB_DATA_VOLUME_NAME)
+                : volumeName(namespace, INFLUXDB_DATA_VOLUME_NAME + "-" + storage.getDataVolume().getType().getValue());
+        volumes.add(volume(dataVolumeName, storage.getDataVolume(), !storage.isDefault(), builder.availabilityZone, "InfluxdbDataVolume"));
+        mountPoints.add(mountPoint(dataVolumeName, INFLUXDB_DATA_VOLUME_CONTAINER_PATH));
+
+        storage.getWalVolume().ifPresent(walVolume -> {
+            String walVolumeName = volumeName(namespace, INFLUXDB_WAL_VOLUME_NAME);
+            volumes.add(volume(walVolumeName, walVolume, true, builder.availabilityZone, "InfluxdbWalVolume"));
+            mountPoints.add(mountPoint(walVolumeName, INFLUXDB_WAL_VOLUME_CONTAINER_PATH));
+        });
 
         Ec2TaskDefinition taskDefinition = Ec2TaskDefinition.Builder.create(this, "InfluxdbTaskDefinition")
                 .executionRole(serviceProps.getFargateExecutionRole())
                 .taskRole(serviceProps.getFargateTaskRole())
                 .networkMode(NetworkMode.AWS_VPC)
-                .volumes(List.of(dataVolume))
+                .volumes(volumes)
                 .build();
 
-        ContainerDefinitionOptions influxContainerDefinitionOptions = new InfluxContainerOptions(this, "InfluxdbContainerOptions", serviceProps)
+        ContainerDefinitionOptions influxContainerDefinitionOptions = new InfluxContainerOptions(this, "InfluxdbContainerOptions", builder)
                 .getContainerDefinitionOptions();
         taskDefinition.addContainer(serviceProps.getServiceName(), influxContainerDefinitionOptions)
-                .addMountPoints(MountPoint.builder()
-                        .sourceVolume(dataVolumeName(serviceProps.getClusterNamespace()))
-                        .containerPath(INFLUXDB_DATA_VOLUME_CONTAINER_PATH)
-                        .readOnly(false)
-                        .build());
+                .addMountPoints(mountPoints.toArray(new MountPoint[0]));
 
         Ec2Service.Builder.create(this, id)
                 .serviceName(serviceProps.getServiceName())
@@ -81,24 +95,81 @@ public class InfluxdbEc2Service extends Construct {
                 .build();
     }
 
-    private String dataVolumeName(String namespace) {
-        return String.format("%s-%s", namespace, INFLUXDB_DATA_VOLUME_NAME);
+    private String volumeName(String namespace, String name) {
+        return String.format("%s-%s", namespace, name);
+    }
+
+    /**
+     * A volume that the RexRay (Docker) volume driver attaches to the EC2 instance that runs the task. The driver
+     * finds an EBS volume by its Name tag and only creates gp2, io1 and gp3 volumes without a provisioned throughput.
+     * Any other layout is therefore created in the stack, with the name tag the driver looks for.
+     */
+    private Volume volume(String name, InfluxdbStorage.EbsVolume ebsVolume, boolean inStack, String availabilityZone, String id) {
+        if (inStack) {
+            CfnVolume volume = CfnVolume.Builder.create(this, id)
+                    .availabilityZone(availabilityZone)
+                    .volumeType(ebsVolume.getType().getValue())
+                    .size(ebsVolume.getSizeGiB())
+                    .iops(ebsVolume.getIops().orElse(null))
+                    .tags(List.of(CfnTag.builder().key("Name").value(name).build()))
+                    .build();
+            // the throughput of gp3 is newer than the CloudFormation spec of this CDK version
+            ebsVolume.getThroughputMiBps().ifPresent(throughput -> volume.addPropertyOverride("Throughput", throughput));
+            // the measurements outlive the stack
+            volume.applyRemovalPolicy(RemovalPolicy.RETAIN);
+        }
+
+        Map<String, String> driverOpts = new HashMap<>();
+        driverOpts.put("volumetype", ebsVolume.getType().getValue());
+        driverOpts.put("size", String.valueOf(ebsVolume.getSizeGiB()));
+        ebsVolume.getIops().ifPresent(iops -> driverOpts.put("iops", String.valueOf(iops)));
+        return Volume.builder()
+                .name(name)
+                .dockerVolumeConfiguration(DockerVolumeConfiguration.builder()
+                        .autoprovision(true)
+                        .driver("rexray/ebs")
+                        .driverOpts(driverOpts)
+                        .scope(Scope.SHARED)
+                        .build())
+                .build();
+    }
+
+    private static MountPoint mountPoint(String volumeName, String containerPath) {
+        return MountPoint.builder()
+                .sourceVolume(volumeName)
+                .containerPath(containerPath)
+                .readOnly(false)
+                .build();
     }
 
     static class InfluxContainerOptions extends Construct {
         private final ContainerDefinitionOptions containerDefinitionOptions;
 
-        public InfluxContainerOptions(Construct scope, String id, GatlingEcsServiceProps serviceProps) {
+        public InfluxContainerOptions(Construct scope, String id, InfluxdbEc2Service.Builder builder) {
             super(scope, id);
 
-            DockerImageAsset influxdbAsset = DockerImageAsset.Builder.create(this, "influxdbAsset")
-                    .directory("../../gatling-monitoring/influxdb")
-                    .build();
+            GatlingEcsServiceProps serviceProps = builder.serviceProps;
+
+            // overrides cache-max-memory-size of influxdb.conf
+            Map<String, String> environmentVariables = new HashMap<>();
+            environmentVariables.put("INFLUXDB_DATA_CACHE_MAX_MEMORY_SIZE", String.valueOf(builder.cacheMaxMemoryMiB * 1024L * 1024L));
+            // durations of the retention policies that provision-rollups.sh creates (or alters) at every start of the container
+            environmentVariables.put("GATLINGDB_RAW_RETENTION", builder.rawRetention);
+            environmentVariables.put("GATLINGDB_ROLLUP_10S_RETENTION", builder.rollup10sRetention);
+            environmentVariables.put("GATLINGDB_ROLLUP_1M_RETENTION", builder.rollup1mRetention);
+            environmentVariables.put("GATLINGDB_ROLLUP_5M_RETENTION", builder.rollup5mRetention);
+            // overrides index-version and max-series-per-database of influxdb.conf
+            environmentVariables.put("INFLUXDB_DATA_INDEX_VERSION", builder.tsiIndex ? "tsi1" : "inmem");
+            environmentVariables.put("INFLUXDB_DATA_MAX_SERIES_PER_DATABASE", String.valueOf(builder.maxSeriesPerDatabase));
+            // graphite-listeners.sh writes the [[graphite]] sections of influxdb.conf at every start of the container
+            environmentVariables.put("GATLINGDB_GRAPHITE_LISTENERS", String.valueOf(builder.graphiteListeners.getCount()));
+            environmentVariables.put("GATLINGDB_GRAPHITE_BATCH_SIZE", String.valueOf(builder.graphiteListeners.getBatchSize()));
+            environmentVariables.put("GATLINGDB_GRAPHITE_BATCH_PENDING", String.valueOf(builder.graphiteListeners.getBatchPending()));
 
             this.containerDefinitionOptions = ContainerDefinitionOptions.builder()
-                    .image(ContainerImage.fromDockerImageAsset(influxdbAsset))
-                    .memoryReservationMiB(3896)
-                    .cpu(2048)
+                    .image(serviceProps.getImageManifest().containerImage(this, "influxdbAsset", "../../gatling-monitoring/influxdb"))
+                    .memoryReservationMiB(builder.memoryReservationMiB)
+                    .cpu(builder.cpu)
                     .logging(LogDriver.awsLogs(AwsLogDriverProps.builder()
                             .logGroup(LogGroup.Builder.create(this, "influxdbLogGroup")
                                     .logGroupName(String.format("/ecs/%s/%s", serviceProps.getClusterNamespace(), serviceProps.getServiceName()))
@@ -107,6 +178,7 @@ public class InfluxdbEc2Service extends Construct {
                                     .build())
                             .streamPrefix(serviceProps.getServiceName())
                             .build()))
+                    .environment(environmentVariables)
                     .build();
         }
 
@@ -114,4 +186,118 @@ public class InfluxdbEc2Service extends Construct {
             return this.containerDefinitionOptions;
         }
     }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private GatlingEcsServiceProps serviceProps;
+        private int cpu = 2048;
+        private int memoryReservationMiB = 3896;
+        private int cacheMaxMemoryMiB = 1024;
+        private String rawRetention = "7d";
+        private String rollup10sRetention = "30d";
+        private String rollup1mRetention = "90d";
+        private String rollup5mRetention = "365d";
+        private boolean tsiIndex;
+        private int maxSeriesPerDatabase = 1_000_000;
+        private InfluxdbStorage storage = InfluxdbStorage.defaults();
+        private String availabilityZone;
+        private GraphiteListeners graphiteListeners = GraphiteListeners.defaults();
+
+        public Builder serviceProps(GatlingEcsServiceProps props) {
+            this.serviceProps = props;
+            return this;
+        }
+
+        public Builder cpu(int cpu) {
+            this.cpu = cpu;
+            return this;
+        }
+
+        /**
+         * The memory reserved for InfluxDB, must fit into the memory of the EC2 instance type of the cluster.
+         */
+        public Builder memoryReservationMiB(int memoryReservationMiB) {
+            this.memoryReservationMiB = memoryReservationMiB;
+            return this;
+        }
+
+        /**
+         * The maximum size of the in-memory cache of InfluxDB before it rejects writes.
+         */
+        public Builder cacheMaxMemoryMiB(int cacheMaxMemoryMiB) {
+            this.cacheMaxMemoryMiB = cacheMaxMemoryMiB;
+            return this;
+        }
+
+        /**
+         * How long the 1s points written by the runners are kept (InfluxQL duration, e.g. 7d).
+         */
+        public Builder rawRetention(String rawRetention) {
+            this.rawRetention = rawRetention;
+            return this;
+        }
+
+        /**
+         * How long the 10s, 1m and 5m rollups of the continuous queries are kept (InfluxQL durations).
+         */
+        public Builder rollupRetentions(String rollup10sRetention, String rollup1mRetention, String rollup5mRetention) {
+            this.rollup10sRetention = rollup10sRetention;
+            this.rollup1mRetention = rollup1mRetention;
+            this.rollup5mRetention = rollup5mRetention;
+            return this;
+        }
+
+        /**
+         * Uses the disk-based TSI index instead of the in-memory index, so the number of series is no longer bound by
+         * the heap. Shards created before keep the in-memory index.
+         */
+        public Builder tsiIndex(boolean tsiIndex) {
+            this.tsiIndex = tsiIndex;
+            return this;
+        }
+
+        /**
+         * The number of series after which InfluxDB rejects writes of new series, 0 disables the limit.
+         */
+        public Builder maxSeriesPerDatabase(int maxSeriesPerDatabase) {
+            this.maxSeriesPerDatabase = maxSeriesPerDatabase;
+            return this;
+        }
+
+        /**
+         * The EBS volumes for data and WAL, defaults to a single 20 GiB gp2 volume.
+         */
+        public Builder storage(InfluxdbStorage storage) {
+            this.storage = storage;
+            return this;
+        }
+
+        /**
+         * The availability zone of the EC2 instances of the cluster, where volumes created in the stack must be.
+         */
+        public Builder availabilityZone(String availabilityZone) {
+            this.availabilityZone = availabilityZone;
+            return this;
+        }
+
+        /**
+         * The Graphite listeners and their batch settings, defaults to a single listener on 2003.
+         */
+        public Builder graphiteListeners(GraphiteListeners graphiteListeners) {
+            this.graphiteListeners = graphiteListeners;
+            return this;
+        }
+
+        public InfluxdbEc2Service build(Construct scope, String id) {
+            Objects.requireNonNull(storage, "storage is required.");
+            Objects.requireNonNull(graphiteListeners, "graphiteListeners is required.");
+            if (!storage.isDefault()) {
+                Objects.requireNonNull(availabilityZone, "availabilityZone is required for the storage " + storage);
+            }
+            return new InfluxdbEc2Service(scope, id, this);
+        }
+    }
 }
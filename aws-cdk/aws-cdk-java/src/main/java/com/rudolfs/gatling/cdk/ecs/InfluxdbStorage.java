@@ -0,0 +1,232 @@
+package com.rudolfs.gatling.cdk.ecs;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The EBS volumes of InfluxDB: the data volume for /var/lib/influxdb (TSM files, index and meta) and optionally a
+ * separate volume for the write ahead log in /var/lib/influxdb/wal, so the fsync of every write no longer competes with
+ * the compactions for the IOPS and throughput of one volume.
+ * <p>
+ * The default is the original layout, a single 20 GiB gp2 volume. A gp2 volume has a baseline of 3 IOPS per GiB and
+ * bursts to 3000 IOPS from a credit balance, a long high-rate run drains the credits and the compactions stall the
+ * ingestion. gp3 and io1 volumes have provisioned IOPS (and gp3 a provisioned throughput) without burst credits.
+ * The limits of EBS are validated when the storage is built, so an invalid layout fails the synth.
+ */
+public final class InfluxdbStorage {
+    public enum VolumeType {
+        GP2("gp2"),
+        GP3("gp3"),
+        IO1("io1");
+
+        private final String value;
+
+        VolumeType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    // TSM compresses a field value to about 2 bytes, plus index and the rollups of the continuous queries
+    private static final double DATA_BYTES_PER_VALUE = 3.0;
+    // snappy compressed WAL entries, the series key is written with every point
+    private static final double WAL_BYTES_PER_VALUE = 16.0;
+    // WAL segments are removed after the cache snapshot, keep a multiple of the ingest of the snapshot interval
+    private static final int WAL_SECONDS = 30 * 60;
+    // compact-throughput in influxdb.conf
+    private static final int COMPACTION_MIB_PER_SECOND = 48;
+    // every value is written to the WAL, to a level 1 TSM file and rewritten by 2 to 3 compaction levels
+    private static final int WRITE_AMPLIFICATION = 4;
+    private static final double HEADROOM = 1.3;
+    private static final int DEFAULT_RAW_RETENTION_DAYS = 7;
+    private static final int GP3_BASELINE_IOPS = 3000;
+    private static final int GP3_BASELINE_THROUGHPUT_MIB = 125;
+    private static final int GP2_DEFAULT_SIZE_GIB = 20;
+    private static final int MIN_WAL_SIZE_GIB = 10;
+
+    private final EbsVolume dataVolume;
+    private final EbsVolume walVolume;
+
+    private InfluxdbStorage(Builder builder) {
+        this.dataVolume = builder.dataVolume;
+        this.walVolume = builder.walVolume;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The original layout: one 20 GiB gp2 volume for data and WAL.
+     */
+    public static InfluxdbStorage defaults() {
+        return builder().dataVolume(EbsVolume.gp2(GP2_DEFAULT_SIZE_GIB)).build();
+    }
+
+    /**
+     * A gp3 data volume and a separate gp3 WAL volume sized for the field values per second the runners write and the
+     * 7 days of the raw retention policy. Below the baseline of gp3 (3000 IOPS, 125 MiB/s) nothing is provisioned extra.
+     */
+    public static InfluxdbStorage forWriteLoad(long valuesPerSecond) {
+        return forWriteLoad(valuesPerSecond, DEFAULT_RAW_RETENTION_DAYS);
+    }
+
+    public static InfluxdbStorage forWriteLoad(long valuesPerSecond, int rawRetentionDays) {
+        double ingestMiBPerSecond = valuesPerSecond * DATA_BYTES_PER_VALUE / (1024 * 1024);
+        double walMiBPerSecond = valuesPerSecond * WAL_BYTES_PER_VALUE / (1024 * 1024);
+
+        int dataSizeGiB = Math.max(GP2_DEFAULT_SIZE_GIB,
+                gib(valuesPerSecond * DATA_BYTES_PER_VALUE * rawRetentionDays * 86_400 * HEADROOM));
+        int dataThroughput = (int) Math.ceil((ingestMiBPerSecond * WRITE_AMPLIFICATION + COMPACTION_MIB_PER_SECOND) * HEADROOM);
+        // a compaction writes in 1 MiB blocks at most, reads and the index updates need more, small operations
+        int dataIops = Math.min(16_000, dataThroughput * 16);
+
+        int walSizeGiB = Math.max(MIN_WAL_SIZE_GIB, gib(valuesPerSecond * WAL_BYTES_PER_VALUE * WAL_SECONDS * HEADROOM));
+        int walThroughput = (int) Math.ceil(walMiBPerSecond * HEADROOM);
+
+        return builder()
+                .dataVolume(EbsVolume.gp3(dataSizeGiB, Math.max(GP3_BASELINE_IOPS, dataIops), Math.max(GP3_BASELINE_THROUGHPUT_MIB, dataThroughput)))
+                .walVolume(EbsVolume.gp3(walSizeGiB, GP3_BASELINE_IOPS, Math.max(GP3_BASELINE_THROUGHPUT_MIB, walThroughput)))
+                .build();
+    }
+
+    public EbsVolume getDataVolume() {
+        return dataVolume;
+    }
+
+    public Optional<EbsVolume> getWalVolume() {
+        return Optional.ofNullable(walVolume);
+    }
+
+    /**
+     * Whether this is the original layout, which the rexray driver provisions by itself.
+     */
+    public boolean isDefault() {
+        return walVolume == null && dataVolume.type == VolumeType.GP2;
+    }
+
+    @Override
+    public String toString() {
+        return walVolume == null ? "data " + dataVolume : String.format("data %s, WAL %s", dataVolume, walVolume);
+    }
+
+    /**
+     * Type, size, IOPS and throughput of one EBS volume.
+     */
+    public static final class EbsVolume {
+        private final VolumeType type;
+        private final int sizeGiB;
+        private final Integer iops;
+        private final Integer throughputMiBps;
+
+        private EbsVolume(VolumeType type, int sizeGiB, Integer iops, Integer throughputMiBps) {
+            this.type = type;
+            this.sizeGiB = sizeGiB;
+            this.iops = iops;
+            this.throughputMiBps = throughputMiBps;
+        }
+
+        public static EbsVolume gp2(int sizeGiB) {
+            return new EbsVolume(VolumeType.GP2, sizeGiB, null, null);
+        }
+
+        public static EbsVolume gp3(int sizeGiB, int iops, int throughputMiBps) {
+            return new EbsVolume(VolumeType.GP3, sizeGiB, iops, throughputMiBps);
+        }
+
+        public static EbsVolume io1(int sizeGiB, int iops) {
+            return new EbsVolume(VolumeType.IO1, sizeGiB, iops, null);
+        }
+
+        public VolumeType getType() {
+            return type;
+        }
+
+        public int getSizeGiB() {
+            return sizeGiB;
+        }
+
+        public Optional<Integer> getIops() {
+            return Optional.ofNullable(iops);
+        }
+
+        public Optional<Integer> getThroughputMiBps() {
+            return Optional.ofNullable(throughputMiBps);
+        }
+
+        // the limits of the EBS volume types
+        private void validate(String name) {
+            switch (type) {
+                case GP2:
+                    check(sizeGiB >= 1 && sizeGiB <= 16_384, "%s: a gp2 volume has 1 to 16384 GiB, but was %d GiB", name, sizeGiB);
+                    break;
+                case GP3:
+                    check(sizeGiB >= 1 && sizeGiB <= 16_384, "%s: a gp3 volume has 1 to 16384 GiB, but was %d GiB", name, sizeGiB);
+                    check(iops >= 3000 && iops <= 16_000, "%s: a gp3 volume has 3000 to 16000 IOPS, but was %d", name, iops);
+                    check(iops <= 500 * sizeGiB, "%s: a gp3 volume has at most 500 IOPS per GiB, %d IOPS need %d GiB", name, iops, (iops + 499) / 500);
+                    check(throughputMiBps >= 125 && throughputMiBps <= 1000, "%s: a gp3 volume has 125 to 1000 MiB/s, but was %d MiB/s", name, throughputMiBps);
+                    check(throughputMiBps * 4 <= iops, "%s: a gp3 volume has at most 0.25 MiB/s per IOPS, %d MiB/s need %d IOPS", name, throughputMiBps, throughputMiBps * 4);
+                    break;
+                case IO1:
+                    check(sizeGiB >= 4 && sizeGiB <= 16_384, "%s: an io1 volume has 4 to 16384 GiB, but was %d GiB", name, sizeGiB);
+                    check(iops >= 100 && iops <= 64_000, "%s: an io1 volume has 100 to 64000 IOPS, but was %d", name, iops);
+                    check(iops <= 50 * sizeGiB, "%s: an io1 volume has at most 50 IOPS per GiB, %d IOPS need %d GiB", name, iops, (iops + 49) / 50);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown volume type " + type);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder description = new StringBuilder().append(type.getValue()).append(' ').append(sizeGiB).append(" GiB");
+            if (iops != null) {
+                description.append(", ").append(iops).append(" IOPS");
+            }
+            if (throughputMiBps != null) {
+                description.append(", ").append(throughputMiBps).append(" MiB/s");
+            }
+            return description.toString();
+        }
+    }
+
+    private static int gib(double bytes) {
+        return (int) Math.ceil(bytes / (1024L * 1024 * 1024));
+    }
+
+    private static void check(boolean condition, String format, Object... args) {
+        if (!condition) {
+            throw new IllegalArgumentException(String.format(format, args));
+        }
+    }
+
+    public static final class Builder {
+        private EbsVolume dataVolume;
+        private EbsVolume walVolume;
+
+        public Builder dataVolume(EbsVolume dataVolume) {
+            this.dataVolume = dataVolume;
+            return this;
+        }
+
+        /**
+         * A separate volume for the write ahead log, by default the WAL is on the data volume.
+         */
+        public Builder walVolume(EbsVolume walVolume) {
+            this.walVolume = walVolume;
+            return this;
+        }
+
+        public InfluxdbStorage build() {
+            Objects.requireNonNull(dataVolume, "dataVolume is required.");
+            dataVolume.validate("InfluxDB data volume");
+            if (walVolume != null) {
+                walVolume.validate("InfluxDB WAL volume");
+            }
+            return new InfluxdbStorage(this);
+        }
+    }
+}
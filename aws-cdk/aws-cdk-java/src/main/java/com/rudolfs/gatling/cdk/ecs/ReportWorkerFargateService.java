@@ -0,0 +1,123 @@
+package com.rudolfs.gatling.cdk.ecs;
+
+import software.amazon.awscdk.core.Construct;
+import software.amazon.awscdk.core.RemovalPolicy;
+import software.amazon.awscdk.core.Stack;
+import software.amazon.awscdk.services.ec2.SecurityGroup;
+import software.amazon.awscdk.services.ec2.SecurityGroupProps;
+import software.amazon.awscdk.services.ec2.SubnetSelection;
+import software.amazon.awscdk.services.ecs.AwsLogDriverProps;
+import software.amazon.awscdk.services.ecs.ContainerDefinitionOptions;
+import software.amazon.awscdk.services.ecs.FargateService;
+import software.amazon.awscdk.services.ecs.FargateTaskDefinition;
+import software.amazon.awscdk.services.ecs.LogDriver;
+import software.amazon.awscdk.services.logs.LogGroup;
+import software.amazon.awscdk.services.logs.RetentionDays;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Report worker that renders one HTML report from the simulation.log chunks all runner shards uploaded to the results
+ * bucket, so the runner tasks stop right after the injection. It uses the runner image with the --report option.
+ * Like the runners it has a desired count of 0, the run orchestrator launches a task with its task definition after
+ * the runner tasks have stopped and passes the run id as GATLING_RUN_ID.
+ */
+public class ReportWorkerFargateService extends Construct {
+
+    public ReportWorkerFargateService(Construct scope, String id, Builder builder) {
+        super(scope, id);
+
+        SecurityGroup securityGroup = new SecurityGroup(this, "ReportWorkerSecurityGroup", SecurityGroupProps.builder()
+                .vpc(builder.serviceProps.getVpc())
+                .description(String.format("%s security group", builder.serviceProps.getServiceName()))
+                .build());
+
+        FargateTaskDefinition fargateTaskDefinition = FargateTaskDefinition.Builder.create(this, "ReportWorkerTaskDefinition")
+                .cpu(builder.cpu)
+                .memoryLimitMiB(builder.memoryLimitMiB)
+                .executionRole(builder.serviceProps.getFargateExecutionRole())
+                .taskRole(builder.serviceProps.getFargateTaskRole())
+                .build();
+
+        fargateTaskDefinition.addContainer(builder.serviceProps.getServiceName(), ContainerDefinitionOptions.builder()
+                .image(builder.serviceProps.getImageManifest().containerImage(this, "reportWorkerAsset", "../../gatling-monitoring/gatling-runner"))
+                .command(List.of("-sc", String.valueOf(builder.shardCount), "--report"))
+                .environment(Map.of(
+                        "GATLING_LOG_UPLOAD_BUCKET", builder.bucketName,
+                        "GATLING_LOG_UPLOAD_REGION", Stack.of(this).getRegion()))
+                .logging(LogDriver.awsLogs(AwsLogDriverProps.builder()
+                        .logGroup(LogGroup.Builder.create(this, "reportWorkerFargateLogGroup")
+                                .logGroupName(String.format("/ecs/%s/%s", builder.serviceProps.getClusterNamespace(), builder.serviceProps.getServiceName()))
+                                .retention(RetentionDays.TWO_WEEKS)
+                                .removalPolicy(RemovalPolicy.DESTROY)
+                                .build())
+                        .streamPrefix(builder.serviceProps.getServiceName())
+                        .build()))
+                .build());
+
+        FargateService.Builder.create(this, id)
+                .serviceName(builder.serviceProps.getServiceName())
+                .taskDefinition(fargateTaskDefinition)
+                .desiredCount(0)
+                .cluster(builder.serviceProps.getEcsCluster())
+                .securityGroup(securityGroup)
+                .vpcSubnets(SubnetSelection.builder()
+                        .subnets(builder.serviceProps.getVpc().getPrivateSubnets())
+                        .build())
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private GatlingEcsServiceProps serviceProps;
+        private String bucketName;
+        private int shardCount = 1;
+        private int cpu = 2048;
+        private int memoryLimitMiB = 8192;
+
+        public Builder fargateServiceProps(GatlingEcsServiceProps props) {
+            this.serviceProps = props;
+            return this;
+        }
+
+        /**
+         * The bucket the runners upload their simulation.log chunks to, the report is uploaded to the same bucket.
+         */
+        public Builder bucketName(String bucketName) {
+            this.bucketName = bucketName;
+            return this;
+        }
+
+        /**
+         * The number of runner shards whose logs the report covers.
+         */
+        public Builder shardCount(int shardCount) {
+            this.shardCount = shardCount;
+            return this;
+        }
+
+        /**
+         * The CPU units of the report worker task, the report is rendered by a single JVM.
+         */
+        public Builder cpu(int cpu) {
+            this.cpu = cpu;
+            return this;
+        }
+
+        /**
+         * The memory of the report worker task, Gatling keeps the statistics of all requests of the run in memory.
+         */
+        public Builder memoryLimitMiB(int memoryLimitMiB) {
+            this.memoryLimitMiB = memoryLimitMiB;
+            return this;
+        }
+
+        public ReportWorkerFargateService build(Construct scope, String id) {
+            return new ReportWorkerFargateService(scope, id, this);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.rudolfs.gatling.cdk.image;
+
+import software.amazon.awscdk.core.Construct;
+import software.amazon.awscdk.services.ecr.assets.DockerImageAsset;
+import software.amazon.awscdk.services.ecs.ContainerImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the container images of the services either from previously built and pushed images or from a Docker
+ * image asset that is built during synth. The manifest (written by build-images.sh) contains per image directory the
+ * content hash of the directory and the digest reference of the image that was built from it:
+ * <pre>
+ * gatling-runner.hash=3f2a...
+ * gatling-runner.image=123456789012.dkr.ecr.eu-west-1.amazonaws.com/gatling/gatling-runner@sha256:9b1c...
+ * </pre>
+ * An image is only taken from the manifest when the content hash of its directory is unchanged, so a stale manifest
+ * never deploys an outdated image.
+ */
+public final class ImageManifest {
+    private static final String HASH_SUFFIX = ".hash";
+    private static final String IMAGE_SUFFIX = ".image";
+    private static final List<String> EXCLUDED_DIRECTORIES = List.of("./target/", "./node_modules/");
+    private static final String EXCLUDED_FILE = "dependency-reduced-pom.xml";
+
+    private final Properties images;
+
+    private ImageManifest(Properties images) {
+        this.images = images;
+    }
+
+    /**
+     * A manifest without images, every image is built as Docker image asset.
+     */
+    public static ImageManifest empty() {
+        return new ImageManifest(new Properties());
+    }
+
+    public static ImageManifest load(Path manifest) {
+        Properties images = new Properties();
+        try (InputStream in = Files.newInputStream(manifest)) {
+            images.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read image manifest " + manifest, e);
+        }
+        return new ImageManifest(images);
+    }
+
+    /**
+     * The container image for the given image directory, the prebuilt image when the directory is unchanged since
+     * the image was built, otherwise a Docker image asset with the given construct id.
+     */
+    public ContainerImage containerImage(Construct scope, String assetId, String directory) {
+        String name = Paths.get(directory).getFileName().toString();
+        String image = images.getProperty(name + IMAGE_SUFFIX);
+        if (image != null && contentHash(Paths.get(directory)).equals(images.getProperty(name + HASH_SUFFIX))) {
+            return ContainerImage.fromRegistry(image);
+        }
+        DockerImageAsset asset = DockerImageAsset.Builder.create(scope, assetId)
+                .directory(directory)
+                .build();
+        return ContainerImage.fromDockerImageAsset(asset);
+    }
+
+    /**
+     * The SHA-256 of the sha256sum listing of all files in the directory, sorted by path. build-images.sh computes the
+     * same hash with {@code find . -type f | sort | xargs sha256sum | sha256sum}.
+     */
+    public static String contentHash(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<String> paths = files
+                    .filter(Files::isRegularFile)
+                    .map(file -> "./" + directory.relativize(file).toString().replace('\\', '/'))
+                    .filter(path -> EXCLUDED_DIRECTORIES.stream().noneMatch(path::startsWith))
+                    .filter(path -> !path.endsWith("/" + EXCLUDED_FILE))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            StringBuilder listing = new StringBuilder();
+            for (String path : paths) {
+                listing.append(hex(sha256(Files.readAllBytes(directory.resolve(path)))))
+                        .append("  ").append(path).append('\n');
+            }
+            return hex(sha256(listing.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not hash image directory " + directory, e);
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -1,24 +1,53 @@
 package com.rudolfs.gatling.cdk.pipeline;
 
 import com.rudolfs.gatling.cdk.StackBuilder;
+import software.amazon.awscdk.core.ArnComponents;
 import software.amazon.awscdk.core.SecretValue;
 import software.amazon.awscdk.core.Stack;
 import software.amazon.awscdk.services.codebuild.BuildEnvironment;
+import software.amazon.awscdk.services.codebuild.BuildEnvironmentVariable;
 import software.amazon.awscdk.services.codebuild.BuildSpec;
+import software.amazon.awscdk.services.codebuild.Cache;
+import software.amazon.awscdk.services.codebuild.ComputeType;
 import software.amazon.awscdk.services.codebuild.LinuxBuildImage;
+import software.amazon.awscdk.services.codebuild.LocalCacheMode;
 import software.amazon.awscdk.services.codebuild.PipelineProject;
 import software.amazon.awscdk.services.codepipeline.Artifact;
+import software.amazon.awscdk.services.codepipeline.IAction;
 import software.amazon.awscdk.services.codepipeline.Pipeline;
 import software.amazon.awscdk.services.codepipeline.StageProps;
 import software.amazon.awscdk.services.codepipeline.actions.CloudFormationCreateUpdateStackAction;
 import software.amazon.awscdk.services.codepipeline.actions.CodeBuildAction;
 import software.amazon.awscdk.services.codepipeline.actions.GitHubSourceAction;
+import software.amazon.awscdk.services.ec2.IVpc;
+import software.amazon.awscdk.services.ec2.SubnetSelection;
+import software.amazon.awscdk.services.ec2.SubnetType;
+import software.amazon.awscdk.services.iam.PolicyStatement;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Collections.singletonList;
 
+/**
+ * CodePipeline that synthesizes and deploys the VPC and ECS stacks on every commit. The Build stage first builds the
+ * images of the services in parallel, one CodeBuild project per image with a local Docker layer cache (see
+ * buildspec-image.yml and build-images.sh). Every image action publishes the content hash and digest of its image as
+ * image manifest, the synth action reads the manifests of all images, so the templates reference the pushed images
+ * and the synth itself builds no image. The Maven repository and the npm cache of the synth are cached as well.
+ * <p>
+ * With the regression gate, a RegressionGate stage after Deploy runs one test with the run orchestrator in the VPC
+ * (see aws-cdk/run-orchestrator/buildspec-regression-gate.yml) and fails the pipeline when the latency or throughput
+ * of a request regressed against the baseline in the source.
+ */
 public class GatlingPipelineStack extends Stack {
+    // the directories in gatling-monitoring of the images that the ECS stack deploys
+    private static final List<String> IMAGES = List.of("gatling-runner", "influxdb", "grafana", "graphite-relay");
+    private static final String RUNNER_IMAGE = "gatling-runner";
 
     private GatlingPipelineStack(Builder builder) {
         super(builder.getScope(), builder.getId(), builder.getStackProps());
@@ -26,7 +55,8 @@ public class GatlingPipelineStack extends Stack {
         PipelineProject cdkBuild = PipelineProject.Builder.create(this, "CDKBuild")
                 .buildSpec(BuildSpec.fromSourceFilename("aws-cdk/aws-cdk-java/buildspec.yml"))
                 .environment(BuildEnvironment.builder()
-                        .buildImage(LinuxBuildImage.STANDARD_2_0).build())
+                        .buildImage(LinuxBuildImage.STANDARD_4_0).build())
+                .cache(Cache.local(LocalCacheMode.CUSTOM))
                 .build();
 
         Artifact sourceArtifact = new Artifact();
@@ -44,15 +74,32 @@ public class GatlingPipelineStack extends Stack {
                         .build()))
                 .build();
 
+        List<IAction> buildActions = new ArrayList<>();
+        List<Artifact> imageManifests = new ArrayList<>();
+        for (String image : IMAGES) {
+            String name = pascalCase(image);
+            Artifact imageManifest = new Artifact(name + "Image");
+            imageManifests.add(imageManifest);
+            buildActions.add(CodeBuildAction.Builder.create()
+                    .actionName(name + "Image")
+                    .input(sourceArtifact)
+                    .outputs(singletonList(imageManifest))
+                    .project(imageBuild(name, image, builder.namespace))
+                    .runOrder(1)
+                    .build());
+        }
+        buildActions.add(CodeBuildAction.Builder.create()
+                .actionName("AwsCdkBuild")
+                .input(sourceArtifact)
+                .extraInputs(imageManifests)
+                .outputs(singletonList(cdkBuildOutput))
+                .project(cdkBuild)
+                .runOrder(2)
+                .build());
+
         StageProps buildStageProps = StageProps.builder()
                 .stageName("Build")
-                .actions(singletonList(CodeBuildAction.Builder.create()
-                        .actionName("AwsCdkBuild")
-                        .input(sourceArtifact)
-                        .outputs(singletonList(cdkBuildOutput))
-                        .project(cdkBuild)
-                        .build())
-                )
+                .actions(buildActions)
                 .build();
 
         StageProps deployStageProps = StageProps.builder()
@@ -73,7 +120,18 @@ public class GatlingPipelineStack extends Stack {
                                 .build()))
                 .build();
 
-        List<StageProps> stages = List.of(sourceStageProps, buildStageProps, deployStageProps);
+        List<StageProps> stages = new ArrayList<>(List.of(sourceStageProps, buildStageProps, deployStageProps));
+        if (builder.regressionGate) {
+            stages.add(StageProps.builder()
+                    .stageName("RegressionGate")
+                    .actions(singletonList(CodeBuildAction.Builder.create()
+                            .actionName("RegressionTest")
+                            .input(sourceArtifact)
+                            .outputs(singletonList(new Artifact("RegressionGateResults")))
+                            .project(regressionGate(builder))
+                            .build()))
+                    .build());
+        }
 
         Pipeline.Builder.create(this, "GatlingCICDPipeline")
                 .pipelineName(builder.pipelineName)
@@ -81,14 +139,111 @@ public class GatlingPipelineStack extends Stack {
                 .build();
     }
 
+    /**
+     * The CodeBuild project that builds and pushes one image with build-images.sh. The local Docker layer cache keeps
+     * the layers of the previous build on the build host, the --cache option adds the latest image in ECR as cache
+     * for builds on another host.
+     */
+    private PipelineProject imageBuild(String name, String image, String namespace) {
+        PipelineProject imageBuild = PipelineProject.Builder.create(this, name + "ImageBuild")
+                .buildSpec(BuildSpec.fromSourceFilename("aws-cdk/aws-cdk-java/buildspec-image.yml"))
+                .environment(BuildEnvironment.builder()
+                        .buildImage(LinuxBuildImage.STANDARD_4_0)
+                        // the runner image compiles the Scala sources and runs the AppCDS training run
+                        .computeType(RUNNER_IMAGE.equals(image) ? ComputeType.MEDIUM : ComputeType.SMALL)
+                        .privileged(true)
+                        .build())
+                .environmentVariables(Map.of(
+                        "IMAGE_NAME", BuildEnvironmentVariable.builder().value(image).build(),
+                        "PROJECT_NAME", BuildEnvironmentVariable.builder().value(namespace).build()))
+                .cache(Cache.local(LocalCacheMode.DOCKER_LAYER))
+                .build();
+
+        // build-images.sh creates the repository <namespace>/<image> when it doesn't exist yet
+        imageBuild.addToRolePolicy(PolicyStatement.Builder.create()
+                .actions(List.of("ecr:DescribeRepositories", "ecr:CreateRepository", "ecr:DescribeImages",
+                        "ecr:BatchCheckLayerAvailability", "ecr:GetDownloadUrlForLayer", "ecr:BatchGetImage",
+                        "ecr:InitiateLayerUpload", "ecr:UploadLayerPart", "ecr:CompleteLayerUpload", "ecr:PutImage"))
+                .resources(singletonList(formatArn(ArnComponents.builder()
+                        .service("ecr")
+                        .resource("repository")
+                        .resourceName(namespace + "/*")
+                        .build())))
+                .build());
+        imageBuild.addToRolePolicy(PolicyStatement.Builder.create()
+                .actions(singletonList("ecr:GetAuthorizationToken"))
+                .resources(singletonList("*"))
+                .build());
+        return imageBuild;
+    }
+
+    /**
+     * The CodeBuild project that runs the orchestrator with the regression gate. It runs in the private subnets,
+     * because the orchestrator connects to the private IP address of the InfluxDB task, and starts and stops the
+     * services and runner tasks of the ECS stack.
+     */
+    private PipelineProject regressionGate(Builder builder) {
+        PipelineProject regressionGate = PipelineProject.Builder.create(this, "RegressionGateBuild")
+                .buildSpec(BuildSpec.fromSourceFilename("aws-cdk/run-orchestrator/buildspec-regression-gate.yml"))
+                .environment(BuildEnvironment.builder()
+                        .buildImage(LinuxBuildImage.STANDARD_4_0).build())
+                .environmentVariables(Map.of(
+                        "PROJECT_NAME", BuildEnvironmentVariable.builder().value(builder.namespace).build(),
+                        "RUNNER_SHARD_COUNT", BuildEnvironmentVariable.builder().value(String.valueOf(builder.runnerShardCount)).build(),
+                        "GRAPHITE_RELAY", BuildEnvironmentVariable.builder().value(String.valueOf(builder.graphiteRelay)).build(),
+                        "REGRESSION_BASELINE", BuildEnvironmentVariable.builder().value("regression-baseline.json").build()))
+                .vpc(builder.vpcSupplier.get())
+                .subnetSelection(SubnetSelection.builder()
+                        .subnetType(SubnetType.PRIVATE)
+                        .build())
+                .cache(Cache.local(LocalCacheMode.CUSTOM))
+                .build();
+
+        regressionGate.addToRolePolicy(PolicyStatement.Builder.create()
+                .actions(List.of("ecs:UpdateService", "ecs:DescribeServices", "ecs:ListTasks", "ecs:DescribeTasks",
+                        "ecs:RunTask", "ecs:StopTask"))
+                .resources(singletonList("*"))
+                .build());
+        // RunTask passes the task and execution roles of the task definitions
+        regressionGate.addToRolePolicy(PolicyStatement.Builder.create()
+                .actions(singletonList("iam:PassRole"))
+                .resources(singletonList(formatArn(ArnComponents.builder()
+                        .service("iam")
+                        .region("")
+                        .resource("role")
+                        .resourceName(builder.namespace + "-*")
+                        .build())))
+                .build());
+        return regressionGate;
+    }
+
+    private static String pascalCase(String directory) {
+        return Stream.of(directory.split("-"))
+                .map(word -> Character.toUpperCase(word.charAt(0)) + word.substring(1))
+                .collect(Collectors.joining());
+    }
+
     public static Builder builder() {
         return new Builder();
     }
 
     public static final class Builder extends StackBuilder<Builder> {
+        private String namespace;
         private String pipelineName;
         private String vpcStackName;
         private String ecsStackName;
+        private boolean regressionGate;
+        private Supplier<IVpc> vpcSupplier;
+        private int runnerShardCount = 1;
+        private boolean graphiteRelay;
+
+        /**
+         * The prefix of the ECR repositories of the images, the same as the namespace of the ECS stack.
+         */
+        public Builder namespace(String namespace) {
+            this.namespace = namespace;
+            return this;
+        }
 
         public Builder pipelineName(String pipelineName) {
             this.pipelineName = pipelineName;
@@ -105,6 +260,29 @@ public class GatlingPipelineStack extends Stack {
             return this;
         }
 
+        /**
+         * Adds the RegressionGate stage after Deploy, which needs the VPC and the runner configuration of the ECS stack.
+         */
+        public Builder regressionGate(boolean regressionGate) {
+            this.regressionGate = regressionGate;
+            return this;
+        }
+
+        public Builder vpc(Supplier<IVpc> vpc) {
+            this.vpcSupplier = vpc;
+            return this;
+        }
+
+        public Builder runnerShardCount(int runnerShardCount) {
+            this.runnerShardCount = runnerShardCount;
+            return this;
+        }
+
+        public Builder graphiteRelay(boolean graphiteRelay) {
+            this.graphiteRelay = graphiteRelay;
+            return this;
+        }
+
         @Override
         public GatlingPipelineStack build() {
             return new GatlingPipelineStack(this);
@@ -0,0 +1,129 @@
+package com.rudolfs.gatling.cdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rudolfs.gatling.cdk.ecs.GatlingEcsStack;
+import com.rudolfs.gatling.cdk.ecs.InfluxdbStorage;
+import com.rudolfs.gatling.cdk.ecs.InfluxdbStorage.EbsVolume;
+import com.rudolfs.gatling.cdk.image.ImageManifest;
+import com.rudolfs.gatling.cdk.vpc.GatlingVpcStack;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awscdk.core.App;
+import software.amazon.awscdk.core.StackProps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Synthesizes the ECS stack and checks the InfluxDB volumes in the CloudFormation template.
+ */
+class GatlingEcsStackTest {
+    private static final String NAMESPACE = "gatling-test";
+    // the image directories of the ECS stack, prebuilt in the manifest so the synth builds no Docker image assets
+    private static final List<String> IMAGE_DIRECTORIES = List.of("gatling-runner", "graphite-relay", "grafana", "influxdb");
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void gp3StorageCreatesDataAndWalVolumesWithIopsAndThroughput() throws IOException {
+        InfluxdbStorage storage = InfluxdbStorage.forWriteLoad(5_000_000);
+
+        JsonNode template = synth(storage);
+
+        List<JsonNode> volumes = resources(template, "AWS::EC2::Volume");
+        assertEquals(2, volumes.size());
+        assertVolume(storage.getDataVolume(), volumeNamed(volumes, NAMESPACE + "-influxdb-data-gp3"));
+        assertVolume(storage.getWalVolume().orElseThrow(AssertionError::new), volumeNamed(volumes, NAMESPACE + "-influxdb-wal"));
+
+        Set<String> containerPaths = containerPaths(template);
+        assertTrue(containerPaths.contains("/var/lib/influxdb"));
+        assertTrue(containerPaths.contains("/var/lib/influxdb/wal"));
+    }
+
+    @Test
+    void defaultStorageLeavesTheVolumeToTheVolumeDriver() throws IOException {
+        JsonNode template = synth(InfluxdbStorage.defaults());
+
+        assertTrue(resources(template, "AWS::EC2::Volume").isEmpty());
+        Set<String> containerPaths = containerPaths(template);
+        assertTrue(containerPaths.contains("/var/lib/influxdb"));
+        assertFalse(containerPaths.contains("/var/lib/influxdb/wal"));
+    }
+
+    private JsonNode synth(InfluxdbStorage storage) throws IOException {
+        App app = new App();
+        StackProps stackProps = StackProps.builder().build();
+
+        GatlingEcsStack stack = GatlingEcsStack.builder().scope(app).id("GatlingEcsTestStack").stackProps(stackProps)
+                .namespace(NAMESPACE)
+                .vpc(new GatlingVpcStack(app, "GatlingVpcTestStack", stackProps, NAMESPACE))
+                .influxdbStorage(storage)
+                .imageManifest(imageManifest())
+                .build();
+
+        Object template = app.synth().getStackByName(stack.getStackName()).getTemplate();
+        return new ObjectMapper().valueToTree(template);
+    }
+
+    private ImageManifest imageManifest() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String directory : IMAGE_DIRECTORIES) {
+            lines.add(directory + ".hash=" + ImageManifest.contentHash(Paths.get("../../gatling-monitoring", directory)));
+            lines.add(directory + ".image=123456789012.dkr.ecr.eu-west-1.amazonaws.com/gatling/" + directory + ":test");
+        }
+        Path manifest = Files.write(tempDirectory.resolve("image-manifest.properties"), lines);
+        return ImageManifest.load(manifest);
+    }
+
+    private static void assertVolume(EbsVolume expected, JsonNode volume) {
+        JsonNode properties = volume.path("Properties");
+        assertEquals("gp3", properties.path("VolumeType").asText());
+        assertEquals(expected.getSizeGiB(), properties.path("Size").asInt());
+        assertEquals(expected.getIops().orElseThrow(AssertionError::new).intValue(), properties.path("Iops").asInt());
+        assertEquals(expected.getThroughputMiBps().orElseThrow(AssertionError::new).intValue(), properties.path("Throughput").asInt());
+        assertEquals("Retain", volume.path("DeletionPolicy").asText());
+    }
+
+    private static JsonNode volumeNamed(List<JsonNode> volumes, String name) {
+        for (JsonNode volume : volumes) {
+            for (JsonNode tag : volume.path("Properties").path("Tags")) {
+                if ("Name".equals(tag.path("Key").asText()) && name.equals(tag.path("Value").asText())) {
+                    return volume;
+                }
+            }
+        }
+        throw new AssertionError("No volume with Name tag " + name);
+    }
+
+    private static List<JsonNode> resources(JsonNode template, String type) {
+        List<JsonNode> resources = new ArrayList<>();
+        template.path("Resources").forEach(resource -> {
+            if (type.equals(resource.path("Type").asText())) {
+                resources.add(resource);
+            }
+        });
+        return resources;
+    }
+
+    private static Set<String> containerPaths(JsonNode template) {
+        Set<String> containerPaths = new TreeSet<>();
+        for (JsonNode taskDefinition : resources(template, "AWS::ECS::TaskDefinition")) {
+            for (JsonNode container : taskDefinition.path("Properties").path("ContainerDefinitions")) {
+                container.path("MountPoints").forEach(mountPoint -> containerPaths.add(mountPoint.path("ContainerPath").asText()));
+            }
+        }
+        return containerPaths;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rudolfs.gatling.cdk.capacity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CapacityPlannerTest {
+    // 0.7 CPU units per request/s, 10 MiB per virtual user on top of 300 MiB, 9 request names (31 series per shard)
+    private static final CapacityCalibration CALIBRATION = new CapacityCalibration(100, 1000, 700, 1300, 300, 9);
+
+    @Test
+    void smallestTaskSizeThatServesTheLoadIsChosen() {
+        // 350 CPU units and 500 MiB at 70% utilization need 500 CPU units and 715 MiB
+        CapacityPlan plan = planner(500, 20).build().plan();
+
+        assertEquals(1, plan.getRunnerShardCount());
+        assertEquals(512, plan.getRunnerCpu());
+        assertEquals(1024, plan.getRunnerMemoryLimitMiB());
+    }
+
+    @Test
+    void memorySizeIsTheSmallestValidSizeOfTheCpuSize() {
+        // 700 CPU units and 2000 MiB at 70% utilization need 1000 CPU units and 2858 MiB
+        CapacityPlan plan = planner(1000, 170).build().plan();
+
+        assertEquals(1, plan.getRunnerShardCount());
+        assertEquals(1024, plan.getRunnerCpu());
+        assertEquals(3072, plan.getRunnerMemoryLimitMiB());
+    }
+
+    @Test
+    void shardsAreAddedWhenOneLargestTaskIsNotEnough() {
+        // 5000 CPU units at 70% utilization exceed 4096, two shards need 2500 each
+        CapacityPlan plan = planner(5000, 100).build().plan();
+
+        assertEquals(2, plan.getRunnerShardCount());
+        assertEquals(4096, plan.getRunnerCpu());
+        assertEquals(8192, plan.getRunnerMemoryLimitMiB());
+    }
+
+    @Test
+    void loadBeyondTheFargateTaskQuotaIsRejected() {
+        // 10000 CPU units at 70% utilization need three shards of 4096
+        CapacityPlanner planner = planner(10_000, 100).fargateTaskQuota(2).build();
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, planner::plan);
+        assertTrue(exception.getMessage().contains("more than 2 gatling-runner shards"), exception.getMessage());
+        assertEquals(3, planner(10_000, 100).fargateTaskQuota(3).build().plan().getRunnerShardCount());
+    }
+
+    @Test
+    void influxdbStepsUpWhenTheValuesPerSecondExceedItsInstanceType() {
+        // 17 shards write 527 series with 4743 values/s, 18 shards 558 series with 5022 values/s
+        CapacityPlan below = planner(500, 20).minShardCount(17).build().plan();
+        CapacityPlan above = planner(500, 20).minShardCount(18).build().plan();
+
+        assertEquals(4743, below.getInfluxdbValuesPerSecond());
+        assertEquals("t3a.medium", below.getInfluxdbInstanceType());
+        assertEquals(2048, below.getInfluxdbCpu());
+        assertEquals(3896, below.getInfluxdbMemoryReservationMiB());
+        assertEquals(1024, below.getInfluxdbCacheMaxMemoryMiB());
+        assertEquals(5022, above.getInfluxdbValuesPerSecond());
+        assertEquals("m5a.xlarge", above.getInfluxdbInstanceType());
+        assertEquals(4096, above.getInfluxdbCpu());
+        assertEquals(16184, above.getInfluxdbMemoryReservationMiB());
+        assertEquals(4046, above.getInfluxdbCacheMaxMemoryMiB());
+    }
+
+    @Test
+    void graphiteRelayRemovesTheShardMultiplier() {
+        CapacityPlan plan = planner(500, 20).minShardCount(18).graphiteRelay(true).build().plan();
+
+        assertEquals(18, plan.getRunnerShardCount());
+        assertEquals(279, plan.getInfluxdbValuesPerSecond());
+        assertEquals("t3a.medium", plan.getInfluxdbInstanceType());
+    }
+
+    @Test
+    void rejectsAMinShardCountAboveTheFargateTaskQuota() {
+        assertThrows(IllegalArgumentException.class, () -> planner(500, 20).minShardCount(3).fargateTaskQuota(2).build());
+    }
+
+    private static CapacityPlanner.Builder planner(double targetRequestsPerSecond, int virtualUsers) {
+        return CapacityPlanner.builder()
+                .targetRequestsPerSecond(targetRequestsPerSecond)
+                .virtualUsers(virtualUsers)
+                .calibration(CALIBRATION);
+    }
+}
@@ -0,0 +1,93 @@
+package com.rudolfs.gatling.cdk.ecs;
+
+import com.rudolfs.gatling.cdk.ecs.InfluxdbStorage.EbsVolume;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InfluxdbStorageTest {
+
+    @Test
+    void defaultsAreTheSingleGp2Volume() {
+        InfluxdbStorage storage = InfluxdbStorage.defaults();
+
+        assertTrue(storage.isDefault());
+        assertEquals(InfluxdbStorage.VolumeType.GP2, storage.getDataVolume().getType());
+        assertFalse(storage.getWalVolume().isPresent());
+    }
+
+    @Test
+    void writeLoadGetsGp3DataAndWalVolumes() {
+        InfluxdbStorage storage = InfluxdbStorage.forWriteLoad(5_000_000);
+
+        assertFalse(storage.isDefault());
+        EbsVolume data = storage.getDataVolume();
+        EbsVolume wal = storage.getWalVolume().orElseThrow(AssertionError::new);
+        assertEquals(InfluxdbStorage.VolumeType.GP3, data.getType());
+        assertEquals(InfluxdbStorage.VolumeType.GP3, wal.getType());
+        assertTrue(data.getThroughputMiBps().orElseThrow(AssertionError::new) > 125);
+        assertTrue(data.getIops().orElseThrow(AssertionError::new) >= 4 * data.getThroughputMiBps().get());
+    }
+
+    @Test
+    void smallWriteLoadStaysAtTheGp3Baseline() {
+        EbsVolume data = InfluxdbStorage.forWriteLoad(1_000).getDataVolume();
+
+        assertEquals(3000, data.getIops().orElseThrow(AssertionError::new));
+        assertEquals(125, data.getThroughputMiBps().orElseThrow(AssertionError::new));
+    }
+
+    @Test
+    void acceptsValidGp3AndIo1Volumes() {
+        InfluxdbStorage.builder()
+                .dataVolume(EbsVolume.gp3(100, 16_000, 1000))
+                .walVolume(EbsVolume.io1(20, 1000))
+                .build();
+    }
+
+    @Test
+    void rejectsGp3BelowTheBaselineIops() {
+        assertRejected(EbsVolume.gp3(100, 2000, 125));
+    }
+
+    @Test
+    void rejectsGp3AboveTheMaximumIops() {
+        assertRejected(EbsVolume.gp3(100, 16_001, 125));
+    }
+
+    @Test
+    void rejectsGp3WithMoreThan500IopsPerGiB() {
+        assertRejected(EbsVolume.gp3(20, 16_000, 125));
+    }
+
+    @Test
+    void rejectsGp3ThroughputOutOfRange() {
+        assertRejected(EbsVolume.gp3(100, 3000, 100));
+        assertRejected(EbsVolume.gp3(100, 16_000, 1001));
+    }
+
+    @Test
+    void rejectsGp3ThroughputAboveAQuarterMiBPerIops() {
+        assertRejected(EbsVolume.gp3(100, 3000, 1000));
+    }
+
+    @Test
+    void rejectsIo1WithMoreThan50IopsPerGiB() {
+        assertRejected(EbsVolume.io1(10, 1000));
+    }
+
+    @Test
+    void rejectsAnInvalidWalVolume() {
+        assertThrows(IllegalArgumentException.class, () -> InfluxdbStorage.builder()
+                .dataVolume(EbsVolume.gp3(100, 3000, 125))
+                .walVolume(EbsVolume.gp3(10, 3000, 1000))
+                .build());
+    }
+
+    private static void assertRejected(EbsVolume dataVolume) {
+        assertThrows(IllegalArgumentException.class, () -> InfluxdbStorage.builder().dataVolume(dataVolume).build());
+    }
+}
@@ -0,0 +1,187 @@
+package com.rudolfs.gatling.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Minimal client for the ECS JSON API with Signature Version 4 request signing, limited to the operations the
+ * orchestrator needs. The same requests are served by the local stand-in, see {@link com.rudolfs.gatling.orchestrator.local.LocalEcs}.
+ * Credentials are taken from the AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY and AWS_SESSION_TOKEN environment variables,
+ * or from the container credentials endpoint when running in CodeBuild or ECS.
+ */
+public final class EcsClient {
+    private static final String TARGET_PREFIX = "AmazonEC2ContainerServiceV20141113.";
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+    private static final String SERVICE = "ecs";
+    private static final String CONTAINER_CREDENTIALS_HOST = "http://169.254.170.2";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final URI endpoint;
+    private final String region;
+    private final String cluster;
+    private final Map<String, String> environment;
+
+    public EcsClient(URI endpoint, String region, String cluster, Map<String, String> environment) {
+        this.endpoint = endpoint;
+        this.region = region;
+        this.cluster = cluster;
+        this.environment = environment;
+    }
+
+    public ObjectNode newRequest() {
+        return mapper.createObjectNode().put("cluster", cluster);
+    }
+
+    public List<JsonNode> describeServices(List<String> serviceNames) {
+        ObjectNode request = newRequest();
+        serviceNames.forEach(request.putArray("services")::add);
+        JsonNode response = call("DescribeServices", request);
+        if (response.path("failures").size() > 0) {
+            throw new EcsException("DescribeServices failed: " + response.get("failures"));
+        }
+        return mapper.convertValue(response.path("services"), mapper.getTypeFactory().constructCollectionType(List.class, JsonNode.class));
+    }
+
+    public void updateDesiredCount(String serviceName, int desiredCount) {
+        call("UpdateService", newRequest().put("service", serviceName).put("desiredCount", desiredCount));
+    }
+
+    public List<String> listTaskArns(String serviceName) {
+        JsonNode response = call("ListTasks", newRequest().put("serviceName", serviceName).put("desiredStatus", "RUNNING"));
+        return mapper.convertValue(response.path("taskArns"), mapper.getTypeFactory().constructCollectionType(List.class, String.class));
+    }
+
+    public List<JsonNode> describeTasks(List<String> taskArns) {
+        if (taskArns.isEmpty()) {
+            return List.of();
+        }
+        ObjectNode request = newRequest();
+        taskArns.forEach(request.putArray("tasks")::add);
+        return mapper.convertValue(call("DescribeTasks", request).path("tasks"),
+                mapper.getTypeFactory().constructCollectionType(List.class, JsonNode.class));
+    }
+
+    /**
+     * Runs one task and returns its ARN, {@code request} must contain the task definition and launch settings.
+     */
+    public String runTask(ObjectNode request) {
+        JsonNode response = call("RunTask", request.put("cluster", cluster).put("count", 1));
+        if (response.path("tasks").size() != 1) {
+            throw new EcsException("RunTask failed: " + response.get("failures"));
+        }
+        return response.path("tasks").get(0).path("taskArn").asText();
+    }
+
+    public void stopTask(String taskArn, String reason) {
+        call("StopTask", newRequest().put("task", taskArn).put("reason", reason));
+    }
+
+    private JsonNode call(String operation, ObjectNode request) {
+        try {
+            byte[] body = mapper.writeValueAsBytes(request);
+            HttpRequest.Builder httpRequest = HttpRequest.newBuilder(endpoint.resolve("/"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", CONTENT_TYPE)
+                    .header("X-Amz-Target", TARGET_PREFIX + operation)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            sign(httpRequest, operation, body);
+
+            HttpResponse<byte[]> response = httpClient.send(httpRequest.build(), HttpResponse.BodyHandlers.ofByteArray());
+            JsonNode responseBody = response.body().length == 0 ? mapper.createObjectNode() : mapper.readTree(response.body());
+            if (response.statusCode() != 200) {
+                throw new EcsException(String.format("%s failed with HTTP %d: %s %s", operation, response.statusCode(),
+                        responseBody.path("__type").asText(), responseBody.path("message").asText(responseBody.path("Message").asText())));
+            }
+            return responseBody;
+        } catch (IOException e) {
+            throw new UncheckedIOException(operation + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EcsException(operation + " was interrupted");
+        }
+    }
+
+    private void sign(HttpRequest.Builder httpRequest, String operation, byte[] body) throws IOException, InterruptedException {
+        Credentials credentials = credentials();
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String dateStamp = DATE_STAMP.format(now);
+        String scope = SigV4.scope(dateStamp, region, SERVICE);
+
+        // the HTTP client sets the host header itself
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", CONTENT_TYPE);
+        headers.put("Host", endpoint.getPort() == -1 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort());
+        headers.put("X-Amz-Date", amzDate);
+        headers.put("X-Amz-Target", TARGET_PREFIX + operation);
+        if (credentials.sessionToken != null) {
+            headers.put("X-Amz-Security-Token", credentials.sessionToken);
+            httpRequest.header("X-Amz-Security-Token", credentials.sessionToken);
+        }
+        SortedMap<String, String> canonicalHeaders = SigV4.canonicalHeaders(headers);
+
+        String canonicalRequest = SigV4.canonicalRequest("POST", "/", "", canonicalHeaders, body);
+        String signature = SigV4.signature(SigV4.signingKey(credentials.secretAccessKey, dateStamp, region, SERVICE),
+                SigV4.stringToSign(amzDate, scope, canonicalRequest));
+
+        httpRequest.header("X-Amz-Date", amzDate);
+        httpRequest.header("Authorization", SigV4.authorization(credentials.accessKeyId, scope, SigV4.signedHeaders(canonicalHeaders), signature));
+    }
+
+    private Credentials credentials() throws IOException, InterruptedException {
+        if (environment.get("AWS_ACCESS_KEY_ID") != null) {
+            return new Credentials(environment.get("AWS_ACCESS_KEY_ID"), environment.get("AWS_SECRET_ACCESS_KEY"),
+                    environment.get("AWS_SESSION_TOKEN"));
+        }
+        String relativeUri = environment.get("AWS_CONTAINER_CREDENTIALS_RELATIVE_URI");
+        if (relativeUri != null) {
+            HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(URI.create(CONTAINER_CREDENTIALS_HOST + relativeUri)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            JsonNode credentials = mapper.readTree(response.body());
+            return new Credentials(credentials.path("AccessKeyId").asText(), credentials.path("SecretAccessKey").asText(),
+                    credentials.path("Token").asText(null));
+        }
+        if ("http".equals(endpoint.getScheme())) {
+            // the local stand-in doesn't verify signatures
+            return new Credentials("local", "local", null);
+        }
+        throw new EcsException("No AWS credentials, set AWS_ACCESS_KEY_ID and AWS_SECRET_ACCESS_KEY");
+    }
+
+    private static final class Credentials {
+        private final String accessKeyId;
+        private final String secretAccessKey;
+        private final String sessionToken;
+
+        private Credentials(String accessKeyId, String secretAccessKey, String sessionToken) {
+            this.accessKeyId = accessKeyId;
+            this.secretAccessKey = secretAccessKey;
+            this.sessionToken = sessionToken;
+        }
+    }
+
+    public static final class EcsException extends RuntimeException {
+        public EcsException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.rudolfs.gatling.orchestrator;
+
+import com.rudolfs.gatling.orchestrator.gate.GateConfiguration;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a run, read from environment variables. The names of the cluster and services follow the same
+ * PROJECT_NAME, RUNNER_SHARD_COUNT and GRAPHITE_RELAY variables as the CDK app that created them.
+ */
+public final class OrchestratorConfiguration {
+    private static final String INFLUXDB_SERVICE_NAME = "influxdb";
+    private static final String GRAFANA_SERVICE_NAME = "grafana";
+    private static final String GRAPHITE_RELAY_SERVICE_NAME = "graphite-relay";
+    private static final String GATLING_RUNNER_SERVICE_NAME = "gatling-runner";
+    private static final String REPORT_WORKER_SERVICE_NAME = "report-worker";
+
+    private final String clusterName;
+    private final int runnerShardCount;
+    private final boolean graphiteRelay;
+    private final String region;
+    private final URI ecsEndpoint;
+    private final String runnerContainerName;
+    private final int graphitePort;
+    private final int startDelaySeconds;
+    private final int readyTimeoutSeconds;
+    private final int runTimeoutMinutes;
+    private final boolean keepMonitoring;
+    private final boolean reportWorker;
+    private final int reportTimeoutMinutes;
+    private final GateConfiguration regressionGate;
+
+    private OrchestratorConfiguration(Map<String, String> environment) {
+        this.clusterName = environment.getOrDefault("PROJECT_NAME", "gatling") + "-cluster";
+        this.runnerShardCount = Integer.parseInt(environment.getOrDefault("RUNNER_SHARD_COUNT", "1"));
+        this.graphiteRelay = Boolean.parseBoolean(environment.get("GRAPHITE_RELAY"));
+        this.region = environment.getOrDefault("AWS_REGION", environment.getOrDefault("CDK_DEFAULT_REGION", "eu-west-1"));
+        this.ecsEndpoint = URI.create(environment.getOrDefault("ECS_ENDPOINT", String.format("https://ecs.%s.amazonaws.com", region)));
+        this.runnerContainerName = environment.getOrDefault("RUNNER_CONTAINER_NAME", "gatlingRunnerContainer");
+        this.graphitePort = Integer.parseInt(environment.getOrDefault("GRAPHITE_PORT", "2003"));
+        this.startDelaySeconds = Integer.parseInt(environment.getOrDefault("START_DELAY_SECONDS", "120"));
+        this.readyTimeoutSeconds = Integer.parseInt(environment.getOrDefault("READY_TIMEOUT_SECONDS", "600"));
+        this.runTimeoutMinutes = Integer.parseInt(environment.getOrDefault("RUN_TIMEOUT_MINUTES", "60"));
+        this.keepMonitoring = Boolean.parseBoolean(environment.get("KEEP_MONITORING"));
+        this.reportWorker = Boolean.parseBoolean(environment.get("REPORT_WORKER"));
+        this.reportTimeoutMinutes = Integer.parseInt(environment.getOrDefault("REPORT_TIMEOUT_MINUTES", "30"));
+        this.regressionGate = GateConfiguration.fromEnvironment(environment);
+        if (runnerShardCount < 1) {
+            throw new IllegalArgumentException("RUNNER_SHARD_COUNT must be at least 1, but was " + runnerShardCount);
+        }
+    }
+
+    public static OrchestratorConfiguration fromEnvironment(Map<String, String> environment) {
+        return new OrchestratorConfiguration(environment);
+    }
+
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    /**
+     * The services that must run during a test: InfluxDB, Grafana and the Graphite relay if enabled.
+     */
+    public List<String> getMonitoringServiceNames() {
+        List<String> serviceNames = new ArrayList<>(List.of(INFLUXDB_SERVICE_NAME, GRAFANA_SERVICE_NAME));
+        if (graphiteRelay) {
+            serviceNames.add(GRAPHITE_RELAY_SERVICE_NAME);
+        }
+        return serviceNames;
+    }
+
+    /**
+     * The service whose Graphite port the runners send their metrics to.
+     */
+    public String getGraphiteServiceName() {
+        return graphiteRelay ? GRAPHITE_RELAY_SERVICE_NAME : INFLUXDB_SERVICE_NAME;
+    }
+
+    /**
+     * The service whose InfluxDB HTTP API the regression gate queries.
+     */
+    public String getInfluxdbServiceName() {
+        return INFLUXDB_SERVICE_NAME;
+    }
+
+    /**
+     * The runner services, one per shard. Their task definitions and network configuration are used to launch the runner tasks.
+     */
+    public List<String> getRunnerServiceNames() {
+        if (runnerShardCount == 1) {
+            return List.of(GATLING_RUNNER_SERVICE_NAME);
+        }
+        List<String> serviceNames = new ArrayList<>();
+        for (int shardIndex = 0; shardIndex < runnerShardCount; shardIndex++) {
+            serviceNames.add(String.format("%s-%d", GATLING_RUNNER_SERVICE_NAME, shardIndex));
+        }
+        return serviceNames;
+    }
+
+    /**
+     * Whether the runners upload their simulation.log and the report worker renders the report after the run.
+     */
+    public boolean isReportWorker() {
+        return reportWorker;
+    }
+
+    /**
+     * The service whose task definition and network configuration are used to launch the report worker task.
+     */
+    public String getReportWorkerServiceName() {
+        return REPORT_WORKER_SERVICE_NAME;
+    }
+
+    public int getReportTimeoutMinutes() {
+        return reportTimeoutMinutes;
+    }
+
+    /**
+     * The regression gate that compares the results of the run with a baseline, enabled by REGRESSION_BASELINE.
+     */
+    public GateConfiguration getRegressionGate() {
+        return regressionGate;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * The ECS API endpoint, set ECS_ENDPOINT to the local stand-in (e.g. http://localhost:8500) to run without AWS.
+     */
+    public URI getEcsEndpoint() {
+        return ecsEndpoint;
+    }
+
+    public String getRunnerContainerName() {
+        return runnerContainerName;
+    }
+
+    public int getGraphitePort() {
+        return graphitePort;
+    }
+
+    /**
+     * Seconds between launching the runner tasks and the instant at which all runners start injecting. All runner
+     * tasks must be running before that instant, otherwise the run is aborted.
+     */
+    public int getStartDelaySeconds() {
+        return startDelaySeconds;
+    }
+
+    /**
+     * How long to wait for the monitoring services and the Graphite port.
+     */
+    public int getReadyTimeoutSeconds() {
+        return readyTimeoutSeconds;
+    }
+
+    public int getRunTimeoutMinutes() {
+        return runTimeoutMinutes;
+    }
+
+    /**
+     * Whether InfluxDB and Grafana keep running after the run to look at the results, they are scaled down by default.
+     */
+    public boolean isKeepMonitoring() {
+        return keepMonitoring;
+    }
+}
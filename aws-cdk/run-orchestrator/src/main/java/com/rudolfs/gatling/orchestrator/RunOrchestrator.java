@@ -0,0 +1,340 @@
+package com.rudolfs.gatling.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.rudolfs.gatling.orchestrator.gate.GateConfiguration;
+import com.rudolfs.gatling.orchestrator.gate.InfluxdbClient;
+import com.rudolfs.gatling.orchestrator.gate.RegressionGate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs one Gatling test on ECS: starts InfluxDB and Grafana (and the Graphite relay), waits until the Graphite port
+ * accepts connections, launches one runner task per shard and lets all runners start injecting at the same wall-clock
+ * instant. Afterwards everything is scaled down again.
+ * <p>
+ * Fargate tasks of a service start seconds apart, which smears the ramp-up of a sharded run. The runner tasks are
+ * therefore launched with RunTask (using the task definition and network configuration of the runner services) and
+ * the start instant is passed as GATLING_START_AT, the runners wait for that instant after their JVM has started.
+ * The instant lies START_DELAY_SECONDS after the launch, when a runner task isn't running well before it, the run is aborted.
+ * <p>
+ * With REPORT_WORKER the runners upload their simulation.log under the run id passed as GATLING_RUN_ID and render no
+ * report. Once all runner tasks have stopped, a report worker task renders one report of all shards into the bucket.
+ * <p>
+ * With REGRESSION_BASELINE the runners write with the influxdb writer (like -w influxdb), which stores the HDR histograms
+ * the percentiles of the run are merged from. Their results are queried from InfluxDB before it is scaled down and
+ * compared with the baseline by the {@link RegressionGate}, a regression fails the run.
+ */
+public final class RunOrchestrator {
+    private static final Logger LOGGER = Logger.getLogger(RunOrchestrator.class.getName());
+    private static final String START_AT_VARIABLE = "GATLING_START_AT";
+    private static final String RUN_ID_VARIABLE = "GATLING_RUN_ID";
+    private static final String DATA_WRITER_VARIABLE = "GATLING_DATA_WRITER";
+    private static final String INFLUXDB_HOST_VARIABLE = "GATLING_INFLUXDB_HOST";
+    private static final String INFLUXDB_PORT_VARIABLE = "GATLING_INFLUXDB_PORT";
+    private static final String STARTED_BY = "run-orchestrator";
+    // time a runner needs from a running task to a started JVM that waits for the start instant
+    private static final long RUNNER_STARTUP_MARGIN_MILLIS = 10_000;
+    private static final long POLL_INTERVAL_MILLIS = 2_000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    // exit code of a runner that was stopped with SIGTERM (e.g. by a Fargate Spot interruption) and flushed its results
+    private static final int TRUNCATED_EXIT_CODE = 143;
+    // time for InfluxDB to receive the last points the runners flushed before they stopped
+    private static final long RESULTS_SETTLE_MILLIS = 5_000;
+
+    private final OrchestratorConfiguration configuration;
+    private final EcsClient ecs;
+    private final List<String> runnerTaskArns = new ArrayList<>();
+    private String reportWorkerTaskArn;
+    private boolean scaledDown;
+
+    public RunOrchestrator(OrchestratorConfiguration configuration, EcsClient ecs) {
+        this.configuration = configuration;
+        this.ecs = ecs;
+    }
+
+    public static void main(String[] args) {
+        OrchestratorConfiguration configuration = OrchestratorConfiguration.fromEnvironment(System.getenv());
+        EcsClient ecs = new EcsClient(configuration.getEcsEndpoint(), configuration.getRegion(), configuration.getClusterName(), System.getenv());
+        RunOrchestrator orchestrator = new RunOrchestrator(configuration, ecs);
+        // scale down as well when the orchestrator is interrupted, e.g. with Ctrl+C
+        Runtime.getRuntime().addShutdownHook(new Thread(orchestrator::scaleDown));
+        System.exit(orchestrator.run());
+    }
+
+    /**
+     * Runs the test and returns 0 when all runner tasks exited with 0.
+     */
+    public int run() {
+        try {
+            startMonitoring();
+            awaitGraphitePort();
+            long startAt = System.currentTimeMillis() + configuration.getStartDelaySeconds() * 1000L;
+            String runId = "run-" + startAt;
+            launchRunners(startAt, runId);
+            awaitRunnersRunning(startAt);
+            int exitCode = awaitRunnersStopped();
+            if (configuration.isReportWorker()) {
+                // a report of a truncated or failed run is still rendered, it shows what the runners recorded
+                exitCode = Math.max(exitCode, runReportWorker(runId));
+            }
+            if (configuration.getRegressionGate().isEnabled()) {
+                exitCode = Math.max(exitCode, checkRegressions(startAt));
+            }
+            return exitCode;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Run failed: " + e.getMessage(), e);
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warning("Run interrupted");
+            return 1;
+        } finally {
+            scaleDown();
+        }
+    }
+
+    private void startMonitoring() throws InterruptedException {
+        for (String serviceName : configuration.getMonitoringServiceNames()) {
+            LOGGER.info("Starting service " + serviceName);
+            ecs.updateDesiredCount(serviceName, 1);
+        }
+
+        long deadline = System.currentTimeMillis() + configuration.getReadyTimeoutSeconds() * 1000L;
+        List<String> pending = configuration.getMonitoringServiceNames();
+        while (!pending.isEmpty()) {
+            pending = ecs.describeServices(pending).stream()
+                    .filter(service -> service.path("runningCount").asInt() < 1)
+                    .map(service -> service.path("serviceName").asText())
+                    .collect(Collectors.toList());
+            if (!pending.isEmpty()) {
+                awaitPoll(deadline, "services " + pending + " to run");
+            }
+        }
+        LOGGER.info("Services " + configuration.getMonitoringServiceNames() + " are running");
+    }
+
+    private void awaitGraphitePort() throws InterruptedException {
+        String serviceName = configuration.getGraphiteServiceName();
+        List<String> taskArns = ecs.listTaskArns(serviceName);
+        if (taskArns.isEmpty()) {
+            throw new IllegalStateException("No running task of service " + serviceName);
+        }
+        String host = privateIpAddress(ecs.describeTasks(taskArns).get(0));
+        InetSocketAddress graphite = new InetSocketAddress(host, configuration.getGraphitePort());
+
+        long deadline = System.currentTimeMillis() + configuration.getReadyTimeoutSeconds() * 1000L;
+        while (true) {
+            try (Socket socket = new Socket()) {
+                socket.connect(graphite, CONNECT_TIMEOUT_MILLIS);
+                LOGGER.info(String.format("Graphite port of %s is ready at %s:%d", serviceName, host, configuration.getGraphitePort()));
+                return;
+            } catch (IOException e) {
+                awaitPoll(deadline, String.format("Graphite port %s:%d", host, configuration.getGraphitePort()));
+            }
+        }
+    }
+
+    private void launchRunners(long startAt, String runId) {
+        GateConfiguration gate = configuration.getRegressionGate();
+        // the gate merges the histograms of the influxdb writer, the Graphite write path has per-second percentiles only
+        String influxdbHost = gate.isEnabled() ? influxdbHost() : null;
+        for (JsonNode service : ecs.describeServices(configuration.getRunnerServiceNames())) {
+            ObjectNode request = runTaskRequest(service);
+            ArrayNode environment = request.putObject("overrides").putArray("containerOverrides").addObject()
+                    .put("name", configuration.getRunnerContainerName())
+                    .putArray("environment");
+            environment.addObject()
+                    .put("name", START_AT_VARIABLE)
+                    .put("value", String.valueOf(startAt));
+            environment.addObject()
+                    .put("name", RUN_ID_VARIABLE)
+                    .put("value", runId);
+            if (influxdbHost != null) {
+                environment.addObject()
+                        .put("name", DATA_WRITER_VARIABLE)
+                        .put("value", "influxdb");
+                environment.addObject()
+                        .put("name", INFLUXDB_HOST_VARIABLE)
+                        .put("value", influxdbHost);
+                environment.addObject()
+                        .put("name", INFLUXDB_PORT_VARIABLE)
+                        .put("value", String.valueOf(gate.getInfluxdbPort()));
+            }
+
+            runnerTaskArns.add(ecs.runTask(request));
+        }
+        LOGGER.info(String.format("Launched %d runner task(s) of run %s, start at %s", runnerTaskArns.size(), runId, Instant.ofEpochMilli(startAt)));
+    }
+
+    // a RunTask request with the task definition and launch settings of the service
+    private ObjectNode runTaskRequest(JsonNode service) {
+        ObjectNode request = ecs.newRequest()
+                .put("taskDefinition", service.path("taskDefinition").asText())
+                .put("startedBy", STARTED_BY);
+        // a service on Fargate Spot has a capacity provider strategy instead of a launch type
+        if (service.path("capacityProviderStrategy").size() > 0) {
+            request.set("capacityProviderStrategy", service.path("capacityProviderStrategy"));
+        } else {
+            request.put("launchType", service.path("launchType").asText("FARGATE"));
+        }
+        if (service.hasNonNull("platformVersion")) {
+            request.put("platformVersion", service.path("platformVersion").asText());
+        }
+        request.set("networkConfiguration", service.path("networkConfiguration"));
+        return request;
+    }
+
+    private void awaitRunnersRunning(long startAt) throws InterruptedException {
+        long deadline = startAt - RUNNER_STARTUP_MARGIN_MILLIS;
+        while (true) {
+            List<JsonNode> tasks = ecs.describeTasks(runnerTaskArns);
+            List<JsonNode> stopped = tasks.stream().filter(task -> "STOPPED".equals(task.path("lastStatus").asText())).collect(Collectors.toList());
+            if (!stopped.isEmpty()) {
+                throw new IllegalStateException("Runner task stopped before the start: " + stopped.get(0).path("stoppedReason").asText());
+            }
+            long running = tasks.stream().filter(task -> "RUNNING".equals(task.path("lastStatus").asText())).count();
+            if (running == runnerTaskArns.size()) {
+                LOGGER.info(String.format("All %d runner task(s) are running, injection starts in %d ms",
+                        running, startAt - System.currentTimeMillis()));
+                return;
+            }
+            if (System.currentTimeMillis() + POLL_INTERVAL_MILLIS > deadline) {
+                throw new IllegalStateException(String.format("Only %d of %d runner task(s) were running %d ms before the start, " +
+                        "increase START_DELAY_SECONDS", running, runnerTaskArns.size(), RUNNER_STARTUP_MARGIN_MILLIS));
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    private int awaitRunnersStopped() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + configuration.getRunTimeoutMinutes() * 60_000L;
+        while (true) {
+            List<JsonNode> tasks = ecs.describeTasks(runnerTaskArns);
+            if (tasks.stream().allMatch(task -> "STOPPED".equals(task.path("lastStatus").asText()))) {
+                int exitCode = 0;
+                for (JsonNode task : tasks) {
+                    int taskExitCode = task.path("containers").path(0).path("exitCode").asInt(1);
+                    if (taskExitCode == TRUNCATED_EXIT_CODE) {
+                        LOGGER.warning(String.format("Runner task %s was interrupted (%s), its shard is truncated",
+                                task.path("taskArn").asText(), task.path("stoppedReason").asText()));
+                    } else {
+                        LOGGER.info(String.format("Runner task %s exited with %d", task.path("taskArn").asText(), taskExitCode));
+                    }
+                    exitCode = Math.max(exitCode, taskExitCode);
+                }
+                runnerTaskArns.clear();
+                return exitCode;
+            }
+            awaitPoll(deadline, "runner tasks to finish");
+        }
+    }
+
+    // the report worker waits for the uploads of all shards, renders the report and exits with the result of the assertions
+    private int runReportWorker(String runId) throws InterruptedException {
+        String serviceName = configuration.getReportWorkerServiceName();
+        ObjectNode request = runTaskRequest(ecs.describeServices(List.of(serviceName)).get(0));
+        request.putObject("overrides").putArray("containerOverrides").addObject()
+                .put("name", serviceName)
+                .putArray("environment").addObject()
+                .put("name", RUN_ID_VARIABLE)
+                .put("value", runId);
+        reportWorkerTaskArn = ecs.runTask(request);
+        LOGGER.info(String.format("Launched report worker task %s for run %s", reportWorkerTaskArn, runId));
+
+        long deadline = System.currentTimeMillis() + configuration.getReportTimeoutMinutes() * 60_000L;
+        while (true) {
+            JsonNode task = ecs.describeTasks(List.of(reportWorkerTaskArn)).get(0);
+            if ("STOPPED".equals(task.path("lastStatus").asText())) {
+                int exitCode = task.path("containers").path(0).path("exitCode").asInt(1);
+                LOGGER.info(String.format("Report worker task %s exited with %d, the report is at runs/%s/report/index.html of the results bucket",
+                        reportWorkerTaskArn, exitCode, runId));
+                reportWorkerTaskArn = null;
+                return exitCode;
+            }
+            awaitPoll(deadline, "the report worker to finish");
+        }
+    }
+
+    // compares the window after the warm-up until now, the runners have stopped, so it contains all their results
+    private int checkRegressions(long startAt) throws InterruptedException {
+        GateConfiguration gate = configuration.getRegressionGate();
+        URI influxdbUrl = URI.create(String.format("http://%s:%d", influxdbHost(), gate.getInfluxdbPort()));
+        Thread.sleep(RESULTS_SETTLE_MILLIS);
+
+        long from = startAt + gate.getWarmupSeconds() * 1000L;
+        LOGGER.info(String.format("Comparing the results of %s since %s with baseline %s", influxdbUrl, Instant.ofEpochMilli(from), gate.getBaseline()));
+        return new RegressionGate(gate).check(new InfluxdbClient(influxdbUrl, gate.getInfluxdbDatabase()), from, System.currentTimeMillis());
+    }
+
+    private String influxdbHost() {
+        String serviceName = configuration.getInfluxdbServiceName();
+        List<String> taskArns = ecs.listTaskArns(serviceName);
+        if (taskArns.isEmpty()) {
+            throw new IllegalStateException("No running task of service " + serviceName);
+        }
+        return privateIpAddress(ecs.describeTasks(taskArns).get(0));
+    }
+
+    // stops the runner tasks that are still running and the monitoring services, failures are logged only
+    private synchronized void scaleDown() {
+        if (scaledDown) {
+            return;
+        }
+        scaledDown = true;
+        for (String taskArn : runnerTaskArns) {
+            try {
+                ecs.stopTask(taskArn, "Stopped by " + STARTED_BY);
+            } catch (RuntimeException e) {
+                LOGGER.warning(String.format("Could not stop runner task %s: %s", taskArn, e.getMessage()));
+            }
+        }
+        if (reportWorkerTaskArn != null) {
+            try {
+                ecs.stopTask(reportWorkerTaskArn, "Stopped by " + STARTED_BY);
+            } catch (RuntimeException e) {
+                LOGGER.warning(String.format("Could not stop report worker task %s: %s", reportWorkerTaskArn, e.getMessage()));
+            }
+        }
+        if (configuration.isKeepMonitoring()) {
+            LOGGER.info("Keeping services " + configuration.getMonitoringServiceNames() + " running");
+            return;
+        }
+        for (String serviceName : configuration.getMonitoringServiceNames()) {
+            try {
+                ecs.updateDesiredCount(serviceName, 0);
+                LOGGER.info("Stopped service " + serviceName);
+            } catch (RuntimeException e) {
+                LOGGER.warning(String.format("Could not stop service %s: %s", serviceName, e.getMessage()));
+            }
+        }
+    }
+
+    private static void awaitPoll(long deadline, String description) throws InterruptedException {
+        if (System.currentTimeMillis() > deadline) {
+            throw new IllegalStateException("Timed out waiting for " + description);
+        }
+        Thread.sleep(POLL_INTERVAL_MILLIS);
+    }
+
+    private static String privateIpAddress(JsonNode task) {
+        for (JsonNode attachment : task.path("attachments")) {
+            for (JsonNode detail : attachment.path("details")) {
+                if ("privateIPv4Address".equals(detail.path("name").asText())) {
+                    return detail.path("value").asText();
+                }
+            }
+        }
+        throw new IllegalStateException("Task " + task.path("taskArn").asText() + " has no private IP address");
+    }
+}
@@ -0,0 +1,93 @@
+package com.rudolfs.gatling.orchestrator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The steps of Signature Version 4 as in the AWS documentation: canonical request, string to sign, signing key and
+ * signature. Kept apart from the {@link EcsClient} so they can be checked against the published SigV4 test suite.
+ */
+final class SigV4 {
+    static final String ALGORITHM = "AWS4-HMAC-SHA256";
+
+    private SigV4() {
+    }
+
+    /**
+     * The headers to sign with lower case names in alphabetical order and trimmed values.
+     */
+    static SortedMap<String, String> canonicalHeaders(Map<String, String> headers) {
+        SortedMap<String, String> canonical = new TreeMap<>();
+        headers.forEach((name, value) -> canonical.put(name.toLowerCase(), value.trim().replaceAll(" +", " ")));
+        return canonical;
+    }
+
+    static String signedHeaders(SortedMap<String, String> canonicalHeaders) {
+        return String.join(";", canonicalHeaders.keySet());
+    }
+
+    /**
+     * @param path  the URI encoded path
+     * @param query the canonical query string, empty without parameters
+     */
+    static String canonicalRequest(String method, String path, String query, SortedMap<String, String> canonicalHeaders, byte[] payload) {
+        StringBuilder headers = new StringBuilder();
+        canonicalHeaders.forEach((name, value) -> headers.append(name).append(':').append(value).append('\n'));
+        return String.join("\n", method, path, query, headers.toString(), signedHeaders(canonicalHeaders), hex(sha256(payload)));
+    }
+
+    static String scope(String dateStamp, String region, String service) {
+        return String.format("%s/%s/%s/aws4_request", dateStamp, region, service);
+    }
+
+    static String stringToSign(String amzDate, String scope, String canonicalRequest) {
+        return String.join("\n", ALGORITHM, amzDate, scope, hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    static byte[] signingKey(String secretAccessKey, String dateStamp, String region, String service) {
+        byte[] key = hmac(("AWS4" + secretAccessKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+        key = hmac(key, region);
+        key = hmac(key, service);
+        return hmac(key, "aws4_request");
+    }
+
+    static String signature(byte[] signingKey, String stringToSign) {
+        return hex(hmac(signingKey, stringToSign));
+    }
+
+    static String authorization(String accessKeyId, String scope, String signedHeaders, String signature) {
+        return String.format("%s Credential=%s/%s, SignedHeaders=%s, Signature=%s", ALGORITHM, accessKeyId, scope, signedHeaders, signature);
+    }
+
+    static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not supported by this JVM", e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
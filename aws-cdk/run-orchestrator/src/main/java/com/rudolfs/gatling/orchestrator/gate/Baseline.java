@@ -0,0 +1,93 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The expected results per request and the tolerances of the regression gate, stored as JSON next to the code:
+ * <pre>
+ * {
+ *   "tolerances": { "p95Percent": 10, "p99Percent": 15, "throughputPercent": 10, "minLatencyMillis": 5 },
+ *   "requests": {
+ *     "allRequests": { "count": 1200, "requestsPerSecond": 20.0, "p95": 180.0, "p99": 240.0 },
+ *     "request_10": { "count": 120, "requestsPerSecond": 2.0, "p95": 210.0, "p99": 300.0, "tolerances": { "p99Percent": 30 } }
+ *   }
+ * }
+ * </pre>
+ * The results the gate writes have the same format, so accepting a new baseline means committing them. The tolerances
+ * of the file are kept when the results are written.
+ */
+public final class Baseline {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Tolerances tolerances;
+    private final SortedMap<String, RequestResult> requests;
+    private final Map<String, Tolerances> requestTolerances;
+    private final Map<String, JsonNode> requestToleranceJson;
+    private final JsonNode toleranceJson;
+
+    private Baseline(JsonNode json) {
+        this.toleranceJson = json.path("tolerances");
+        this.tolerances = Tolerances.fromJson(toleranceJson, Tolerances.DEFAULTS);
+        SortedMap<String, RequestResult> requests = new TreeMap<>();
+        Map<String, Tolerances> requestTolerances = new HashMap<>();
+        Map<String, JsonNode> requestToleranceJson = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = json.path("requests").fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            requests.put(field.getKey(), RequestResult.fromJson(field.getValue()));
+            if (field.getValue().has("tolerances")) {
+                requestTolerances.put(field.getKey(), Tolerances.fromJson(field.getValue().path("tolerances"), tolerances));
+                requestToleranceJson.put(field.getKey(), field.getValue().path("tolerances"));
+            }
+        }
+        this.requests = Collections.unmodifiableSortedMap(requests);
+        this.requestTolerances = requestTolerances;
+        this.requestToleranceJson = requestToleranceJson;
+    }
+
+    public static Baseline read(Path file) throws IOException {
+        return new Baseline(MAPPER.readTree(file.toFile()));
+    }
+
+    public SortedMap<String, RequestResult> getRequests() {
+        return requests;
+    }
+
+    /**
+     * The tolerances of the request, the tolerances of the file unless the request overrides them.
+     */
+    public Tolerances getTolerances(String request) {
+        return requestTolerances.getOrDefault(request, tolerances);
+    }
+
+    /**
+     * Writes the results in the baseline format with the tolerances of this baseline, or the defaults without one.
+     */
+    public static void write(RunResults results, Baseline baseline, Path file) throws IOException {
+        ObjectNode json = MAPPER.createObjectNode();
+        if (baseline != null && !baseline.toleranceJson.isMissingNode()) {
+            json.set("tolerances", baseline.toleranceJson);
+        } else {
+            Tolerances.DEFAULTS.writeTo(json.putObject("tolerances"));
+        }
+        ObjectNode requests = json.putObject("requests");
+        results.getRequests().forEach((request, result) -> {
+            ObjectNode requestJson = requests.putObject(request);
+            result.writeTo(requestJson);
+            if (baseline != null && baseline.requestToleranceJson.containsKey(request)) {
+                requestJson.set("tolerances", baseline.requestToleranceJson.get(request));
+            }
+        });
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), json);
+    }
+}
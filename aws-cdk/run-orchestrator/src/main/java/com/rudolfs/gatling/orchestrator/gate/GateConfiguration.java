@@ -0,0 +1,110 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Settings of the regression gate, read from environment variables. The gate is enabled by REGRESSION_BASELINE.
+ */
+public final class GateConfiguration {
+    private final Path baseline;
+    private final Path snapshot;
+    private final Path results;
+    private final int warmupSeconds;
+    private final String simulation;
+    private final int influxdbPort;
+    private final String influxdbDatabase;
+    private final URI influxdbUrl;
+    private final long from;
+    private final long to;
+
+    private GateConfiguration(Map<String, String> environment) {
+        this.baseline = environment.containsKey("REGRESSION_BASELINE") ? Paths.get(environment.get("REGRESSION_BASELINE")) : null;
+        this.snapshot = Paths.get(environment.getOrDefault("REGRESSION_SNAPSHOT", "regression-snapshot.json"));
+        this.results = Paths.get(environment.getOrDefault("REGRESSION_RESULTS", "regression-results.json"));
+        this.warmupSeconds = Integer.parseInt(environment.getOrDefault("REGRESSION_WARMUP_SECONDS", "0"));
+        this.simulation = environment.get("REGRESSION_SIMULATION");
+        this.influxdbPort = Integer.parseInt(environment.getOrDefault("INFLUXDB_PORT", "8086"));
+        this.influxdbDatabase = environment.getOrDefault("INFLUXDB_DATABASE", "gatlingdb");
+        this.influxdbUrl = environment.containsKey("INFLUXDB_URL") ? URI.create(environment.get("INFLUXDB_URL")) : null;
+        this.from = Long.parseLong(environment.getOrDefault("REGRESSION_FROM", "0"));
+        this.to = Long.parseLong(environment.getOrDefault("REGRESSION_TO", String.valueOf(Long.MAX_VALUE / 1_000_000)));
+        if (warmupSeconds < 0) {
+            throw new IllegalArgumentException("REGRESSION_WARMUP_SECONDS must not be negative, but was " + warmupSeconds);
+        }
+    }
+
+    public static GateConfiguration fromEnvironment(Map<String, String> environment) {
+        return new GateConfiguration(environment);
+    }
+
+    /**
+     * Whether the results of the run are compared with the baseline after the runners stopped.
+     */
+    public boolean isEnabled() {
+        return baseline != null;
+    }
+
+    /**
+     * The baseline file, when it doesn't exist the gate passes and writes the results as the first baseline.
+     */
+    public Path getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * Where the InfluxDB response of the run is saved, to compare it again locally.
+     */
+    public Path getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Where the results of the run are written in the baseline format.
+     */
+    public Path getResults() {
+        return results;
+    }
+
+    /**
+     * Seconds after the start instant that are not compared, the ramp-up and the warm-up of the system under test.
+     */
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    /**
+     * The simulation tag to compare, all simulations of the window if not set.
+     */
+    public String getSimulation() {
+        return simulation;
+    }
+
+    public int getInfluxdbPort() {
+        return influxdbPort;
+    }
+
+    public String getInfluxdbDatabase() {
+        return influxdbDatabase;
+    }
+
+    /**
+     * The InfluxDB that a local comparison queries instead of reading the snapshot, null to read the snapshot.
+     */
+    public URI getInfluxdbUrl() {
+        return influxdbUrl;
+    }
+
+    /**
+     * The window of a local comparison against INFLUXDB_URL in epoch millis, everything by default.
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+}
@@ -0,0 +1,61 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Queries the results of a run from the InfluxDB HTTP API. The response is returned as it is, so that it can be
+ * saved as a snapshot and compared again later without InfluxDB.
+ */
+public final class InfluxdbClient {
+    /**
+     * The encoded HDR histograms of every write period of all requests (and allRequests) of all shards in the window
+     * [from, to) in epoch millis, written by the influxdb writer of the runners. Every shard has series of its own.
+     */
+    static final String QUERY = "SELECT \"hdr\" FROM \"gatling.histograms\" "
+            + "WHERE \"status\" = 'all' AND time >= %dms AND time < %dms%s GROUP BY \"request\", \"shard\"";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final URI url;
+    private final String database;
+
+    public InfluxdbClient(URI url, String database) {
+        this.url = url;
+        this.database = database;
+    }
+
+    /**
+     * The response of {@link #QUERY} for the window, limited to the simulation unless it is null.
+     */
+    public JsonNode queryResults(long from, long to, String simulation) {
+        String filter = simulation == null ? "" : String.format(" AND \"simulation\" = '%s'", simulation.replace("'", "\\'"));
+        String query = String.format(QUERY, from, to, filter);
+        URI uri = url.resolve(String.format("/query?db=%s&epoch=ms&q=%s",
+                URLEncoder.encode(database, StandardCharsets.UTF_8), URLEncoder.encode(query, StandardCharsets.UTF_8)));
+        try {
+            HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(String.format("InfluxDB query failed with HTTP %d: %s", response.statusCode(),
+                        new String(response.body(), StandardCharsets.UTF_8)));
+            }
+            return mapper.readTree(response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException("InfluxDB query failed: " + uri, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying InfluxDB", e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Compares the results of a run with the stored baseline and fails when a request regressed: when its p95 or p99
+ * rose above the tolerance, its throughput dropped below the tolerance or it has no responses at all. Requests that
+ * are not in the baseline are only reported.
+ * <p>
+ * The run orchestrator queries the results from InfluxDB once the runners stopped and saves the response as a
+ * snapshot. The main method compares a saved snapshot (or a window queried from INFLUXDB_URL) locally, e.g. to tune
+ * the tolerances or to check a run before accepting its results as the new baseline:
+ * <pre>
+ * REGRESSION_BASELINE=regression-baseline.json REGRESSION_SNAPSHOT=regression-snapshot.json \
+ *     java -cp run-orchestrator.jar com.rudolfs.gatling.orchestrator.gate.RegressionGate
+ * </pre>
+ */
+public final class RegressionGate {
+    private static final Logger LOGGER = Logger.getLogger(RegressionGate.class.getName());
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final GateConfiguration configuration;
+
+    public RegressionGate(GateConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    public static void main(String[] args) {
+        GateConfiguration configuration = GateConfiguration.fromEnvironment(System.getenv());
+        if (!configuration.isEnabled()) {
+            LOGGER.severe("Set REGRESSION_BASELINE to the baseline file");
+            System.exit(2);
+        }
+        RegressionGate gate = new RegressionGate(configuration);
+        if (configuration.getInfluxdbUrl() != null) {
+            InfluxdbClient influxdb = new InfluxdbClient(configuration.getInfluxdbUrl(), configuration.getInfluxdbDatabase());
+            System.exit(gate.check(influxdb, configuration.getFrom(), configuration.getTo()));
+        }
+        try {
+            System.exit(gate.check(new ObjectMapper().readTree(configuration.getSnapshot().toFile())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + configuration.getSnapshot(), e);
+        }
+    }
+
+    /**
+     * Queries the results of the window from InfluxDB, saves them as the snapshot and compares them with the baseline.
+     * Returns 0 when no request regressed, 1 otherwise.
+     */
+    public int check(InfluxdbClient influxdb, long from, long to) {
+        JsonNode response = influxdb.queryResults(from, to, configuration.getSimulation());
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(configuration.getSnapshot().toFile(), response);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save snapshot " + configuration.getSnapshot(), e);
+        }
+        LOGGER.info("Saved the InfluxDB results of the run to " + configuration.getSnapshot());
+        return check(response);
+    }
+
+    /**
+     * Compares the InfluxDB response with the baseline and writes the results in the baseline format. Returns 0 when
+     * no request regressed, 1 otherwise.
+     */
+    public int check(JsonNode response) {
+        RunResults results = RunResults.fromInfluxdb(response);
+        if (results.isEmpty()) {
+            LOGGER.severe("The run has no results in InfluxDB, check the window and REGRESSION_SIMULATION");
+            return 1;
+        }
+        try {
+            if (!Files.exists(configuration.getBaseline())) {
+                Baseline.write(results, null, configuration.getResults());
+                LOGGER.warning(String.format("Baseline %s doesn't exist, passing. Commit %s as %s to compare the next runs with this one",
+                        configuration.getBaseline(), configuration.getResults(), configuration.getBaseline()));
+                return 0;
+            }
+            Baseline baseline = Baseline.read(configuration.getBaseline());
+            Baseline.write(results, baseline, configuration.getResults());
+
+            List<String> regressions = compare(baseline, results);
+            if (regressions.isEmpty()) {
+                LOGGER.info(String.format("No regression of %d request(s) against %s", baseline.getRequests().size(), configuration.getBaseline()));
+                return 0;
+            }
+            for (String regression : regressions) {
+                LOGGER.severe(regression);
+            }
+            LOGGER.severe(String.format("%d regression(s) against %s, the results are in %s",
+                    regressions.size(), configuration.getBaseline(), configuration.getResults()));
+            return 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compare with baseline " + configuration.getBaseline(), e);
+        }
+    }
+
+    /**
+     * The regressions of the results against the baseline, one message each, empty when the run passes.
+     */
+    static List<String> compare(Baseline baseline, RunResults results) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, RequestResult> entry : baseline.getRequests().entrySet()) {
+            String request = entry.getKey();
+            RequestResult expected = entry.getValue();
+            RequestResult actual = results.getRequests().get(request);
+            if (actual == null) {
+                regressions.add(String.format("%s: no responses, the baseline has %d", request, expected.getCount()));
+                continue;
+            }
+            Tolerances tolerances = baseline.getTolerances(request);
+            double maxP95 = tolerances.maxP95(expected.getP95());
+            double maxP99 = tolerances.maxP99(expected.getP99());
+            double minRequestsPerSecond = tolerances.minRequestsPerSecond(expected.getRequestsPerSecond());
+            LOGGER.info(String.format("%s: p95 %.1f ms (baseline %.1f), p99 %.1f ms (baseline %.1f), %.2f req/s (baseline %.2f)",
+                    request, actual.getP95(), expected.getP95(), actual.getP99(), expected.getP99(),
+                    actual.getRequestsPerSecond(), expected.getRequestsPerSecond()));
+            if (actual.getP95() > maxP95) {
+                regressions.add(String.format("%s: p95 %.1f ms exceeds %.1f ms (baseline %.1f ms)", request, actual.getP95(), maxP95, expected.getP95()));
+            }
+            if (actual.getP99() > maxP99) {
+                regressions.add(String.format("%s: p99 %.1f ms exceeds %.1f ms (baseline %.1f ms)", request, actual.getP99(), maxP99, expected.getP99()));
+            }
+            if (actual.getRequestsPerSecond() < minRequestsPerSecond) {
+                regressions.add(String.format("%s: %.2f req/s is below %.2f req/s (baseline %.2f req/s)",
+                        request, actual.getRequestsPerSecond(), minRequestsPerSecond, expected.getRequestsPerSecond()));
+            }
+        }
+        results.getRequests().keySet().stream()
+                .filter(request -> !baseline.getRequests().containsKey(request))
+                .forEach(request -> LOGGER.info(request + ": not in the baseline, not compared"));
+        return regressions;
+    }
+}
@@ -0,0 +1,54 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The responses of one request (or allRequests) within the measured window of a run: their number, the throughput
+ * over the window and the 95th and 99th percentile of the response time in milliseconds.
+ */
+public final class RequestResult {
+    private final long count;
+    private final double requestsPerSecond;
+    private final double p95;
+    private final double p99;
+
+    public RequestResult(long count, double requestsPerSecond, double p95, double p99) {
+        this.count = count;
+        this.requestsPerSecond = requestsPerSecond;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
+
+    static RequestResult fromJson(JsonNode json) {
+        return new RequestResult(json.path("count").asLong(), json.path("requestsPerSecond").asDouble(),
+                json.path("p95").asDouble(), json.path("p99").asDouble());
+    }
+
+    void writeTo(ObjectNode json) {
+        json.put("count", count)
+                .put("requestsPerSecond", round(requestsPerSecond))
+                .put("p95", round(p95))
+                .put("p99", round(p99));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public double getP95() {
+        return p95;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,118 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+
+/**
+ * The results per request of one run, computed from the HDR histograms the influxdb writer of the runners stores per
+ * write period in the measurement gatling.histograms.
+ * <p>
+ * The histograms of all shards and write periods of a request are added, so the p95 and p99 are the percentiles of
+ * every single response of the window, like HistogramMerge of the runner computes them. The throughput is the number
+ * of responses divided by the time from the first to the end of the last write period with histograms of any request.
+ * The write period of the runners (gatling.data.influxdb.writePeriod) is the smallest spacing of the histograms of
+ * one shard, the shards of a run don't write at exactly the same instants. Without two histograms of a shard in the
+ * window it is one second.
+ */
+public final class RunResults {
+    // the precision of the histograms the runners export, HistogramCodec.SIGNIFICANT_DIGITS of the runner
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long DEFAULT_WRITE_PERIOD_MILLIS = 1_000;
+
+    private final SortedMap<String, RequestResult> requests;
+
+    RunResults(SortedMap<String, RequestResult> requests) {
+        this.requests = Collections.unmodifiableSortedMap(requests);
+    }
+
+    /**
+     * Merges the response of {@link InfluxdbClient#QUERY}, one series per request and shard with the columns time
+     * (epoch millis) and hdr, the Base64 encoded compressed histogram.
+     */
+    public static RunResults fromInfluxdb(JsonNode response) {
+        JsonNode result = response.path("results").path(0);
+        if (result.hasNonNull("error")) {
+            throw new IllegalArgumentException("InfluxDB query failed: " + result.path("error").asText());
+        }
+
+        Map<String, Histogram> histograms = new HashMap<>();
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        long writePeriod = Long.MAX_VALUE;
+        for (JsonNode series : result.path("series")) {
+            String request = series.path("tags").path("request").asText();
+            Map<String, Integer> columns = new HashMap<>();
+            for (int index = 0; index < series.path("columns").size(); index++) {
+                columns.put(series.path("columns").get(index).asText(), index);
+            }
+            if (!columns.containsKey("hdr")) {
+                throw new IllegalArgumentException(String.format("The series of %s has no hdr column, it wasn't queried from gatling.histograms", request));
+            }
+            Histogram merged = histograms.computeIfAbsent(request, name -> new Histogram(SIGNIFICANT_DIGITS));
+            // the periods without responses have no histogram, two consecutive ones in the window are enough
+            SortedSet<Long> times = new TreeSet<>();
+            for (JsonNode point : series.path("values")) {
+                Histogram histogram = decode(point.path(columns.get("hdr")).asText());
+                if (histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                times.add(point.path(columns.get("time")).asLong());
+                merged.add(histogram);
+            }
+            Long previous = null;
+            for (long time : times) {
+                if (previous != null) {
+                    writePeriod = Math.min(writePeriod, time - previous);
+                }
+                previous = time;
+            }
+            if (!times.isEmpty()) {
+                first = Math.min(first, times.first());
+                last = Math.max(last, times.last());
+            }
+        }
+
+        // the histograms are stamped at the start of their write period, the last period counts as well
+        if (writePeriod == Long.MAX_VALUE) {
+            writePeriod = DEFAULT_WRITE_PERIOD_MILLIS;
+        }
+        double seconds = first > last ? 1 : (last - first + writePeriod) / 1000.0;
+        SortedMap<String, RequestResult> requests = new TreeMap<>();
+        histograms.forEach((request, histogram) -> {
+            long count = histogram.getTotalCount();
+            if (count > 0) {
+                requests.put(request, new RequestResult(count, count / seconds,
+                        histogram.getValueAtPercentile(95.0), histogram.getValueAtPercentile(99.0)));
+            }
+        });
+        return new RunResults(requests);
+    }
+
+    // the compressed HdrHistogram V2 encoding of HistogramCodec in the runner
+    private static Histogram decode(String encoded) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Not an encoded HDR histogram: " + encoded, e);
+        }
+    }
+
+    public SortedMap<String, RequestResult> getRequests() {
+        return requests;
+    }
+
+    public boolean isEmpty() {
+        return requests.isEmpty();
+    }
+}
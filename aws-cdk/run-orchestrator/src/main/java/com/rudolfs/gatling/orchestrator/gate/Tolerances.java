@@ -0,0 +1,59 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * How far the results of a run may deviate from the baseline before the gate fails: the percentiles may rise by a
+ * percentage of the baseline, but always by at least minLatencyMillis (a percentile of a few milliseconds varies by
+ * more than 10% between runs), the throughput may drop by a percentage of the baseline.
+ */
+public final class Tolerances {
+    static final Tolerances DEFAULTS = new Tolerances(10, 15, 10, 5);
+
+    private final double p95Percent;
+    private final double p99Percent;
+    private final double throughputPercent;
+    private final double minLatencyMillis;
+
+    private Tolerances(double p95Percent, double p99Percent, double throughputPercent, double minLatencyMillis) {
+        this.p95Percent = p95Percent;
+        this.p99Percent = p99Percent;
+        this.throughputPercent = throughputPercent;
+        this.minLatencyMillis = minLatencyMillis;
+    }
+
+    /**
+     * The tolerances of the JSON object, a tolerance that it doesn't contain is taken from the defaults.
+     */
+    static Tolerances fromJson(JsonNode json, Tolerances defaults) {
+        return new Tolerances(
+                json.path("p95Percent").asDouble(defaults.p95Percent),
+                json.path("p99Percent").asDouble(defaults.p99Percent),
+                json.path("throughputPercent").asDouble(defaults.throughputPercent),
+                json.path("minLatencyMillis").asDouble(defaults.minLatencyMillis));
+    }
+
+    void writeTo(ObjectNode json) {
+        json.put("p95Percent", p95Percent)
+                .put("p99Percent", p99Percent)
+                .put("throughputPercent", throughputPercent)
+                .put("minLatencyMillis", minLatencyMillis);
+    }
+
+    double maxP95(double baseline) {
+        return maxLatency(baseline, p95Percent);
+    }
+
+    double maxP99(double baseline) {
+        return maxLatency(baseline, p99Percent);
+    }
+
+    double minRequestsPerSecond(double baseline) {
+        return baseline * (1 - throughputPercent / 100);
+    }
+
+    private double maxLatency(double baseline, double percent) {
+        return Math.max(baseline * (1 + percent / 100), baseline + minLatencyMillis);
+    }
+}
@@ -0,0 +1,360 @@
+package com.rudolfs.gatling.orchestrator.local;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Local stand-in for the ECS API to run the orchestrator without AWS. It serves the JSON operations the orchestrator
+ * uses (DescribeServices, UpdateService, ListTasks, DescribeTasks, RunTask and StopTask) on an in-memory cluster.
+ * Services are created on first use, tasks start after a random delay like Fargate tasks do, runner tasks "run" for a
+ * fixed time after their start instant (GATLING_START_AT) and log how far their start deviates from that instant,
+ * other tasks started with RunTask (the report worker) for the same time after they are running.
+ * While a task of the Graphite service runs, the stand-in accepts connections on the Graphite port.
+ * <p>
+ * Settings are read from the environment variables LOCAL_ECS_PORT (8500, 0 picks a free port), LOCAL_ECS_MIN_START_SECONDS (5),
+ * LOCAL_ECS_MAX_START_SECONDS (20), LOCAL_ECS_JVM_START_SECONDS (3), LOCAL_ECS_RUN_SECONDS (30),
+ * LOCAL_ECS_GRAPHITE_SERVICE (influxdb), LOCAL_ECS_GRAPHITE_PORT (2003) and LOCAL_ECS_FAILING_RUNNER (none), the task
+ * definition family of a runner whose tasks exit with 1 after their run, e.g. gatling-runner-1.
+ */
+public final class LocalEcs {
+    private static final Logger LOGGER = Logger.getLogger(LocalEcs.class.getName());
+    private static final String TARGET_PREFIX = "AmazonEC2ContainerServiceV20141113.";
+    private static final String ARN_PREFIX = "arn:aws:ecs:local:000000000000:";
+    private static final String START_AT_VARIABLE = "GATLING_START_AT";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Random random = new Random();
+    private final Map<String, Service> services = new LinkedHashMap<>();
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final Map<String, String> environment;
+    private HttpServer server;
+    private ScheduledExecutorService scheduler;
+    private ServerSocket graphiteListener;
+    private int taskSequence;
+
+    public LocalEcs(Map<String, String> environment) {
+        this.environment = environment;
+    }
+
+    public static void main(String[] args) throws IOException {
+        new LocalEcs(System.getenv()).start();
+    }
+
+    public void start() throws IOException {
+        int port = setting("LOCAL_ECS_PORT", 8500);
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::reconcile, 100, 100, TimeUnit.MILLISECONDS);
+        LOGGER.info("Local ECS API listening on port " + getPort());
+    }
+
+    public synchronized void stop() throws IOException {
+        scheduler.shutdownNow();
+        server.stop(0);
+        if (graphiteListener != null) {
+            graphiteListener.close();
+            graphiteListener = null;
+        }
+    }
+
+    /**
+     * The port of the ECS API, for a LOCAL_ECS_PORT of 0 the port that was picked.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+        int status = 200;
+        JsonNode response;
+        try (InputStream in = exchange.getRequestBody()) {
+            JsonNode request = mapper.readTree(in);
+            synchronized (this) {
+                response = dispatch(target == null ? "" : target.substring(TARGET_PREFIX.length()), request);
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = mapper.createObjectNode().put("__type", "InvalidParameterException").put("message", e.getMessage());
+        }
+
+        byte[] body = mapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.1");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private JsonNode dispatch(String operation, JsonNode request) {
+        ObjectNode response = mapper.createObjectNode();
+        switch (operation) {
+            case "DescribeServices":
+                ArrayNode describedServices = response.putArray("services");
+                request.path("services").forEach(name -> describedServices.add(service(name.asText()).toJson()));
+                response.putArray("failures");
+                return response;
+            case "UpdateService":
+                Service service = service(request.path("service").asText());
+                service.desiredCount = request.path("desiredCount").asInt(service.desiredCount);
+                LOGGER.info(String.format("Service %s desired count %d", service.name, service.desiredCount));
+                return response.set("service", service.toJson());
+            case "ListTasks":
+                ArrayNode taskArns = response.putArray("taskArns");
+                tasks.values().stream()
+                        .filter(task -> !request.has("serviceName") || ("service:" + request.path("serviceName").asText()).equals(task.group))
+                        .filter(task -> !request.has("startedBy") || request.path("startedBy").asText().equals(task.startedBy))
+                        .filter(task -> request.path("desiredStatus").asText("RUNNING").equals(task.desiredStatus))
+                        .forEach(task -> taskArns.add(task.arn));
+                return response;
+            case "DescribeTasks":
+                ArrayNode describedTasks = response.putArray("tasks");
+                request.path("tasks").forEach(arn -> {
+                    Task task = tasks.get(arn.asText());
+                    if (task != null) {
+                        describedTasks.add(task.toJson());
+                    }
+                });
+                response.putArray("failures");
+                return response;
+            case "RunTask":
+                String family = family(request.path("taskDefinition").asText());
+                Task task = newTask(family, "family:" + family, request.path("startedBy").asText(null));
+                for (JsonNode containerOverride : request.path("overrides").path("containerOverrides")) {
+                    for (JsonNode variable : containerOverride.path("environment")) {
+                        if (START_AT_VARIABLE.equals(variable.path("name").asText())) {
+                            task.startAt = variable.path("value").asLong();
+                        }
+                    }
+                }
+                task.overrides = request.path("overrides");
+                response.putArray("tasks").add(task.toJson());
+                response.putArray("failures");
+                return response;
+            case "StopTask":
+                Task stoppedTask = tasks.get(request.path("task").asText());
+                if (stoppedTask == null) {
+                    throw new IllegalArgumentException("The referenced task was not found.");
+                }
+                stoppedTask.stop(0, request.path("reason").asText("Task stopped by user"));
+                return response.set("task", stoppedTask.toJson());
+            default:
+                throw new IllegalArgumentException("Unsupported operation " + operation);
+        }
+    }
+
+    // moves the tasks through their lifecycle and keeps the number of tasks of every service at its desired count
+    private synchronized void reconcile() {
+        long now = System.currentTimeMillis();
+        for (Service service : services.values()) {
+            List<Task> active = new ArrayList<>();
+            tasks.values().stream()
+                    .filter(task -> task.group.equals("service:" + service.name) && task.desiredStatus.equals("RUNNING"))
+                    .forEach(active::add);
+            for (int i = active.size(); i < service.desiredCount; i++) {
+                newTask(service.name, "service:" + service.name, null);
+            }
+            for (int i = service.desiredCount; i < active.size(); i++) {
+                active.get(i).stop(0, "Scaling activity initiated by deployment");
+            }
+        }
+
+        for (Task task : tasks.values()) {
+            if (task.lastStatus.equals("PROVISIONING") && now >= task.runningAt) {
+                task.lastStatus = "RUNNING";
+                LOGGER.info(String.format("Task %s of %s is running", task.id(), task.group));
+                // a task run without a start instant (the report worker) works right away
+                if (task.startAt == 0 && task.group.startsWith("family:")) {
+                    task.releasedAt = now;
+                }
+            }
+            if (task.lastStatus.equals("RUNNING") && task.startAt > 0 && task.releasedAt == 0
+                    && now >= Math.max(task.startAt, task.runningAt + setting("LOCAL_ECS_JVM_START_SECONDS", 3) * 1000L)) {
+                task.releasedAt = now;
+                LOGGER.info(String.format("Task %s started injecting at %s, %d ms after the start instant",
+                        task.id(), Instant.ofEpochMilli(now), now - task.startAt));
+            }
+            if (task.releasedAt > 0 && task.lastStatus.equals("RUNNING") && now >= task.releasedAt + setting("LOCAL_ECS_RUN_SECONDS", 30) * 1000L) {
+                boolean failing = task.startAt > 0 && task.family.equals(environment.get("LOCAL_ECS_FAILING_RUNNER"));
+                task.stop(failing ? 1 : 0, "Essential container in task exited");
+            }
+            if (task.desiredStatus.equals("STOPPED") && !task.lastStatus.equals("STOPPED")) {
+                task.lastStatus = "STOPPED";
+                task.stoppedAt = now;
+                LOGGER.info(String.format("Task %s of %s stopped: %s", task.id(), task.group, task.stoppedReason));
+            }
+        }
+        updateGraphiteListener(now);
+    }
+
+    // the Graphite port is open while a task of the Graphite service runs (after it had a moment to start)
+    private void updateGraphiteListener(long now) {
+        String graphiteService = environment.getOrDefault("LOCAL_ECS_GRAPHITE_SERVICE", "influxdb");
+        boolean running = tasks.values().stream().anyMatch(task -> task.group.equals("service:" + graphiteService)
+                && task.lastStatus.equals("RUNNING") && now >= task.runningAt + 2_000);
+        try {
+            if (running && graphiteListener == null) {
+                graphiteListener = new ServerSocket(setting("LOCAL_ECS_GRAPHITE_PORT", 2003));
+                LOGGER.info("Graphite port " + graphiteListener.getLocalPort() + " of " + graphiteService + " is open");
+            } else if (!running && graphiteListener != null) {
+                graphiteListener.close();
+                graphiteListener = null;
+                LOGGER.info("Graphite port of " + graphiteService + " is closed");
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Could not open the Graphite port: " + e.getMessage());
+        }
+    }
+
+    private Service service(String name) {
+        return services.computeIfAbsent(name, Service::new);
+    }
+
+    private Task newTask(String family, String group, String startedBy) {
+        long minStart = setting("LOCAL_ECS_MIN_START_SECONDS", 5) * 1000L;
+        long maxStart = setting("LOCAL_ECS_MAX_START_SECONDS", 20) * 1000L;
+        long startDelay = minStart + (long) (random.nextDouble() * Math.max(0, maxStart - minStart));
+
+        Task task = new Task(String.format("%stask/%08x", ARN_PREFIX, ++taskSequence), family, group, startedBy,
+                System.currentTimeMillis() + startDelay);
+        tasks.put(task.arn, task);
+        return task;
+    }
+
+    private int setting(String name, int defaultValue) {
+        return Integer.parseInt(environment.getOrDefault(name, String.valueOf(defaultValue)));
+    }
+
+    private static String family(String taskDefinition) {
+        String name = taskDefinition.substring(taskDefinition.lastIndexOf('/') + 1);
+        return name.contains(":") ? name.substring(0, name.indexOf(':')) : name;
+    }
+
+    private static double epochSeconds(long millis) {
+        return millis / 1000.0;
+    }
+
+    private final class Service {
+        private final String name;
+        private int desiredCount;
+
+        private Service(String name) {
+            this.name = name;
+        }
+
+        private ObjectNode toJson() {
+            long running = tasks.values().stream()
+                    .filter(task -> task.group.equals("service:" + name) && task.lastStatus.equals("RUNNING")).count();
+            long pending = tasks.values().stream()
+                    .filter(task -> task.group.equals("service:" + name) && task.lastStatus.equals("PROVISIONING")).count();
+            ObjectNode json = mapper.createObjectNode()
+                    .put("serviceArn", ARN_PREFIX + "service/" + name)
+                    .put("serviceName", name)
+                    .put("status", "ACTIVE")
+                    .put("desiredCount", desiredCount)
+                    .put("runningCount", running)
+                    .put("pendingCount", pending)
+                    .put("launchType", "FARGATE")
+                    .put("platformVersion", "LATEST")
+                    .put("taskDefinition", ARN_PREFIX + "task-definition/" + name + ":1");
+            ObjectNode vpcConfiguration = json.putObject("networkConfiguration").putObject("awsvpcConfiguration");
+            vpcConfiguration.putArray("subnets").add("subnet-local");
+            vpcConfiguration.putArray("securityGroups").add("sg-local");
+            vpcConfiguration.put("assignPublicIp", "DISABLED");
+            return json;
+        }
+    }
+
+    private final class Task {
+        private final String arn;
+        private final String family;
+        private final String group;
+        private final String startedBy;
+        private final long createdAt = System.currentTimeMillis();
+        private final long runningAt;
+        private String lastStatus = "PROVISIONING";
+        private String desiredStatus = "RUNNING";
+        private JsonNode overrides;
+        private long startAt;
+        private long releasedAt;
+        private long stoppedAt;
+        private String stoppedReason;
+        private Integer exitCode;
+
+        private Task(String arn, String family, String group, String startedBy, long runningAt) {
+            this.arn = arn;
+            this.family = family;
+            this.group = group;
+            this.startedBy = startedBy;
+            this.runningAt = runningAt;
+        }
+
+        private void stop(int exitCode, String reason) {
+            if (desiredStatus.equals("RUNNING")) {
+                desiredStatus = "STOPPED";
+                stoppedReason = reason;
+                this.exitCode = lastStatus.equals("RUNNING") ? exitCode : null;
+            }
+        }
+
+        private String id() {
+            return arn.substring(arn.lastIndexOf('/') + 1);
+        }
+
+        private ObjectNode toJson() {
+            ObjectNode json = mapper.createObjectNode()
+                    .put("taskArn", arn)
+                    .put("clusterArn", ARN_PREFIX + "cluster/local")
+                    .put("taskDefinitionArn", ARN_PREFIX + "task-definition/" + family + ":1")
+                    .put("group", group)
+                    .put("lastStatus", lastStatus)
+                    .put("desiredStatus", desiredStatus)
+                    .put("launchType", "FARGATE")
+                    .put("createdAt", epochSeconds(createdAt));
+            if (startedBy != null) {
+                json.put("startedBy", startedBy);
+            }
+            if (!lastStatus.equals("PROVISIONING")) {
+                json.put("startedAt", epochSeconds(runningAt));
+            }
+            if (stoppedAt > 0) {
+                json.put("stoppedAt", epochSeconds(stoppedAt)).put("stoppedReason", stoppedReason);
+            }
+            if (overrides != null) {
+                json.set("overrides", overrides);
+            }
+            ObjectNode container = json.putArray("containers").addObject()
+                    .put("name", family)
+                    .put("lastStatus", lastStatus);
+            if (lastStatus.equals("STOPPED") && exitCode != null) {
+                container.put("exitCode", exitCode);
+            }
+            ObjectNode networkInterface = json.putArray("attachments").addObject().put("type", "ElasticNetworkInterface");
+            networkInterface.putArray("details").addObject().put("name", "privateIPv4Address").put("value", "127.0.0.1");
+            return json;
+        }
+    }
+}
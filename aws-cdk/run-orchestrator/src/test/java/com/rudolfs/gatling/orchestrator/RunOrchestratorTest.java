@@ -0,0 +1,131 @@
+package com.rudolfs.gatling.orchestrator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rudolfs.gatling.orchestrator.local.LocalEcs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the orchestrator against the local ECS stand-in, whose tasks start right away and whose runners run for one
+ * second after their start instant. A start delay of 13 s leaves the margin the orchestrator requires before the
+ * start, so a run takes about 20 s.
+ */
+class RunOrchestratorTest {
+    private static final int SHARDS = 3;
+    private static final int RUN_SECONDS = 1;
+    // the stand-in moves its tasks every 100 ms
+    private static final long RECONCILE_TOLERANCE_MILLIS = 300;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private LocalEcs localEcs;
+    private EcsClient ecs;
+
+    @AfterEach
+    void stopLocalEcs() throws IOException {
+        localEcs.stop();
+    }
+
+    @Test
+    void allShardsAreReleasedAtTheStartInstant() throws Exception {
+        OrchestratorConfiguration configuration = startLocalEcs(Map.of());
+
+        assertEquals(0, new RunOrchestrator(configuration, ecs).run());
+
+        List<JsonNode> runners = runnerTasks();
+        assertEquals(SHARDS, runners.size());
+        long startAt = startAt(runners.get(0));
+        for (JsonNode runner : runners) {
+            assertEquals(startAt, startAt(runner));
+            assertEquals(0, runner.path("containers").path(0).path("exitCode").asInt());
+            // a runner stops RUN_SECONDS after it was released
+            long releasedAt = Math.round(runner.path("stoppedAt").asDouble() * 1000) - RUN_SECONDS * 1000;
+            assertTrue(releasedAt >= startAt && releasedAt - startAt <= RECONCILE_TOLERANCE_MILLIS,
+                    String.format("released %d ms after the start instant", releasedAt - startAt));
+        }
+        assertScaledDown(configuration);
+    }
+
+    @Test
+    void failingRunnerFailsTheRun() throws Exception {
+        OrchestratorConfiguration configuration = startLocalEcs(Map.of("LOCAL_ECS_FAILING_RUNNER", "gatling-runner-1"));
+
+        assertEquals(1, new RunOrchestrator(configuration, ecs).run());
+
+        List<JsonNode> runners = runnerTasks();
+        assertEquals(SHARDS, runners.size());
+        assertEquals(1, runners.stream().filter(runner -> runner.path("containers").path(0).path("exitCode").asInt() == 1).count());
+        assertScaledDown(configuration);
+    }
+
+    private OrchestratorConfiguration startLocalEcs(Map<String, String> settings) throws IOException {
+        String graphitePort = String.valueOf(freePort());
+        Map<String, String> environment = new HashMap<>(Map.of(
+                "LOCAL_ECS_PORT", "0",
+                "LOCAL_ECS_MIN_START_SECONDS", "0",
+                "LOCAL_ECS_MAX_START_SECONDS", "0",
+                "LOCAL_ECS_JVM_START_SECONDS", "1",
+                "LOCAL_ECS_RUN_SECONDS", String.valueOf(RUN_SECONDS),
+                "LOCAL_ECS_GRAPHITE_PORT", graphitePort));
+        environment.putAll(settings);
+        localEcs = new LocalEcs(environment);
+        localEcs.start();
+
+        OrchestratorConfiguration configuration = OrchestratorConfiguration.fromEnvironment(Map.of(
+                "ECS_ENDPOINT", "http://localhost:" + localEcs.getPort(),
+                "RUNNER_SHARD_COUNT", String.valueOf(SHARDS),
+                "GRAPHITE_PORT", graphitePort,
+                "START_DELAY_SECONDS", "13",
+                "READY_TIMEOUT_SECONDS", "30",
+                "RUN_TIMEOUT_MINUTES", "1"));
+        ecs = new EcsClient(configuration.getEcsEndpoint(), configuration.getRegion(), configuration.getClusterName(), Map.of());
+        return configuration;
+    }
+
+    private void assertScaledDown(OrchestratorConfiguration configuration) {
+        for (JsonNode service : ecs.describeServices(configuration.getMonitoringServiceNames())) {
+            assertEquals(0, service.path("desiredCount").asInt(), service.path("serviceName").asText());
+        }
+    }
+
+    // the runner tasks have stopped, the client lists running tasks only
+    private List<JsonNode> runnerTasks() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + localEcs.getPort() + "/"))
+                .header("X-Amz-Target", "AmazonEC2ContainerServiceV20141113.ListTasks")
+                .POST(HttpRequest.BodyPublishers.ofString("{ \"startedBy\": \"run-orchestrator\", \"desiredStatus\": \"STOPPED\" }"))
+                .build();
+        JsonNode response = mapper.readTree(HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).body());
+        List<String> taskArns = new ArrayList<>();
+        response.path("taskArns").forEach(arn -> taskArns.add(arn.asText()));
+        return ecs.describeTasks(taskArns);
+    }
+
+    private static long startAt(JsonNode task) {
+        for (JsonNode variable : task.path("overrides").path("containerOverrides").path(0).path("environment")) {
+            if ("GATLING_START_AT".equals(variable.path("name").asText())) {
+                return variable.path("value").asLong();
+            }
+        }
+        throw new AssertionError("No GATLING_START_AT in " + task);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.rudolfs.gatling.orchestrator;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the signing steps against the AWS Signature Version 4 test suite (aws-sig-v4-test-suite: get-vanilla,
+ * post-vanilla, post-x-www-form-urlencoded) and the examples of the SigV4 documentation.
+ */
+class SigV4Test {
+    private static final String ACCESS_KEY_ID = "AKIDEXAMPLE";
+    private static final String SECRET_ACCESS_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+    private static final String AMZ_DATE = "20150830T123600Z";
+    private static final String DATE_STAMP = "20150830";
+    private static final String REGION = "us-east-1";
+    private static final String SERVICE = "service";
+
+    @Test
+    void getVanilla() {
+        SortedMap<String, String> headers = SigV4.canonicalHeaders(Map.of("Host", "example.amazonaws.com", "X-Amz-Date", AMZ_DATE));
+        String scope = SigV4.scope(DATE_STAMP, REGION, SERVICE);
+
+        String canonicalRequest = SigV4.canonicalRequest("GET", "/", "", headers, new byte[0]);
+        assertEquals("GET\n"
+                + "/\n"
+                + "\n"
+                + "host:example.amazonaws.com\n"
+                + "x-amz-date:20150830T123600Z\n"
+                + "\n"
+                + "host;x-amz-date\n"
+                + "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", canonicalRequest);
+
+        String stringToSign = SigV4.stringToSign(AMZ_DATE, scope, canonicalRequest);
+        assertEquals("AWS4-HMAC-SHA256\n"
+                + "20150830T123600Z\n"
+                + "20150830/us-east-1/service/aws4_request\n"
+                + "bb579772317eb040ac9ed261061d46c1f17a8133879d6129b6e1c25292927e63", stringToSign);
+
+        String signature = SigV4.signature(SigV4.signingKey(SECRET_ACCESS_KEY, DATE_STAMP, REGION, SERVICE), stringToSign);
+        assertEquals("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, SignedHeaders=host;x-amz-date, "
+                        + "Signature=5fa00fa31553b73ebf1942676e86291e8372ff2a2260956d9b8aae1d763fbf31",
+                SigV4.authorization(ACCESS_KEY_ID, scope, SigV4.signedHeaders(headers), signature));
+    }
+
+    @Test
+    void postVanilla() {
+        SortedMap<String, String> headers = SigV4.canonicalHeaders(Map.of("Host", "example.amazonaws.com", "X-Amz-Date", AMZ_DATE));
+
+        String stringToSign = SigV4.stringToSign(AMZ_DATE, SigV4.scope(DATE_STAMP, REGION, SERVICE),
+                SigV4.canonicalRequest("POST", "/", "", headers, new byte[0]));
+
+        assertEquals("AWS4-HMAC-SHA256\n"
+                + "20150830T123600Z\n"
+                + "20150830/us-east-1/service/aws4_request\n"
+                + "553f88c9e4d10fc9e109e2aeb65f030801b70c2f6468faca261d401ae622fc87", stringToSign);
+        assertEquals("5da7c1a2acd57cee7505fc6676e4e544621c30862966e37dddb68e92efbe5d6b",
+                SigV4.signature(SigV4.signingKey(SECRET_ACCESS_KEY, DATE_STAMP, REGION, SERVICE), stringToSign));
+    }
+
+    @Test
+    void postWithContentTypeAndBody() {
+        SortedMap<String, String> headers = SigV4.canonicalHeaders(Map.of(
+                "Content-Type", "application/x-www-form-urlencoded",
+                "Host", "example.amazonaws.com",
+                "X-Amz-Date", AMZ_DATE));
+
+        String canonicalRequest = SigV4.canonicalRequest("POST", "/", "", headers, "Param1=value1".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("content-type;host;x-amz-date", SigV4.signedHeaders(headers));
+        assertEquals("ff11897932ad3f4e8b18135d722051e5ac45fc38421b1da7b9d196a0fe09473a",
+                SigV4.signature(SigV4.signingKey(SECRET_ACCESS_KEY, DATE_STAMP, REGION, SERVICE),
+                        SigV4.stringToSign(AMZ_DATE, SigV4.scope(DATE_STAMP, REGION, SERVICE), canonicalRequest)));
+    }
+
+    @Test
+    void signingKeyOfTheDocumentation() {
+        assertEquals("f4780e2d9f65fa895f9c67b32ce1baf0b0d8a43505a000a1a9e090d414db404d",
+                SigV4.hex(SigV4.signingKey(SECRET_ACCESS_KEY, "20120215", REGION, "iam")));
+    }
+
+    @Test
+    void listUsersExampleOfTheDocumentation() {
+        SortedMap<String, String> headers = SigV4.canonicalHeaders(Map.of(
+                "Content-Type", "application/x-www-form-urlencoded; charset=utf-8",
+                "Host", "iam.amazonaws.com",
+                "X-Amz-Date", AMZ_DATE));
+        String canonicalRequest = SigV4.canonicalRequest("GET", "/", "Action=ListUsers&Version=2010-05-08", headers, new byte[0]);
+
+        assertEquals("f536975d06c0309214f805bb90ccff089219ecd68b2577efef23edd43b7e1a59",
+                SigV4.hex(SigV4.sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8))));
+        assertEquals("5d672d79c15b13162d9279b0855cfba6789a8edb4c82c400e06b5924a6f2b5d7",
+                SigV4.signature(SigV4.signingKey(SECRET_ACCESS_KEY, DATE_STAMP, REGION, "iam"),
+                        SigV4.stringToSign(AMZ_DATE, SigV4.scope(DATE_STAMP, REGION, "iam"), canonicalRequest)));
+    }
+
+    @Test
+    void headerNamesAreLowerCasedAndValuesTrimmed() {
+        SortedMap<String, String> headers = SigV4.canonicalHeaders(Map.of("X-Amz-Target", " AmazonEC2ContainerServiceV20141113.ListTasks ",
+                "My-Header", "a   b  c"));
+
+        assertEquals(Map.of("my-header", "a b c", "x-amz-target", "AmazonEC2ContainerServiceV20141113.ListTasks"), headers);
+        assertEquals("my-header;x-amz-target", SigV4.signedHeaders(headers));
+    }
+}
@@ -0,0 +1,53 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Builds InfluxDB responses of {@link InfluxdbClient#QUERY} with encoded histograms, like the snapshots of a run.
+ */
+final class HistogramSnapshots {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HistogramSnapshots() {
+    }
+
+    static ObjectNode response() {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.putArray("results").addObject().putArray("series");
+        return response;
+    }
+
+    /**
+     * Adds the series of the request with the columns time and hdr and returns its values.
+     */
+    static ArrayNode series(ObjectNode response, String request) {
+        ObjectNode series = addSeries(response, request);
+        series.putArray("columns").add("time").add("hdr");
+        return series.putArray("values");
+    }
+
+    static ObjectNode addSeries(ObjectNode response, String request) {
+        ObjectNode series = ((ArrayNode) response.path("results").path(0).path("series")).addObject();
+        series.putObject("tags").put("request", request);
+        return series;
+    }
+
+    static void point(ArrayNode values, long time, Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        values.addArray().add(time).add(Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+    }
+
+    static Histogram histogram(int count, long value) {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValueWithCount(value, count);
+        return histogram;
+    }
+}
@@ -0,0 +1,126 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.histogram;
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.point;
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.response;
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.series;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegressionGateTest {
+    // p95 and p99 may rise by 10% and 15%, but at least by 5 ms, the throughput may drop by 10%
+    private static final String TOLERANCES = "{ \"p95Percent\": 10, \"p99Percent\": 15, \"throughputPercent\": 10, \"minLatencyMillis\": 5 }";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void percentilesMayRiseWithinTheirPercentage() throws IOException {
+        Baseline baseline = baseline("\"request_1\": { \"count\": 100, \"requestsPerSecond\": 20.0, \"p95\": 200.0, \"p99\": 300.0 }");
+
+        assertEquals(List.of(), RegressionGate.compare(baseline, results("request_1", 219.9, 344.9, 20.0)));
+    }
+
+    @Test
+    void percentilesRisingAboveTheirPercentageRegress() throws IOException {
+        Baseline baseline = baseline("\"request_1\": { \"count\": 100, \"requestsPerSecond\": 20.0, \"p95\": 200.0, \"p99\": 300.0 }");
+
+        List<String> regressions = RegressionGate.compare(baseline, results("request_1", 220.1, 345.1, 20.0));
+
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.get(0).startsWith("request_1: p95 220.1 ms exceeds 220.0 ms"), regressions.get(0));
+        assertTrue(regressions.get(1).startsWith("request_1: p99 345.1 ms exceeds 345.0 ms"), regressions.get(1));
+    }
+
+    @Test
+    void minLatencyMillisAppliesToSmallBaselines() throws IOException {
+        // 10% of 20 ms are 2 ms, the floor of 5 ms wins
+        Baseline baseline = baseline("\"request_1\": { \"count\": 100, \"requestsPerSecond\": 20.0, \"p95\": 20.0, \"p99\": 30.0 }");
+
+        assertEquals(List.of(), RegressionGate.compare(baseline, results("request_1", 24.9, 34.9, 20.0)));
+        assertEquals(2, RegressionGate.compare(baseline, results("request_1", 25.1, 35.1, 20.0)).size());
+    }
+
+    @Test
+    void throughputDroppingBelowItsPercentageRegresses() throws IOException {
+        Baseline baseline = baseline("\"request_1\": { \"count\": 100, \"requestsPerSecond\": 20.0, \"p95\": 200.0, \"p99\": 300.0 }");
+
+        assertEquals(List.of(), RegressionGate.compare(baseline, results("request_1", 200.0, 300.0, 18.1)));
+        List<String> regressions = RegressionGate.compare(baseline, results("request_1", 200.0, 300.0, 17.9));
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0).startsWith("request_1: 17.90 req/s is below 18.00 req/s"), regressions.get(0));
+    }
+
+    @Test
+    void baselineRequestWithoutResponsesRegresses() throws IOException {
+        Baseline baseline = baseline("\"request_1\": { \"count\": 100, \"requestsPerSecond\": 20.0, \"p95\": 200.0, \"p99\": 300.0 }, "
+                + "\"request_2\": { \"count\": 50, \"requestsPerSecond\": 10.0, \"p95\": 200.0, \"p99\": 300.0 }");
+
+        assertEquals(List.of("request_2: no responses, the baseline has 50"),
+                RegressionGate.compare(baseline, results("request_1", 200.0, 300.0, 20.0)));
+    }
+
+    @Test
+    void requestsThatAreNotInTheBaselineAreNotCompared() throws IOException {
+        Baseline baseline = baseline("\"request_1\": { \"count\": 100, \"requestsPerSecond\": 20.0, \"p95\": 200.0, \"p99\": 300.0 }");
+        TreeMap<String, RequestResult> requests = new TreeMap<>(Map.of(
+                "request_1", new RequestResult(100, 20.0, 200.0, 300.0),
+                "request_new", new RequestResult(1, 0.1, 5_000.0, 5_000.0)));
+
+        assertEquals(List.of(), RegressionGate.compare(baseline, new RunResults(requests)));
+    }
+
+    @Test
+    void toleranceOverrideOfARequestReplacesOnlyItsFields() throws IOException {
+        Baseline baseline = baseline("\"request_1\": { \"count\": 100, \"requestsPerSecond\": 20.0, \"p95\": 200.0, \"p99\": 300.0, "
+                + "\"tolerances\": { \"p99Percent\": 30 } }");
+
+        // p99 may rise by 30% to 390 ms, p95 and the throughput keep the tolerances of the file
+        assertEquals(List.of(), RegressionGate.compare(baseline, results("request_1", 219.9, 389.9, 18.1)));
+        List<String> regressions = RegressionGate.compare(baseline, results("request_1", 220.1, 390.1, 17.9));
+        assertEquals(3, regressions.size(), regressions.toString());
+    }
+
+    @Test
+    void missingBaselinePassesAndWritesTheResults() throws IOException {
+        Path results = directory.resolve("regression-results.json");
+        GateConfiguration configuration = GateConfiguration.fromEnvironment(Map.of(
+                "REGRESSION_BASELINE", directory.resolve("regression-baseline.json").toString(),
+                "REGRESSION_RESULTS", results.toString()));
+        ObjectNode response = response();
+        point(series(response, "allRequests"), 1_600_000_000_000L, histogram(10, 100));
+
+        assertEquals(0, new RegressionGate(configuration).check(response));
+
+        JsonNode written = mapper.readTree(results.toFile());
+        assertEquals(10, written.path("requests").path("allRequests").path("count").asLong());
+        assertEquals(10.0, written.path("tolerances").path("p95Percent").asDouble());
+        assertFalse(Files.exists(directory.resolve("regression-baseline.json")));
+    }
+
+    private Baseline baseline(String requests) throws IOException {
+        Path file = directory.resolve("regression-baseline.json");
+        Files.writeString(file, String.format("{ \"tolerances\": %s, \"requests\": { %s } }", TOLERANCES, requests));
+        return Baseline.read(file);
+    }
+
+    private static RunResults results(String request, double p95, double p99, double requestsPerSecond) {
+        return new RunResults(new TreeMap<>(Map.of(request, new RequestResult(100, requestsPerSecond, p95, p99))));
+    }
+}
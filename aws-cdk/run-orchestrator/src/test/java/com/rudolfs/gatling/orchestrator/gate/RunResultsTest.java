@@ -0,0 +1,91 @@
+package com.rudolfs.gatling.orchestrator.gate;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.addSeries;
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.histogram;
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.point;
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.response;
+import static com.rudolfs.gatling.orchestrator.gate.HistogramSnapshots.series;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RunResultsTest {
+
+    @Test
+    void percentilesAreMergedFromTheHistogramsOfAllShardsAndWritePeriods() {
+        // a fast shard and a slow shard, the per-second percentiles of neither are the percentiles of the run
+        Histogram fast = histogram(900, 10);
+        Histogram slow = histogram(100, 1_000);
+        ObjectNode response = response();
+        ArrayNode values = series(response, "request_1");
+        point(values, 1_600_000_000_000L, fast);
+        point(values, 1_600_000_001_000L, slow);
+
+        RequestResult result = RunResults.fromInfluxdb(response).getRequests().get("request_1");
+
+        Histogram run = new Histogram(3);
+        run.add(fast);
+        run.add(slow);
+        assertEquals(1_000, result.getCount());
+        assertEquals(500.0, result.getRequestsPerSecond());
+        assertEquals(run.getValueAtPercentile(95.0), result.getP95());
+        assertEquals(run.getValueAtPercentile(99.0), result.getP99());
+        assertEquals(1_000, result.getP95(), 1);
+    }
+
+    @Test
+    void throughputCoversTheWritePeriodOfTheLastHistogram() {
+        // a write period of 5 s, the second request has no responses in the period in between
+        ObjectNode response = response();
+        ArrayNode first = series(response, "request_1");
+        point(first, 1_600_000_000_000L, histogram(50, 10));
+        point(first, 1_600_000_005_000L, histogram(50, 10));
+        ArrayNode second = series(response, "request_2");
+        point(second, 1_600_000_000_000L, histogram(25, 10));
+        point(second, 1_600_000_010_000L, histogram(50, 10));
+
+        RunResults results = RunResults.fromInfluxdb(response);
+
+        // the window lasts from the first period to the end of the third, 15 s
+        assertEquals(100 / 15.0, results.getRequests().get("request_1").getRequestsPerSecond(), 1e-9);
+        assertEquals(75 / 15.0, results.getRequests().get("request_2").getRequestsPerSecond(), 1e-9);
+    }
+
+    @Test
+    void writePeriodIsTakenFromTheHistogramsOfOneShard() {
+        // two shards with a write period of 5 s that write one second apart
+        ObjectNode response = response();
+        ArrayNode shard0 = series(response, "request_1");
+        point(shard0, 1_600_000_000_000L, histogram(50, 10));
+        point(shard0, 1_600_000_005_000L, histogram(50, 10));
+        ArrayNode shard1 = series(response, "request_1");
+        point(shard1, 1_600_000_001_000L, histogram(50, 10));
+        point(shard1, 1_600_000_006_000L, histogram(50, 10));
+
+        // from the first period of shard 0 to the end of the last of shard 1, 11 s
+        RequestResult result = RunResults.fromInfluxdb(response).getRequests().get("request_1");
+        assertEquals(200, result.getCount());
+        assertEquals(200 / 11.0, result.getRequestsPerSecond(), 1e-9);
+    }
+
+    @Test
+    void throughputOfASingleWritePeriodIsPerSecond() {
+        ObjectNode response = response();
+        point(series(response, "request_1"), 1_600_000_000_000L, histogram(40, 10));
+
+        assertEquals(40.0, RunResults.fromInfluxdb(response).getRequests().get("request_1").getRequestsPerSecond());
+    }
+
+    @Test
+    void snapshotsWithoutHistogramsAreRejected() {
+        ObjectNode response = response();
+        ObjectNode series = addSeries(response, "allRequests");
+        series.putArray("columns").add("time").add("count").add("percentiles95").add("percentiles99");
+
+        assertThrows(IllegalArgumentException.class, () -> RunResults.fromInfluxdb(response));
+    }
+}
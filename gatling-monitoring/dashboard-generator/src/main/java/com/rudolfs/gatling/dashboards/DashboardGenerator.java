@@ -0,0 +1,150 @@
+package com.rudolfs.gatling.dashboards;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.rudolfs.gatling.dashboards.model.Dashboard;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Writes the Grafana dashboards of {@link GatlingDashboards} as JSON files into the provisioning directory of the
+ * Grafana image. With --check nothing is written, the generator exits with 1 when a provisioned file differs from the
+ * generated dashboard (e.g. because it was edited in Grafana and exported), so the files and the model can't drift apart.
+ * <p>
+ * Usage: dashboard-generator [--check] [directory], the directory defaults to ../grafana/provisioning/dashboards.
+ */
+public final class DashboardGenerator {
+    private static final Logger LOGGER = Logger.getLogger(DashboardGenerator.class.getName());
+    private static final String DEFAULT_DIRECTORY = "../grafana/provisioning/dashboards";
+    private static final String CHECK_OPTION = "--check";
+
+    private final Path directory;
+    private final ObjectWriter writer;
+
+    public DashboardGenerator(Path directory) {
+        this.directory = directory;
+        this.writer = new ObjectMapper().writer(new GrafanaPrettyPrinter());
+    }
+
+    public static void main(String[] args) {
+        boolean check = false;
+        String directory = DEFAULT_DIRECTORY;
+        for (String arg : args) {
+            if (CHECK_OPTION.equals(arg)) {
+                check = true;
+            } else {
+                directory = arg;
+            }
+        }
+
+        DashboardGenerator generator = new DashboardGenerator(Paths.get(directory));
+        if (check) {
+            List<String> differing = generator.check(GatlingDashboards.all());
+            if (!differing.isEmpty()) {
+                LOGGER.severe("Provisioned dashboards differ from the generated ones: " + String.join(", ", differing)
+                        + ", run the generator without " + CHECK_OPTION + " to update them");
+                System.exit(1);
+            }
+            LOGGER.info("Provisioned dashboards are up to date");
+        } else {
+            generator.write(GatlingDashboards.all());
+        }
+    }
+
+    /**
+     * Writes (or overwrites) the file of every dashboard.
+     */
+    public void write(List<Dashboard> dashboards) {
+        for (Dashboard dashboard : dashboards) {
+            Path file = directory.resolve(dashboard.getFileName());
+            try {
+                Files.writeString(file, render(dashboard), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't write dashboard " + file, e);
+            }
+            LOGGER.info("Wrote " + dashboard.getTitle() + " to " + file);
+        }
+    }
+
+    /**
+     * Returns the names of the dashboard files that are missing or differ from the generated dashboard.
+     */
+    public List<String> check(List<Dashboard> dashboards) {
+        List<String> differing = new ArrayList<>();
+        for (Dashboard dashboard : dashboards) {
+            Path file = directory.resolve(dashboard.getFileName());
+            try {
+                if (!Files.exists(file) || !Files.readString(file, StandardCharsets.UTF_8).equals(render(dashboard))) {
+                    differing.add(dashboard.getFileName());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't read dashboard " + file, e);
+            }
+        }
+        return differing;
+    }
+
+    String render(Dashboard dashboard) throws IOException {
+        return writer.writeValueAsString(dashboard.toJson()) + "\n";
+    }
+
+    /**
+     * Indents by two spaces and writes "key": value, like the JSON export of Grafana.
+     */
+    private static final class GrafanaPrettyPrinter extends DefaultPrettyPrinter {
+        GrafanaPrettyPrinter() {
+            DefaultIndenter indenter = new DefaultIndenter("  ", "\n");
+            indentObjectsWith(indenter);
+            indentArraysWith(indenter);
+        }
+
+        private GrafanaPrettyPrinter(GrafanaPrettyPrinter base) {
+            super(base);
+        }
+
+        @Override
+        public DefaultPrettyPrinter createInstance() {
+            return new GrafanaPrettyPrinter(this);
+        }
+
+        @Override
+        public void writeObjectFieldValueSeparator(JsonGenerator generator) throws IOException {
+            generator.writeRaw(": ");
+        }
+
+        @Override
+        public void writeEndObject(JsonGenerator generator, int entries) throws IOException {
+            // {} instead of { }
+            if (!_objectIndenter.isInline()) {
+                --_nesting;
+            }
+            if (entries > 0) {
+                _objectIndenter.writeIndentation(generator, _nesting);
+            }
+            generator.writeRaw('}');
+        }
+
+        @Override
+        public void writeEndArray(JsonGenerator generator, int values) throws IOException {
+            // [] instead of [ ]
+            if (!_arrayIndenter.isInline()) {
+                --_nesting;
+            }
+            if (values > 0) {
+                _arrayIndenter.writeIndentation(generator, _nesting);
+            }
+            generator.writeRaw(']');
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.rudolfs.gatling.dashboards;
+
+import com.rudolfs.gatling.dashboards.model.ColumnStyle;
+import com.rudolfs.gatling.dashboards.model.Dashboard;
+import com.rudolfs.gatling.dashboards.model.GraphPanel;
+import com.rudolfs.gatling.dashboards.model.GraphPanel.Legend;
+import com.rudolfs.gatling.dashboards.model.GraphPanel.XAxis;
+import com.rudolfs.gatling.dashboards.model.Row;
+import com.rudolfs.gatling.dashboards.model.SeriesOverride;
+import com.rudolfs.gatling.dashboards.model.TablePanel;
+import com.rudolfs.gatling.dashboards.model.Unit;
+import com.rudolfs.gatling.dashboards.model.Variable;
+import com.rudolfs.gatling.dashboards.query.InfluxQuery;
+
+import java.util.List;
+
+import static com.rudolfs.gatling.dashboards.query.Measurement.CARDINALITY;
+import static com.rudolfs.gatling.dashboards.query.Measurement.LATENCY;
+import static com.rudolfs.gatling.dashboards.query.Measurement.REQUESTS;
+import static com.rudolfs.gatling.dashboards.query.Measurement.RUNNER;
+import static com.rudolfs.gatling.dashboards.query.Measurement.USERS;
+import static com.rudolfs.gatling.dashboards.query.Select.max;
+import static com.rudolfs.gatling.dashboards.query.Select.mean;
+import static com.rudolfs.gatling.dashboards.query.Select.min;
+import static com.rudolfs.gatling.dashboards.query.Select.percentile;
+import static com.rudolfs.gatling.dashboards.query.Select.stddev;
+import static com.rudolfs.gatling.dashboards.query.Select.sum;
+
+/**
+ * The dashboards provisioned with the Grafana image (grafana/provisioning/dashboards).
+ */
+public final class GatlingDashboards {
+    private static final String ALL_REQUESTS = "allRequests";
+    private static final int GOOD_RESPONSE_TIME = 800;
+    private static final int SLOW_RESPONSE_TIME = 1200;
+
+    private GatlingDashboards() {
+    }
+
+    public static List<Dashboard> all() {
+        return List.of(overview(), details(), summary());
+    }
+
+    /**
+     * Throughput, errors and latencies of the whole run and per request.
+     */
+    static Dashboard overview() {
+        return Dashboard.builder("gatling-dashboard-1.json", "gatling-overview", "Gatling Dashboard by Ugur ARPACI")
+                .refresh("1s")
+                .timeFrom("now-10m")
+                .panel(GraphPanel.builder("RPS", 24, 8)
+                        .minZero()
+                        .query(requests().select(sum("count").perSecond()).tagNot("request", ALL_REQUESTS).tag("status", "all")
+                                .groupBy("request").alias("Node $tag_request"))
+                        .query(requests().select(sum("count").perSecond()).tagNot("request", ALL_REQUESTS).tag("status", "all")
+                                .alias("All req")))
+                .panel(GraphPanel.builder("Errors v Passes", 24, 8)
+                        .minZero()
+                        .legend(Legend.CURRENT)
+                        .query(requests().select(sum("count").perSecond()).tagNot("request", ALL_REQUESTS).tag("status", "ok").alias("All Passes"))
+                        .query(requests().select(sum("count").perSecond()).tagNot("request", ALL_REQUESTS).tag("status", "ko").alias("All Errors"))
+                        .query(requests().select(sum("count").perSecond()).tagNot("request", ALL_REQUESTS).tag("status", "ok")
+                                .groupBy("request").alias("Pass $tag_request"))
+                        .query(requests().select(sum("count").perSecond()).tagNot("request", ALL_REQUESTS).tag("status", "ko")
+                                .groupBy("request").alias("Error $tag_request")))
+                .panel(GraphPanel.builder("Latencies: Percentiles & Max", 24, 8)
+                        .unit(Unit.MILLISECONDS)
+                        .minZero()
+                        .query(requests().select(max("percentiles50").as("percentiles50"), max("percentiles95").as("percentiles95"),
+                                max("percentiles99").as("percentiles99"), max("max").as("max"))
+                                .tagNot("request", ALL_REQUESTS).tag("status", "ok").alias("$col")))
+                .panel(percentilePerRequest("Individual Requests (50% Line)", 8, 8, "percentiles50"))
+                .panel(percentilePerRequest("Individual Requests (95% Line)", 8, 8, "percentiles95"))
+                .panel(percentilePerRequest("Individual Requests (99% Line)", 8, 8, "percentiles99"))
+                .build();
+    }
+
+    /**
+     * Indicators, statistics per request and throughput, response times and errors per simulation in collapsed rows.
+     */
+    static Dashboard details() {
+        return Dashboard.builder("gatling-dashboard-2.json", "ydV3WAhmk", "Gatling Dashboard by polarnik")
+                .timeFrom("now-1h")
+                .variable(Variable.tagValues("request", "request", "request").multi().includeAll(".*"))
+                .row(Row.collapsed("Indicators and Statistics", indicators(), statistics()))
+                .row(Row.collapsed("Active Users (Scenarios) count per second",
+                        perSelectedRequest("Active Users along the Simulation", Unit.OPS_PER_SECOND, sum("count").perSecond())))
+                .row(Row.collapsed("Response Time",
+                        responseTimeDistribution("Response Time Distribution (ok)", 0, "ok", null),
+                        responseTimeDistribution("Response Time Distribution (ko)", 12, "ko", "#e24d42"),
+                        GraphPanel.builder("Response Time Percentiles over Time (OK)", 24, 14)
+                                .unit(Unit.MILLISECONDS)
+                                .rightUnit(Unit.NONE)
+                                .minZero()
+                                .fill(7)
+                                .legend(Legend.TABLE)
+                                .query(responseTimePercentiles())
+                                .query(InfluxQuery.timeSeries(USERS).select(mean("active")).alias("All users"))
+                                .override(SeriesOverride.alias("/.*(min)/").color("#C4FD90").zindex(2))
+                                .override(SeriesOverride.alias("/.*(50%)/").color("#6FF2AD").zindex(1))
+                                .override(SeriesOverride.alias("/.*(75%)/").color("#60ECE5").zindex(0))
+                                .override(SeriesOverride.alias("/.*(95%)/").color("#BC28D7").zindex(-1))
+                                .override(SeriesOverride.alias("/.*(99%)/").color("#D11C97").zindex(-2))
+                                .override(SeriesOverride.alias("/.*(max)/").color("#C73905").zindex(-3))
+                                .override(SeriesOverride.alias("All users").color("#FF9D00").fill(0).rightAxis().zindex(3))
+                                .build()))
+                .row(Row.collapsed("RPS",
+                        GraphPanel.builder("Number of requests per second (group by simulation)", 24, 11)
+                                .unit(Unit.REQUESTS_PER_SECOND)
+                                .rightUnit(Unit.NONE)
+                                .legend(Legend.TABLE)
+                                .query(requests().select(sum("count").perSecond()).tag("request", ALL_REQUESTS).tag("status", "all")
+                                        .groupBy("simulation").alias("$tag_simulation (All)"))
+                                .query(activeUsers(mean("active")))
+                                .override(SeriesOverride.alias("/.*[(]All[)]/").color("#4572A7").fill(7))
+                                .override(SeriesOverride.alias("/.* [(]Active Users[)]/").color("#FF9D00").fill(0).rightAxis())
+                                .build(),
+                        GraphPanel.builder("Number of requests per second (group by simulation, status)", 24, 11)
+                                .unit(Unit.REQUESTS_PER_SECOND)
+                                .rightUnit(Unit.NONE)
+                                .stack()
+                                .fill(6)
+                                .legend(Legend.TABLE)
+                                .query(requests().select(sum("count").perSecond()).tag("request", ALL_REQUESTS)
+                                        .groupBy("simulation", "status").alias("$tag_simulation ($tag_status)"))
+                                .query(activeUsers(max("active")))
+                                .override(SeriesOverride.alias("/.*[(]all[)]/").color("#4572A7").fill(0).stack(false).zindex(0))
+                                .override(SeriesOverride.alias("/.*[(]ok[)]/").color("#A0B228").stack(true).zindex(1))
+                                .override(SeriesOverride.alias("/.*[(]ko[)]/").color("#FF0000").stack(true).zindex(1))
+                                .override(SeriesOverride.alias("/.* [(]Active Users[)]/").color("#FF9D00").fill(0).stack(false).rightAxis().zindex(3))
+                                .build(),
+                        perSelectedRequest("Интенсивность выполнения сценариев (частота выполненных сценариев в секунду)",
+                                Unit.OPS_PER_SECOND, sum("count").perSecond()),
+                        perSelectedRequest("Интенсивность выполнения сценариев (частота выполненных сценариев в минуту)",
+                                Unit.OPS_PER_MINUTE, sum("count").perMinute())))
+                .row(Row.collapsed("Count: All",
+                        perSelectedRequest("Количество завершенных сценариев", Unit.NONE, sum("count").cumulative())))
+                .row(Row.collapsed("RPS with filter",
+                        GraphPanel.builder("Интенсивность выполнения транзакций (PRS) for $request", 24, 15)
+                                .unit(Unit.REQUESTS_PER_SECOND)
+                                .lineWidth(1)
+                                .gaps()
+                                .legend(Legend.TABLE)
+                                .query(requests().select(sum("count").perSecond()).tagIn("request", "request")
+                                        .groupBy("simulation", "group1", "group2", "request", "status")
+                                        .alias("[$tag_simulation] $tag_group1 / $tag_group2 $tag_request ($tag_status)"))
+                                .build()))
+                .row(Row.collapsed("Latency",
+                        GraphPanel.builder("Latencies: Percentiles & Max (ok only)", 24, 14)
+                                .unit(Unit.MILLISECONDS)
+                                .minZero()
+                                .legend(Legend.TABLE)
+                                .query(responseTimePercentiles())
+                                .build()))
+                .row(Row.collapsed("Errors, Passes",
+                        passesAndErrors("Errors v Passes (count)", Unit.NONE, false),
+                        passesAndErrors("Errors v Passes (per second)", Unit.OPS_PER_SECOND, true)))
+                .row(Row.collapsed("Response time (group by request)",
+                        percentilePerRequest("Individual Requests (95% Line)", 24, 7, "percentiles95").build(),
+                        perRequest("Individual Request mean time (all statuses)", Unit.MILLISECONDS, mean("mean"), "all"),
+                        perRequest("Individual Request mean time (ok/pass statuses)", Unit.MILLISECONDS, mean("mean"), "ok")))
+                .row(Row.collapsed("Count: Error, Passed (group by request)",
+                        perRequest("Individual Request count (ok/pass statuses)", Unit.NONE, sum("count").cumulative(), "ok"),
+                        perRequest("Individual Request mean time (error/fail statuses)", Unit.MILLISECONDS, mean("mean"), "ko"),
+                        perRequest("Individual Request count (fail/error statuses)", Unit.NONE, sum("count").cumulative(), "ko")))
+                .row(Row.collapsed("Series cardinality",
+                        GraphPanel.builder("Series per runner", 24, 10)
+                                .rightUnit(Unit.SHORT)
+                                .minZero()
+                                .legend(Legend.TABLE)
+                                .query(InfluxQuery.timeSeries(CARDINALITY).select(max("series"))
+                                        .groupBy("simulation", "shard").alias("$tag_simulation $tag_shard (series)"))
+                                .query(InfluxQuery.timeSeries(CARDINALITY).select(max("collapsedResponses"))
+                                        .groupBy("simulation", "shard").alias("$tag_simulation $tag_shard (collapsed responses)"))
+                                .override(SeriesOverride.alias("/.*[(]collapsed responses[)]/").color("#e24d42").fill(0).rightAxis())
+                                .build()))
+                .row(Row.expanded("Load generator",
+                        GraphPanel.builder("Runner saturated (1 = the runner, not the target, limited the response times)", 24, 6)
+                                .unit(Unit.NONE)
+                                .minZero()
+                                .bars()
+                                .legend(Legend.TABLE)
+                                .query(InfluxQuery.timeSeries(RUNNER).select(max("saturated"))
+                                        .groupBy("simulation", "runner").alias("$tag_simulation $tag_runner"))
+                                .build(),
+                        GraphPanel.builder("Runner CPU and GC", 12, 8)
+                                .unit(Unit.PERCENT)
+                                .minZero()
+                                .legend(Legend.TABLE)
+                                .query(InfluxQuery.timeSeries(RUNNER).select(max("cpuPercent").as("cpu"), max("cpuThrottledPercent").as("throttled"),
+                                        max("gcPercent").as("gc")).groupBy("runner").alias("$tag_runner ($col)"))
+                                .override(SeriesOverride.alias("/.*[(]gc[)]/").color("#e24d42"))
+                                .build(),
+                        GraphPanel.builder("Runner Netty event loop lag", 12, 8)
+                                .unit(Unit.MILLISECONDS)
+                                .minZero()
+                                .legend(Legend.TABLE)
+                                .query(InfluxQuery.timeSeries(RUNNER).select(max("eventLoopLagMax").as("max"), mean("eventLoopLagMean").as("mean"))
+                                        .groupBy("runner").alias("$tag_runner ($col)"))
+                                .build(),
+                        GraphPanel.builder("Runner heap and connections", 24, 8)
+                                .unit(Unit.BYTES)
+                                .rightUnit(Unit.SHORT)
+                                .minZero()
+                                .legend(Legend.TABLE)
+                                .query(InfluxQuery.timeSeries(RUNNER).select(max("heapUsed").as("heap used"), max("heapMax").as("heap max"))
+                                        .groupBy("runner").alias("$tag_runner ($col)"))
+                                .query(InfluxQuery.timeSeries(RUNNER).select(max("connections").as("connections"))
+                                        .groupBy("runner").alias("$tag_runner ($col)"))
+                                .override(SeriesOverride.alias("/.*[(]connections[)]/").color("#FF9D00").fill(0).rightAxis())
+                                .override(SeriesOverride.alias("/.*[(]heap max[)]/").fill(0))
+                                .build()))
+                .row(Row.collapsed("Coordinated omission",
+                        GraphPanel.builder("Response times of all requests: raw v corrected from the intended start (GATLING_CO_CORRECTION)", 24, 8)
+                                .unit(Unit.MILLISECONDS)
+                                .minZero()
+                                .legend(Legend.TABLE)
+                                .query(InfluxQuery.timeSeries(LATENCY).select(max("percentiles95").as("p95"), max("percentiles99").as("p99"), max("max").as("max"))
+                                        .tag("request", ALL_REQUESTS).groupBy("kind").alias("$tag_kind ($col)"))
+                                .override(SeriesOverride.alias("/corrected.*/").color("#e24d42"))
+                                .build(),
+                        GraphPanel.builder("p99 corrected for coordinated omission per request", 24, 8)
+                                .unit(Unit.MILLISECONDS)
+                                .minZero()
+                                .legend(Legend.TABLE)
+                                .query(InfluxQuery.timeSeries(LATENCY).select(max("percentiles99"))
+                                        .tagIn("request", "request").tag("kind", "corrected").groupBy("request").alias("$tag_request"))
+                                .build()))
+                .build();
+    }
+
+    /**
+     * Throughput, latencies and errors of all requests.
+     */
+    static Dashboard summary() {
+        return Dashboard.builder("gatling-dashboard-3.json", "gatling-summary", "Gatling Dashboard by sphinx")
+                .refresh("5s")
+                .timeFrom("now-30m")
+                .panel(GraphPanel.builder("RPS", 24, 8)
+                        .unit(Unit.REQUESTS_PER_SECOND)
+                        .minZero()
+                        .query(requests().select(sum("count").perSecond()).tag("request", ALL_REQUESTS).tag("status", "all").alias("rps")))
+                .panel(GraphPanel.builder("Latencies: Percentiles & Max", 24, 8)
+                        .unit(Unit.MILLISECONDS)
+                        .minZero()
+                        .query(requests().select(max("percentiles50").as("percentiles50"), max("percentiles95").as("percentiles95"),
+                                max("percentiles99").as("percentiles99"), max("max").as("max"))
+                                .tag("request", ALL_REQUESTS).tag("status", "ok").alias("$col")))
+                .panel(GraphPanel.builder("Errors v Passes", 12, 8)
+                        .unit(Unit.REQUESTS_PER_SECOND)
+                        .minZero()
+                        .query(requests().select(sum("count").perSecond()).tag("request", ALL_REQUESTS).tag("status", "ok").alias("pass"))
+                        .query(requests().select(sum("count").perSecond()).tag("request", ALL_REQUESTS).tag("status", "ko").alias("error")))
+                .panel(percentilePerRequest("Individual Requests (95% Line)", 12, 8, "percentiles95"))
+                .build();
+    }
+
+    private static InfluxQuery.Builder requests() {
+        return InfluxQuery.timeSeries(REQUESTS);
+    }
+
+    private static GraphPanel.Builder percentilePerRequest(String title, int width, int height, String percentileField) {
+        return GraphPanel.builder(title, width, height)
+                .unit(Unit.MILLISECONDS)
+                .minZero()
+                .query(requests().select(max(percentileField)).tagNot("request", ALL_REQUESTS).tag("status", "all")
+                        .groupBy("request").alias("$tag_request"));
+    }
+
+    private static InfluxQuery.Builder responseTimePercentiles() {
+        return requests()
+                .select(min("min").as("min"), max("percentiles50").as("50%"), max("percentiles75").as("75%"),
+                        max("percentiles95").as("95%"), max("percentiles99").as("99%"), max("max").as("max"))
+                .tag("request", ALL_REQUESTS).tag("status", "ok")
+                .groupBy("simulation").alias("$tag_simulation ($col)");
+    }
+
+    private static InfluxQuery.Builder activeUsers(com.rudolfs.gatling.dashboards.query.Select active) {
+        return InfluxQuery.timeSeries(USERS).select(active).groupBy("simulation").alias("$tag_simulation (Active Users)");
+    }
+
+    private static GraphPanel indicators() {
+        return GraphPanel.builder("Indicators", 24, 15)
+                .unit(Unit.NONE)
+                .bars()
+                .gaps()
+                .lineWidth(1)
+                .xAxis(XAxis.SERIES)
+                .query(InfluxQuery.summary(REQUESTS).select(sum("count")).tag("request", ALL_REQUESTS).tag("status", "ok")
+                        .field("mean", "<=", GOOD_RESPONSE_TIME).alias(String.format("t < %d ms", GOOD_RESPONSE_TIME)))
+                .query(InfluxQuery.summary(REQUESTS).select(sum("count")).tag("request", ALL_REQUESTS).tag("status", "ok")
+                        .field("mean", ">", GOOD_RESPONSE_TIME).field("mean", "<=", SLOW_RESPONSE_TIME)
+                        .alias(String.format("%d ms < t < %d ms", GOOD_RESPONSE_TIME, SLOW_RESPONSE_TIME)))
+                .query(InfluxQuery.summary(REQUESTS).select(sum("count")).tag("request", ALL_REQUESTS).tag("status", "ok")
+                        .field("mean", ">", SLOW_RESPONSE_TIME).alias(String.format("t > %d ms", SLOW_RESPONSE_TIME)))
+                .query(InfluxQuery.summary(REQUESTS).select(sum("count")).tag("request", ALL_REQUESTS).tag("status", "ko")
+                        .alias("failed"))
+                .override(SeriesOverride.alias(String.format("t < %d ms", GOOD_RESPONSE_TIME)).color("#629e51"))
+                .override(SeriesOverride.alias(String.format("%d ms < t < %d ms", GOOD_RESPONSE_TIME, SLOW_RESPONSE_TIME)).color("#f2c96d"))
+                .override(SeriesOverride.alias(String.format("t > %d ms", SLOW_RESPONSE_TIME)).color("#ef843c"))
+                .override(SeriesOverride.alias("failed").color("#bf1b00"))
+                .build();
+    }
+
+    private static TablePanel statistics() {
+        String[] groups = {"simulation", "group1", "group2", "request"};
+        TablePanel.Builder table = TablePanel.builder("Statistics", 24, 31)
+                .sort(5, true)
+                .query(InfluxQuery.summary(REQUESTS).select(sum("count").as("Total")).tag("status", "all").groupBy(groups))
+                .query(InfluxQuery.summary(REQUESTS).select(sum("count").as("OK")).tag("status", "ok").groupBy(groups))
+                .query(InfluxQuery.summary(REQUESTS).select(sum("count").as("KO")).tag("status", "ko").groupBy(groups))
+                .query(InfluxQuery.summary(REQUESTS)
+                        .select(min("min").as("Min"), percentile("percentiles50", 50).as("50th pct"), percentile("percentiles75", 75).as("75th pct"),
+                                percentile("percentiles95", 95).as("95th pct"), percentile("percentiles99", 99).as("99th pct"),
+                                max("max").as("Max"), mean("mean").as("Mean"), stddev("mean").as("Std Dev"))
+                        .tag("status", "all").groupBy(groups))
+                .style(ColumnStyle.hidden("Time"))
+                .style(ColumnStyle.number("Total", Unit.NONE, 0))
+                .style(ColumnStyle.number("OK", Unit.NONE, 0).cellColor("#7eb26d"))
+                .style(ColumnStyle.number("KO", Unit.NONE, 0).cellColor("#e24d42"));
+        for (String column : List.of("Mean", "Max", "Min", "50th pct", "75th pct", "95th pct", "99th pct", "Std Dev")) {
+            table.style(ColumnStyle.number(column, Unit.MILLISECONDS, 0).thresholds(GOOD_RESPONSE_TIME, SLOW_RESPONSE_TIME));
+        }
+        return table.build();
+    }
+
+    private static GraphPanel perSelectedRequest(String title, Unit unit, com.rudolfs.gatling.dashboards.query.Select select) {
+        return GraphPanel.builder(title, 24, 15)
+                .unit(unit)
+                .lineWidth(4)
+                .gaps()
+                .legend(Legend.TABLE)
+                .query(requests().select(select).tagIn("request", "request")
+                        .groupBy("simulation", "group1", "group2", "status", "request").alias("$tag_simulation :: $tag_request ($tag_status)"))
+                .build();
+    }
+
+    private static GraphPanel responseTimeDistribution(String title, int offset, String status, String color) {
+        GraphPanel.Builder panel = GraphPanel.builder(title, 12, 15)
+                .bars()
+                .gaps()
+                .unit(Unit.NONE)
+                .legend(Legend.HIDDEN)
+                .xAxis(XAxis.HISTOGRAM)
+                .query(requests().select(mean("mean")).tagIn("request", "request").tag("status", status).alias("count"));
+        if (color != null) {
+            panel.override(SeriesOverride.alias("count").color(color));
+        }
+        return panel.build();
+    }
+
+    private static GraphPanel passesAndErrors(String title, Unit unit, boolean perSecond) {
+        com.rudolfs.gatling.dashboards.query.Select count = perSecond ? sum("count").perSecond() : sum("count");
+        return GraphPanel.builder(title, 24, 12)
+                .unit(unit)
+                .minZero()
+                .query(requests().select(count).tag("request", ALL_REQUESTS).tag("status", "ok").groupBy("simulation").alias("pass ($tag_simulation)"))
+                .query(requests().select(count).tag("request", ALL_REQUESTS).tag("status", "ko").groupBy("simulation").alias("error ($tag_simulation)"))
+                .build();
+    }
+
+    private static GraphPanel perRequest(String title, Unit unit, com.rudolfs.gatling.dashboards.query.Select select, String status) {
+        return GraphPanel.builder(title, 24, 19)
+                .unit(unit)
+                .lineWidth(3)
+                .gaps()
+                .legend(Legend.TABLE)
+                .query(requests().select(select).tagNot("request", ALL_REQUESTS).tag("status", status)
+                        .groupBy("simulation", "request").alias("$tag_simulation :: $tag_request"))
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+
+/**
+ * Display settings of the table columns whose name matches the pattern.
+ */
+public final class ColumnStyle {
+    private final ObjectNode node = JsonNodeFactory.instance.objectNode();
+
+    private ColumnStyle(String pattern, String type) {
+        node.put("alias", "");
+        node.put("pattern", pattern);
+        node.put("type", type);
+    }
+
+    public static ColumnStyle hidden(String pattern) {
+        return new ColumnStyle(pattern, "hidden");
+    }
+
+    public static ColumnStyle number(String pattern, Unit unit, int decimals) {
+        ColumnStyle style = new ColumnStyle(pattern, "number");
+        style.node.put("decimals", decimals);
+        style.node.put("unit", unit.getFormat());
+        return style;
+    }
+
+    /**
+     * Colors the whole cell.
+     */
+    public ColumnStyle cellColor(String color) {
+        node.put("colorMode", "cell");
+        colors(List.of(color, color, color));
+        return this;
+    }
+
+    /**
+     * Colors the value green, orange above the first and red above the second threshold.
+     */
+    public ColumnStyle thresholds(int orange, int red) {
+        node.put("colorMode", "value");
+        colors(List.of("rgba(50, 172, 45, 0.97)", "rgba(237, 129, 40, 0.89)", "rgba(245, 54, 54, 0.9)"));
+        node.putArray("thresholds").add(String.valueOf(orange)).add(String.valueOf(red));
+        return this;
+    }
+
+    private void colors(List<String> colors) {
+        ArrayNode array = node.putArray("colors");
+        colors.forEach(array::add);
+    }
+
+    ObjectNode toJson() {
+        return node.deepCopy();
+    }
+}
@@ -0,0 +1,203 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A Grafana dashboard (schema of Grafana 6.6) that is provisioned from a JSON file. Every dashboard has the variables
+ * $simulation (filter of all queries) and the hidden rollup tier variables $rp and $rpInterval. The panels are laid out
+ * left to right in the order they were added and wrap into the next line when the grid width is exceeded.
+ */
+public final class Dashboard {
+    static final int GRID_WIDTH = 24;
+    private static final int SCHEMA_VERSION = 22;
+
+    private final Builder builder;
+
+    private Dashboard(Builder builder) {
+        this.builder = builder;
+    }
+
+    public static Builder builder(String fileName, String uid, String title) {
+        return new Builder(fileName, uid, title);
+    }
+
+    public String getFileName() {
+        return builder.fileName;
+    }
+
+    public String getTitle() {
+        return builder.title;
+    }
+
+    public List<Panel> getPanels() {
+        List<Panel> panels = new ArrayList<>();
+        builder.rows.forEach(row -> panels.addAll(row.getPanels()));
+        return panels;
+    }
+
+    public ObjectNode toJson() {
+        ObjectNode dashboard = JsonNodeFactory.instance.objectNode();
+        ObjectNode annotation = dashboard.putObject("annotations").putArray("list").addObject();
+        annotation.put("builtIn", 1);
+        annotation.put("datasource", "-- Grafana --");
+        annotation.put("enable", true);
+        annotation.put("hide", true);
+        annotation.put("iconColor", "rgba(0, 211, 255, 1)");
+        annotation.put("name", "Annotations & Alerts");
+        annotation.put("type", "dashboard");
+        dashboard.put("editable", true);
+        dashboard.putNull("gnetId");
+        dashboard.put("graphTooltip", 0);
+        dashboard.putNull("id");
+        dashboard.putArray("links");
+        dashboard.set("panels", layout());
+        if (builder.refresh == null) {
+            dashboard.put("refresh", false);
+        } else {
+            dashboard.put("refresh", builder.refresh);
+        }
+        dashboard.put("schemaVersion", SCHEMA_VERSION);
+        dashboard.put("style", "dark");
+        dashboard.putArray("tags").add("gatling");
+
+        ArrayNode variables = dashboard.putObject("templating").putArray("list");
+        variables.add(Variable.tagValues("simulation", "simulation", "simulation").multi().includeAll(".*").toJson());
+        builder.variables.forEach(variable -> variables.add(variable.toJson()));
+        variables.add(Variable.rollupTier("rp", "rp").toJson());
+        variables.add(Variable.rollupTier("rpInterval", "interval").toJson());
+
+        ObjectNode time = dashboard.putObject("time");
+        time.put("from", builder.timeFrom);
+        time.put("to", "now");
+        dashboard.putObject("timepicker");
+        dashboard.put("timezone", "");
+        dashboard.put("title", builder.title);
+        dashboard.put("uid", builder.uid);
+        dashboard.put("version", 1);
+        return dashboard;
+    }
+
+    private ArrayNode layout() {
+        ArrayNode panels = JsonNodeFactory.instance.arrayNode();
+        int id = 1;
+        int y = 0;
+        for (Row row : builder.rows) {
+            ArrayNode target = panels;
+            if (row.getTitle() != null) {
+                ObjectNode rowPanel = panels.addObject();
+                rowPanel.put("collapsed", row.isCollapsed());
+                rowPanel.set("gridPos", gridPos(0, y++, GRID_WIDTH, 1));
+                rowPanel.put("id", id++);
+                ArrayNode nested = rowPanel.putArray("panels");
+                rowPanel.put("title", row.getTitle());
+                rowPanel.put("type", "row");
+                // the panels of a collapsed row are stored in the row, Grafana moves them below it on expand
+                if (row.isCollapsed()) {
+                    target = nested;
+                }
+            }
+
+            int x = 0;
+            int lineHeight = 0;
+            int rowY = y;
+            for (Panel panel : row.getPanels()) {
+                if (x + panel.getWidth() > GRID_WIDTH) {
+                    x = 0;
+                    rowY += lineHeight;
+                    lineHeight = 0;
+                }
+                target.add(panel.toJson(id++, x, rowY));
+                x += panel.getWidth();
+                lineHeight = Math.max(lineHeight, panel.getHeight());
+            }
+            if (!row.isCollapsed()) {
+                y = rowY + lineHeight;
+            }
+        }
+        return panels;
+    }
+
+    static ObjectNode gridPos(int x, int y, int width, int height) {
+        ObjectNode gridPos = JsonNodeFactory.instance.objectNode();
+        gridPos.put("h", height);
+        gridPos.put("w", width);
+        gridPos.put("x", x);
+        gridPos.put("y", y);
+        return gridPos;
+    }
+
+    public static final class Builder {
+        private final String fileName;
+        private final String uid;
+        private final String title;
+        private final List<Variable> variables = new ArrayList<>();
+        private final List<Panel> topPanels = new ArrayList<>();
+        private final List<Row> rows = new ArrayList<>();
+        private String refresh;
+        private String timeFrom = "now-1h";
+
+        private Builder(String fileName, String uid, String title) {
+            this.fileName = fileName;
+            this.uid = uid;
+            this.title = title;
+        }
+
+        /**
+         * The auto refresh interval, e.g. 5s, none by default.
+         */
+        public Builder refresh(String refresh) {
+            this.refresh = refresh;
+            return this;
+        }
+
+        /**
+         * The start of the default time range, e.g. now-30m.
+         */
+        public Builder timeFrom(String timeFrom) {
+            this.timeFrom = timeFrom;
+            return this;
+        }
+
+        public Builder variable(Variable variable) {
+            variables.add(variable);
+            return this;
+        }
+
+        /**
+         * Adds a panel at the top of the dashboard, above all rows.
+         */
+        public Builder panel(Panel panel) {
+            if (!rows.isEmpty()) {
+                throw new IllegalStateException("Panels without a row must be added before the first row");
+            }
+            topPanels.add(panel);
+            return this;
+        }
+
+        public Builder panel(GraphPanel.Builder panel) {
+            return panel(panel.build());
+        }
+
+        public Builder row(Row row) {
+            if (rows.isEmpty() && !topPanels.isEmpty()) {
+                rows.add(Row.untitled(topPanels));
+            }
+            rows.add(row);
+            return this;
+        }
+
+        public Dashboard build() {
+            Objects.requireNonNull(uid, "uid");
+            if (rows.isEmpty() && !topPanels.isEmpty()) {
+                rows.add(Row.untitled(topPanels));
+            }
+            return new Dashboard(this);
+        }
+    }
+}
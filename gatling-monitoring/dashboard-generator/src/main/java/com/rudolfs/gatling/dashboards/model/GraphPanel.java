@@ -0,0 +1,218 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.rudolfs.gatling.dashboards.query.InfluxQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A graph panel, by default lines over time with a legend below.
+ */
+public final class GraphPanel extends Panel {
+    public enum Legend {
+        HIDDEN,
+        /**
+         * The series names below the graph.
+         */
+        LIST,
+        /**
+         * The series names and their current values below the graph.
+         */
+        CURRENT,
+        /**
+         * A table of min, max, avg, current and total of every series, sorted descending.
+         */
+        TABLE
+    }
+
+    public enum XAxis {
+        TIME("time"),
+        /**
+         * The distribution of the values of the series.
+         */
+        HISTOGRAM("histogram"),
+        /**
+         * One bar per series with the total of its values.
+         */
+        SERIES("series");
+
+        private final String mode;
+
+        XAxis(String mode) {
+            this.mode = mode;
+        }
+    }
+
+    private final Builder builder;
+
+    private GraphPanel(Builder builder) {
+        super(builder.title, builder.width, builder.height, builder.queries);
+        this.builder = builder;
+    }
+
+    public static Builder builder(String title, int width, int height) {
+        return new Builder(title, width, height);
+    }
+
+    @Override
+    String type() {
+        return "graph";
+    }
+
+    @Override
+    void writeSettings(ObjectNode panel) {
+        panel.put("bars", builder.bars);
+        panel.put("fill", builder.fill);
+        panel.set("legend", legend());
+        panel.put("lines", !builder.bars);
+        panel.put("linewidth", builder.lineWidth);
+        panel.put("nullPointMode", builder.connectNulls ? "connected" : "null");
+        panel.put("percentage", false);
+        panel.put("pointradius", 2);
+        panel.put("points", false);
+        ArrayNode overrides = panel.putArray("seriesOverrides");
+        builder.overrides.forEach(override -> overrides.add(override.toJson()));
+        panel.put("stack", builder.stack);
+        panel.put("steppedLine", false);
+        ObjectNode tooltip = panel.putObject("tooltip");
+        tooltip.put("shared", builder.xAxis == XAxis.TIME);
+        tooltip.put("sort", 0);
+        tooltip.put("value_type", "individual");
+
+        ObjectNode xaxis = panel.putObject("xaxis");
+        xaxis.put("mode", builder.xAxis.mode);
+        xaxis.put("show", true);
+        ArrayNode values = xaxis.putArray("values");
+        if (builder.xAxis == XAxis.SERIES) {
+            values.add("total");
+        }
+
+        ArrayNode yaxes = panel.putArray("yaxes");
+        ObjectNode left = yaxes.addObject();
+        left.put("format", builder.unit.getFormat());
+        left.put("logBase", 1);
+        if (builder.minZero) {
+            left.put("min", "0");
+        }
+        left.put("show", true);
+        ObjectNode right = yaxes.addObject();
+        right.put("format", builder.rightUnit == null ? Unit.SHORT.getFormat() : builder.rightUnit.getFormat());
+        right.put("logBase", 1);
+        right.put("show", builder.rightUnit != null);
+    }
+
+    private ObjectNode legend() {
+        ObjectNode legend = JsonNodeFactory.instance.objectNode();
+        boolean table = builder.legend == Legend.TABLE;
+        legend.put("alignAsTable", table);
+        legend.put("avg", table);
+        legend.put("current", table || builder.legend == Legend.CURRENT);
+        legend.put("max", table);
+        legend.put("min", table);
+        legend.put("show", builder.legend != Legend.HIDDEN);
+        if (table) {
+            legend.put("sort", "current");
+            legend.put("sortDesc", true);
+        }
+        legend.put("total", table);
+        legend.put("values", table || builder.legend == Legend.CURRENT);
+        return legend;
+    }
+
+    public static final class Builder {
+        private final String title;
+        private final int width;
+        private final int height;
+        private final List<InfluxQuery> queries = new ArrayList<>();
+        private final List<SeriesOverride> overrides = new ArrayList<>();
+        private Unit unit = Unit.SHORT;
+        private Unit rightUnit;
+        private boolean minZero;
+        private boolean bars;
+        private boolean stack;
+        private int fill = 1;
+        private int lineWidth = 2;
+        private boolean connectNulls = true;
+        private Legend legend = Legend.LIST;
+        private XAxis xAxis = XAxis.TIME;
+
+        private Builder(String title, int width, int height) {
+            this.title = title;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Builder query(InfluxQuery.Builder query) {
+            queries.add(query.build());
+            return this;
+        }
+
+        public Builder unit(Unit unit) {
+            this.unit = unit;
+            return this;
+        }
+
+        /**
+         * Shows the right y-axis, for series moved there with {@link SeriesOverride#rightAxis()}.
+         */
+        public Builder rightUnit(Unit rightUnit) {
+            this.rightUnit = rightUnit;
+            return this;
+        }
+
+        public Builder minZero() {
+            this.minZero = true;
+            return this;
+        }
+
+        public Builder bars() {
+            this.bars = true;
+            return this;
+        }
+
+        public Builder stack() {
+            this.stack = true;
+            return this;
+        }
+
+        public Builder fill(int fill) {
+            this.fill = fill;
+            return this;
+        }
+
+        public Builder lineWidth(int lineWidth) {
+            this.lineWidth = lineWidth;
+            return this;
+        }
+
+        /**
+         * Leaves gaps where a bucket has no value instead of connecting the points around it.
+         */
+        public Builder gaps() {
+            this.connectNulls = false;
+            return this;
+        }
+
+        public Builder legend(Legend legend) {
+            this.legend = legend;
+            return this;
+        }
+
+        public Builder xAxis(XAxis xAxis) {
+            this.xAxis = xAxis;
+            return this;
+        }
+
+        public Builder override(SeriesOverride override) {
+            overrides.add(override);
+            return this;
+        }
+
+        public GraphPanel build() {
+            return new GraphPanel(this);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.rudolfs.gatling.dashboards.query.InfluxQuery;
+
+import java.util.List;
+
+/**
+ * A panel of a dashboard with its size in grid units (24 units wide), the {@link Dashboard} lays the panels out.
+ */
+public abstract class Panel {
+    static final String DATASOURCE = "InfluxDB";
+    // Grafana never makes $__interval shorter than the resolution of the rollup tier selected for the time range
+    static final String MIN_INTERVAL = "$rpInterval";
+    static final int DEFAULT_MAX_DATA_POINTS = 1000;
+
+    private final String title;
+    private final int width;
+    private final int height;
+    private final List<InfluxQuery> queries;
+
+    Panel(String title, int width, int height, List<InfluxQuery> queries) {
+        if (width < 1 || width > Dashboard.GRID_WIDTH) {
+            throw new IllegalArgumentException(String.format("Width of panel '%s' must be between 1 and %d", title, Dashboard.GRID_WIDTH));
+        }
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Panel '%s' has no query", title));
+        }
+        this.title = title;
+        this.width = width;
+        this.height = height;
+        this.queries = List.copyOf(queries);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public List<InfluxQuery> getQueries() {
+        return queries;
+    }
+
+    abstract String type();
+
+    /**
+     * Adds the panel type specific settings to the node that already holds id, position, title and targets.
+     */
+    abstract void writeSettings(ObjectNode panel);
+
+    ObjectNode toJson(int id, int x, int y) {
+        ObjectNode panel = JsonNodeFactory.instance.objectNode();
+        panel.put("datasource", DATASOURCE);
+        panel.set("gridPos", Dashboard.gridPos(x, y, width, height));
+        panel.put("id", id);
+        panel.put("interval", MIN_INTERVAL);
+        panel.put("maxDataPoints", DEFAULT_MAX_DATA_POINTS);
+        ArrayNode targets = panel.putArray("targets");
+        char refId = 'A';
+        for (InfluxQuery query : queries) {
+            ObjectNode target = targets.addObject();
+            if (query.getAlias() != null) {
+                target.put("alias", query.getAlias());
+            }
+            target.put("query", query.getQuery());
+            target.put("rawQuery", true);
+            target.put("refId", String.valueOf(refId++));
+            target.put("resultFormat", query.getFormat().getValue());
+        }
+        panel.put("title", title);
+        panel.put("type", type());
+        writeSettings(panel);
+        return panel;
+    }
+}
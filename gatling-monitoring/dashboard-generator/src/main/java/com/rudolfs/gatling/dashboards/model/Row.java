@@ -0,0 +1,45 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import java.util.List;
+
+/**
+ * A titled row of panels, collapsed rows only query their panels when they are expanded.
+ */
+public final class Row {
+    private final String title;
+    private final boolean collapsed;
+    private final List<Panel> panels;
+
+    private Row(String title, boolean collapsed, List<Panel> panels) {
+        this.title = title;
+        this.collapsed = collapsed;
+        this.panels = List.copyOf(panels);
+    }
+
+    public static Row expanded(String title, Panel... panels) {
+        return new Row(title, false, List.of(panels));
+    }
+
+    public static Row collapsed(String title, Panel... panels) {
+        return new Row(title, true, List.of(panels));
+    }
+
+    /**
+     * Panels at the top of the dashboard, without a row header.
+     */
+    static Row untitled(List<Panel> panels) {
+        return new Row(null, false, panels);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isCollapsed() {
+        return collapsed;
+    }
+
+    public List<Panel> getPanels() {
+        return panels;
+    }
+}
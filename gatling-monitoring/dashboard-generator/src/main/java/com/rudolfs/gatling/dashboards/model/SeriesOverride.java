@@ -0,0 +1,51 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Display settings of the series of a graph whose alias matches, e.g. {@code SeriesOverride.alias("/.*[(]ko[)]/").color("#FF0000")}.
+ */
+public final class SeriesOverride {
+    private final ObjectNode node = JsonNodeFactory.instance.objectNode();
+
+    private SeriesOverride(String alias) {
+        node.put("alias", alias);
+    }
+
+    /**
+     * Matches the series with the alias, or all aliases that match a regular expression in slashes.
+     */
+    public static SeriesOverride alias(String alias) {
+        return new SeriesOverride(alias);
+    }
+
+    public SeriesOverride color(String color) {
+        node.put("color", color);
+        return this;
+    }
+
+    public SeriesOverride fill(int fill) {
+        node.put("fill", fill);
+        return this;
+    }
+
+    public SeriesOverride stack(boolean stack) {
+        node.put("stack", stack);
+        return this;
+    }
+
+    public SeriesOverride rightAxis() {
+        node.put("yaxis", 2);
+        return this;
+    }
+
+    public SeriesOverride zindex(int zindex) {
+        node.put("zindex", zindex);
+        return this;
+    }
+
+    ObjectNode toJson() {
+        return node.deepCopy();
+    }
+}
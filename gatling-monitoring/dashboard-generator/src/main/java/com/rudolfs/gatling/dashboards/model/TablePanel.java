@@ -0,0 +1,80 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.rudolfs.gatling.dashboards.query.InfluxQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table of summary queries in table format, the rows of several queries with the same tags are merged.
+ */
+public final class TablePanel extends Panel {
+    private final Builder builder;
+
+    private TablePanel(Builder builder) {
+        super(builder.title, builder.width, builder.height, builder.queries);
+        this.builder = builder;
+    }
+
+    public static Builder builder(String title, int width, int height) {
+        return new Builder(title, width, height);
+    }
+
+    @Override
+    String type() {
+        return "table";
+    }
+
+    @Override
+    void writeSettings(ObjectNode panel) {
+        panel.putArray("columns");
+        panel.put("fontSize", "100%");
+        panel.putNull("pageSize");
+        panel.put("scroll", true);
+        panel.put("showHeader", true);
+        ObjectNode sort = panel.putObject("sort");
+        sort.put("col", builder.sortColumn);
+        sort.put("desc", builder.sortDescending);
+        ArrayNode styles = panel.putArray("styles");
+        builder.styles.forEach(style -> styles.add(style.toJson()));
+        panel.put("transform", "table");
+    }
+
+    public static final class Builder {
+        private final String title;
+        private final int width;
+        private final int height;
+        private final List<InfluxQuery> queries = new ArrayList<>();
+        private final List<ColumnStyle> styles = new ArrayList<>();
+        private int sortColumn;
+        private boolean sortDescending;
+
+        private Builder(String title, int width, int height) {
+            this.title = title;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Builder query(InfluxQuery.Builder query) {
+            queries.add(query.format(InfluxQuery.Format.TABLE).build());
+            return this;
+        }
+
+        public Builder style(ColumnStyle style) {
+            styles.add(style);
+            return this;
+        }
+
+        public Builder sort(int column, boolean descending) {
+            this.sortColumn = column;
+            this.sortDescending = descending;
+            return this;
+        }
+
+        public TablePanel build() {
+            return new TablePanel(this);
+        }
+    }
+}
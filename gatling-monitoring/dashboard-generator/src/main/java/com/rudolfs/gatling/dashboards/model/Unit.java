@@ -0,0 +1,25 @@
+package com.rudolfs.gatling.dashboards.model;
+
+/**
+ * Grafana value formats of the panel axes and table columns.
+ */
+public enum Unit {
+    SHORT("short"),
+    NONE("none"),
+    MILLISECONDS("ms"),
+    OPS_PER_SECOND("ops"),
+    OPS_PER_MINUTE("opm"),
+    REQUESTS_PER_SECOND("reqps"),
+    PERCENT("percent"),
+    BYTES("bytes");
+
+    private final String format;
+
+    Unit(String format) {
+        this.format = format;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+}
@@ -0,0 +1,87 @@
+package com.rudolfs.gatling.dashboards.model;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A query variable of a dashboard.
+ */
+public final class Variable {
+    private final String name;
+    private final String label;
+    private final String query;
+    private final boolean hidden;
+    private boolean multi;
+    private String allValue;
+
+    private Variable(String name, String label, String query, boolean hidden) {
+        this.name = name;
+        this.label = label;
+        this.query = query;
+        this.hidden = hidden;
+    }
+
+    /**
+     * The values of a tag of measurement gatling within the selected simulations (or all values for the
+     * simulation tag itself).
+     */
+    public static Variable tagValues(String name, String label, String tag) {
+        String query = String.format("SHOW TAG VALUES FROM \"gatling\" WITH KEY = \"%s\"", tag);
+        if (!"simulation".equals(tag)) {
+            query += " WHERE \"simulation\" =~ /^$simulation$/";
+        }
+        return new Variable(name, label, query, false);
+    }
+
+    /**
+     * A hidden variable with a field of the rollup tier that InfluxDB keeps in forever.rp_config for the length of the
+     * time range, see provision-rollups.sh of the InfluxDB image.
+     */
+    public static Variable rollupTier(String name, String field) {
+        return new Variable(name, null, String.format("SELECT \"%s\" FROM \"forever\".\"rp_config\" "
+                + "WHERE \"min_range\" <= ${__to} - ${__from} AND \"max_range\" > ${__to} - ${__from}", field), true);
+    }
+
+    public Variable multi() {
+        this.multi = true;
+        return this;
+    }
+
+    /**
+     * Adds the option All, which matches every value with the given regular expression instead of listing them all.
+     */
+    public Variable includeAll(String allValue) {
+        this.allValue = allValue;
+        return this;
+    }
+
+    ObjectNode toJson() {
+        ObjectNode variable = JsonNodeFactory.instance.objectNode();
+        variable.put("allValue", allValue);
+        ObjectNode current = variable.putObject("current");
+        if (allValue != null) {
+            current.put("text", "All");
+            current.putArray("value").add("$__all");
+        }
+        variable.put("datasource", Panel.DATASOURCE);
+        variable.put("definition", query);
+        variable.put("hide", hidden ? 2 : 0);
+        variable.put("includeAll", allValue != null);
+        if (label == null) {
+            variable.putNull("label");
+        } else {
+            variable.put("label", label);
+        }
+        variable.put("multi", multi);
+        variable.put("name", name);
+        variable.putArray("options");
+        variable.put("query", query);
+        // refreshed on time range changes, new simulations and the tier follow the time range
+        variable.put("refresh", 2);
+        variable.put("regex", "");
+        variable.put("skipUrlSync", hidden);
+        variable.put("sort", hidden ? 0 : 1);
+        variable.put("type", "query");
+        return variable;
+    }
+}
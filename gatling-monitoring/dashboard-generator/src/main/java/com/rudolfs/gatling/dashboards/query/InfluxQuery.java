@@ -0,0 +1,162 @@
+package com.rudolfs.gatling.dashboards.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A raw InfluxQL query of a panel. Every query is restricted to the time range of the dashboard and to the simulations
+ * selected in the $simulation variable, and reads the rollup tier selected by $rp. Time series queries are bucketed by
+ * $__interval, which Grafana derives from the time range and the max data points of the panel (and never makes
+ * shorter than the resolution of the tier, the min interval of every panel). Summary queries aggregate the whole
+ * time range into one row per group.
+ */
+public final class InfluxQuery {
+    public enum Format {
+        TIME_SERIES("time_series"),
+        TABLE("table");
+
+        private final String value;
+
+        Format(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private static final String SIMULATION_FILTER = "\"simulation\" =~ /^$simulation$/";
+
+    private final String query;
+    private final String alias;
+    private final Format format;
+
+    private InfluxQuery(Builder builder) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add("$timeFilter");
+        conditions.add(SIMULATION_FILTER);
+        conditions.addAll(builder.conditions);
+
+        List<String> groupBy = new ArrayList<>();
+        if (builder.bucketed) {
+            groupBy.add("time($__interval)");
+        }
+        builder.groupByTags.forEach(tag -> groupBy.add(quote(tag)));
+
+        StringBuilder query = new StringBuilder("SELECT ")
+                .append(builder.selects.stream().map(Select::toInfluxQl).collect(Collectors.joining(", ")))
+                .append(" FROM ").append(builder.measurement.from())
+                .append(" WHERE ").append(String.join(" AND ", conditions));
+        if (!groupBy.isEmpty()) {
+            query.append(" GROUP BY ").append(String.join(", ", groupBy));
+        }
+        this.query = query.toString();
+        this.alias = builder.alias;
+        this.format = builder.format;
+    }
+
+    /**
+     * A query with one point per series and $__interval bucket.
+     */
+    public static Builder timeSeries(Measurement measurement) {
+        return new Builder(measurement, true);
+    }
+
+    /**
+     * A query with one point per series over the whole time range, for tables and series bar charts.
+     */
+    public static Builder summary(Measurement measurement) {
+        return new Builder(measurement, false);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier + "\"";
+    }
+
+    public static final class Builder {
+        private final Measurement measurement;
+        private final boolean bucketed;
+        private final List<Select> selects = new ArrayList<>();
+        private final List<String> conditions = new ArrayList<>();
+        private final List<String> groupByTags = new ArrayList<>();
+        private String alias;
+        private Format format = Format.TIME_SERIES;
+
+        private Builder(Measurement measurement, boolean bucketed) {
+            this.measurement = measurement;
+            this.bucketed = bucketed;
+        }
+
+        public Builder select(Select... selects) {
+            this.selects.addAll(List.of(selects));
+            return this;
+        }
+
+        public Builder tag(String tag, String value) {
+            conditions.add(String.format("%s = '%s'", quote(tag), value));
+            return this;
+        }
+
+        public Builder tagNot(String tag, String value) {
+            conditions.add(String.format("%s != '%s'", quote(tag), value));
+            return this;
+        }
+
+        /**
+         * Restricts the tag to the values of a multi-value dashboard variable, e.g. {@code tagIn("request", "request")}.
+         */
+        public Builder tagIn(String tag, String variable) {
+            conditions.add(String.format("%s =~ /^$%s$/", quote(tag), variable));
+            return this;
+        }
+
+        /**
+         * Compares a field with a number, e.g. {@code field("mean", "<=", 800)}.
+         */
+        public Builder field(String field, String operator, long value) {
+            conditions.add(String.format("%s %s %d", quote(field), operator, value));
+            return this;
+        }
+
+        public Builder groupBy(String... tags) {
+            groupByTags.addAll(List.of(tags));
+            return this;
+        }
+
+        /**
+         * The legend name of the series, may contain $tag_&lt;tag&gt; and $col.
+         */
+        public Builder alias(String alias) {
+            this.alias = alias;
+            return this;
+        }
+
+        public Builder format(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        public InfluxQuery build() {
+            if (selects.isEmpty()) {
+                throw new IllegalStateException("A query needs at least one select");
+            }
+            Objects.requireNonNull(format, "format");
+            return new InfluxQuery(this);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.rudolfs.gatling.dashboards.query;
+
+/**
+ * The measurements that Gatling writes to InfluxDB (via the Graphite templates or the runner's line protocol writer).
+ */
+public enum Measurement {
+    /**
+     * Response time statistics and counts per simulation, request and status (tags group1, group2 and shard).
+     */
+    REQUESTS("gatling"),
+    /**
+     * Active, waiting and done users per simulation and scenario (the scenario is in the request tag).
+     */
+    USERS("gatling.users"),
+    /**
+     * Series, distinct request names and collapsed responses per simulation and shard, reported by every runner.
+     */
+    CARDINALITY("gatling.cardinality"),
+    /**
+     * CPU, GC, heap, event loop lag, connections and the saturation flag of every runner (tags runner and shard).
+     */
+    RUNNER("gatling_runner"),
+    /**
+     * Raw and coordinated-omission corrected response times per simulation, request and kind (raw or corrected).
+     */
+    LATENCY("gatling_latency");
+
+    private final String name;
+
+    Measurement(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The measurement in the retention policy (rollup tier) that the dashboard variable $rp selects for the time range.
+     */
+    String from() {
+        return String.format("\"$rp\".\"%s\"", name);
+    }
+}
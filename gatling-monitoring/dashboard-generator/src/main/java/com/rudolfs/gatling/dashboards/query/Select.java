@@ -0,0 +1,72 @@
+package com.rudolfs.gatling.dashboards.query;
+
+/**
+ * An aggregated field of an {@link InfluxQuery}, e.g. {@code Select.sum("count").perSecond().as("rps")}. Queries only
+ * select aggregates, so InfluxDB returns one point per series and bucket instead of every stored point.
+ */
+public final class Select {
+    private final String expression;
+    private final String alias;
+
+    private Select(String expression, String alias) {
+        this.expression = expression;
+        this.alias = alias;
+    }
+
+    public static Select sum(String field) {
+        return aggregate("sum", field);
+    }
+
+    public static Select min(String field) {
+        return aggregate("min", field);
+    }
+
+    public static Select max(String field) {
+        return aggregate("max", field);
+    }
+
+    public static Select mean(String field) {
+        return aggregate("mean", field);
+    }
+
+    public static Select stddev(String field) {
+        return aggregate("stddev", field);
+    }
+
+    public static Select percentile(String field, int percentile) {
+        return new Select(String.format("percentile(\"%s\", %d)", field, percentile), null);
+    }
+
+    private static Select aggregate(String function, String field) {
+        return new Select(String.format("%s(\"%s\")", function, field), null);
+    }
+
+    /**
+     * The aggregate of a bucket divided by the length of the bucket in seconds, for sums of counts.
+     */
+    public Select perSecond() {
+        return new Select(expression + " * 1000 / $__interval_ms", alias);
+    }
+
+    /**
+     * The aggregate of a bucket divided by the length of the bucket in minutes, for sums of counts.
+     */
+    public Select perMinute() {
+        return new Select(expression + " * 60000 / $__interval_ms", alias);
+    }
+
+    /**
+     * The running total of the aggregate over the buckets of the time range.
+     */
+    public Select cumulative() {
+        return new Select(String.format("cumulative_sum(%s)", expression), alias);
+    }
+
+    public Select as(String alias) {
+        return new Select(expression, alias);
+    }
+
+    String toInfluxQl() {
+        return alias == null ? expression : String.format("%s AS \"%s\"", expression, alias);
+    }
+}
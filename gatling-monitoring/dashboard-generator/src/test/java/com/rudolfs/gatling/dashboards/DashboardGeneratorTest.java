@@ -0,0 +1,52 @@
+package com.rudolfs.gatling.dashboards;
+
+import com.rudolfs.gatling.dashboards.model.Dashboard;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fails the build when the dashboards provisioned with the Grafana image drift from the model, e.g. because a
+ * dashboard was edited in Grafana and exported instead of changed in {@link GatlingDashboards}.
+ */
+class DashboardGeneratorTest {
+    private static final Path PROVISIONED = Paths.get("../grafana/provisioning/dashboards");
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void provisionedDashboardsAreGenerated() throws IOException {
+        DashboardGenerator generator = new DashboardGenerator(PROVISIONED);
+
+        for (Dashboard dashboard : GatlingDashboards.all()) {
+            Path file = PROVISIONED.resolve(dashboard.getFileName());
+            assertTrue(Files.exists(file), file + " is missing, run the dashboard-generator");
+            assertEquals(generator.render(dashboard), Files.readString(file, StandardCharsets.UTF_8),
+                    file + " differs from the model, run the dashboard-generator or port the change to GatlingDashboards");
+        }
+    }
+
+    @Test
+    void checkListsChangedAndMissingDashboards() throws IOException {
+        List<Dashboard> dashboards = GatlingDashboards.all();
+        DashboardGenerator generator = new DashboardGenerator(tempDirectory);
+        generator.write(dashboards);
+        assertEquals(List.of(), generator.check(dashboards));
+
+        Path changed = tempDirectory.resolve(dashboards.get(0).getFileName());
+        Files.writeString(changed, Files.readString(changed).replace("\"gatling\"", "\"gatling_edited\""));
+        Files.delete(tempDirectory.resolve(dashboards.get(1).getFileName()));
+
+        assertEquals(List.of(dashboards.get(0).getFileName(), dashboards.get(1).getFileName()), generator.check(dashboards));
+    }
+}
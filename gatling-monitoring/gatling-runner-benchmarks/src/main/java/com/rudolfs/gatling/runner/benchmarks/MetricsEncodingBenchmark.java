@@ -0,0 +1,49 @@
+package com.rudolfs.gatling.runner.benchmarks;
+
+import com.rudolfs.gatling.runner.influxdb.LineProtocolEncoder;
+import io.gatling.graphite.message.GraphiteMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of the metrics of one write period: Graphite plaintext lines as built by the Gatling Graphite writer
+ * versus InfluxDB line protocol as built by the influxdb writer. One operation is one write period.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MetricsEncodingBenchmark {
+    @Param({"10", "100", "1000"})
+    int requests;
+
+    private MetricsFixture fixture;
+    private LineProtocolEncoder encoder;
+    private long epoch;
+
+    @Setup
+    public void setup() {
+        fixture = new MetricsFixture(requests);
+        encoder = new LineProtocolEncoder(64 * 1024);
+        epoch = System.currentTimeMillis() / 1000;
+    }
+
+    @Benchmark
+    public GraphiteMetrics graphiteLines() {
+        return fixture.graphite(epoch++);
+    }
+
+    @Benchmark
+    public int lineProtocol() {
+        return fixture.lineProtocol(encoder, epoch++).size();
+    }
+}
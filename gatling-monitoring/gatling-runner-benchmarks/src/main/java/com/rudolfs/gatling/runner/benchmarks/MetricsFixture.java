@@ -0,0 +1,70 @@
+package com.rudolfs.gatling.runner.benchmarks;
+
+import com.rudolfs.gatling.runner.influxdb.LineProtocolEncoder;
+import io.gatling.graphite.message.GraphiteMetrics;
+import scala.Tuple2;
+import scala.collection.JavaConverters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The metrics of one write period for a number of requests, encoded the way the Graphite writer of Gatling and the
+ * influxdb writer of the runner encode them.
+ */
+final class MetricsFixture {
+    static final String ROOT_PATH = "gatling";
+    static final String SIMULATION = "basicsimulation";
+    static final String[] STATUSES = {"ok", "ko", "all"};
+    static final String[] FIELDS = {"count", "min", "max", "mean", "stdDev", "percentiles50", "percentiles75", "percentiles95", "percentiles99"};
+
+    private final String[] requests;
+
+    MetricsFixture(int requestCount) {
+        requests = new String[requestCount];
+        for (int i = 0; i < requestCount; i++) {
+            requests[i] = "request_" + i;
+        }
+    }
+
+    /**
+     * Same as GraphiteDataWriter: one path per field, concatenated per flush, and the Graphite plaintext message.
+     */
+    GraphiteMetrics graphite(long epoch) {
+        List<Tuple2<String, Object>> metrics = new ArrayList<>(requests.length * STATUSES.length * FIELDS.length);
+        for (int r = 0; r < requests.length; r++) {
+            String requestPath = ROOT_PATH + "." + SIMULATION + "." + requests[r];
+            for (int s = 0; s < STATUSES.length; s++) {
+                String statusPath = requestPath + "." + STATUSES[s];
+                for (int f = 0; f < FIELDS.length; f++) {
+                    metrics.add(new Tuple2<>(statusPath + "." + FIELDS[f], (Object) value(r, s, f, epoch)));
+                }
+            }
+        }
+        return GraphiteMetrics.apply(JavaConverters.asScalaIterator(metrics.iterator()), epoch);
+    }
+
+    /**
+     * Same points as InfluxDbDataWriter: one point per request and status with all fields.
+     */
+    LineProtocolEncoder lineProtocol(LineProtocolEncoder encoder, long epoch) {
+        encoder.reset();
+        for (int r = 0; r < requests.length; r++) {
+            for (int s = 0; s < STATUSES.length; s++) {
+                encoder.measurement(ROOT_PATH)
+                        .tag("request", requests[r])
+                        .tag("simulation", SIMULATION)
+                        .tag("status", STATUSES[s]);
+                for (int f = 0; f < FIELDS.length; f++) {
+                    encoder.field(FIELDS[f], value(r, s, f, epoch));
+                }
+                encoder.end(epoch);
+            }
+        }
+        return encoder;
+    }
+
+    private static long value(int request, int status, int field, long epoch) {
+        return (request * 31 + status * 7 + field + epoch) % 5000;
+    }
+}
@@ -0,0 +1,114 @@
+package com.rudolfs.gatling.runner.benchmarks;
+
+import com.rudolfs.gatling.runner.influxdb.InfluxDbHttpSender;
+import com.rudolfs.gatling.runner.influxdb.LineProtocolEncoder;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Encoding the metrics of one write period and pushing them out of the runner, against sinks on localhost that read
+ * and discard everything: a TCP socket for the Graphite plaintext and an HTTP server that answers 204 like the /write
+ * endpoint of InfluxDB. Both paths encode a new period in every operation, the line protocol path also compresses it
+ * because the sender always gzips. Compression alone is measured separately on an encoded period, it is the CPU the
+ * runner spends on top of encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MetricsFlushBenchmark {
+    @Param({"100", "1000"})
+    int requests;
+
+    private ServerSocket graphiteSink;
+    private SocketChannel graphiteChannel;
+    private HttpServer influxDbSink;
+    private InfluxDbHttpSender sender;
+    private MetricsFixture fixture;
+    private LineProtocolEncoder encoder;
+    private LineProtocolEncoder encodedPeriod;
+    private long epoch;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fixture = new MetricsFixture(requests);
+        epoch = System.currentTimeMillis() / 1000;
+        encoder = new LineProtocolEncoder(64 * 1024);
+        encodedPeriod = fixture.lineProtocol(new LineProtocolEncoder(64 * 1024), epoch);
+
+        graphiteSink = new ServerSocket(0);
+        Thread drain = new Thread(() -> {
+            try (Socket socket = graphiteSink.accept(); InputStream in = socket.getInputStream()) {
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) >= 0) {
+                    // discard
+                }
+            } catch (IOException e) {
+                // sink closed at tear down
+            }
+        }, "graphite-sink");
+        drain.setDaemon(true);
+        drain.start();
+        graphiteChannel = SocketChannel.open(new InetSocketAddress("localhost", graphiteSink.getLocalPort()));
+
+        influxDbSink = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        influxDbSink.createContext("/write", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        influxDbSink.start();
+        sender = new InfluxDbHttpSender("localhost", influxDbSink.getAddress().getPort(), "gatlingdb", 5000, 5000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        graphiteChannel.close();
+        graphiteSink.close();
+        influxDbSink.stop(0);
+    }
+
+    @Benchmark
+    public void graphiteTcp() throws IOException {
+        // the ByteString of the message, the way the Graphite writer hands it to the TCP connection
+        ByteBuffer lines = fixture.graphite(epoch++).byteString().asByteBuffer();
+        while (lines.hasRemaining()) {
+            graphiteChannel.write(lines);
+        }
+    }
+
+    @Benchmark
+    public int lineProtocolGzip() {
+        return sender.compress(encodedPeriod.array(), 0, encodedPeriod.size());
+    }
+
+    @Benchmark
+    public int lineProtocolHttp() {
+        return sender.send(fixture.lineProtocol(encoder, epoch++));
+    }
+}
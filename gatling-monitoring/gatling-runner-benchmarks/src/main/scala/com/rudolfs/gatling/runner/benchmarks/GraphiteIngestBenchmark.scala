@@ -0,0 +1,151 @@
+package com.rudolfs.gatling.runner.benchmarks
+
+import java.io.BufferedOutputStream
+import java.net.{ HttpURLConnection, Socket, URL, URLEncoder }
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.atomic.AtomicLong
+
+import com.fasterxml.jackson.databind.{ JsonNode, ObjectMapper }
+
+import scala.collection.JavaConverters._
+
+/**
+  * Measures how many Graphite lines InfluxDB ingests per second with 1, 2, ... Graphite listeners (see
+  * graphite-listeners.sh of the influxdb image). A fixed number of senders, each like one runner shard, is spread
+  * round-robin over the ports of the listeners of a step and sends the metrics of a write period in a loop for the
+  * duration of the step. The ingest rate is the number of points the listeners passed on to the storage during the step,
+  * read from SHOW STATS, so lines that are still buffered when the step ends don't count. The points are written a few
+  * days in the past with the simulation ingestbenchmark&lt;sender&gt; and are dropped at the end.
+  *
+  * Usage: GraphiteIngestBenchmark [--host localhost] [--listeners 1,2,4] [--senders 8] [--seconds 30] [--requests 100]
+  */
+object GraphiteIngestBenchmark {
+
+  private val FirstPort = 2003
+  private val HttpPort = 8086
+  private val Database = "gatlingdb"
+  private val SimulationPrefix = "ingestbenchmark"
+  private val Fields = Seq("count", "min", "max", "mean", "stdDev", "percentiles50", "percentiles75", "percentiles95", "percentiles99")
+  private val Statuses = Seq("ok", "ko", "all")
+  private val DrainPollMillis = 1000
+
+  private val Defaults = Map(
+    "host" -> "localhost",
+    "listeners" -> "1,2,4",
+    "senders" -> "8",
+    "seconds" -> "30",
+    "requests" -> "100"
+  )
+
+  def main(args: Array[String]): Unit = {
+    val options = Defaults ++ args.grouped(2).collect { case Array(key, value) if key.startsWith("--") => key.drop(2) -> value }
+    val host = options("host")
+    val listenerCounts = options("listeners").split(',').map(_.trim.toInt).toSeq
+    val senders = options("senders").toInt
+    val seconds = options("seconds").toInt
+    val requests = options("requests").toInt
+
+    // every sender continues its timestamps over all steps, so no step overwrites the points of another
+    val timestamps = Array.fill(senders)(new AtomicLong(System.currentTimeMillis / 1000 - 3 * 86400))
+
+    println(f"${"listeners"}%9s ${"senders"}%8s ${"lines sent/s"}%14s ${"points written/s"}%17s ${"scaling"}%8s")
+    var baseline = 0.0
+    try {
+      listenerCounts.foreach { listeners =>
+        val ports = FirstPort until FirstPort + listeners
+        awaitDrained(host, ports)
+        val before = pointsTransmitted(host, ports)
+        val sent = runStep(host, ports, senders, seconds, requests, timestamps)
+        val written = (pointsTransmitted(host, ports) - before).toDouble / seconds
+        if (baseline == 0) baseline = written
+        println(f"$listeners%9d $senders%8d ${sent.toDouble / seconds}%,14.0f $written%,17.0f ${written / baseline}%7.2fx")
+      }
+    } finally {
+      query(host, s"""DROP SERIES FROM "gatling" WHERE "simulation" =~ /^$SimulationPrefix/""")
+    }
+  }
+
+  // sends from all senders until the end of the step and returns the number of lines sent
+  private def runStep(host: String, ports: Seq[Int], senders: Int, seconds: Int, requests: Int, timestamps: Array[AtomicLong]): Long = {
+    val deadline = System.nanoTime + seconds * 1000000000L
+    val sent = new AtomicLong
+    val threads = (0 until senders).map { sender =>
+      val thread = new Thread(
+        () => {
+          val socket = new Socket(host, ports(sender % ports.size))
+          val out = new BufferedOutputStream(socket.getOutputStream, 64 * 1024)
+          try {
+            while (System.nanoTime < deadline) {
+              val period = graphitePeriod(s"$SimulationPrefix$sender", requests, timestamps(sender).getAndIncrement())
+              out.write(period)
+              sent.addAndGet(requests * Statuses.size * Fields.size)
+            }
+            out.flush()
+          } finally {
+            socket.close()
+          }
+        },
+        s"graphite-sender-$sender"
+      )
+      thread.start()
+      thread
+    }
+    threads.foreach(_.join())
+    sent.get
+  }
+
+  // the same path and value formatting as the Graphite writer of Gatling
+  private def graphitePeriod(simulation: String, requests: Int, timestamp: Long): Array[Byte] = {
+    val period = new java.lang.StringBuilder(requests * Statuses.size * Fields.size * 64)
+    for (request <- 0 until requests; status <- Statuses; field <- Fields) {
+      period.append("gatling.").append(simulation).append(".request").append(request).append('.').append(status).append('.').append(field)
+        .append(' ').append(request + timestamp % 100).append(' ').append(timestamp).append('\n')
+    }
+    period.toString.getBytes(StandardCharsets.UTF_8)
+  }
+
+  // waits until the listeners passed on all buffered points, e.g. those of the previous step
+  private def awaitDrained(host: String, ports: Seq[Int]): Unit = {
+    var previous = -1L
+    var current = pointsTransmitted(host, ports)
+    while (current != previous) {
+      Thread.sleep(DrainPollMillis)
+      previous = current
+      current = pointsTransmitted(host, ports)
+    }
+  }
+
+  // the points the Graphite listeners on the given ports passed on to the storage since InfluxDB started
+  private def pointsTransmitted(host: String, ports: Seq[Int]): Long = {
+    val binds = ports.map(port => s":$port").toSet
+    query(host, "SHOW STATS FOR 'graphite'")
+      .at("/results/0/series")
+      .elements
+      .asScala
+      .filter(series => binds.contains(series.at("/tags/bind").asText))
+      .map { series =>
+        val column = series.get("columns").elements.asScala.indexWhere(_.asText == "pointsTransmitted")
+        series.at("/values/0").get(column).asLong
+      }
+      .sum
+  }
+
+  private def query(host: String, query: String): JsonNode = {
+    val connection = new URL("http", host, HttpPort, s"/query?db=$Database&q=${URLEncoder.encode(query, "UTF-8")}").openConnection().asInstanceOf[HttpURLConnection]
+    try {
+      // SHOW STATS may be a GET, DROP must be a POST
+      connection.setRequestMethod("POST")
+      if (connection.getResponseCode != HttpURLConnection.HTTP_OK) {
+        throw new IllegalStateException(s"InfluxDB query failed with status ${connection.getResponseCode}: $query")
+      }
+      val response = new ObjectMapper().readTree(connection.getInputStream)
+      val error = response.at("/results/0/error")
+      if (!error.isMissingNode) {
+        throw new IllegalStateException(s"InfluxDB query failed: ${error.asText} ($query)")
+      }
+      response
+    } finally {
+      connection.disconnect()
+    }
+  }
+}
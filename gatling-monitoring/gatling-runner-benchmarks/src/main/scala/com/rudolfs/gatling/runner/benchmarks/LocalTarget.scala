@@ -0,0 +1,99 @@
+package com.rudolfs.gatling.runner.benchmarks
+
+import java.nio.charset.StandardCharsets
+
+import io.netty.bootstrap.ServerBootstrap
+import io.netty.buffer.Unpooled
+import io.netty.channel.{ Channel, ChannelFutureListener, ChannelHandlerContext, ChannelInitializer, ChannelOption, SimpleChannelInboundHandler }
+import io.netty.channel.nio.NioEventLoopGroup
+import io.netty.channel.socket.SocketChannel
+import io.netty.channel.socket.nio.NioServerSocketChannel
+import io.netty.handler.codec.http._
+
+import scala.collection.JavaConverters._
+
+/**
+  * A minimal HTTP target for the scaling suite that answers the /computers routes of BasicSimulation and ComputerWorld
+  * like computer-database.gatling.io does, without latency, so that the runner rather than the target is measured.
+  * It runs in the JVM of the suite, not in the JVM of the measured runner.
+  */
+final class LocalTarget(port: Int) {
+
+  private val bossGroup = new NioEventLoopGroup(1)
+  private val workerGroup = new NioEventLoopGroup()
+  @volatile private var channel: Option[Channel] = None
+
+  def baseUrl: String = s"http://localhost:$port"
+
+  def start(): Unit = {
+    val bootstrap = new ServerBootstrap()
+      .group(bossGroup, workerGroup)
+      .channel(classOf[NioServerSocketChannel])
+      .option(ChannelOption.SO_BACKLOG, Int.box(4096))
+      .childHandler(new ChannelInitializer[SocketChannel] {
+        override def initChannel(ch: SocketChannel): Unit =
+          ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(1024 * 1024), new ComputerDatabaseHandler)
+      })
+    channel = Some(bootstrap.bind(port).sync().channel())
+  }
+
+  def stop(): Unit = {
+    channel.foreach(_.close().sync())
+    bossGroup.shutdownGracefully()
+    workerGroup.shutdownGracefully()
+  }
+
+  private final class ComputerDatabaseHandler extends SimpleChannelInboundHandler[FullHttpRequest] {
+
+    override def channelRead0(ctx: ChannelHandlerContext, request: FullHttpRequest): Unit = {
+      val path = new QueryStringDecoder(request.uri).path
+      val (status, body) = (request.method, path) match {
+        case (HttpMethod.GET, "/" | "/computers")  => (HttpResponseStatus.OK, LocalTarget.ComputersPage)
+        case (HttpMethod.GET, "/computers/new")    => (HttpResponseStatus.OK, LocalTarget.NewComputerPage)
+        case (HttpMethod.GET, computer) if computer.startsWith("/computers/") => (HttpResponseStatus.OK, LocalTarget.ComputerPage)
+        case (HttpMethod.POST, "/computers") =>
+          val form = new QueryStringDecoder(request.content.toString(StandardCharsets.UTF_8), false).parameters.asScala
+          val name = form.get("name").flatMap(_.asScala.headOption).getOrElse("")
+          (HttpResponseStatus.OK, LocalTarget.ComputersPage.replace("<body>", s"""<body><div class="alert-message warning">Done ! Computer $name has been created</div>"""))
+        case _ => (HttpResponseStatus.NOT_FOUND, "<html><body>Not found</body></html>")
+      }
+
+      val response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8))
+      response.headers
+        .set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset=utf-8")
+        .setInt(HttpHeaderNames.CONTENT_LENGTH, response.content.readableBytes)
+      if (HttpUtil.isKeepAlive(request)) {
+        response.headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE)
+        ctx.writeAndFlush(response)
+      } else {
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE)
+      }
+    }
+
+    override def exceptionCaught(ctx: ChannelHandlerContext, cause: Throwable): Unit = ctx.close()
+  }
+}
+
+object LocalTarget {
+
+  private val ComputersPage =
+    """<html><head><title>Computers database</title></head><body>
+      |<h1>574 computers found</h1>
+      |<a class="btn success" id="add" href="/computers/new">Add a new computer</a>
+      |<table class="computers"><tbody>
+      |<tr><td><a href="/computers/6">MacBook Pro</a></td><td>06 Jan 2006</td><td>-</td><td>Apple Inc.</td></tr>
+      |<tr><td><a href="/computers/7">MacBook Pro 15.4 inch</a></td><td>-</td><td>-</td><td>Apple Inc.</td></tr>
+      |</tbody></table></body></html>""".stripMargin
+
+  private val NewComputerPage =
+    """<html><head><title>Computers database</title></head><body>
+      |<h1>Add a computer</h1>
+      |<form action="/computers" method="POST"><input type="text" id="name" name="name"><input type="submit" value="Create this computer"></form>
+      |</body></html>""".stripMargin
+
+  private val ComputerPage =
+    """<html><head><title>Computers database</title></head><body>
+      |<h1>Edit computer</h1>
+      |<form action="/computers/6" method="POST"><input type="text" id="name" name="name" value="MacBook Pro"></form>
+      |</body></html>""".stripMargin
+}
@@ -0,0 +1,125 @@
+package com.rudolfs.gatling.runner.benchmarks
+
+import java.io.BufferedOutputStream
+import java.lang.management.{ ManagementFactory, MemoryType }
+import java.nio.charset.StandardCharsets
+import java.nio.file.{ Files, Path, Paths }
+
+import com.rudolfs.gatling.runner.feeder.MappedCsvFeeder
+import io.gatling.core.Predef.csv
+import io.gatling.core.config.GatlingConfiguration
+
+import scala.collection.JavaConverters._
+
+/**
+  * Compares the [[MappedCsvFeeder]] with Gatling's csv feeder (eager and batch loading) on a synthetic CSV file of user
+  * ids, SKUs and e-mail addresses. Every feeder feeds the records of one shard: the mapped feeder its partition, the
+  * csv feeders the same number of records from the start of the file, because they can't partition it. The heap is
+  * the peak heap usage of the JVM while the feeder was created and fed, the retained heap the heap still used by the
+  * feeder after a GC. The first feeder also warms up the JIT and the page cache, so it runs twice.
+  *
+  * Usage: MappedFeederBenchmark [--records 10000000] [--shards 4] [--dir /tmp/mapped-feeder-benchmark] [--keep false]
+  */
+object MappedFeederBenchmark {
+
+  private val MiB = 1024L * 1024
+
+  private val Defaults = Map(
+    "records" -> "10000000",
+    "shards" -> "4",
+    "dir" -> Paths.get(System.getProperty("java.io.tmpdir"), "mapped-feeder-benchmark").toString,
+    "keep" -> "false"
+  )
+
+  def main(args: Array[String]): Unit = {
+    val options = Defaults ++ args.grouped(2).collect { case Array(key, value) if key.startsWith("--") => key.drop(2) -> value }
+    val records = options("records").toLong
+    val shards = options("shards").toInt
+    val directory = Paths.get(options("dir"))
+    val file = directory.resolve("records.csv")
+
+    Files.createDirectories(directory)
+    try {
+      val writeStartNanos = System.nanoTime
+      writeRecords(file, records)
+      println(f"Wrote $records%,d records, ${Files.size(file) / MiB.toDouble}%,.0f MiB in ${(System.nanoTime - writeStartNanos) / 1e9}%.1f s")
+
+      val configuration = GatlingConfiguration.loadForTest()
+      val mapped = MappedCsvFeeder(file.toString).partition(0, shards)
+      val feeders = Seq[(String, () => Iterator[Map[String, Any]])](
+        "mapped (warm-up)" -> mapped,
+        "mapped" -> mapped,
+        "gatling csv eager" -> csv(file.toString)(configuration).eager,
+        "gatling csv batch" -> csv(file.toString)(configuration).batch
+      )
+
+      println(f"${"feeder"}%-18s ${"records"}%12s ${"load s"}%7s ${"feed s"}%7s ${"records/s"}%12s ${"peak heap MiB"}%14s ${"retained MiB"}%13s")
+      feeders.foreach { case (name, builder) => measure(name, builder, records / shards) }
+    } finally {
+      if (!options("keep").toBoolean) {
+        Files.list(directory).iterator.asScala.foreach(Files.delete)
+        Files.delete(directory)
+      }
+    }
+  }
+
+  private def measure(name: String, builder: () => Iterator[Map[String, Any]], records: Long): Unit = {
+    resetPeakHeap()
+    val baseline = usedHeap()
+    val loadStartNanos = System.nanoTime
+    val feeder =
+      try {
+        builder()
+      } catch {
+        // the eager csv feeder holds the whole file on the heap, a heap that is too small for it is a result as well
+        case _: OutOfMemoryError =>
+          println(f"$name%-18s out of memory after ${(System.nanoTime - loadStartNanos) / 1e9}%.1f s with -Xmx${Runtime.getRuntime.maxMemory / MiB}%,d MiB")
+          return
+      }
+    val feedStartNanos = System.nanoTime
+    var fed = 0L
+    var checksum = 0L
+    while (fed < records && feeder.hasNext) {
+      checksum += feeder.next()("userId").hashCode
+      fed += 1
+    }
+    val endNanos = System.nanoTime
+    val peak = peakHeap() - baseline
+    val retained = usedHeap() - baseline
+    val feedSeconds = (endNanos - feedStartNanos) / 1e9
+    println(f"$name%-18s $fed%,12d ${(feedStartNanos - loadStartNanos) / 1e9}%7.1f $feedSeconds%7.1f ${fed / feedSeconds}%,12.0f ${peak / MiB.toDouble}%,14.0f ${retained / MiB.toDouble}%,13.0f")
+    // keeps the feeder and the checksum reachable until the retained heap is measured
+    if (checksum == 42 && feeder.hashCode == 0) println()
+  }
+
+  private def writeRecords(file: Path, records: Long): Unit = {
+    val out = new BufferedOutputStream(Files.newOutputStream(file), 1024 * 1024)
+    val line = new java.lang.StringBuilder(128)
+    try {
+      out.write("userId,sku,email,country\n".getBytes(StandardCharsets.UTF_8))
+      var record = 0L
+      while (record < records) {
+        line.append("user-").append(record).append(",SKU-").append((record * 7919) % 1000000).append(",user").append(record)
+          .append("@example.com,").append(if (record % 3 == 0) "DE" else "LV").append('\n')
+        out.write(line.toString.getBytes(StandardCharsets.UTF_8))
+        line.setLength(0)
+        record += 1
+      }
+    } finally {
+      out.close()
+    }
+  }
+
+  private def resetPeakHeap(): Unit = {
+    System.gc()
+    ManagementFactory.getMemoryPoolMXBeans.asScala.foreach(_.resetPeakUsage())
+  }
+
+  private def usedHeap(): Long = {
+    System.gc()
+    ManagementFactory.getMemoryMXBean.getHeapMemoryUsage.getUsed
+  }
+
+  private def peakHeap(): Long =
+    ManagementFactory.getMemoryPoolMXBeans.asScala.filter(_.getType == MemoryType.HEAP).map(_.getPeakUsage.getUsed).sum
+}
@@ -0,0 +1,206 @@
+package com.rudolfs.gatling.runner.benchmarks
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.{ Files, Path, Paths }
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.rudolfs.gatling.runner.report.{ LogStatistics, SimulationLogMerge }
+
+import scala.collection.JavaConverters._
+
+/**
+  * Runs the scenarios of BasicSimulation and ComputerWorld with an increasing number of concurrent users against a
+  * local target and measures how the runner JVM scales: live heap per user, allocation rate, CPU, GC and the requests
+  * per second per core. Every level runs in its own runner JVM (simulations.ScalingSimulation with the given heap), so
+  * neither the suite, the target nor a previous level is measured. The requests come from the simulation.log of the
+  * level, the JVM metrics from the ScalingProbe of the runner.
+  * <p>
+  * The suite writes the levels and a summary per scenario to results.json and the levels to results.csv in --out. The
+  * summary fits the live heap to the users (least squares): heapBytesPerUser is the slope, baseHeapBytes the heap of the
+  * runner without users. maxRequestsPerSecondPerCore is the best requests per second per CPU core used by the runner
+  * of the levels with at most --max-ko-percent failed requests. Without --target the suite starts a [[LocalTarget]] on
+  * --port. BasicSimulation pauses 23 s per user, --pauses false runs the scenarios without pauses to measure the CPU
+  * limit of the runner instead of the memory of waiting users.
+  *
+  * Usage: ScalingSuite [--scenarios basic,computerworld] [--users 10,100,1000,5000] [--ramp 10] [--steady 30]
+  *                     [--pauses true] [--heap 2g] [--cpus 0] [--target http://host:port] [--port 8080]
+  *                     [--max-ko-percent 1] [--out scaling-results]
+  */
+object ScalingSuite {
+
+  private val Defaults = Map(
+    "scenarios" -> "basic,computerworld",
+    "users" -> "10,100,1000,5000",
+    "ramp" -> "10",
+    "steady" -> "30",
+    "pauses" -> "true",
+    "heap" -> "2g",
+    "cpus" -> "0",
+    "target" -> "",
+    "port" -> "8080",
+    "max-ko-percent" -> "1",
+    "out" -> "scaling-results"
+  )
+
+  final case class LevelResult(
+      scenario: String,
+      users: Int,
+      requestsPerSecond: Double,
+      koPercent: Double,
+      p95: Long,
+      p99: Long,
+      requestsPerSecondPerCore: Double,
+      allocatedBytesPerRequest: Double,
+      probe: ObjectNode
+  ) {
+    def cpuCores: Double = probe.get("cpuCores").asDouble
+    def liveHeapBytes: Long = probe.get("liveHeapBytes").asLong
+  }
+
+  def main(args: Array[String]): Unit = {
+    val options = Defaults ++ args.grouped(2).collect { case Array(key, value) if key.startsWith("--") => key.drop(2) -> value }
+    val out = Paths.get(options("out"))
+    Files.createDirectories(out)
+
+    val localTarget = Some(options("target")).filter(_.isEmpty).map(_ => new LocalTarget(options("port").toInt))
+    localTarget.foreach(_.start())
+    val target = localTarget.fold(options("target"))(_.baseUrl)
+    println(s"Target $target, runner heap ${options("heap")}, pauses ${options("pauses")}")
+
+    try {
+      val results = for {
+        scenario <- options("scenarios").split(',').map(_.trim).toSeq
+        users <- options("users").split(',').map(_.trim.toInt).toSeq
+      } yield runLevel(scenario, users, target, options, out.resolve(s"$scenario-$users"))
+
+      writeResults(results, options("max-ko-percent").toDouble, out)
+    } finally {
+      localTarget.foreach(_.stop())
+    }
+  }
+
+  private def runLevel(scenario: String, users: Int, target: String, options: Map[String, String], directory: Path): LevelResult = {
+    Files.createDirectories(directory)
+    val probeFile = directory.resolve("probe.json")
+    val command = Seq(Paths.get(System.getProperty("java.home"), "bin", "java").toString, s"-Xmx${options("heap")}", s"-Xms${options("heap")}") ++
+      Some(options("cpus").toInt).filter(_ > 0).map(cpus => s"-XX:ActiveProcessorCount=$cpus") ++
+      Seq(
+        s"-DGATLING_SCALING_SCENARIO=$scenario",
+        s"-DGATLING_SCALING_USERS=$users",
+        s"-DGATLING_SCALING_RAMP=${options("ramp")}",
+        s"-DGATLING_SCALING_STEADY=${options("steady")}",
+        s"-DGATLING_SCALING_PAUSES=${options("pauses")}",
+        s"-DGATLING_SCALING_TARGET=$target",
+        s"-DGATLING_SCALING_OUTPUT=$probeFile",
+        "-cp",
+        System.getProperty("java.class.path"),
+        "io.gatling.app.GatlingRunner",
+        "-s",
+        "simulations.ScalingSimulation",
+        "-rf",
+        directory.toString,
+        "-nr"
+      )
+
+    val process = new ProcessBuilder(command: _*).redirectErrorStream(true).redirectOutput(directory.resolve("runner.log").toFile)
+    val environment = process.environment
+    // only simulation.log, the runner must not spend CPU on sending metrics to a Graphite that isn't there
+    environment.put("GATLING_DATA_WRITER", "file")
+    environment.put("GATLING_TELEMETRY", "false")
+    environment.put("GATLING_CARDINALITY_REPORT_PERIOD", "0")
+    environment.putIfAbsent("GATLING_GRAPHITE_HOST", "localhost")
+    environment.putIfAbsent("GATLING_GRAPHITE_PORT", "2003")
+
+    println(s"Running $scenario with $users users, log in ${directory.resolve("runner.log")}")
+    val exitCode = process.start().waitFor()
+    require(Files.exists(probeFile), s"The runner of $scenario with $users users exited with $exitCode without a probe result, see its runner.log")
+
+    val probe = new ObjectMapper().readTree(probeFile.toFile).asInstanceOf[ObjectNode]
+    val logs = Files.list(directory).iterator.asScala.filter(Files.isDirectory(_)).flatMap(run => SimulationLogMerge.logFiles(run.toString)).toList
+    val statistics = SimulationLogMerge.aggregate(logs, 1, 64L * 1024 * 1024)
+    level(scenario, users, statistics, probe, options("ramp").toInt, options("steady").toInt)
+  }
+
+  // the requests of the steady state seconds of the level, the percentiles of all its requests
+  private def level(scenario: String, users: Int, statistics: LogStatistics, probe: ObjectNode, rampSeconds: Int, steadySeconds: Int): LevelResult = {
+    val seconds = rampSeconds until math.min(rampSeconds + steadySeconds, statistics.getSeconds)
+    val ok = seconds.map(statistics.okAt(_)).sum
+    val ko = seconds.map(statistics.koAt(_)).sum
+    val requestsPerSecond = (ok + ko).toDouble / math.max(seconds.size, 1)
+    val all = statistics.allRequests
+    val cpuCores = probe.get("cpuCores").asDouble
+    LevelResult(
+      scenario = scenario,
+      users = users,
+      requestsPerSecond = requestsPerSecond,
+      koPercent = if (ok + ko == 0) 0 else ko * 100.0 / (ok + ko),
+      p95 = all.getValueAtPercentile(95),
+      p99 = all.getValueAtPercentile(99),
+      requestsPerSecondPerCore = if (cpuCores > 0) requestsPerSecond / cpuCores else 0,
+      allocatedBytesPerRequest = if (requestsPerSecond > 0) probe.get("allocatedBytesPerSecond").asDouble / requestsPerSecond else 0,
+      probe = probe
+    )
+  }
+
+  private def writeResults(results: Seq[LevelResult], maxKoPercent: Double, out: Path): Unit = {
+    val mapper = new ObjectMapper
+    val json = mapper.createObjectNode()
+    val levels = json.putArray("levels")
+    results.foreach { result =>
+      levels.addObject()
+        .put("scenario", result.scenario)
+        .put("users", result.users)
+        .put("requestsPerSecond", result.requestsPerSecond)
+        .put("koPercent", result.koPercent)
+        .put("p95", result.p95)
+        .put("p99", result.p99)
+        .put("requestsPerSecondPerCore", result.requestsPerSecondPerCore)
+        .put("allocatedBytesPerRequest", result.allocatedBytesPerRequest)
+        .set[ObjectNode]("runner", result.probe)
+    }
+
+    val summaries = json.putObject("summary")
+    println(f"${"scenario"}%-14s ${"users"}%7s ${"req/s"}%9s ${"ko %"}%6s ${"p99 ms"}%7s ${"cores"}%6s ${"req/s/core"}%10s ${"alloc MiB/s"}%11s ${"gc ms/s"}%8s ${"live heap MiB"}%13s")
+    results.groupBy(_.scenario).toSeq.sortBy(_._1).foreach {
+      case (scenario, scenarioResults) =>
+        scenarioResults.foreach { r =>
+          println(f"${r.scenario}%-14s ${r.users}%7d ${r.requestsPerSecond}%9.1f ${r.koPercent}%6.2f ${r.p99}%7d ${r.cpuCores}%6.2f ${r.requestsPerSecondPerCore}%10.1f " +
+            f"${r.probe.get("allocatedBytesPerSecond").asDouble / 1024 / 1024}%11.1f ${r.probe.get("gcPauseMillisPerSecond").asDouble}%8.1f ${r.liveHeapBytes / 1024.0 / 1024}%13.1f")
+        }
+        val (heapBytesPerUser, baseHeapBytes) = leastSquares(scenarioResults.map(r => (r.users.toDouble, r.liveHeapBytes.toDouble)))
+        val sustained = scenarioResults.filter(_.koPercent <= maxKoPercent)
+        val maxPerCore = if (sustained.isEmpty) 0.0 else sustained.map(_.requestsPerSecondPerCore).max
+        summaries.putObject(scenario)
+          .put("heapBytesPerUser", heapBytesPerUser)
+          .put("baseHeapBytes", baseHeapBytes)
+          .put("maxRequestsPerSecondPerCore", maxPerCore)
+          .put("maxKoPercent", maxKoPercent)
+        println(f"$scenario: ${heapBytesPerUser / 1024}%,.1f KiB heap per user over a base of ${baseHeapBytes / 1024 / 1024}%,.0f MiB, " +
+          f"at most $maxPerCore%,.0f requests/s per core")
+    }
+    mapper.writerWithDefaultPrettyPrinter.writeValue(out.resolve("results.json").toFile, json)
+
+    val csv = new StringBuilder("scenario,users,requestsPerSecond,koPercent,p95,p99,cpuCores,requestsPerSecondPerCore,allocatedBytesPerSecond,allocatedBytesPerRequest,gcPauseMillisPerSecond,liveHeapBytes,peakHeapBytes\n")
+    results.foreach { r =>
+      csv.append(Seq(r.scenario, r.users, r.requestsPerSecond, r.koPercent, r.p95, r.p99, r.cpuCores, r.requestsPerSecondPerCore,
+        r.probe.get("allocatedBytesPerSecond").asDouble, r.allocatedBytesPerRequest, r.probe.get("gcPauseMillisPerSecond").asDouble,
+        r.liveHeapBytes, r.probe.get("peakHeapBytes").asLong).mkString(",")).append('\n')
+    }
+    Files.write(out.resolve("results.csv"), csv.toString.getBytes(StandardCharsets.UTF_8))
+    println(s"Wrote ${out.resolve("results.json")} and ${out.resolve("results.csv")}")
+  }
+
+  /** The slope and intercept of the least squares line through the points, a flat line through one point. */
+  private def leastSquares(points: Seq[(Double, Double)]): (Double, Double) = {
+    val n = points.size
+    val meanX = points.map(_._1).sum / n
+    val meanY = points.map(_._2).sum / n
+    val variance = points.map { case (x, _) => (x - meanX) * (x - meanX) }.sum
+    if (variance == 0) (0.0, meanY)
+    else {
+      val slope = points.map { case (x, y) => (x - meanX) * (y - meanY) }.sum / variance
+      (slope, meanY - slope * meanX)
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.rudolfs.gatling.runner.benchmarks
+
+import java.io.BufferedOutputStream
+import java.lang.management.ManagementFactory
+import java.nio.charset.StandardCharsets
+import java.nio.file.{ Files, Path, Paths }
+
+import com.rudolfs.gatling.runner.report.SimulationLogMerge
+
+import scala.collection.JavaConverters._
+
+/**
+  * Measures [[SimulationLogMerge]] on synthetic shard logs. The logs are written in the format of Gatling 3.3 with
+  * users of a few requests each, 2% of them KO, until the shards together have the given size. Then the logs are
+  * aggregated once with every parallelism, the first run also warms up the JIT and the page cache. The heap is the
+  * peak heap usage of the JVM, which stays flat with the size of the logs.
+  *
+  * Usage: SimulationLogMergeBenchmark [--gigabytes 10] [--shards 4] [--requests 100] [--parallelism 1,2,4,8]
+  *                                    [--segment-mib 64] [--dir /tmp/simulation-log-benchmark] [--merged-log false]
+  *                                    [--keep false]
+  */
+object SimulationLogMergeBenchmark {
+
+  private val MiB = 1024L * 1024
+  private val RequestsPerUser = 5
+  private val StartMillis = 1600000000000L
+
+  private val Defaults = Map(
+    "gigabytes" -> "10",
+    "shards" -> "4",
+    "requests" -> "100",
+    "parallelism" -> "1,2,4,8",
+    "segment-mib" -> "64",
+    "dir" -> Paths.get(System.getProperty("java.io.tmpdir"), "simulation-log-benchmark").toString,
+    "merged-log" -> "false",
+    "keep" -> "false"
+  )
+
+  def main(args: Array[String]): Unit = {
+    val options = Defaults ++ args.grouped(2).collect { case Array(key, value) if key.startsWith("--") => key.drop(2) -> value }
+    val shards = options("shards").toInt
+    val shardBytes = (options("gigabytes").toDouble * 1024 * MiB / shards).toLong
+    val directory = Paths.get(options("dir"))
+    val segmentBytes = options("segment-mib").toInt * MiB
+
+    Files.createDirectories(directory)
+    try {
+      val writeStartNanos = System.nanoTime
+      val files = (0 until shards).map(shard => writeShard(directory.resolve(s"simulation-$shard.log"), shard, shardBytes, options("requests").toInt))
+      val totalBytes = files.map(Files.size).sum
+      println(f"Wrote $shards%d shard log(s), ${totalBytes / MiB.toDouble}%,.0f MiB in ${(System.nanoTime - writeStartNanos) / 1e9}%.1f s")
+
+      println(f"${"parallelism"}%11s ${"seconds"}%8s ${"MiB/s"}%8s ${"scaling"}%8s ${"lines"}%15s ${"peak heap MiB"}%14s")
+      var baseline = 0.0
+      options("parallelism").split(',').map(_.trim.toInt).foreach { parallelism =>
+        resetPeakHeap()
+        val startNanos = System.nanoTime
+        val statistics = SimulationLogMerge.aggregate(files, parallelism, segmentBytes)
+        val seconds = (System.nanoTime - startNanos) / 1e9
+        val throughput = totalBytes / MiB.toDouble / seconds
+        if (baseline == 0) baseline = throughput
+        println(f"$parallelism%11d $seconds%8.1f $throughput%,8.0f ${throughput / baseline}%7.2fx ${statistics.getLines}%,15d ${peakHeap() / MiB.toDouble}%,14.0f")
+      }
+
+      if (options("merged-log").toBoolean) {
+        val mergedLog = directory.resolve("merged.log.out")
+        val startNanos = System.nanoTime
+        val lines = SimulationLogMerge.mergeLogs(files, mergedLog)
+        val seconds = (System.nanoTime - startNanos) / 1e9
+        println(f"Merged $lines%,d lines by timestamp in $seconds%.1f s (${totalBytes / MiB.toDouble / seconds}%,.0f MiB/s)")
+      }
+    } finally {
+      if (!options("keep").toBoolean) {
+        Files.list(directory).iterator.asScala.foreach(Files.delete)
+        Files.delete(directory)
+      }
+    }
+  }
+
+  // writes users with RequestsPerUser requests each until the log has the size, every shard starts a user per millisecond
+  private def writeShard(file: Path, shard: Int, bytes: Long, requestNames: Int): Path = {
+    val out = new BufferedOutputStream(Files.newOutputStream(file), 1024 * 1024)
+    val line = new java.lang.StringBuilder(256)
+    var written = 0L
+    def write(): Unit = {
+      val encoded = line.append('\n').toString.getBytes(StandardCharsets.UTF_8)
+      out.write(encoded)
+      written += encoded.length
+      line.setLength(0)
+    }
+    try {
+      line.append("RUN\tsimulations.SyntheticSimulation\tsynthetic\t").append(StartMillis).append("\t \t3.3.1")
+      write()
+      var user = 0L
+      while (written < bytes) {
+        val userId = user * 1000 + shard
+        val userStart = StartMillis + user
+        line.append("USER\tsynthetic\t").append(userId).append("\tSTART\t").append(userStart).append('\t').append(userStart)
+        write()
+        var requestEnd = userStart
+        var i = 0
+        while (i < RequestsPerUser) {
+          val requestStart = requestEnd + 10
+          requestEnd = requestStart + 5 + (userId * 31 + i * 17) % 400
+          val ok = (userId + i) % 50 != 0
+          line.append("REQUEST\t").append(userId).append("\t\trequest-").append((userId + i) % requestNames).append('\t')
+            .append(requestStart).append('\t').append(requestEnd).append(if (ok) "\tOK\t " else "\tKO\tstatus.find.in(200,304), but actually found 500")
+          write()
+          i += 1
+        }
+        line.append("USER\tsynthetic\t").append(userId).append("\tEND\t").append(userStart).append('\t').append(requestEnd)
+        write()
+        user += 1
+      }
+    } finally {
+      out.close()
+    }
+    file
+  }
+
+  private def resetPeakHeap(): Unit = {
+    System.gc()
+    ManagementFactory.getMemoryPoolMXBeans.asScala.foreach(_.resetPeakUsage())
+  }
+
+  private def peakHeap(): Long =
+    ManagementFactory.getMemoryPoolMXBeans.asScala.filter(_.getType == java.lang.management.MemoryType.HEAP).map(_.getPeakUsage.getUsed).sum
+}
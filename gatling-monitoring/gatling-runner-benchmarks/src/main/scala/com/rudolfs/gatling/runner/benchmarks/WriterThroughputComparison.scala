@@ -0,0 +1,107 @@
+package com.rudolfs.gatling.runner.benchmarks
+
+import java.io.{ BufferedOutputStream, ByteArrayOutputStream }
+import java.net.Socket
+import java.nio.charset.StandardCharsets
+
+import com.rudolfs.gatling.runner.influxdb.{ InfluxDbHttpSender, LineProtocolEncoder }
+
+/**
+  * Compares the Graphite plaintext write path with the InfluxDB line protocol path for the metrics of one write
+  * period: how many lines and bytes InfluxDB has to parse and how fast the runner can encode them. With a host
+  * argument both payloads are also sent to a running InfluxDB, the ingest CPU of both paths can then be compared
+  * in the _internal database (measurements "graphite" and "write").
+  *
+  * Usage: WriterThroughputComparison [requests=100] [periods=1000] [influxdb host]
+  */
+object WriterThroughputComparison {
+
+  private val Fields = Seq("count", "min", "max", "mean", "stdDev", "percentiles50", "percentiles75", "percentiles95", "percentiles99")
+  private val Statuses = Seq("ok", "ko", "all")
+  private val Simulation = "basicsimulation"
+
+  def main(args: Array[String]): Unit = {
+    val requests = if (args.length > 0) args(0).toInt else 100
+    val periods = if (args.length > 1) args(1).toInt else 1000
+    val host = if (args.length > 2) Some(args(2)) else None
+
+    val graphite = measure("graphite plaintext", periods, valuesPerLine = 1)(graphitePeriod(requests, _))
+    val lineProtocol = measure("influxdb line protocol", periods, valuesPerLine = Fields.size)(lineProtocolPeriod(requests, _))
+
+    val sender = new InfluxDbHttpSender(host.getOrElse("localhost"), 8086, "gatlingdb", 5000, 5000)
+    val encoder = lineProtocolPeriod(requests, 0L)
+    val gzipBytes = sender.compress(encoder.array(), 0, encoder.size())
+
+    println(f"per write period and $requests%d requests:")
+    println(f"  graphite:      ${graphite.lines}%8d lines ${graphite.bytes}%10d bytes")
+    println(f"  line protocol: ${lineProtocol.lines}%8d lines ${lineProtocol.bytes}%10d bytes $gzipBytes%10d bytes gzip")
+    println(f"  InfluxDB parses ${graphite.lines.toDouble / lineProtocol.lines}%.1fx fewer lines on the line protocol path")
+
+    host.foreach { influxDbHost =>
+      val graphiteStart = System.nanoTime()
+      val socket = new Socket(influxDbHost, 2003)
+      val out = new BufferedOutputStream(socket.getOutputStream)
+      (0 until periods).foreach(period => out.write(graphitePeriod(requests, period)))
+      out.close()
+      socket.close()
+      val graphiteMillis = (System.nanoTime() - graphiteStart) / 1000000
+
+      val lineProtocolStart = System.nanoTime()
+      val accepted = (0 until periods).map(period => sender.send(lineProtocolPeriod(requests, period))).sum
+      val lineProtocolMillis = (System.nanoTime() - lineProtocolStart) / 1000000
+
+      println(s"sent $periods periods to $influxDbHost: graphite $graphiteMillis ms, line protocol $lineProtocolMillis ms ($accepted points accepted)")
+    }
+  }
+
+  private final case class Result(lines: Long, bytes: Long)
+
+  private def measure[T](name: String, periods: Int, valuesPerLine: Int)(encode: Long => T)(implicit size: Sized[T]): Result = {
+    // warm up the JIT before the measured run
+    (0 until periods).foreach(period => encode(period.toLong))
+    val start = System.nanoTime()
+    var last: T = encode(0L)
+    (0 until periods).foreach(period => last = encode(period.toLong))
+    val nanos = System.nanoTime() - start
+    val lines = size.lines(last)
+    println(f"$name%-24s ${lines * valuesPerLine * periods * 1000000000.0 / nanos}%,14.0f values/s encoded")
+    Result(lines, size.bytes(last))
+  }
+
+  private trait Sized[T] {
+    def lines(value: T): Long
+    def bytes(value: T): Long
+  }
+
+  private implicit val BytesSized: Sized[Array[Byte]] = new Sized[Array[Byte]] {
+    override def lines(value: Array[Byte]): Long = value.count(_ == '\n')
+    override def bytes(value: Array[Byte]): Long = value.length
+  }
+
+  private implicit val EncoderSized: Sized[LineProtocolEncoder] = new Sized[LineProtocolEncoder] {
+    override def lines(value: LineProtocolEncoder): Long = value.pointCount()
+    override def bytes(value: LineProtocolEncoder): Long = value.size()
+  }
+
+  // the same path and value formatting as the Graphite writer of Gatling
+  private def graphitePeriod(requests: Int, timestamp: Long): Array[Byte] = {
+    val out = new ByteArrayOutputStream()
+    for (request <- 0 until requests; status <- Statuses; field <- Fields) {
+      out.write(s"gatling.$Simulation.request$request.$status.$field ${request + timestamp % 100} $timestamp\n".getBytes(StandardCharsets.UTF_8))
+    }
+    out.toByteArray
+  }
+
+  private val lineProtocolEncoder = new LineProtocolEncoder(64 * 1024)
+  private val requestNames = Array.tabulate(10000)("request" + _)
+
+  private def lineProtocolPeriod(requests: Int, timestamp: Long): LineProtocolEncoder = {
+    lineProtocolEncoder.reset()
+    for (request <- 0 until requests; status <- Statuses) {
+      lineProtocolEncoder.measurement("gatling").tag("request", requestNames(request)).tag("simulation", Simulation).tag("status", status)
+      Fields.foreach(lineProtocolEncoder.field(_, request + timestamp % 100))
+      lineProtocolEncoder.end(timestamp)
+    }
+    lineProtocolEncoder
+  }
+}
@@ -1,16 +1,46 @@
 #!/bin/sh
 
+# epoch millis of the container start (unless given), the runner logs the time from here to the first request sent
+GATLING_CONTAINER_START_MILLIS=${GATLING_CONTAINER_START_MILLIS:-$(date +%s%3N)}
+
 help_text() {
     cat <<EOF
-    Usage: $0 [ -gh | --graphitehost GATLING_GRAPHITE_HOST ] [ -gp | --graphiteport GATLING_GRAPHITE_PORT ] [--help]
+    Usage: $0 [ -gh | --graphitehost GATLING_GRAPHITE_HOST ] [ -gp | --graphiteport GATLING_GRAPHITE_PORT ]
+              [ -si | --shardindex GATLING_SHARD_INDEX ] [ -sc | --shardcount GATLING_SHARD_COUNT ]
+              [ -w | --writer GATLING_DATA_WRITER ] [ -bu | --baseurl GATLING_BASE_URL ] [ -ts | --throughputsearch ]
+              [ -lu | --logupload ] [ -ri | --runid GATLING_RUN_ID ] [ -r | --report ] [--help]
         --graphitehost GATLING_GRAPHITE_HOST         (optional) The host where the Graphite service is located.
         --graphiteport GATLING_GRAPHITE_PORT         (optional) The port to which the Graphite service listens to.
+        --shardindex GATLING_SHARD_INDEX             (optional) The zero-based index of this runner within a sharded run.
+        --shardcount GATLING_SHARD_COUNT             (optional) The total number of runners that share the injection profile.
+        --writer GATLING_DATA_WRITER                 (optional) graphite (default) or influxdb to write line protocol to the InfluxDB HTTP API on the same host.
+        --baseurl GATLING_BASE_URL                   (optional) The root URL of the system under test (default: http://computer-database.gatling.io),
+                                                     e.g. the stub-server for offline load tests.
+        --throughputsearch                           (optional) Search the highest arrival rate that meets the SLO instead of running the injection profile,
+                                                     configured with the GATLING_SEARCH_* variables, see gatling.conf.
+        --logupload                                  (optional) Upload simulation.log in chunks to S3 (or MinIO) instead of rendering the report,
+                                                     configured with the GATLING_LOG_UPLOAD_* variables, see gatling.conf.
+        --runid GATLING_RUN_ID                       (optional) The id under which all shards of a run upload their simulation.log.
+        --report                                     (optional) Run the report worker instead of a simulation: wait for the uploaded logs
+                                                     of the GATLING_SHARD_COUNT shards of run GATLING_RUN_ID and render and upload their report.
 EOF
     exit 1
 }
 
 GATLING_GRAPHITE_HOST="localhost"
 GATLING_GRAPHITE_PORT=2003
+GATLING_SHARD_INDEX=0
+GATLING_SHARD_COUNT=1
+GATLING_DATA_WRITER=${GATLING_DATA_WRITER:-"graphite"}
+GATLING_BASE_URL=${GATLING_BASE_URL:-"http://computer-database.gatling.io"}
+# the heap follows the memory limit of the container (Fargate task size), the rest is left for metaspace, threads and Netty
+JAVA_OPTS=${JAVA_OPTS:-"-XX:MaxRAMPercentage=75.0 -XX:+ExitOnOutOfMemoryError"}
+GATLING_APPCDS=${GATLING_APPCDS:-true}
+GATLING_THROUGHPUT_SEARCH=${GATLING_THROUGHPUT_SEARCH:-false}
+# epoch millis at which all shards start injecting, set by the run orchestrator (0: start immediately)
+GATLING_START_AT=${GATLING_START_AT:-0}
+GATLING_LOG_UPLOAD=${GATLING_LOG_UPLOAD:-false}
+GATLING_REPORT_WORKER=false
 
 while [ $# -gt 0 ]; do
     arg=$1
@@ -26,6 +56,38 @@ while [ $# -gt 0 ]; do
             export GATLING_GRAPHITE_PORT="$2"
             shift; shift
         ;;
+        -si|--shardindex)
+            export GATLING_SHARD_INDEX="$2"
+            shift; shift
+        ;;
+        -sc|--shardcount)
+            export GATLING_SHARD_COUNT="$2"
+            shift; shift
+        ;;
+        -w|--writer)
+            export GATLING_DATA_WRITER="$2"
+            shift; shift
+        ;;
+        -bu|--baseurl)
+            export GATLING_BASE_URL="$2"
+            shift; shift
+        ;;
+        -ts|--throughputsearch)
+            export GATLING_THROUGHPUT_SEARCH=true
+            shift
+        ;;
+        -lu|--logupload)
+            export GATLING_LOG_UPLOAD=true
+            shift
+        ;;
+        -ri|--runid)
+            export GATLING_RUN_ID="$2"
+            shift; shift
+        ;;
+        -r|--report)
+            GATLING_REPORT_WORKER=true
+            shift
+        ;;
         *)
             echo "ERROR: Unrecognised option: ${arg}"
             help_text
@@ -36,5 +98,37 @@ done
 
 echo GATLING_GRAPHITE_HOST=${GATLING_GRAPHITE_HOST}
 echo GATLING_GRAPHITE_PORT=${GATLING_GRAPHITE_PORT}
+echo GATLING_SHARD_INDEX=${GATLING_SHARD_INDEX}
+echo GATLING_SHARD_COUNT=${GATLING_SHARD_COUNT}
+echo GATLING_DATA_WRITER=${GATLING_DATA_WRITER}
+echo GATLING_BASE_URL=${GATLING_BASE_URL}
+echo GATLING_THROUGHPUT_SEARCH=${GATLING_THROUGHPUT_SEARCH}
+echo GATLING_LOG_UPLOAD=${GATLING_LOG_UPLOAD}
+echo GATLING_RUN_ID=${GATLING_RUN_ID}
+
+# every shard reports with its own root path prefix, InfluxDB turns the shard index into a tag
+if [ "${GATLING_SHARD_COUNT}" -gt 1 ]; then
+    GATLING_ROOT_PATH_PREFIX="gatling.shards.${GATLING_SHARD_INDEX}"
+else
+    GATLING_ROOT_PATH_PREFIX="gatling"
+fi
+
+# use the AppCDS archive created at image build time, see Dockerfile
+if [ "${GATLING_APPCDS}" = true ] && [ -f gatling-runner.jsa ]; then
+    JAVA_OPTS="${JAVA_OPTS} -XX:SharedArchiveFile=gatling-runner.jsa -Xlog:cds=off -Xlog:cds+dynamic=off"
+fi
+
+# the report worker reads gatling.conf as well, the GATLING_LOG_UPLOAD_* variables are read from the environment
+if [ "${GATLING_REPORT_WORKER}" = true ]; then
+    exec java ${JAVA_OPTS} -DGATLING_GRAPHITE_HOST=${GATLING_GRAPHITE_HOST} -DGATLING_GRAPHITE_PORT=${GATLING_GRAPHITE_PORT} \
+         -DGATLING_SHARD_COUNT=${GATLING_SHARD_COUNT} \
+         -cp gatling-runner.jar com.rudolfs.gatling.runner.report.ReportWorker
+fi
 
-java -DGATLING_GRAPHITE_HOST=${GATLING_GRAPHITE_HOST} -DGATLING_GRAPHITE_PORT=${GATLING_GRAPHITE_PORT} -jar gatling-runner.jar -s simulations.BasicSimulation
+exec java ${JAVA_OPTS} -DGATLING_CONTAINER_START_MILLIS=${GATLING_CONTAINER_START_MILLIS} \
+     -DGATLING_GRAPHITE_HOST=${GATLING_GRAPHITE_HOST} -DGATLING_GRAPHITE_PORT=${GATLING_GRAPHITE_PORT} \
+     -DGATLING_SHARD_INDEX=${GATLING_SHARD_INDEX} -DGATLING_SHARD_COUNT=${GATLING_SHARD_COUNT} \
+     -DGATLING_ROOT_PATH_PREFIX=${GATLING_ROOT_PATH_PREFIX} -DGATLING_DATA_WRITER=${GATLING_DATA_WRITER} \
+     -DGATLING_START_AT=${GATLING_START_AT} -DGATLING_THROUGHPUT_SEARCH=${GATLING_THROUGHPUT_SEARCH} \
+     -DGATLING_LOG_UPLOAD=${GATLING_LOG_UPLOAD} -DGATLING_BASE_URL=${GATLING_BASE_URL} \
+     -jar gatling-runner.jar -s simulations.BasicSimulation
@@ -0,0 +1,91 @@
+package com.rudolfs.gatling.runner.hdr;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes HDR histograms in the compressed HdrHistogram V2 format as Base64 strings, the form in which the runner ships
+ * the latencies of every write period to InfluxDB. Decoded histograms of several runners and write periods can be
+ * added to each other, so percentiles over shards and arbitrary time windows are computed from the full distribution
+ * instead of averaging or maxing pre-computed percentiles.
+ */
+public final class HistogramCodec {
+    /**
+     * Value precision of the exported histograms, 3 digits keeps every percentile within 0.1% of the recorded value.
+     */
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    // the cookie of the compressed V2 encoding that HdrHistogram 2.1 writes, followed by the length of the deflated bytes
+    private static final int V2_COMPRESSED_ENCODING_COOKIE = 0x1c849314;
+    private static final int COMPRESSED_HEADER_LENGTH = 8;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private ByteBuffer uncompressed = ByteBuffer.allocate(4 * 1024);
+    private byte[] compressed = new byte[4 * 1024];
+
+    /**
+     * Compresses the histogram into {@link #compressed()}, the same bytes as
+     * {@link AbstractHistogram#encodeIntoCompressedByteBuffer(ByteBuffer)} without its deflater per call. The deflater
+     * and both buffers are reused between calls.
+     *
+     * @return the length of the compressed histogram
+     */
+    public int compress(AbstractHistogram histogram) {
+        int needed = histogram.getNeededByteBufferCapacity();
+        if (uncompressed.capacity() < needed) {
+            uncompressed = ByteBuffer.allocate(needed);
+        }
+        uncompressed.clear();
+        int uncompressedLength = histogram.encodeIntoByteBuffer(uncompressed);
+
+        deflater.reset();
+        deflater.setInput(uncompressed.array(), 0, uncompressedLength);
+        deflater.finish();
+        int length = COMPRESSED_HEADER_LENGTH;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        writeInt(V2_COMPRESSED_ENCODING_COOKIE, 0);
+        writeInt(length - COMPRESSED_HEADER_LENGTH, 4);
+        return length;
+    }
+
+    /**
+     * The buffer of the last {@link #compress(AbstractHistogram)}, valid up to the length it returned.
+     */
+    public byte[] compressed() {
+        return compressed;
+    }
+
+    /**
+     * Encodes the histogram as Base64 string, for the write path use {@link #compress(AbstractHistogram)} instead.
+     */
+    public String encode(AbstractHistogram histogram) {
+        int length = compress(histogram);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(compressed, length));
+    }
+
+    public static Histogram decode(String encoded) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Not an encoded HDR histogram: " + encoded, e);
+        }
+    }
+
+    private void writeInt(int value, int position) {
+        compressed[position] = (byte) (value >> 24);
+        compressed[position + 1] = (byte) (value >> 16);
+        compressed[position + 2] = (byte) (value >> 8);
+        compressed[position + 3] = (byte) value;
+    }
+}
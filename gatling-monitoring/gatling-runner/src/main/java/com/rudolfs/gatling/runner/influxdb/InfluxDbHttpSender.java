@@ -0,0 +1,173 @@
+package com.rudolfs.gatling.runner.influxdb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Sends the points of a {@link LineProtocolEncoder} as gzip compressed batches to the /write endpoint of InfluxDB.
+ * The deflater, checksum and compression buffer are reused for every batch, so sending a batch only allocates the
+ * HTTP connection objects of the JDK. The native memory of the deflater is released by {@link #close()}.
+ */
+public final class InfluxDbHttpSender implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InfluxDbHttpSender.class);
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final URL writeUrl;
+    private final int batchSize;
+    private final int timeoutMillis;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final CRC32 crc = new CRC32();
+    private byte[] compressed;
+
+    /**
+     * @param host          host of the InfluxDB HTTP service
+     * @param port          port of the InfluxDB HTTP service (8086 by default)
+     * @param database      database to write the points to
+     * @param batchSize     maximum number of points per HTTP request
+     * @param timeoutMillis connect and read timeout of a single HTTP request
+     */
+    public InfluxDbHttpSender(String host, int port, String database, int batchSize, int timeoutMillis) throws IOException {
+        this.writeUrl = new URL("http", host, port, "/write?db=" + URLEncoder.encode(database, "UTF-8") + "&precision=s");
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.compressed = new byte[64 * 1024];
+    }
+
+    /**
+     * Sends all points of the encoder in batches of at most batchSize points. Failed batches are logged and dropped,
+     * the next write period starts with fresh data anyway.
+     *
+     * @return the number of points that InfluxDB accepted
+     */
+    public int send(LineProtocolEncoder encoder) {
+        byte[] points = encoder.array();
+        int accepted = 0;
+        int start = 0;
+        while (start < encoder.size()) {
+            int end = start;
+            int count = 0;
+            while (end < encoder.size() && count < batchSize) {
+                if (points[end++] == '\n') {
+                    count++;
+                }
+            }
+            if (post(points, start, end - start)) {
+                accepted += count;
+            }
+            start = end;
+        }
+        return accepted;
+    }
+
+    /**
+     * Compresses the given line protocol bytes into the reused gzip buffer.
+     *
+     * @return the length of the gzip member in {@link #compressedBuffer()}
+     */
+    public int compress(byte[] points, int offset, int length) {
+        crc.reset();
+        crc.update(points, offset, length);
+        deflater.reset();
+        deflater.setInput(points, offset, length);
+        deflater.finish();
+
+        System.arraycopy(GZIP_HEADER, 0, compressed, 0, GZIP_HEADER.length);
+        int position = GZIP_HEADER.length;
+        while (!deflater.finished()) {
+            if (position == compressed.length) {
+                grow(position);
+            }
+            position += deflater.deflate(compressed, position, compressed.length - position);
+        }
+        if (position + GZIP_TRAILER_LENGTH > compressed.length) {
+            grow(position);
+        }
+        position = writeIntLittleEndian((int) crc.getValue(), position);
+        return writeIntLittleEndian(length, position);
+    }
+
+    public byte[] compressedBuffer() {
+        return compressed;
+    }
+
+    /**
+     * Releases the deflater, the sender can't send or compress afterwards.
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    private boolean post(byte[] points, int offset, int length) {
+        int compressedLength = compress(points, offset, length);
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) writeUrl.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(compressedLength);
+            connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(compressed, 0, compressedLength);
+            }
+            int status = connection.getResponseCode();
+            if (status / 100 != 2) {
+                LOGGER.warn("InfluxDB rejected batch with status {}: {}", status, readError(connection));
+                return false;
+            }
+            // fully reading the (empty) response keeps the connection alive for the next batch
+            try (InputStream in = connection.getInputStream()) {
+                while (in.read() >= 0) {
+                    // discard
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Could not write batch to {}: {}", writeUrl, e.getMessage());
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    private static String readError(HttpURLConnection connection) throws IOException {
+        try (InputStream error = connection.getErrorStream()) {
+            if (error == null) {
+                return "";
+            }
+            byte[] body = new byte[1024];
+            int length = Math.max(0, error.read(body));
+            return new String(body, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private int writeIntLittleEndian(int value, int position) {
+        compressed[position] = (byte) value;
+        compressed[position + 1] = (byte) (value >> 8);
+        compressed[position + 2] = (byte) (value >> 16);
+        compressed[position + 3] = (byte) (value >> 24);
+        return position + 4;
+    }
+
+    private void grow(int length) {
+        byte[] grown = new byte[compressed.length * 2];
+        System.arraycopy(compressed, 0, grown, 0, length);
+        compressed = grown;
+    }
+}
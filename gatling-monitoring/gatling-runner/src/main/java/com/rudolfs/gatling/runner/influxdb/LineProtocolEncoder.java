@@ -0,0 +1,203 @@
+package com.rudolfs.gatling.runner.influxdb;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes points in the InfluxDB line protocol (https://docs.influxdata.com/influxdb/v1.7/write_protocols/line_protocol_reference/)
+ * directly into a byte buffer that is reused for every batch. Names, tags and numbers are written character by character,
+ * so encoding a point does not allocate any objects once the buffer has grown to the size of a batch.
+ * <p>
+ * Field values are written without the integer suffix, so InfluxDB stores them as floats just like the values that
+ * arrive through the Graphite listener. This keeps both write paths compatible within the same measurement.
+ * <p>
+ * Usage: {@code encoder.measurement("gatling").tag("request", "allRequests").field("count", 12).end(timestamp)}.
+ */
+public final class LineProtocolEncoder {
+    private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+    private int size;
+    private int pointCount;
+    private boolean firstField;
+
+    public LineProtocolEncoder(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Starts a new point with the given measurement name.
+     */
+    public LineProtocolEncoder measurement(String measurement) {
+        writeEscaped(measurement, false);
+        firstField = true;
+        return this;
+    }
+
+    public LineProtocolEncoder tag(String key, String value) {
+        writeByte((byte) ',');
+        writeEscaped(key, true);
+        writeByte((byte) '=');
+        writeEscaped(value, true);
+        return this;
+    }
+
+    public LineProtocolEncoder field(String key, long value) {
+        writeByte(firstField ? (byte) ' ' : (byte) ',');
+        firstField = false;
+        writeEscaped(key, true);
+        writeByte((byte) '=');
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Writes a string field, used for values that cannot be aggregated by InfluxDB like encoded histograms.
+     */
+    public LineProtocolEncoder field(String key, String value) {
+        writeByte(firstField ? (byte) ' ' : (byte) ',');
+        firstField = false;
+        writeEscaped(key, true);
+        writeByte((byte) '=');
+        writeByte((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writeByte((byte) '\\');
+            }
+            i += writeChar(value, i, c) - 1;
+        }
+        writeByte((byte) '"');
+        return this;
+    }
+
+    /**
+     * Writes the bytes as Base64 string field, like {@link #field(String, String)} with the Base64 string of the bytes
+     * but without creating that string. The Base64 alphabet needs no escaping.
+     */
+    public LineProtocolEncoder base64Field(String key, byte[] value, int offset, int length) {
+        writeByte(firstField ? (byte) ' ' : (byte) ',');
+        firstField = false;
+        writeEscaped(key, true);
+        writeByte((byte) '=');
+        ensureCapacity((length + 2) / 3 * 4 + 2);
+        buffer[size++] = '"';
+        int end = offset + length;
+        int i = offset;
+        for (; i + 2 < end; i += 3) {
+            int bits = (value[i] & 0xFF) << 16 | (value[i + 1] & 0xFF) << 8 | (value[i + 2] & 0xFF);
+            buffer[size++] = BASE64[bits >>> 18];
+            buffer[size++] = BASE64[(bits >>> 12) & 0x3F];
+            buffer[size++] = BASE64[(bits >>> 6) & 0x3F];
+            buffer[size++] = BASE64[bits & 0x3F];
+        }
+        if (i < end) {
+            int bits = (value[i] & 0xFF) << 16 | (i + 1 < end ? (value[i + 1] & 0xFF) << 8 : 0);
+            buffer[size++] = BASE64[bits >>> 18];
+            buffer[size++] = BASE64[(bits >>> 12) & 0x3F];
+            buffer[size++] = i + 1 < end ? BASE64[(bits >>> 6) & 0x3F] : (byte) '=';
+            buffer[size++] = '=';
+        }
+        buffer[size++] = '"';
+        return this;
+    }
+
+    /**
+     * Ends the current point with a timestamp, the precision of the timestamp is chosen by the writer of the batch.
+     */
+    public void end(long timestamp) {
+        writeByte((byte) ' ');
+        writeLong(timestamp);
+        writeByte((byte) '\n');
+        pointCount++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int pointCount() {
+        return pointCount;
+    }
+
+    public byte[] array() {
+        return buffer;
+    }
+
+    public void reset() {
+        size = 0;
+        pointCount = 0;
+    }
+
+    private void writeEscaped(String value, boolean escapeEquals) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == ' ' || (escapeEquals && c == '=')) {
+                writeByte((byte) '\\');
+                writeByte((byte) c);
+            } else {
+                i += writeChar(value, i, c) - 1;
+            }
+        }
+    }
+
+    /**
+     * Writes the UTF-8 bytes of the character at the given index, a surrogate pair is written as one code point.
+     *
+     * @return the number of chars consumed, 2 for a surrogate pair
+     */
+    private int writeChar(String value, int i, char c) {
+        if (c < 0x80) {
+            writeByte((byte) c);
+        } else if (c < 0x800) {
+            writeByte((byte) (0xC0 | (c >> 6)));
+            writeByte((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            writeByte((byte) (0xF0 | (codePoint >> 18)));
+            writeByte((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            writeByte((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            writeByte((byte) (0x80 | (codePoint & 0x3F)));
+            return 2;
+        } else {
+            writeByte((byte) (0xE0 | (c >> 12)));
+            writeByte((byte) (0x80 | ((c >> 6) & 0x3F)));
+            writeByte((byte) (0x80 | (c & 0x3F)));
+        }
+        return 1;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            // cannot be negated, not a realistic metric value anyway
+            writeLong(value + 1);
+            return;
+        }
+        if (value < 0) {
+            writeByte((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    private void writeByte(byte b) {
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, size + extra)];
+            System.arraycopy(buffer, 0, grown, 0, size);
+            buffer = grown;
+        }
+    }
+}
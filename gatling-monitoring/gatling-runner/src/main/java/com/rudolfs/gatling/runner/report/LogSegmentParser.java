@@ -0,0 +1,194 @@
+package com.rudolfs.gatling.runner.report;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses the records of a segment of a simulation.log written by Gatling 3.3 into {@link LogStatistics}. The segment is
+ * read byte by byte with absolute gets, typically from a memory-mapped part of the file, and the fields of a line are
+ * located by their tab positions. Request names are looked up in an open-addressing table by their bytes, so only the
+ * first occurrence of a name and the messages of failed requests allocate strings.
+ * <p>
+ * The records and their tab-separated fields:
+ * <pre>
+ * RUN       simulationClass simulationId start description version
+ * USER      scenario userId START|END start end
+ * REQUEST   userId groups name start end OK|KO message
+ * GROUP     userId groups start end cumulatedResponseTime OK|KO
+ * ERROR     message timestamp
+ * ASSERTION encodedAssertion
+ * </pre>
+ * A request within groups is counted under "group1 / group2 / name". Group records and assertions are skipped.
+ * An instance is not thread-safe, every segment task uses its own.
+ */
+public final class LogSegmentParser {
+    private static final int MAX_FIELDS = 8;
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
+    private static final byte[] RUN = bytes("RUN");
+    private static final byte[] USER = bytes("USER");
+    private static final byte[] REQUEST = bytes("REQUEST");
+    private static final byte[] ERROR = bytes("ERROR");
+    private static final byte[] START = bytes("START");
+    private static final byte[] OK = bytes("OK");
+
+    private final LogStatistics statistics;
+    private final int[] fieldStarts = new int[MAX_FIELDS + 1];
+    private byte[][] names = new byte[64][];
+    private LogStatistics.RequestStatistics[] requests = new LogStatistics.RequestStatistics[64];
+    private int nameCount;
+
+    public LogSegmentParser(LogStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Parses the lines between position and limit of the buffer, the segment must start at the beginning of a line.
+     * A last line without a newline is parsed as well.
+     */
+    public void parse(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int lineStart = buffer.position();
+        long lines = 0;
+        while (lineStart < limit) {
+            int fields = 0;
+            fieldStarts[fields++] = lineStart;
+            int i = lineStart;
+            while (i < limit) {
+                byte b = buffer.get(i);
+                if (b == NEWLINE) {
+                    break;
+                }
+                if (b == TAB && fields < MAX_FIELDS) {
+                    fieldStarts[fields++] = i + 1;
+                }
+                i++;
+            }
+            // a virtual field start after the line end, the end of field n is fieldStarts[n + 1] - 1
+            int lineEnd = i;
+            fieldStarts[fields] = lineEnd + 1;
+            if (lineEnd > lineStart) {
+                record(buffer, fields);
+            }
+            lines++;
+            lineStart = lineEnd + 1;
+        }
+        statistics.recordLines(lines, limit - buffer.position());
+    }
+
+    private void record(ByteBuffer buffer, int fields) {
+        if (fields >= 7 && equals(buffer, 0, REQUEST)) {
+            boolean ok = equals(buffer, 6, OK);
+            statistics.recordRequest(request(buffer), parseLong(buffer, 4), parseLong(buffer, 5), ok);
+            if (!ok && fields >= 8) {
+                statistics.recordError(string(buffer, 7), 1);
+            }
+        } else if (fields >= 6 && equals(buffer, 0, USER)) {
+            boolean started = equals(buffer, 3, START);
+            statistics.recordUser(parseLong(buffer, started ? 4 : 5), started);
+        } else if (fields >= 3 && equals(buffer, 0, ERROR)) {
+            statistics.recordError(string(buffer, 1), 1);
+        } else if (fields >= 6 && equals(buffer, 0, RUN)) {
+            statistics.recordRun(string(buffer, 1), string(buffer, 2), parseLong(buffer, 3), string(buffer, 5));
+        }
+    }
+
+    // the statistics of the request name, the key is the groups and the name field including the tab between them
+    private LogStatistics.RequestStatistics request(ByteBuffer buffer) {
+        int groupsStart = fieldStarts[2];
+        int keyStart = fieldStarts[3] - 1 == groupsStart ? fieldStarts[3] : groupsStart;
+        int keyEnd = fieldStarts[4] - 1;
+
+        int hash = 1;
+        for (int i = keyStart; i < keyEnd; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mask = names.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (names[slot] != null) {
+            if (equals(buffer, keyStart, keyEnd, names[slot])) {
+                return requests[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] key = new byte[keyEnd - keyStart];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = buffer.get(keyStart + i);
+        }
+        String name = new String(key, StandardCharsets.UTF_8);
+        int tab = name.indexOf('\t');
+        if (tab >= 0) {
+            name = name.substring(0, tab).replace(",", " / ") + " / " + name.substring(tab + 1);
+        }
+        LogStatistics.RequestStatistics request = statistics.request(name);
+        names[slot] = key;
+        requests[slot] = request;
+        if (++nameCount * 2 > names.length) {
+            grow();
+        }
+        return request;
+    }
+
+    private void grow() {
+        byte[][] oldNames = names;
+        LogStatistics.RequestStatistics[] oldRequests = requests;
+        names = new byte[oldNames.length * 2][];
+        requests = new LogStatistics.RequestStatistics[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int hash = 1;
+                for (byte b : oldNames[i]) {
+                    hash = 31 * hash + b;
+                }
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = oldNames[i];
+                requests[slot] = oldRequests[i];
+            }
+        }
+    }
+
+    private long parseLong(ByteBuffer buffer, int field) {
+        long value = 0;
+        for (int i = fieldStarts[field], end = fieldStarts[field + 1] - 1; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private String string(ByteBuffer buffer, int field) {
+        byte[] value = new byte[fieldStarts[field + 1] - 1 - fieldStarts[field]];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = buffer.get(fieldStarts[field] + i);
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private boolean equals(ByteBuffer buffer, int field, byte[] expected) {
+        return equals(buffer, fieldStarts[field], fieldStarts[field + 1] - 1, expected);
+    }
+
+    private static boolean equals(ByteBuffer buffer, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
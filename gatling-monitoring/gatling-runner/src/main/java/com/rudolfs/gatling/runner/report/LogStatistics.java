@@ -0,0 +1,246 @@
+package com.rudolfs.gatling.runner.report;
+
+import com.rudolfs.gatling.runner.hdr.HistogramCodec;
+import org.HdrHistogram.Histogram;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of a part of the simulation.log files of a run, see {@link LogSegmentParser}. The statistics of all parts
+ * are merged into those of the run, so the parts can be parsed in parallel in any order. The memory is bounded by the
+ * number of request names (one pair of HDR histograms each), the duration of the run (four counters per second) and at
+ * most {@link #MAX_ERROR_MESSAGES} distinct error messages, not by the size of the logs.
+ */
+public final class LogStatistics {
+    public static final int MAX_ERROR_MESSAGES = 100;
+    public static final String OTHER_ERRORS = "(other errors)";
+
+    /**
+     * The response times of one request name in milliseconds, of the OK and the KO responses.
+     */
+    public static final class RequestStatistics {
+        private final Histogram ok = new Histogram(HistogramCodec.SIGNIFICANT_DIGITS);
+        private final Histogram ko = new Histogram(HistogramCodec.SIGNIFICANT_DIGITS);
+
+        void record(long responseTime, boolean isOk) {
+            (isOk ? ok : ko).recordValue(Math.max(0, responseTime));
+        }
+
+        void add(RequestStatistics other) {
+            ok.add(other.ok);
+            ko.add(other.ko);
+        }
+
+        public Histogram getOk() {
+            return ok;
+        }
+
+        public Histogram getKo() {
+            return ko;
+        }
+
+        /**
+         * The response times of all responses, OK and KO.
+         */
+        public Histogram getAll() {
+            Histogram all = ok.copy();
+            all.add(ko);
+            return all;
+        }
+    }
+
+    private final long baseSecond;
+    private final Map<String, RequestStatistics> requests = new TreeMap<>();
+    private final Map<String, Long> errors = new LinkedHashMap<>();
+    private long[] okPerSecond = new long[0];
+    private long[] koPerSecond = new long[0];
+    private long[] usersStartedPerSecond = new long[0];
+    private long[] usersEndedPerSecond = new long[0];
+    private String simulationClass;
+    private String simulationId;
+    private String gatlingVersion;
+    private long runStart = Long.MAX_VALUE;
+    private int seconds;
+    private int runs;
+    private long lines;
+    private long bytes;
+
+    /**
+     * @param baseSecond the epoch second of index 0 of the per second counters, the start of the earliest log of the run
+     */
+    public LogStatistics(long baseSecond) {
+        this.baseSecond = baseSecond;
+    }
+
+    void recordRun(String simulationClass, String simulationId, long start, String gatlingVersion) {
+        setRun(simulationClass, simulationId, start, gatlingVersion);
+        runs++;
+    }
+
+    void recordRequest(RequestStatistics request, long start, long end, boolean isOk) {
+        request.record(end - start, isOk);
+        int second = second(end);
+        seconds = Math.max(seconds, second + 1);
+        if (isOk) {
+            okPerSecond = increment(okPerSecond, second, 1);
+        } else {
+            koPerSecond = increment(koPerSecond, second, 1);
+        }
+    }
+
+    void recordUser(long timestamp, boolean started) {
+        int second = second(timestamp);
+        seconds = Math.max(seconds, second + 1);
+        if (started) {
+            usersStartedPerSecond = increment(usersStartedPerSecond, second, 1);
+        } else {
+            usersEndedPerSecond = increment(usersEndedPerSecond, second, 1);
+        }
+    }
+
+    void recordError(String message, long count) {
+        String key = errors.containsKey(message) || errors.size() < MAX_ERROR_MESSAGES ? message : OTHER_ERRORS;
+        errors.merge(key, count, Long::sum);
+    }
+
+    void recordLines(long lines, long bytes) {
+        this.lines += lines;
+        this.bytes += bytes;
+    }
+
+    RequestStatistics request(String name) {
+        return requests.computeIfAbsent(name, key -> new RequestStatistics());
+    }
+
+    /**
+     * Adds the statistics of another part of the run, both must have the same base second.
+     *
+     * @return this
+     */
+    public LogStatistics merge(LogStatistics other) {
+        if (other.baseSecond != baseSecond) {
+            throw new IllegalArgumentException("Statistics with base seconds " + baseSecond + " and " + other.baseSecond + " can't be merged");
+        }
+        other.requests.forEach((name, request) -> request(name).add(request));
+        other.errors.forEach(this::recordError);
+        okPerSecond = add(okPerSecond, other.okPerSecond);
+        koPerSecond = add(koPerSecond, other.koPerSecond);
+        usersStartedPerSecond = add(usersStartedPerSecond, other.usersStartedPerSecond);
+        usersEndedPerSecond = add(usersEndedPerSecond, other.usersEndedPerSecond);
+        setRun(other.simulationClass, other.simulationId, other.runStart, other.gatlingVersion);
+        seconds = Math.max(seconds, other.seconds);
+        runs += other.runs;
+        lines += other.lines;
+        bytes += other.bytes;
+        return this;
+    }
+
+    /**
+     * The response times of all requests, OK and KO.
+     */
+    public Histogram allRequests() {
+        Histogram all = new Histogram(HistogramCodec.SIGNIFICANT_DIGITS);
+        requests.values().forEach(request -> {
+            all.add(request.ok);
+            all.add(request.ko);
+        });
+        return all;
+    }
+
+    public Map<String, RequestStatistics> getRequests() {
+        return requests;
+    }
+
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    public long getBaseSecond() {
+        return baseSecond;
+    }
+
+    /**
+     * The number of seconds from the base second to the last second with a response or user.
+     */
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public long okAt(int second) {
+        return second < okPerSecond.length ? okPerSecond[second] : 0;
+    }
+
+    public long koAt(int second) {
+        return second < koPerSecond.length ? koPerSecond[second] : 0;
+    }
+
+    public long usersStartedAt(int second) {
+        return second < usersStartedPerSecond.length ? usersStartedPerSecond[second] : 0;
+    }
+
+    public long usersEndedAt(int second) {
+        return second < usersEndedPerSecond.length ? usersEndedPerSecond[second] : 0;
+    }
+
+    public String getSimulationClass() {
+        return simulationClass;
+    }
+
+    public String getSimulationId() {
+        return simulationId;
+    }
+
+    public String getGatlingVersion() {
+        return gatlingVersion;
+    }
+
+    /**
+     * The number of RUN records, one per shard log.
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // the run of the earliest shard describes the merged run
+    private void setRun(String simulationClass, String simulationId, long start, String gatlingVersion) {
+        if (start < runStart) {
+            this.simulationClass = simulationClass;
+            this.simulationId = simulationId;
+            this.gatlingVersion = gatlingVersion;
+            this.runStart = start;
+        }
+    }
+
+    // timestamps before the base second (clock skew between shards) are counted in the first second
+    private int second(long timestampMillis) {
+        return (int) Math.max(0, timestampMillis / 1000 - baseSecond);
+    }
+
+    private static long[] increment(long[] counters, int index, long value) {
+        long[] grown = counters;
+        if (index >= counters.length) {
+            grown = Arrays.copyOf(counters, Math.max(index + 1, counters.length * 2));
+        }
+        grown[index] += value;
+        return grown;
+    }
+
+    private static long[] add(long[] counters, long[] other) {
+        long[] sum = other.length > counters.length ? Arrays.copyOf(counters, other.length) : counters;
+        for (int i = 0; i < other.length; i++) {
+            sum[i] += other[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,261 @@
+package com.rudolfs.gatling.runner.report;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Minimal client for the S3 REST API with Signature Version 4 request signing, limited to putting and getting single
+ * objects of one bucket. Objects are addressed path-style ({@code <endpoint>/<bucket>/<key>}), which both S3 and MinIO
+ * serve. Credentials are taken from the AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY and AWS_SESSION_TOKEN environment
+ * variables, or from the container credentials endpoint of the ECS task role.
+ */
+public final class S3Client {
+    private static final String SERVICE = "s3";
+    private static final String CONTAINER_CREDENTIALS_HOST = "http://169.254.170.2";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final int TIMEOUT_MILLIS = 30_000;
+    private static final int ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 1_000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String endpoint;
+    private final String host;
+    private final String region;
+    private final String bucket;
+    private final Map<String, String> environment;
+
+    /**
+     * @param endpoint    the S3 endpoint without a trailing slash, e.g. https://s3.eu-west-1.amazonaws.com or http://minio:9000
+     * @param region      the region of the bucket, MinIO accepts any region
+     * @param bucket      the bucket all keys are relative to
+     * @param environment the environment variables with the credentials
+     */
+    public S3Client(String endpoint, String region, String bucket, Map<String, String> environment) throws IOException {
+        URL url = new URL(endpoint);
+        this.endpoint = endpoint;
+        this.host = url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort();
+        this.region = region;
+        this.bucket = bucket;
+        this.environment = environment;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Puts the object, failed requests are tried again twice.
+     */
+    public void put(String key, byte[] body, String contentType) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                request("PUT", key, body, contentType);
+                return;
+            } catch (IOException e) {
+                if (attempt == ATTEMPTS) {
+                    throw e;
+                }
+                sleep(attempt * RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Gets the object, or nothing if the key doesn't exist (yet).
+     */
+    public Optional<byte[]> get(String key) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request("GET", key, new byte[0], null);
+            } catch (IOException e) {
+                if (attempt == ATTEMPTS) {
+                    throw e;
+                }
+                sleep(attempt * RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    public String url(String key) {
+        return endpoint + path(key);
+    }
+
+    private Optional<byte[]> request(String method, String key, byte[] body, String contentType) throws IOException {
+        String path = path(key);
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint + path).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            if (contentType != null) {
+                connection.setRequestProperty("Content-Type", contentType);
+            }
+            sign(connection, method, path, body);
+            if (body.length > 0) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND && "GET".equals(method)) {
+                return Optional.empty();
+            }
+            if (status / 100 != 2) {
+                throw new IOException(String.format("%s %s failed with HTTP %d: %s", method, path, status,
+                        new String(readAll(connection.getErrorStream()), StandardCharsets.UTF_8)));
+            }
+            return Optional.of(readAll(connection.getInputStream()));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // path-style address, the keys of the runner consist of URI-safe characters and slashes, which S3 doesn't encode
+    private String path(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!(Character.isLetterOrDigit(c) && c < 128) && "-_.~/".indexOf(c) < 0) {
+                throw new IllegalArgumentException("Unsupported character '" + c + "' in key " + key);
+            }
+        }
+        return "/" + bucket + "/" + key;
+    }
+
+    private void sign(HttpURLConnection connection, String method, String path, byte[] body) throws IOException {
+        Credentials credentials = credentials();
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String scope = String.format("%s/%s/%s/aws4_request", DATE_STAMP.format(now), region, SERVICE);
+        String payloadHash = hex(sha256(body));
+
+        // canonical headers in lower case and alphabetical order, HttpURLConnection sets the host header itself
+        StringBuilder canonicalHeaders = new StringBuilder()
+                .append("host:").append(host).append('\n')
+                .append("x-amz-content-sha256:").append(payloadHash).append('\n')
+                .append("x-amz-date:").append(amzDate).append('\n');
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        if (credentials.sessionToken != null) {
+            canonicalHeaders.append("x-amz-security-token:").append(credentials.sessionToken).append('\n');
+            signedHeaders += ";x-amz-security-token";
+            connection.setRequestProperty("X-Amz-Security-Token", credentials.sessionToken);
+        }
+
+        String canonicalRequest = String.join("\n", method, path, "", canonicalHeaders.toString(), signedHeaders, payloadHash);
+        String stringToSign = String.join("\n", "AWS4-HMAC-SHA256", amzDate, scope,
+                hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8))));
+
+        byte[] signingKey = hmac(("AWS4" + credentials.secretAccessKey).getBytes(StandardCharsets.UTF_8), DATE_STAMP.format(now));
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, SERVICE);
+        signingKey = hmac(signingKey, "aws4_request");
+
+        connection.setRequestProperty("X-Amz-Date", amzDate);
+        connection.setRequestProperty("X-Amz-Content-Sha256", payloadHash);
+        connection.setRequestProperty("Authorization", String.format("AWS4-HMAC-SHA256 Credential=%s/%s, SignedHeaders=%s, Signature=%s",
+                credentials.accessKeyId, scope, signedHeaders, hex(hmac(signingKey, stringToSign))));
+    }
+
+    // the container credentials are temporary, they are fetched again for every request
+    private Credentials credentials() throws IOException {
+        if (environment.get("AWS_ACCESS_KEY_ID") != null) {
+            return new Credentials(environment.get("AWS_ACCESS_KEY_ID"), environment.get("AWS_SECRET_ACCESS_KEY"),
+                    environment.get("AWS_SESSION_TOKEN"));
+        }
+        String relativeUri = environment.get("AWS_CONTAINER_CREDENTIALS_RELATIVE_URI");
+        if (relativeUri != null) {
+            HttpURLConnection connection = (HttpURLConnection) new URL(CONTAINER_CREDENTIALS_HOST + relativeUri).openConnection();
+            try {
+                connection.setConnectTimeout(TIMEOUT_MILLIS);
+                connection.setReadTimeout(TIMEOUT_MILLIS);
+                JsonNode credentials = mapper.readTree(connection.getInputStream());
+                return new Credentials(credentials.path("AccessKeyId").asText(), credentials.path("SecretAccessKey").asText(),
+                        credentials.path("Token").asText(null));
+            } finally {
+                connection.disconnect();
+            }
+        }
+        throw new IOException("No AWS credentials, set AWS_ACCESS_KEY_ID and AWS_SECRET_ACCESS_KEY");
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not supported by this JVM", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static final class Credentials {
+        private final String accessKeyId;
+        private final String secretAccessKey;
+        private final String sessionToken;
+
+        private Credentials(String accessKeyId, String secretAccessKey, String sessionToken) {
+            this.accessKeyId = accessKeyId;
+            this.secretAccessKey = secretAccessKey;
+            this.sessionToken = sessionToken;
+        }
+    }
+}
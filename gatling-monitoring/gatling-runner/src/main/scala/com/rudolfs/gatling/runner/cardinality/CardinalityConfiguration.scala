@@ -0,0 +1,31 @@
+package com.rudolfs.gatling.runner.cardinality
+
+import com.typesafe.config.Config
+
+import scala.concurrent.duration._
+
+/**
+  * Settings of the gatling.cardinality section in gatling.conf.
+  */
+final case class CardinalityConfiguration(
+    maxRequestNames: Int,
+    overflowRequestName: String,
+    reportPeriod: FiniteDuration
+) {
+  require(maxRequestNames >= 0, "cardinality.maxRequestNames must not be negative")
+  require(overflowRequestName.nonEmpty, "cardinality.overflowRequestName must not be empty")
+
+  def reported: Boolean = reportPeriod > Duration.Zero
+}
+
+object CardinalityConfiguration {
+
+  def load(config: Config): CardinalityConfiguration = {
+    val cardinality = config.getConfig("gatling.cardinality")
+    CardinalityConfiguration(
+      maxRequestNames = cardinality.getInt("maxRequestNames"),
+      overflowRequestName = cardinality.getString("overflowRequestName"),
+      reportPeriod = cardinality.getInt("reportPeriod").seconds
+    )
+  }
+}
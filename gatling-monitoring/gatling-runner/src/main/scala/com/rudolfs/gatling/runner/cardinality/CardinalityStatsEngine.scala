@@ -0,0 +1,76 @@
+package com.rudolfs.gatling.runner.cardinality
+
+import java.util.concurrent.ConcurrentHashMap
+
+import akka.actor.ActorRef
+import com.rudolfs.gatling.runner.stats.ForwardingStatsEngine
+import io.gatling.commons.stats.Status
+import io.gatling.core.session.Session
+import io.gatling.core.stats.StatsEngine
+
+object CardinalityStatsEngine {
+  // ok, ko and all
+  private val StatusCount = 3
+}
+
+/**
+  * Passes every request name through the [[RequestNameLimiter]] before the DataWriters see it, and counts the request
+  * series (group hierarchy and request name) of the run for the [[SeriesCountReporter]].
+  *
+  * @param seriesPerRequestStatus series per request and status, 2 when the influxdb writer also writes histograms
+  * @param scenarioCount number of scenarios, every scenario (and allUsers) is a series of the users measurement
+  */
+class CardinalityStatsEngine(
+    underlying: StatsEngine,
+    limiter: RequestNameLimiter,
+    seriesPerRequestStatus: Int,
+    scenarioCount: Int
+) extends ForwardingStatsEngine(underlying) {
+  import CardinalityStatsEngine._
+
+  private val requestSeries = ConcurrentHashMap.newKeySet[(List[String], String)]()
+  @volatile private var reporter: Option[SeriesCountReporter] = None
+
+  def reportTo(seriesCountReporter: SeriesCountReporter): this.type = {
+    reporter = Some(seriesCountReporter)
+    this
+  }
+
+  /** The series this runner has written so far, allRequests and allUsers included. */
+  def seriesCount: SeriesCount =
+    SeriesCount(
+      series = (requestSeries.size + 1L) * StatusCount * seriesPerRequestStatus + scenarioCount + 1,
+      requestNames = limiter.requestNames,
+      collapsedResponses = limiter.collapsedResponses
+    )
+
+  override def start(): Unit = {
+    super.start()
+    reporter.foreach(_.start())
+  }
+
+  override def stop(replyTo: ActorRef, exception: Option[Exception]): Unit = {
+    reporter.foreach(_.stop())
+    super.stop(replyTo, exception)
+  }
+
+  override def logResponse(
+      session: Session,
+      requestName: String,
+      startTimestamp: Long,
+      endTimestamp: Long,
+      status: Status,
+      responseCode: Option[String],
+      message: Option[String]
+  ): Unit = {
+    val limitedName = limiter.limit(requestName)
+    requestSeries.add((session.groupHierarchy, limitedName))
+    super.logResponse(session, limitedName, startTimestamp, endTimestamp, status, responseCode, message)
+  }
+
+  override def logCrash(session: Session, requestName: String, error: String): Unit =
+    super.logCrash(session, limiter.limit(requestName), error)
+
+  override def reportUnbuildableRequest(session: Session, requestName: String, errorMessage: String): Unit =
+    super.reportUnbuildableRequest(session, limiter.limit(requestName), errorMessage)
+}
@@ -0,0 +1,60 @@
+package com.rudolfs.gatling.runner.cardinality
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.{ AtomicBoolean, AtomicInteger, LongAdder }
+
+import com.typesafe.scalalogging.StrictLogging
+
+/**
+  * Admits the first maxRequestNames distinct request names of a run and maps every further name to the overflow
+  * name, so a simulation with dynamic request names (ids in the name, e.g. "GET /orders/4711") can't create an
+  * unbounded number of series in InfluxDB. A maxRequestNames of 0 admits every name.
+  */
+final class RequestNameLimiter(maxRequestNames: Int, overflowRequestName: String) extends StrictLogging {
+
+  private val admitted = ConcurrentHashMap.newKeySet[String]()
+  private val admittedCount = new AtomicInteger
+  private val collapsed = new LongAdder
+  private val warned = new AtomicBoolean
+
+  def limit(requestName: String): String =
+    if (maxRequestNames == 0 || admitted.contains(requestName) || admit(requestName)) {
+      requestName
+    } else {
+      if (!warned.get && warned.compareAndSet(false, true)) {
+        logger.warn(
+          s"More than $maxRequestNames distinct request names, the responses of '$requestName' and all further names are recorded as '$overflowRequestName'"
+        )
+      }
+      collapsed.increment()
+      overflowRequestName
+    }
+
+  /**
+    * Admits a new name while there are free slots. Once all slots are taken only the set is checked again, without the
+    * lock, because a name that took the last slot in the meantime was added to the set before the count was raised. So
+    * concurrent first responses of the same name are never split between the name and the overflow name.
+    */
+  private def admit(requestName: String): Boolean =
+    if (admittedCount.get < maxRequestNames) {
+      synchronized {
+        if (admitted.contains(requestName)) {
+          true
+        } else if (admittedCount.get < maxRequestNames) {
+          admitted.add(requestName)
+          admittedCount.incrementAndGet()
+          true
+        } else {
+          false
+        }
+      }
+    } else {
+      admitted.contains(requestName)
+    }
+
+  /** Number of distinct request names that were admitted, without the overflow name. */
+  def requestNames: Int = admitted.size
+
+  /** Number of responses that were recorded under the overflow name. */
+  def collapsedResponses: Long = collapsed.sum
+}
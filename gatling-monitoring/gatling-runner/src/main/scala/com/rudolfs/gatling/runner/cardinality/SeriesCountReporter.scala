@@ -0,0 +1,39 @@
+package com.rudolfs.gatling.runner.cardinality
+
+import com.rudolfs.gatling.runner.sidechannel.{ SideChannelPoint, SideChannelReporter, SideChannelWriter }
+import io.gatling.commons.util.Clock
+
+import scala.concurrent.duration.FiniteDuration
+
+/**
+  * The series a runner writes to InfluxDB: series is the number of series of the request and user measurements,
+  * requestNames the number of distinct request names and collapsedResponses the number of responses recorded under
+  * the overflow request name.
+  */
+final case class SeriesCount(series: Long, requestNames: Long, collapsedResponses: Long)
+
+/**
+  * Sends the series count of the run to the measurement cardinality every report period, and once more when the run
+  * stops. Failed sends are logged and skipped, the next period sends the current count again.
+  */
+final class SeriesCountReporter(writer: SideChannelWriter, count: () => SeriesCount, period: FiniteDuration, clock: Clock) {
+
+  private val reporter = new SideChannelReporter(writer, "series-count-reporter", "series count", period, clock)(() => {
+    val current = count()
+    Seq(
+      SideChannelPoint(
+        "cardinality",
+        Nil,
+        Seq("series" -> current.series, "requestNames" -> current.requestNames, "collapsedResponses" -> current.collapsedResponses),
+        ownRoot = false
+      )
+    )
+  })
+
+  def start(): Unit = reporter.start()
+
+  def stop(): Unit = {
+    reporter.stop()
+    reporter.report()
+  }
+}
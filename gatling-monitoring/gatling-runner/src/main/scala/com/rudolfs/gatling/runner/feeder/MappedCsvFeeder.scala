@@ -0,0 +1,352 @@
+package com.rudolfs.gatling.runner.feeder
+
+import java.nio.{ ByteBuffer, MappedByteBuffer }
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.{ Path, Paths, StandardOpenOption }
+import java.util.concurrent.ThreadLocalRandom
+
+import scala.collection.AbstractIterator
+
+object MappedCsvFeeder {
+
+  sealed trait Strategy
+  /** Every record of the partition once, the feeder ends after the last one (like Gatling's queue). */
+  case object Queue extends Strategy
+  /** The records of the partition in file order, starting over after the last one. */
+  case object Circular extends Strategy
+  /**
+    * A uniformly random record of the partition. The first random record scans the partition once for a sparse index of
+    * its line starts, see [[LineIndex]].
+    */
+  case object Random extends Strategy
+
+  private val MiB = 1024L * 1024
+  private val DefaultWindowBytes = 256 * MiB
+  private val MaxRecordBytes = 1 * MiB
+  // 8 MiB of line offsets at most, a random record skips fewer than lines / MaxIndexEntries lines after its offset
+  private val MaxIndexEntries = 1024 * 1024
+
+  /**
+    * The start of every stride-th line of a partition, blank lines included. The stride doubles whenever the index is
+    * full, so its heap footprint is bounded regardless of the number of lines. Line n starts skip(n) lines after
+    * offset(n).
+    */
+  private[feeder] final class LineIndex(offsets: Array[Long], val stride: Int, val lines: Long, val records: Long) {
+    def offset(line: Long): Long = offsets((line / stride).toInt)
+    def skip(line: Long): Int = (line % stride).toInt
+  }
+
+  private[feeder] def lineIndex(channel: FileChannel, start: Long, end: Long, maxEntries: Int = MaxIndexEntries): LineIndex = {
+    var offsets = new Array[Long](math.min(maxEntries, 1024))
+    var entries = 0
+    var stride = 1
+    var lines = 0L
+    var records = 0L
+
+    def add(lineStart: Long, blank: Boolean): Unit = {
+      if (lines % stride == 0) {
+        if (entries == maxEntries) {
+          // keeps the offsets of the lines that are a multiple of the doubled stride
+          var i = 0
+          while (i * 2 < entries) {
+            offsets(i) = offsets(i * 2)
+            i += 1
+          }
+          entries = i
+          stride *= 2
+        }
+        if (lines % stride == 0) {
+          if (entries == offsets.length) offsets = java.util.Arrays.copyOf(offsets, math.min(maxEntries, offsets.length * 2))
+          offsets(entries) = lineStart
+          entries += 1
+        }
+      }
+      lines += 1
+      if (!blank) records += 1
+    }
+
+    val buffer = ByteBuffer.allocate(MiB.toInt)
+    var lineStart = start
+    var previous = '\n'.toByte
+    var position = start
+    while (position < end) {
+      buffer.clear()
+      buffer.limit(math.min(buffer.capacity.toLong, end - position).toInt)
+      val read = channel.read(buffer, position)
+      require(read > 0, s"Unexpected end of file at byte $position")
+      var i = 0
+      while (i < read) {
+        val b = buffer.get(i)
+        if (b == '\n') {
+          val length = position + i - lineStart
+          add(lineStart, length == 0 || (length == 1 && previous == '\r'))
+          lineStart = position + i + 1
+        }
+        previous = b
+        i += 1
+      }
+      position += read
+    }
+    // a last line without a line break
+    if (lineStart < end) add(lineStart, end - lineStart == 1 && previous == '\r')
+    new LineIndex(offsets, stride, lines, records)
+  }
+
+  /**
+    * A feeder of the CSV file with a header line, partitioned over the shards of the run like simulations.Shard: the
+    * runner with GATLING_SHARD_INDEX i of GATLING_SHARD_COUNT n feeds the i-th of n disjoint parts of the file.
+    *
+    * {{{
+    * feed(MappedCsvFeeder("/data/users.csv").circular)
+    * }}}
+    */
+  def apply(file: String, separator: Char = ',', quote: Char = '"'): MappedCsvFeederBuilder =
+    MappedCsvFeederBuilder(
+      file = Paths.get(file),
+      strategy = Queue,
+      partitionIndex = sys.props.getOrElse("GATLING_SHARD_INDEX", "0").toInt,
+      partitionCount = sys.props.getOrElse("GATLING_SHARD_COUNT", "1").toInt,
+      separator = separator,
+      quote = quote,
+      windowBytes = DefaultWindowBytes
+    )
+
+  /**
+    * The byte range [start, end) of a partition: the data lines after the header are split into partitions of equal
+    * size, every boundary moved forward to the start of the next line, so every line belongs to exactly one partition.
+    */
+  private[feeder] def partitionRange(channel: FileChannel, dataStart: Long, partition: Int, partitions: Int): (Long, Long) = {
+    val dataBytes = channel.size - dataStart
+    def boundary(index: Int): Long =
+      if (index == 0) dataStart
+      else if (index == partitions) channel.size
+      else lineStartAtOrAfter(channel, dataStart + dataBytes * index / partitions)
+    (boundary(partition), boundary(partition + 1))
+  }
+
+  // the offset of the first line that starts at or after offset, a line starts after a newline
+  private def lineStartAtOrAfter(channel: FileChannel, offset: Long): Long = {
+    val buffer = ByteBuffer.allocate(64 * 1024)
+    var position = offset - 1
+    while (position < channel.size) {
+      buffer.clear()
+      val read = channel.read(buffer, position)
+      var i = 0
+      while (i < read) {
+        if (buffer.get(i) == '\n') return position + i + 1
+        i += 1
+      }
+      position += read
+    }
+    channel.size
+  }
+
+  /** The header line of the file and the offset of the first data line, a UTF-8 BOM is skipped. */
+  private[feeder] def header(channel: FileChannel): (String, Long) = {
+    val buffer = ByteBuffer.allocate(MaxRecordBytes.toInt)
+    channel.read(buffer, 0)
+    buffer.flip()
+    val bomLength = if (buffer.remaining >= 3 && (buffer.get(0) & 0xff) == 0xef && (buffer.get(1) & 0xff) == 0xbb && (buffer.get(2) & 0xff) == 0xbf) 3 else 0
+    var end = bomLength
+    while (end < buffer.limit() && buffer.get(end) != '\n') end += 1
+    require(end < buffer.limit() || buffer.limit() == channel.size, s"The header line is longer than $MaxRecordBytes bytes")
+    val length = if (end > bomLength && buffer.get(end - 1) == '\r') end - 1 - bomLength else end - bomLength
+    val bytes = new Array[Byte](length)
+    buffer.position(bomLength)
+    buffer.get(bytes)
+    (new String(bytes, StandardCharsets.UTF_8), math.min(end + 1L, channel.size))
+  }
+
+  /** The fields of a CSV line, a quoted field may contain the separator and doubled quotes. */
+  private[feeder] def parse(line: String, separator: Char, quote: Char): Array[String] = {
+    val fields = Array.newBuilder[String]
+    val field = new java.lang.StringBuilder
+    var quoted = false
+    var i = 0
+    while (i < line.length) {
+      val c = line.charAt(i)
+      if (quoted) {
+        if (c == quote) {
+          if (i + 1 < line.length && line.charAt(i + 1) == quote) {
+            field.append(quote)
+            i += 1
+          } else {
+            quoted = false
+          }
+        } else {
+          field.append(c)
+        }
+      } else if (c == quote) {
+        quoted = true
+      } else if (c == separator) {
+        fields += field.toString
+        field.setLength(0)
+      } else {
+        field.append(c)
+      }
+      i += 1
+    }
+    fields += field.toString
+    fields.result()
+  }
+}
+
+/**
+  * Builds a [[MappedCsvFeeder]] for `feed`, every feed action of the simulation gets its own feeder.
+  */
+final case class MappedCsvFeederBuilder(
+    file: Path,
+    strategy: MappedCsvFeeder.Strategy,
+    partitionIndex: Int,
+    partitionCount: Int,
+    separator: Char,
+    quote: Char,
+    windowBytes: Long
+) extends (() => Iterator[Map[String, Any]]) {
+
+  require(partitionCount > 0 && partitionIndex >= 0 && partitionIndex < partitionCount, s"The feeder partition must be in [0, $partitionCount) but was $partitionIndex")
+  require(windowBytes >= 2 * 1024 * 1024 && windowBytes <= Int.MaxValue, s"The window must be between 2 MiB and 2 GiB but was $windowBytes bytes")
+
+  def queue: MappedCsvFeederBuilder = copy(strategy = MappedCsvFeeder.Queue)
+  def circular: MappedCsvFeederBuilder = copy(strategy = MappedCsvFeeder.Circular)
+  def random: MappedCsvFeederBuilder = copy(strategy = MappedCsvFeeder.Random)
+
+  /** Feeds the given part of the file instead of the part of this shard. */
+  def partition(index: Int, count: Int): MappedCsvFeederBuilder = copy(partitionIndex = index, partitionCount = count)
+
+  /** Feeds the whole file on every shard. */
+  def unpartitioned: MappedCsvFeederBuilder = partition(0, 1)
+
+  /** The size of the part of the file that is mapped at a time. */
+  def windowMiB(mebibytes: Int): MappedCsvFeederBuilder = copy(windowBytes = mebibytes * 1024L * 1024)
+
+  override def apply(): MappedCsvFeeder = new MappedCsvFeeder(this)
+}
+
+/**
+  * A feeder that reads its records from a memory-mapped CSV file instead of loading them onto the heap. Gatling's csv
+  * feeder keeps all records of the file (eager) or a batch of them plus a reader (batch) on the heap of every runner,
+  * this feeder keeps a window of the file mapped (256 MiB by default, in the page cache rather than on the heap) and
+  * decodes a record only when it is fed, so its heap footprint is independent of the size of the file. A file larger
+  * than the window is mapped one window after the other.
+  * <p>
+  * The feeder only serves its partition of the file, see [[MappedCsvFeeder.apply]]. The values are strings like those of
+  * Gatling's csv feeder, lines must end with LF or CRLF, blank lines are skipped and a record has at most 1 MiB.
+  */
+final class MappedCsvFeeder(builder: MappedCsvFeederBuilder) extends AbstractIterator[Map[String, Any]] {
+
+  import MappedCsvFeeder._
+
+  private val (start, end, headerColumns) = {
+    val channel = FileChannel.open(builder.file, StandardOpenOption.READ)
+    try {
+      val (headerLine, dataStart) = header(channel)
+      val (partitionStart, partitionEnd) = partitionRange(channel, dataStart, builder.partitionIndex, builder.partitionCount)
+      (partitionStart, partitionEnd, parse(headerLine, builder.separator, builder.quote))
+    } finally {
+      channel.close()
+    }
+  }
+  require(end > start, s"Partition ${builder.partitionIndex} of ${builder.partitionCount} of ${builder.file} has no records")
+
+  private var window: MappedByteBuffer = _
+  private var windowStart = 0L
+  private var position = start
+  private var line = new Array[Byte](4096)
+  private var lookahead: Map[String, Any] = _
+  private lazy val lines: LineIndex = {
+    val channel = FileChannel.open(builder.file, StandardOpenOption.READ)
+    try {
+      lineIndex(channel, start, end)
+    } finally {
+      channel.close()
+    }
+  }
+
+  override def hasNext: Boolean = synchronized {
+    if (lookahead == null) lookahead = read()
+    lookahead != null
+  }
+
+  override def next(): Map[String, Any] = synchronized {
+    if (!hasNext) throw new NoSuchElementException(s"Feeder of ${builder.file} (partition ${builder.partitionIndex} of ${builder.partitionCount}) is empty")
+    val record = lookahead
+    lookahead = null
+    record
+  }
+
+  // the next non-blank record of the strategy, null once a queue is exhausted
+  private def read(): Map[String, Any] = {
+    var skipped = 0L
+    while (true) {
+      builder.strategy match {
+        case Queue =>
+          if (position >= end) return null
+        case Circular =>
+          if (position >= end) position = start
+        case Random =>
+          if (lines.records == 0) return null
+          // a blank line is drawn again, so every record has the same chance
+          val randomLine = ThreadLocalRandom.current.nextLong(lines.lines)
+          position = lines.offset(randomLine)
+          var skip = lines.skip(randomLine)
+          while (skip > 0) {
+            nextLine()
+            skip -= 1
+          }
+      }
+      val length = nextLine()
+      if (length > 0) return record(length)
+      skipped += length + 1
+      // a partition of blank lines has no record to circulate
+      if (builder.strategy != Random && skipped > end - start) return null
+    }
+    null
+  }
+
+  private def record(length: Int): Map[String, Any] = {
+    val fields = parse(new String(line, 0, length, StandardCharsets.UTF_8), builder.separator, builder.quote)
+    val record = Map.newBuilder[String, Any]
+    var i = 0
+    while (i < headerColumns.length && i < fields.length) {
+      record += headerColumns(i) -> fields(i)
+      i += 1
+    }
+    record.result()
+  }
+
+  // copies the line at position into line without its line break, moves position to the next line
+  private def nextLine(): Int = {
+    if (window == null || position < windowStart || position >= windowStart + window.limit()) map(position)
+    val from = (position - windowStart).toInt
+    var i = from
+    val limit = window.limit()
+    while (i < limit && window.get(i) != '\n') i += 1
+    if (i == limit && windowStart + limit < end) {
+      require(windowStart != position && i - from <= MaxRecordBytes, s"A record of ${builder.file} at byte $position is longer than $MaxRecordBytes bytes")
+      map(position)
+      nextLine()
+    } else {
+      val length = if (i > from && window.get(i - 1) == '\r') i - 1 - from else i - from
+      if (line.length < length) line = new Array[Byte](math.max(length, line.length * 2))
+      window.position(from)
+      window.get(line, 0, length)
+      position = math.min(windowStart + i + 1, end)
+      length
+    }
+  }
+
+  private def map(at: Long): Unit = {
+    val channel = FileChannel.open(builder.file, StandardOpenOption.READ)
+    try {
+      // the mapping stays valid after the channel is closed, the previous window is unmapped once it is collected
+      window = channel.map(FileChannel.MapMode.READ_ONLY, at, math.min(builder.windowBytes, end - at))
+      windowStart = at
+    } finally {
+      channel.close()
+    }
+  }
+
+  override def toString: String = s"MappedCsvFeeder(${builder.file}, ${builder.strategy}, partition ${builder.partitionIndex} of ${builder.partitionCount})"
+}
@@ -0,0 +1,84 @@
+package com.rudolfs.gatling.runner.hdr
+
+import java.net.{ HttpURLConnection, URL, URLEncoder }
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.HdrHistogram.Histogram
+
+import scala.collection.JavaConverters._
+
+/**
+  * Computes global percentiles from the HDR histograms that the influxdb writer stores in the measurement
+  * gatling.histograms. All histograms of the selected request and status within the time window are decoded and
+  * added, regardless of the shard that recorded them, so the result is the percentile of every single response of
+  * the window instead of an aggregate of per runner, per second percentiles.
+  *
+  * Usage: HistogramMerge [--host localhost] [--port 8086] [--database gatlingdb] [--simulation name]
+  *                       [--request allRequests] [--status all] [--from "now() - 1h"] [--to "now()"]
+  */
+object HistogramMerge {
+
+  val Percentiles: Seq[Double] = Seq(50.0, 95.0, 99.0, 99.9)
+
+  private val Defaults = Map(
+    "host" -> "localhost",
+    "port" -> "8086",
+    "database" -> "gatlingdb",
+    "request" -> "allRequests",
+    "status" -> "all",
+    "from" -> "now() - 1h",
+    "to" -> "now()"
+  )
+
+  def main(args: Array[String]): Unit = {
+    val options = Defaults ++ args.grouped(2).collect { case Array(key, value) if key.startsWith("--") => key.drop(2) -> value }
+
+    val simulationFilter = options.get("simulation").map(simulation => s""" AND "simulation" = '${escape(simulation)}'""").getOrElse("")
+    val query =
+      s"""SELECT "hdr" FROM "gatling.histograms" WHERE "request" = '${escape(options("request"))}' AND "status" = '${escape(options("status"))}'""" +
+        s"""$simulationFilter AND time >= ${options("from")} AND time < ${options("to")}"""
+
+    val merged = merge(queryEncodedHistograms(options("host"), options("port").toInt, options("database"), query))
+
+    println(query)
+    println(f"count ${merged.getTotalCount}%d, min ${merged.getMinValue}%d ms, mean ${merged.getMean}%.1f ms, max ${merged.getMaxValue}%d ms")
+    Percentiles.foreach(percentile => println(f"p$percentile%-5s ${merged.getValueAtPercentile(percentile)}%d ms"))
+  }
+
+  /** Adds all encoded histograms, histograms of different shards and write periods are treated the same. */
+  def merge(encodedHistograms: Iterator[String]): Histogram = {
+    val merged = new Histogram(HistogramCodec.SIGNIFICANT_DIGITS)
+    encodedHistograms.foreach(encoded => merged.add(HistogramCodec.decode(encoded)))
+    merged
+  }
+
+  private def queryEncodedHistograms(host: String, port: Int, database: String, query: String): Iterator[String] = {
+    val url = new URL(
+      "http",
+      host,
+      port,
+      s"/query?db=${URLEncoder.encode(database, "UTF-8")}&q=${URLEncoder.encode(query, "UTF-8")}"
+    )
+    val connection = url.openConnection().asInstanceOf[HttpURLConnection]
+    try {
+      if (connection.getResponseCode != HttpURLConnection.HTTP_OK) {
+        throw new IllegalStateException(s"InfluxDB query failed with status ${connection.getResponseCode}: $query")
+      }
+      val response = new ObjectMapper().readTree(connection.getInputStream)
+      val error = response.at("/results/0/error")
+      if (!error.isMissingNode) {
+        throw new IllegalStateException(s"InfluxDB query failed: ${error.asText} ($query)")
+      }
+      // columns are time and hdr, an empty result has no series at all
+      response.at("/results/0/series").elements.asScala
+        .flatMap(_.get("values").elements.asScala)
+        .map(_.get(1).asText)
+        .toVector
+        .iterator
+    } finally {
+      connection.disconnect()
+    }
+  }
+
+  private def escape(value: String): String = value.replace("\\", "\\\\").replace("'", "\\'")
+}
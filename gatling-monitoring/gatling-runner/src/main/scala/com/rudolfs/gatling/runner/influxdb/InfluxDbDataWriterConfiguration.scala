@@ -0,0 +1,43 @@
+package com.rudolfs.gatling.runner.influxdb
+
+import com.typesafe.config.Config
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+
+/**
+  * Settings of the gatling.data.influxdb section in gatling.conf. Gatling itself ignores this section and the
+  * "influxdb" entry in gatling.data.writers, both are picked up by [[io.gatling.app.GatlingRunner]].
+  */
+final case class InfluxDbDataWriterConfiguration(
+    host: String,
+    port: Int,
+    database: String,
+    batchSize: Int,
+    timeout: FiniteDuration,
+    writePeriod: FiniteDuration,
+    histograms: Boolean
+)
+
+object InfluxDbDataWriterConfiguration {
+  val WriterName = "influxdb"
+
+  /** Loads the settings from the resolved Gatling configuration when the influxdb writer is enabled. */
+  def load(config: Config): Option[InfluxDbDataWriterConfiguration] =
+    if (config.getStringList("gatling.data.writers").asScala.contains(WriterName)) {
+      val influxdb = config.getConfig("gatling.data.influxdb")
+      Some(
+        InfluxDbDataWriterConfiguration(
+          host = influxdb.getString("host"),
+          port = influxdb.getInt("port"),
+          database = influxdb.getString("database"),
+          batchSize = influxdb.getInt("batchSize"),
+          timeout = influxdb.getInt("timeout").millis,
+          writePeriod = influxdb.getInt("writePeriod").seconds,
+          histograms = influxdb.getBoolean("histograms")
+        )
+      )
+    } else {
+      None
+    }
+}
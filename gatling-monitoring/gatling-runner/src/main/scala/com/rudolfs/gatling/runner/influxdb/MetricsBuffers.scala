@@ -0,0 +1,46 @@
+package com.rudolfs.gatling.runner.influxdb
+
+import com.rudolfs.gatling.runner.hdr.HistogramCodec
+import io.gatling.commons.stats.{ OK, Status }
+import org.HdrHistogram.IntCountsHistogram
+
+/**
+  * Response times of one request series within one write period, in the same HDR histograms the Graphite writer of
+  * Gatling uses internally (its buffers are private to the graphite package). The writer reads the fields of a point
+  * straight from the histograms, which are exported as well with the precision of [[HistogramCodec.SIGNIFICANT_DIGITS]].
+  */
+final class RequestMetricsBuffer {
+  val okHistogram = new IntCountsHistogram(HistogramCodec.SIGNIFICANT_DIGITS)
+  val koHistogram = new IntCountsHistogram(HistogramCodec.SIGNIFICANT_DIGITS)
+  val allHistogram = new IntCountsHistogram(HistogramCodec.SIGNIFICANT_DIGITS)
+
+  def add(status: Status, time: Long): Unit = {
+    val recordableTime = time.max(1L)
+    allHistogram.recordValue(recordableTime)
+    if (status == OK) okHistogram.recordValue(recordableTime) else koHistogram.recordValue(recordableTime)
+  }
+
+  def clear(): Unit = {
+    okHistogram.reset()
+    koHistogram.reset()
+    allHistogram.reset()
+  }
+}
+
+/** Active, waiting and done users of one scenario (or all scenarios), waiting is derived from the injection profile. */
+final class UserBreakdownBuffer(totalUserEstimate: Long) {
+  private var activeUsers = 0L
+  private var doneUsers = 0L
+
+  def record(start: Boolean): Unit =
+    if (start) {
+      activeUsers += 1
+    } else {
+      activeUsers -= 1
+      doneUsers += 1
+    }
+
+  def active: Long = activeUsers
+  def waiting: Long = (totalUserEstimate - activeUsers - doneUsers).max(0L)
+  def done: Long = doneUsers
+}
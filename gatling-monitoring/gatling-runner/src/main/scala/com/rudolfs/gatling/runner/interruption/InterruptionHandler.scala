@@ -0,0 +1,70 @@
+package com.rudolfs.gatling.runner.interruption
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import akka.actor.ActorRef
+import com.rudolfs.gatling.runner.sidechannel.{ SideChannelPoint, SideChannelWriter }
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.commons.util.Clock
+import io.gatling.core.controller.ControllerCommand
+import sun.misc.{ Signal, SignalHandler }
+
+import scala.concurrent.duration._
+import scala.util.control.NonFatal
+
+object InterruptionHandler {
+
+  /** The exit code of an interrupted runner, the usual 128 + SIGTERM. */
+  val ExitCode = 143
+
+  private val Term = new Signal("TERM")
+
+  /**
+    * The point that marks the shard as truncated in the measurement run: truncated is 1 and injectedSeconds the number
+    * of seconds the runner injected before it was interrupted.
+    */
+  private def truncation(injectedSeconds: Long): SideChannelPoint =
+    SideChannelPoint("run", Nil, Seq("truncated" -> 1L, "injectedSeconds" -> injectedSeconds), ownRoot = false)
+}
+
+/**
+  * Stops the injection cleanly when ECS stops the runner task, e.g. when Fargate Spot reclaims it. ECS sends SIGTERM
+  * and kills the runner after the stop timeout of the container, without this handler the JVM exits at once and the
+  * metrics of the last seconds and the end of simulation.log are lost.
+  * <p>
+  * On SIGTERM the shard is marked as truncated first, then the controller stops the run the way it does at the end of
+  * its max duration: no more users are injected, the stats engine stops and the DataWriters flush and close. The runner
+  * exits with [[InterruptionHandler.ExitCode]] afterwards. The handler is only installed while users are injected.
+  */
+final class InterruptionHandler(writer: SideChannelWriter, clock: Clock) extends StrictLogging {
+
+  import InterruptionHandler._
+
+  private val interrupted = new AtomicBoolean
+  @volatile private var previousHandler: Option[SignalHandler] = None
+
+  def isInterrupted: Boolean = interrupted.get
+
+  def install(controller: ActorRef): Unit = {
+    val injectionStart = clock.nowMillis
+    previousHandler = Some(Signal.handle(Term, _ => interrupt(controller, injectionStart)))
+  }
+
+  /** Restores the default handling of SIGTERM once the run has stopped. */
+  def uninstall(): Unit = {
+    previousHandler.foreach(Signal.handle(Term, _))
+    previousHandler = None
+  }
+
+  private def interrupt(controller: ActorRef, injectionStart: Long): Unit =
+    if (interrupted.compareAndSet(false, true)) {
+      val injectedMillis = clock.nowMillis - injectionStart
+      logger.warn(s"SIGTERM after ${injectedMillis / 1000} s of injection, marking the shard as truncated and stopping the run")
+      try {
+        writer.write(Seq(truncation(injectedMillis / 1000)), clock.nowSeconds)
+      } catch {
+        case NonFatal(e) => logger.warn(s"Could not mark the shard as truncated: ${e.getMessage}")
+      }
+      controller ! ControllerCommand.MaxDurationReached(injectedMillis.milliseconds)
+    }
+}
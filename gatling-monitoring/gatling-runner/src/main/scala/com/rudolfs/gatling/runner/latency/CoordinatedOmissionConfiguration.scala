@@ -0,0 +1,26 @@
+package com.rudolfs.gatling.runner.latency
+
+import com.typesafe.config.Config
+
+import scala.concurrent.duration._
+
+/**
+  * Settings of the gatling.coordinatedOmission section in gatling.conf.
+  */
+final case class CoordinatedOmissionConfiguration(
+    enabled: Boolean,
+    reportPeriod: FiniteDuration
+) {
+  require(reportPeriod > Duration.Zero, "coordinatedOmission.reportPeriod must be positive")
+}
+
+object CoordinatedOmissionConfiguration {
+
+  def load(config: Config): CoordinatedOmissionConfiguration = {
+    val coordinatedOmission = config.getConfig("gatling.coordinatedOmission")
+    CoordinatedOmissionConfiguration(
+      enabled = coordinatedOmission.getBoolean("enabled"),
+      reportPeriod = coordinatedOmission.getInt("reportPeriod").seconds
+    )
+  }
+}
@@ -0,0 +1,118 @@
+package com.rudolfs.gatling.runner.latency
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+import akka.actor.ActorRef
+import com.rudolfs.gatling.runner.hdr.HistogramCodec
+import com.rudolfs.gatling.runner.stats.ForwardingStatsEngine
+import io.gatling.commons.stats.Status
+import io.gatling.core.session.Session
+import io.gatling.core.stats.StatsEngine
+import io.gatling.core.stats.writer.UserEndMessage
+import org.HdrHistogram.{ Histogram, Recorder }
+
+/**
+  * The raw and the corrected response times of a request name since the previous report.
+  */
+final class LatencyRecorder {
+  private val raw = new Recorder(HistogramCodec.SIGNIFICANT_DIGITS)
+  private val corrected = new Recorder(HistogramCodec.SIGNIFICANT_DIGITS)
+
+  def record(responseTime: Long, startDelay: Long): Unit = {
+    raw.recordValue(responseTime)
+    corrected.recordValue(responseTime + startDelay)
+  }
+
+  /** The raw and the corrected histograms since the previous call. */
+  def intervalHistograms(): (Histogram, Histogram) = (raw.getIntervalHistogram, corrected.getIntervalHistogram)
+}
+
+/**
+  * Records the response times of open-model scenarios corrected for coordinated omission next to the raw ones. When
+  * the runner stalls (GC, CPU, a blocked event loop) the users due during the stall start late and their requests are
+  * measured from the late start, so the raw response times hide the stall that real users, arriving on time, would
+  * have waited through. The corrected response time of a request adds the delay of the start of its user, the time
+  * between the intended start of the user (see [[InjectionSchedule]]) and its actual start, so it is measured from the
+  * time the request was intended to be sent.
+  * <p>
+  * Delays within a user (e.g. a pause that ends late) are not known to the stats engine and stay uncorrected. Responses
+  * of all statuses are recorded per request name, without the groups, and as allRequests. Scenarios without a schedule
+  * record the same raw and corrected response times.
+  */
+class CoordinatedOmissionStatsEngine(underlying: StatsEngine, schedules: Map[String, InjectionSchedule]) extends ForwardingStatsEngine(underlying) {
+
+  import CoordinatedOmissionStatsEngine._
+
+  private val injectionStart = new AtomicLong(NotStarted)
+  private val startDelays = new ConcurrentHashMap[Long, java.lang.Long]()
+  private val recorders = new ConcurrentHashMap[String, LatencyRecorder]()
+  private val maxStartDelay = new AtomicLong
+  @volatile private var reporter: Option[LatencyReporter] = None
+
+  def reportTo(latencyReporter: LatencyReporter): this.type = {
+    reporter = Some(latencyReporter)
+    this
+  }
+
+  /** The start of the injection that the offsets of the schedules are relative to, in epoch milliseconds. */
+  def injectionStarted(timestamp: Long): Unit = injectionStart.compareAndSet(NotStarted, timestamp)
+
+  /** The recorders of all request names and allRequests, for the [[LatencyReporter]]. */
+  def latencyRecorders: Iterable[(String, LatencyRecorder)] = {
+    import scala.collection.JavaConverters._
+    recorders.asScala
+  }
+
+  /** The largest start delay of a user so far, in milliseconds. */
+  def maxStartDelayMillis: Long = maxStartDelay.get
+
+  override def start(): Unit = {
+    super.start()
+    reporter.foreach(_.start())
+  }
+
+  override def stop(replyTo: ActorRef, exception: Option[Exception]): Unit = {
+    reporter.foreach(_.stop())
+    super.stop(replyTo, exception)
+  }
+
+  override def logUserStart(session: Session): Unit = {
+    val start = injectionStart.get
+    if (start != NotStarted) {
+      schedules.get(session.scenario).flatMap(_.nextOffsetMillis()).foreach { offset =>
+        val delay = math.max(0, session.startDate - (start + offset))
+        startDelays.put(session.userId, delay)
+        maxStartDelay.accumulateAndGet(delay, math.max(_, _))
+      }
+    }
+    super.logUserStart(session)
+  }
+
+  override def logUserEnd(userMessage: UserEndMessage): Unit = {
+    startDelays.remove(userMessage.session.userId)
+    super.logUserEnd(userMessage)
+  }
+
+  override def logResponse(
+      session: Session,
+      requestName: String,
+      startTimestamp: Long,
+      endTimestamp: Long,
+      status: Status,
+      responseCode: Option[String],
+      message: Option[String]
+  ): Unit = {
+    val responseTime = math.max(0, endTimestamp - startTimestamp)
+    val startDelay = Option(startDelays.get(session.userId)).fold(0L)(_.longValue)
+    recorders.computeIfAbsent(requestName, _ => new LatencyRecorder).record(responseTime, startDelay)
+    recorders.computeIfAbsent(AllRequests, _ => new LatencyRecorder).record(responseTime, startDelay)
+    super.logResponse(session, requestName, startTimestamp, endTimestamp, status, responseCode, message)
+  }
+}
+
+object CoordinatedOmissionStatsEngine {
+  val AllRequests = "allRequests"
+
+  private val NotStarted = Long.MinValue
+}
@@ -0,0 +1,42 @@
+package com.rudolfs.gatling.runner.latency
+
+import io.gatling.core.controller.inject.open.{ InjectionOffsets, OpenInjectionProfile, OpenInjectionStep, PoissonOpenInjection }
+import io.gatling.core.structure.PopulationBuilder
+
+/**
+  * The intended start offsets of the users of an open-model scenario, from the start of the injection. Gatling builds
+  * the user stream of an open injection profile from its steps the same way (UserStream), and starts the users of a
+  * scenario in the order of their offsets, so the n-th user that starts was meant to start at the n-th offset. The
+  * offsets are generated lazily, one per started user.
+  */
+final class InjectionSchedule(steps: Iterable[OpenInjectionStep]) {
+
+  private val offsets = InjectionOffsets(steps)
+
+  /** The offset of the next user in milliseconds, None once all users of the profile have started. */
+  def nextOffsetMillis(): Option[Long] = synchronized {
+    if (offsets.hasNext) Some(offsets.next().toMillis) else None
+  }
+}
+
+object InjectionSchedule {
+
+  /**
+    * The schedules of the scenarios whose arrival times are known in advance: open injection profiles of Gatling's
+    * deterministic steps. Closed profiles have no arrival times, randomized (Poisson) steps and steps that decide at
+    * runtime (like the throughput search) would produce other arrival times than those of the run.
+    */
+  def of(populationBuilders: List[PopulationBuilder]): Map[String, InjectionSchedule] =
+    populationBuilders.collect {
+      case populationBuilder if deterministic(populationBuilder) =>
+        val OpenInjectionProfile(steps) = populationBuilder.injectionProfile
+        populationBuilder.scenarioBuilder.name -> new InjectionSchedule(steps)
+    }.toMap
+
+  private def deterministic(populationBuilder: PopulationBuilder): Boolean =
+    populationBuilder.injectionProfile match {
+      case OpenInjectionProfile(steps) =>
+        steps.forall(step => !step.isInstanceOf[PoissonOpenInjection] && step.getClass.getName.startsWith("io.gatling.core.controller.inject.open."))
+      case _ => false
+    }
+}
@@ -0,0 +1,57 @@
+package com.rudolfs.gatling.runner.latency
+
+import com.rudolfs.gatling.runner.sidechannel.{ SideChannelPoint, SideChannelReporter, SideChannelWriter }
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.commons.util.Clock
+import org.HdrHistogram.Histogram
+
+import scala.concurrent.duration.FiniteDuration
+
+/**
+  * The response times of a request name in one period, raw or corrected for coordinated omission. All values are
+  * integer milliseconds because the graphite-relay rounds its values.
+  */
+final case class LatencySample(request: String, kind: String, histogram: Histogram) {
+  def fields: Seq[(String, Long)] = Seq(
+    "count" -> histogram.getTotalCount,
+    "mean" -> math.round(histogram.getMean),
+    "percentiles50" -> histogram.getValueAtPercentile(50),
+    "percentiles75" -> histogram.getValueAtPercentile(75),
+    "percentiles95" -> histogram.getValueAtPercentile(95),
+    "percentiles99" -> histogram.getValueAtPercentile(99),
+    "max" -> histogram.getMaxValue
+  )
+
+  // gatling_latency, outside the tree of the simulation where a group may be named latency
+  def point: SideChannelPoint = SideChannelPoint("latency", Seq("request" -> request, "kind" -> kind), fields, ownRoot = true)
+}
+
+object LatencySample {
+  val Raw = "raw"
+  val Corrected = "corrected"
+}
+
+/**
+  * Sends the raw and the corrected response times of every request name that had responses in the period to the
+  * measurement gatling_latency, tagged with the request and the kind, and the last period when the run stops. Failed
+  * sends are logged and skipped.
+  */
+final class LatencyReporter(writer: SideChannelWriter, statsEngine: CoordinatedOmissionStatsEngine, period: FiniteDuration, clock: Clock) extends StrictLogging {
+
+  private val reporter = new SideChannelReporter(writer, "latency-reporter", "corrected response times", period, clock)(() =>
+    statsEngine.latencyRecorders.toList.flatMap {
+      case (request, recorder) =>
+        val (raw, corrected) = recorder.intervalHistograms()
+        if (raw.getTotalCount == 0) Nil
+        else List(LatencySample(request, LatencySample.Raw, raw).point, LatencySample(request, LatencySample.Corrected, corrected).point)
+    }
+  )
+
+  def start(): Unit = reporter.start()
+
+  def stop(): Unit = {
+    reporter.stop()
+    reporter.report()
+    logger.info(s"The largest start delay of a user was ${statsEngine.maxStartDelayMillis} ms")
+  }
+}
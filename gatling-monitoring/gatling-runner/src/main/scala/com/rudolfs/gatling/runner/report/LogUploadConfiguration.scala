@@ -0,0 +1,64 @@
+package com.rudolfs.gatling.runner.report
+
+import com.typesafe.config.Config
+
+import scala.concurrent.duration._
+
+/**
+  * Settings of the gatling.logUpload section in gatling.conf, shared by the runners that upload their simulation.log
+  * and the report worker that renders the report of all shards.
+  */
+final case class LogUploadConfiguration(
+    enabled: Boolean,
+    endpoint: String,
+    region: String,
+    bucket: String,
+    runId: Option[String],
+    shardIndex: Int,
+    shardCount: Int,
+    chunkBytes: Int,
+    chunkPeriod: FiniteDuration,
+    reportTimeout: FiniteDuration,
+    report: String
+) {
+  require(bucket.nonEmpty, "logUpload.bucket must not be empty")
+  require(shardCount > 0 && shardIndex >= 0 && shardIndex < shardCount, s"logUpload needs 0 <= shardIndex < shardCount, but was $shardIndex of $shardCount")
+  require(chunkBytes > 0, "logUpload.chunkSize must be positive")
+  require(report == "gatling" || report == "merge", s"logUpload.report must be gatling or merge, but was $report")
+
+  def newClient(): S3Client = new S3Client(endpoint, region, bucket, System.getenv)
+}
+
+object LogUploadConfiguration {
+
+  private val MiB = 1024 * 1024
+
+  /** The keys of a run: runs/&lt;runId&gt;/shards/&lt;shardIndex&gt;/... for the uploaded logs, runs/&lt;runId&gt;/report/... for the report. */
+  def runPrefix(runId: String): String = s"runs/$runId"
+
+  def shardPrefix(runId: String, shardIndex: Int): String = s"${runPrefix(runId)}/shards/$shardIndex"
+
+  def chunkKey(runId: String, shardIndex: Int, sequence: Int): String = f"${shardPrefix(runId, shardIndex)}/simulation.log.$sequence%05d.gz"
+
+  def completeKey(runId: String, shardIndex: Int): String = s"${shardPrefix(runId, shardIndex)}/complete"
+
+  def reportPrefix(runId: String): String = s"${runPrefix(runId)}/report"
+
+  def load(config: Config): LogUploadConfiguration = {
+    val upload = config.getConfig("gatling.logUpload")
+    val region = upload.getString("region")
+    LogUploadConfiguration(
+      enabled = upload.getBoolean("enabled"),
+      endpoint = Some(upload.getString("endpoint")).filter(_.nonEmpty).getOrElse(s"https://s3.$region.amazonaws.com").stripSuffix("/"),
+      region = region,
+      bucket = upload.getString("bucket"),
+      runId = Some(upload.getString("runId")).filter(_.nonEmpty),
+      shardIndex = upload.getInt("shardIndex"),
+      shardCount = upload.getInt("shardCount"),
+      chunkBytes = upload.getInt("chunkSize") * MiB,
+      chunkPeriod = upload.getInt("chunkPeriod").seconds,
+      reportTimeout = upload.getInt("reportTimeout").seconds,
+      report = upload.getString("report")
+    )
+  }
+}
@@ -0,0 +1,132 @@
+package com.rudolfs.gatling.runner.report
+
+import java.io.ByteArrayInputStream
+import java.nio.file.{ Files, Path, Paths }
+import java.util.zip.GZIPInputStream
+
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.app.GatlingRunner
+import io.gatling.core.config.GatlingConfiguration
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+  * Renders the HTML report of a run from the simulation.log chunks its runners uploaded (see [[SimulationLogUploader]]),
+  * so the runners don't spend minutes of task time on the report after the injection. Started by run.sh --report with
+  * the runId (GATLING_RUN_ID) and shardCount (GATLING_SHARD_COUNT) of the run.
+  * <p>
+  * The worker waits until every shard uploaded its complete marker, at most reportTimeout, then downloads the chunks
+  * of every shard into results/&lt;runId&gt;/simulation-&lt;shardIndex&gt;.log. Gatling reads all logs of a run directory in
+  * reports-only mode, so the report covers all shards. The report is uploaded to runs/&lt;runId&gt;/report/. A shard
+  * without a marker (e.g. a runner that was killed) contributes the chunks it uploaded until then. With report = merge
+  * the worker writes the report of [[SimulationLogMerge]] instead, whose memory doesn't grow with the size of the logs.
+  */
+object ReportWorker extends StrictLogging {
+
+  private val PollMillis = 5000L
+  private val MergeSegmentBytes = 64L * 1024 * 1024
+
+  def main(args: Array[String]): Unit = sys.exit(run())
+
+  def run(): Int = {
+    val gatlingConfiguration = GatlingConfiguration.load(mutable.Map.empty)
+    val configuration = LogUploadConfiguration.load(gatlingConfiguration.config)
+    val runId = configuration.runId.getOrElse(throw new IllegalArgumentException("The report worker needs the run id, set GATLING_RUN_ID"))
+    val client = configuration.newClient()
+    val resultsDirectory = Paths.get(gatlingConfiguration.core.directory.results)
+    val runDirectory = resultsDirectory.resolve(runId)
+
+    val missing = awaitComplete(client, runId, configuration)
+    if (missing.nonEmpty) {
+      logger.warn(s"Shard(s) ${missing.mkString(", ")} did not complete their upload within ${configuration.reportTimeout.toSeconds} s, their logs may be incomplete")
+    }
+
+    Files.createDirectories(runDirectory)
+    val lines = (0 until configuration.shardCount).map(shardIndex => download(client, runId, shardIndex, runDirectory)).sum
+    if (lines == 0) {
+      logger.error(s"No simulation.log chunks for run $runId in bucket ${client.getBucket}")
+      return 1
+    }
+
+    val statusCode =
+      if (configuration.report == "merge") {
+        // the statistics instead of every record of the logs on the heap, the report has no assertions
+        val files = SimulationLogMerge.logFiles(runDirectory.toString)
+        SimulationLogMerge.writeReport(SimulationLogMerge.aggregate(files, Runtime.getRuntime.availableProcessors, MergeSegmentBytes), runDirectory)
+        0
+      } else {
+        // reports only, the run id is the name of the run directory below the results directory
+        GatlingRunner.fromArgs(Array("-ro", runId, "-rf", resultsDirectory.toString))
+      }
+    upload(client, runId, runDirectory)
+    statusCode
+  }
+
+  // the shards that had no complete marker when the timeout expired
+  private def awaitComplete(client: S3Client, runId: String, configuration: LogUploadConfiguration): Seq[Int] = {
+    val deadline = System.currentTimeMillis + configuration.reportTimeout.toMillis
+    var pending = (0 until configuration.shardCount).toVector
+    while (pending.nonEmpty && System.currentTimeMillis < deadline) {
+      pending = pending.filter(shardIndex => client.get(LogUploadConfiguration.completeKey(runId, shardIndex)).isEmpty)
+      if (pending.nonEmpty) {
+        Thread.sleep(PollMillis)
+      }
+    }
+    logger.info(s"${configuration.shardCount - pending.size} of ${configuration.shardCount} shard(s) completed their upload")
+    pending
+  }
+
+  // the chunks are numbered from 1 without gaps, the first missing one ends the log of the shard
+  private def download(client: S3Client, runId: String, shardIndex: Int, runDirectory: Path): Long = {
+    val logFile = runDirectory.resolve(s"simulation-$shardIndex.log")
+    val out = Files.newOutputStream(logFile)
+    var lines = 0L
+    try {
+      Iterator
+        .from(1)
+        .map(sequence => client.get(LogUploadConfiguration.chunkKey(runId, shardIndex, sequence)))
+        .takeWhile(_.isPresent)
+        .foreach { chunk =>
+          val in = new GZIPInputStream(new ByteArrayInputStream(chunk.get))
+          val buffer = new Array[Byte](64 * 1024)
+          var read = in.read(buffer)
+          while (read >= 0) {
+            out.write(buffer, 0, read)
+            var i = 0
+            while (i < read) {
+              if (buffer(i) == '\n') lines += 1
+              i += 1
+            }
+            read = in.read(buffer)
+          }
+        }
+    } finally {
+      out.close()
+    }
+    logger.info(s"Downloaded $lines line(s) of shard $shardIndex to $logFile")
+    lines
+  }
+
+  private def upload(client: S3Client, runId: String, runDirectory: Path): Unit = {
+    val files = Files.walk(runDirectory).iterator.asScala.filter(Files.isRegularFile(_)).filterNot(_.toString.endsWith(".log")).toList
+    files.foreach { file =>
+      val key = s"${LogUploadConfiguration.reportPrefix(runId)}/${runDirectory.relativize(file).toString.replace('\\', '/')}"
+      client.put(key, Files.readAllBytes(file), contentType(file.getFileName.toString))
+    }
+    logger.info(s"Uploaded ${files.size} report file(s) to ${client.url(LogUploadConfiguration.reportPrefix(runId) + "/index.html")}")
+  }
+
+  private def contentType(fileName: String): String =
+    fileName.substring(fileName.lastIndexOf('.') + 1) match {
+      case "html" => "text/html; charset=utf-8"
+      case "js"   => "application/javascript"
+      case "css"  => "text/css"
+      case "json" => "application/json"
+      case "svg"  => "image/svg+xml"
+      case "png"  => "image/png"
+      case "jpg"  => "image/jpeg"
+      case "ico"  => "image/x-icon"
+      case _      => "application/octet-stream"
+    }
+}
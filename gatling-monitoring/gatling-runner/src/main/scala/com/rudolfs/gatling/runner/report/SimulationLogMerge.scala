@@ -0,0 +1,351 @@
+package com.rudolfs.gatling.runner.report
+
+import java.io.{ BufferedOutputStream, InputStream, OutputStream }
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.{ Files, Path, Paths, StandardOpenOption }
+import java.util.concurrent.{ ForkJoinPool, RecursiveTask }
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.rudolfs.gatling.runner.hdr.HistogramMerge
+import org.HdrHistogram.Histogram
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+  * Merges the simulation.log files of the shards of a run into one set of statistics and a report, in memory that is
+  * bounded by the number of request names and the duration of the run instead of the size of the logs (see
+  * [[LogStatistics]]). Gatling's own report keeps every record of the logs on the heap, which doesn't work for several
+  * multi-gigabyte shard logs.
+  * <p>
+  * The logs are split into segments of about segment-mib that end at a line end. A fork/join task splits the segments
+  * in halves until a single segment is left, which is memory-mapped and parsed by a [[LogSegmentParser]], and merges the
+  * statistics of both halves when they join. The order of the records doesn't matter for the statistics, so the segments
+  * are parsed in parallel. With --merged-log the shard logs are additionally merged by timestamp into one log, streamed
+  * with one read buffer per shard.
+  * <p>
+  * The output directory gets stats.json (counts, percentiles and errors per request), timeline.csv (responses and users
+  * per second) and index.html.
+  *
+  * Usage: SimulationLogMerge --logs results/run-1|shard-0.log,shard-1.log [--out merged] [--parallelism cores]
+  *                           [--segment-mib 64] [--merged-log merged/simulation.log]
+  */
+object SimulationLogMerge {
+
+  final case class Segment(file: Path, start: Long, end: Long)
+
+  private val MiB = 1024L * 1024
+  // a mapped segment can't exceed 2 GiB, including the line that crosses its planned end
+  private val MaxSegmentMiB = 1024
+
+  private val Defaults = Map(
+    "out" -> "merged",
+    "parallelism" -> Runtime.getRuntime.availableProcessors.toString,
+    "segment-mib" -> "64"
+  )
+
+  def main(args: Array[String]): Unit = {
+    val options = Defaults ++ args.grouped(2).collect { case Array(key, value) if key.startsWith("--") => key.drop(2) -> value }
+    val files = logFiles(options.getOrElse("logs", throw new IllegalArgumentException("--logs is required, a directory or a comma separated list of simulation.log files")))
+    val segmentMiB = options("segment-mib").toInt
+    require(segmentMiB > 0 && segmentMiB <= MaxSegmentMiB, s"--segment-mib must be between 1 and $MaxSegmentMiB")
+
+    val startNanos = System.nanoTime
+    val statistics = aggregate(files, options("parallelism").toInt, segmentMiB * MiB)
+    val seconds = (System.nanoTime - startNanos) / 1e9
+    val out = Paths.get(options("out"))
+    writeReport(statistics, out)
+    println(
+      f"Merged ${statistics.getRuns}%d log(s), ${statistics.getLines}%,d lines, ${statistics.getBytes / MiB.toDouble}%,.0f MiB in $seconds%.1f s " +
+        f"(${statistics.getBytes / MiB.toDouble / seconds}%,.0f MiB/s) into $out"
+    )
+
+    options.get("merged-log").foreach { mergedLog =>
+      val mergeStartNanos = System.nanoTime
+      val lines = mergeLogs(files, Paths.get(mergedLog))
+      println(f"Merged $lines%,d lines by timestamp into $mergedLog in ${(System.nanoTime - mergeStartNanos) / 1e9}%.1f s")
+    }
+  }
+
+  /** The *.log files of a directory, or the files of a comma separated list. */
+  def logFiles(logs: String): Seq[Path] = {
+    val files = logs.split(',').toSeq.map(_.trim).filter(_.nonEmpty).map(Paths.get(_)).flatMap { path =>
+      if (Files.isDirectory(path)) Files.list(path).iterator.asScala.filter(_.getFileName.toString.endsWith(".log")).toVector.sorted
+      else Seq(path)
+    }
+    require(files.nonEmpty, s"No simulation.log files in $logs")
+    files
+  }
+
+  /** Parses all logs in parallel, the statistics count every second from the earliest RUN record of the logs. */
+  def aggregate(files: Seq[Path], parallelism: Int, segmentBytes: Long): LogStatistics = {
+    val baseSecond = files.map(runStart).min / 1000
+    val fileSegments = segments(files, segmentBytes).toIndexedSeq
+    val pool = new ForkJoinPool(parallelism)
+    try {
+      pool.invoke(new SegmentTask(fileSegments, 0, fileSegments.size, baseSecond))
+    } finally {
+      pool.shutdown()
+    }
+  }
+
+  /** Splits the files into segments of about segmentBytes, every segment but the last of a file ends after a newline. */
+  def segments(files: Seq[Path], segmentBytes: Long): Seq[Segment] =
+    files.flatMap { file =>
+      val channel = FileChannel.open(file, StandardOpenOption.READ)
+      try {
+        val size = channel.size
+        val lineEnd = ByteBuffer.allocate(8192)
+        val fileSegments = Vector.newBuilder[Segment]
+        var start = 0L
+        while (start < size) {
+          var end = math.min(start + segmentBytes, size)
+          // moves the end past the newline of the line it is in
+          var found = end == size
+          while (!found) {
+            lineEnd.clear()
+            val read = channel.read(lineEnd, end)
+            var i = 0
+            while (i < read && lineEnd.get(i) != '\n') i += 1
+            found = i < read || read <= 0
+            end = if (read <= 0) size else math.min(end + i + (if (i < read) 1 else 0), size)
+          }
+          fileSegments += Segment(file, start, end)
+          start = end
+        }
+        fileSegments.result()
+      } finally {
+        channel.close()
+      }
+    }
+
+  private final class SegmentTask(segments: IndexedSeq[Segment], from: Int, to: Int, baseSecond: Long) extends RecursiveTask[LogStatistics] {
+
+    override def compute(): LogStatistics =
+      if (to - from <= 1) {
+        val statistics = new LogStatistics(baseSecond)
+        (from until to).foreach(i => parse(segments(i), statistics))
+        statistics
+      } else {
+        val middle = (from + to) >>> 1
+        val left = new SegmentTask(segments, from, middle, baseSecond)
+        left.fork()
+        val right = new SegmentTask(segments, middle, to, baseSecond).compute()
+        left.join().merge(right)
+      }
+
+    private def parse(segment: Segment, statistics: LogStatistics): Unit = {
+      val channel = FileChannel.open(segment.file, StandardOpenOption.READ)
+      try {
+        new LogSegmentParser(statistics).parse(channel.map(FileChannel.MapMode.READ_ONLY, segment.start, segment.end - segment.start))
+      } finally {
+        channel.close()
+      }
+    }
+  }
+
+  // the start of the RUN record, Gatling writes it after the ASSERTION records at the beginning of the log
+  private def runStart(file: Path): Long = {
+    val in = Files.newInputStream(file)
+    try {
+      val cursor = new LineCursor(in)
+      var fields = Array.empty[String]
+      while ((fields.isEmpty || fields(0) == "ASSERTION") && cursor.next()) {
+        fields = new String(cursor.line, 0, cursor.length, StandardCharsets.UTF_8).split('\t')
+      }
+      if (fields.length < 4 || fields(0) != "RUN") {
+        throw new IllegalArgumentException(s"$file has no RUN record at its beginning, is it a simulation.log of Gatling 3.3?")
+      }
+      fields(3).toLong
+    } finally {
+      in.close()
+    }
+  }
+
+  /**
+    * Merges the logs line by line in the order of their timestamps into one log and returns the number of lines. Gatling
+    * writes the records of a shard about in timestamp order, so one line per shard is in memory at a time and the merged
+    * log is as ordered as the shard logs.
+    */
+  def mergeLogs(files: Seq[Path], mergedLog: Path): Long = {
+    Option(mergedLog.toAbsolutePath.getParent).foreach(Files.createDirectories(_))
+    val inputs = files.map(file => Files.newInputStream(file))
+    val out = new BufferedOutputStream(Files.newOutputStream(mergedLog), 1024 * 1024)
+    try {
+      val cursors = mutable.PriorityQueue.empty[LineCursor](Ordering.by[LineCursor, Long](_.timestamp).reverse)
+      inputs.map(new LineCursor(_)).filter(_.next()).foreach(cursors.enqueue(_))
+      var lines = 0L
+      while (cursors.nonEmpty) {
+        val cursor = cursors.dequeue()
+        cursor.writeTo(out)
+        lines += 1
+        if (cursor.next()) cursors.enqueue(cursor)
+      }
+      lines
+    } finally {
+      out.close()
+      inputs.foreach(_.close())
+    }
+  }
+
+  // the current line of a log and the timestamp it is ordered by: the start of a RUN, USER START and ERROR, else the end
+  private final class LineCursor(in: InputStream) {
+    private val buffer = new Array[Byte](1024 * 1024)
+    private var position = 0
+    private var limit = 0
+    var line = new Array[Byte](1024)
+    var length = 0
+    var timestamp = 0L
+
+    def next(): Boolean = {
+      length = 0
+      var complete = false
+      while (!complete) {
+        if (position == limit) {
+          limit = math.max(in.read(buffer), 0)
+          position = 0
+          if (limit == 0) {
+            if (length == 0) return false
+            complete = true
+          }
+        }
+        var end = position
+        while (end < limit && buffer(end) != '\n') end += 1
+        append(end - position)
+        complete = complete || end < limit
+        position = if (end < limit) end + 1 else end
+      }
+      timestamp = parseTimestamp()
+      true
+    }
+
+    def writeTo(out: OutputStream): Unit = {
+      out.write(line, 0, length)
+      out.write('\n')
+    }
+
+    private def append(count: Int): Unit = {
+      if (length + count > line.length) line = java.util.Arrays.copyOf(line, math.max(line.length * 2, length + count))
+      System.arraycopy(buffer, position, line, length, count)
+      length += count
+    }
+
+    private def parseTimestamp(): Long = {
+      val timestampField = line(0) match {
+        case 'R' if line(2) == 'N' => 3 // RUN
+        case 'R'                   => 5 // REQUEST
+        case 'U'                   => if (fieldStart(3) + 2 < length && line(fieldStart(3) + 2) == 'A') 4 else 5 // USER START or END
+        case 'G'                   => 4 // GROUP
+        case 'E'                   => 2 // ERROR
+        case _                     => -1 // assertions first
+      }
+      var value = 0L
+      if (timestampField >= 0) {
+        var i = fieldStart(timestampField)
+        while (i < length && line(i) >= '0' && line(i) <= '9') {
+          value = value * 10 + (line(i) - '0')
+          i += 1
+        }
+      }
+      value
+    }
+
+    private def fieldStart(index: Int): Int = {
+      var start = 0
+      var field = 0
+      while (field < index && start < length) {
+        if (line(start) == '\t') field += 1
+        start += 1
+      }
+      start
+    }
+  }
+
+  /** Writes stats.json, timeline.csv and index.html to the directory. */
+  def writeReport(statistics: LogStatistics, directory: Path): Unit = {
+    Files.createDirectories(directory)
+    val mapper = new ObjectMapper
+    val stats = mapper.createObjectNode()
+    stats.put("simulation", statistics.getSimulationClass)
+    stats.put("simulationId", statistics.getSimulationId)
+    stats.put("gatlingVersion", statistics.getGatlingVersion)
+    stats.put("logs", statistics.getRuns)
+    stats.put("lines", statistics.getLines)
+    stats.put("bytes", statistics.getBytes)
+    stats.put("startSecond", statistics.getBaseSecond)
+    stats.put("seconds", statistics.getSeconds)
+    summary(stats.putObject("allRequests"), statistics.allRequests(), statistics.getRequests.values.asScala.map(_.getKo.getTotalCount).sum)
+    val requests = stats.putObject("requests")
+    statistics.getRequests.asScala.foreach {
+      case (name, request) => summary(requests.putObject(name), request.getAll, request.getKo.getTotalCount)
+    }
+    val errors = stats.putObject("errors")
+    statistics.getErrors.asScala.toSeq.sortBy(-_._2).foreach { case (message, count) => errors.put(message, count) }
+    mapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve("stats.json").toFile, stats)
+
+    val timeline = new StringBuilder("second,ok,ko,usersStarted,usersEnded\n")
+    (0 until statistics.getSeconds).foreach { second =>
+      timeline ++= s"${statistics.getBaseSecond + second},${statistics.okAt(second)},${statistics.koAt(second)}," +
+        s"${statistics.usersStartedAt(second)},${statistics.usersEndedAt(second)}\n"
+    }
+    Files.write(directory.resolve("timeline.csv"), timeline.toString.getBytes(StandardCharsets.UTF_8))
+
+    Files.write(directory.resolve("index.html"), html(statistics).getBytes(StandardCharsets.UTF_8))
+  }
+
+  private def summary(node: ObjectNode, all: Histogram, ko: Long): Unit = {
+    node.put("count", all.getTotalCount)
+    node.put("ok", all.getTotalCount - ko)
+    node.put("ko", ko)
+    if (all.getTotalCount > 0) {
+      node.put("min", all.getMinValue)
+      node.put("mean", all.getMean)
+      HistogramMerge.Percentiles.foreach(percentile => node.put(percentileName(percentile), all.getValueAtPercentile(percentile)))
+      node.put("max", all.getMaxValue)
+    }
+  }
+
+  private def html(statistics: LogStatistics): String = {
+    val header = ("request" +: Seq("count", "ok", "ko", "min") ++: HistogramMerge.Percentiles.map(percentileName) ++: Seq("max"))
+      .map(column => s"<th>$column</th>")
+      .mkString
+    def row(name: String, all: Histogram, ko: Long): String = {
+      val values = Seq(all.getTotalCount, all.getTotalCount - ko, ko, all.getMinValue) ++
+        HistogramMerge.Percentiles.map(all.getValueAtPercentile) ++ Seq(all.getMaxValue)
+      s"<tr><td>${escape(name)}</td>${values.map(value => s"<td>$value</td>").mkString}</tr>"
+    }
+    val allKo = statistics.getRequests.values.asScala.map(_.getKo.getTotalCount).sum
+    val rows = row("All requests", statistics.allRequests(), allKo) +: statistics.getRequests.asScala.toSeq.map {
+      case (name, request) => row(name, request.getAll, request.getKo.getTotalCount)
+    }
+    val errors = statistics.getErrors.asScala.toSeq.sortBy(-_._2).map {
+      case (message, count) => s"<tr><td>${escape(message)}</td><td>$count</td></tr>"
+    }
+    s"""<!DOCTYPE html>
+       |<html>
+       |<head><meta charset="utf-8"><title>${escape(String.valueOf(statistics.getSimulationClass))}</title>
+       |<style>body{font-family:sans-serif}table{border-collapse:collapse}td,th{border:1px solid #ccc;padding:4px 8px;text-align:right}td:first-child{text-align:left}</style>
+       |</head>
+       |<body>
+       |<h1>${escape(String.valueOf(statistics.getSimulationClass))}</h1>
+       |<p>${statistics.getRuns} log(s), ${statistics.getLines} lines, ${statistics.getSeconds} s from epoch second ${statistics.getBaseSecond}, response times in ms, see timeline.csv per second</p>
+       |<table><tr>$header</tr>
+       |${rows.mkString("\n")}
+       |</table>
+       |<h2>Errors</h2>
+       |<table><tr><th>message</th><th>count</th></tr>
+       |${errors.mkString("\n")}
+       |</table>
+       |</body>
+       |</html>
+       |""".stripMargin
+  }
+
+  // p50, p99.9
+  private def percentileName(percentile: Double): String = "p" + BigDecimal(percentile).bigDecimal.stripTrailingZeros.toPlainString
+
+  private def escape(value: String): String = value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;")
+}
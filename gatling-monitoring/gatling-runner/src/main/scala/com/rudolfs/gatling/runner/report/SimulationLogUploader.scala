@@ -0,0 +1,119 @@
+package com.rudolfs.gatling.runner.report
+
+import java.io.ByteArrayOutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.{ Files, Path, StandardOpenOption }
+import java.util.concurrent.{ Executors, TimeUnit }
+import java.util.zip.GZIPOutputStream
+
+import com.typesafe.scalalogging.StrictLogging
+
+import scala.concurrent.duration._
+import scala.util.control.NonFatal
+
+/**
+  * Streams the simulation.log of a runner to S3 while the simulation runs, so the report worker can render the report
+  * and the runner can exit as soon as the injection has finished. The file is tailed every second, complete lines are
+  * uploaded as gzip compressed chunks runs/&lt;runId&gt;/shards/&lt;shardIndex&gt;/simulation.log.&lt;sequence&gt;.gz once
+  * chunkSize bytes are written or chunkPeriod has passed. The chunks are gzip members, concatenated in sequence order
+  * they are one valid gzip stream of the whole log.
+  * <p>
+  * [[finish]] uploads the rest of the closed file and the marker runs/&lt;runId&gt;/shards/&lt;shardIndex&gt;/complete with the
+  * number of chunks, which the report worker waits for. A chunk that fails is retried with the next tick, so the
+  * sequence has no gaps.
+  */
+final class SimulationLogUploader(client: S3Client, runId: String, shardIndex: Int, logFile: Path, chunkBytes: Int, chunkPeriod: FiniteDuration)
+    extends StrictLogging {
+
+  import SimulationLogUploader._
+
+  private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable =>
+    val thread = new Thread(runnable, "simulation-log-uploader")
+    thread.setDaemon(true)
+    thread
+  }
+  private val buffer = ByteBuffer.allocate(chunkBytes)
+  // only accessed by the scheduler thread, and by finish after the scheduler has terminated
+  private var uploadedBytes = 0L
+  private var chunks = 0
+  private var lastUploadMillis = System.currentTimeMillis
+
+  def start(): Unit = {
+    scheduler.scheduleWithFixedDelay(() => tick(), TickMillis, TickMillis, TimeUnit.MILLISECONDS)
+    logger.info(s"Uploading $logFile to ${client.url(LogUploadConfiguration.shardPrefix(runId, shardIndex))}")
+  }
+
+  /**
+    * Uploads the rest of the log and the complete marker, call once the stats engine has stopped and the log is closed.
+    *
+    * @return whether the whole log was uploaded
+    */
+  def finish(truncated: Boolean): Boolean = {
+    scheduler.shutdown()
+    scheduler.awaitTermination(1, TimeUnit.MINUTES)
+    try {
+      while (uploadChunk(lastChunk = true)) {}
+      val marker = s"chunks=$chunks\nbytes=$uploadedBytes\ntruncated=$truncated\n"
+      client.put(LogUploadConfiguration.completeKey(runId, shardIndex), marker.getBytes(StandardCharsets.UTF_8), "text/plain")
+      logger.info(s"Uploaded $uploadedBytes bytes of $logFile in $chunks chunk(s)")
+      true
+    } catch {
+      case NonFatal(e) =>
+        logger.error(s"Could not upload $logFile, the report worker only gets the first $chunks chunk(s): ${e.getMessage}")
+        false
+    }
+  }
+
+  private def tick(): Unit =
+    try {
+      val due = System.currentTimeMillis - lastUploadMillis >= chunkPeriod.toMillis
+      // a full chunk is uploaded at once, the rest when the period is over
+      while (uploadChunk(lastChunk = due) && !due) {}
+    } catch {
+      case NonFatal(e) => logger.warn(s"Could not upload chunk ${chunks + 1} of $logFile, retrying: ${e.getMessage}")
+    }
+
+  // uploads the next chunk if a full one is available (or any complete lines for the last chunk), returns whether it did
+  private def uploadChunk(lastChunk: Boolean): Boolean = {
+    if (!Files.exists(logFile)) {
+      return false
+    }
+    val channel = FileChannel.open(logFile, StandardOpenOption.READ)
+    try {
+      buffer.clear()
+      while (buffer.hasRemaining && channel.read(buffer, uploadedBytes + buffer.position()) > 0) {}
+      if (buffer.position() == 0 || (!lastChunk && buffer.hasRemaining)) {
+        return false
+      }
+      // up to the last complete line, the DataWriter may be in the middle of the next one
+      var length = buffer.position()
+      while (length > 0 && buffer.get(length - 1) != '\n') {
+        length -= 1
+      }
+      if (length == 0) {
+        return false
+      }
+      client.put(LogUploadConfiguration.chunkKey(runId, shardIndex, chunks + 1), gzip(buffer.array(), length), "application/gzip")
+      chunks += 1
+      uploadedBytes += length
+      lastUploadMillis = System.currentTimeMillis
+      true
+    } finally {
+      channel.close()
+    }
+  }
+
+  private def gzip(bytes: Array[Byte], length: Int): Array[Byte] = {
+    val compressed = new ByteArrayOutputStream(length / 8)
+    val out = new GZIPOutputStream(compressed, 64 * 1024)
+    out.write(bytes, 0, length)
+    out.close()
+    compressed.toByteArray
+  }
+}
+
+object SimulationLogUploader {
+  private val TickMillis = 1000L
+}
@@ -0,0 +1,127 @@
+package com.rudolfs.gatling.runner.scaling
+
+import java.lang.management.{ ManagementFactory, MemoryType }
+import java.nio.file.{ Files, Path }
+import java.util.concurrent.{ Executors, TimeUnit }
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.typesafe.scalalogging.StrictLogging
+
+import scala.collection.JavaConverters._
+
+/**
+  * The resource usage of the runner JVM in the steady state of one level of the scaling suite, measured by the
+  * [[ScalingProbe]] between the end of the ramp and the end of the steady state.
+  *
+  * @param liveHeapBytes heap used right after a full GC at the end of the steady state, while all users are active
+  */
+final case class ScalingSample(
+    steadySeconds: Double,
+    cpuCores: Double,
+    allocatedBytesPerSecond: Double,
+    gcPauseMillisPerSecond: Double,
+    gcCollections: Map[String, Long],
+    gcPauseMillis: Map[String, Long],
+    liveHeapBytes: Long,
+    peakHeapBytes: Long,
+    maxHeapBytes: Long,
+    threads: Int,
+    availableProcessors: Int
+)
+
+/**
+  * Measures the runner JVM in the steady state of a level of the scaling suite, started by ScalingSimulation before
+  * its users are injected. The allocation rate is the sum of the bytes allocated by all live threads (HotSpot's
+  * ThreadMXBean), the CPU the process CPU time, so that neither includes the local target. The live heap is measured
+  * with one full GC at the end of the steady state, after the rates, and is written to the output file with the rates.
+  */
+object ScalingProbe extends StrictLogging {
+
+  private final case class Snapshot(nanos: Long, cpuNanos: Long, allocatedBytes: Long, gcCollections: Map[String, Long], gcMillis: Map[String, Long])
+
+  @volatile private var sample: Option[ScalingSample] = None
+
+  private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable =>
+    val thread = new Thread(runnable, "scaling-probe")
+    thread.setDaemon(true)
+    thread
+  }
+
+  def start(rampSeconds: Int, steadySeconds: Int): Unit = {
+    // both tasks run on the thread of the scheduler, one after the other
+    var steadyStart: Option[Snapshot] = None
+    val startTask: Runnable = () => {
+      steadyStart = Some(snapshot())
+      resetPeakHeap()
+    }
+    val endTask: Runnable = () => steadyStart.foreach(start => sample = Some(measure(start, snapshot())))
+    scheduler.schedule(startTask, rampSeconds.toLong, TimeUnit.SECONDS)
+    scheduler.schedule(endTask, (rampSeconds + steadySeconds).toLong, TimeUnit.SECONDS)
+  }
+
+  /** Writes the sample as JSON, fails if the simulation ended before the steady state did. */
+  def finish(output: Path): Unit = {
+    scheduler.shutdownNow()
+    val measured = sample.getOrElse(throw new IllegalStateException("The simulation ended before the steady state of the scaling probe"))
+    val mapper = new ObjectMapper
+    val json = mapper.createObjectNode()
+      .put("steadySeconds", measured.steadySeconds)
+      .put("cpuCores", measured.cpuCores)
+      .put("allocatedBytesPerSecond", measured.allocatedBytesPerSecond)
+      .put("gcPauseMillisPerSecond", measured.gcPauseMillisPerSecond)
+      .put("liveHeapBytes", measured.liveHeapBytes)
+      .put("peakHeapBytes", measured.peakHeapBytes)
+      .put("maxHeapBytes", measured.maxHeapBytes)
+      .put("threads", measured.threads)
+      .put("availableProcessors", measured.availableProcessors)
+    val collections = json.putObject("gcCollections")
+    measured.gcCollections.foreach { case (collector, count) => collections.put(collector, count) }
+    val pauses = json.putObject("gcPauseMillis")
+    measured.gcPauseMillis.foreach { case (collector, millis) => pauses.put(collector, millis) }
+    Files.createDirectories(output.toAbsolutePath.getParent)
+    mapper.writerWithDefaultPrettyPrinter.writeValue(output.toFile, json)
+    logger.info(s"Scaling probe: $measured")
+  }
+
+  private def measure(start: Snapshot, end: Snapshot): ScalingSample = {
+    val seconds = (end.nanos - start.nanos) / 1e9
+    val peakHeap = heapPools.map(_.getPeakUsage.getUsed).sum
+    val gcMillis = end.gcMillis.map { case (collector, millis) => collector -> (millis - start.gcMillis.getOrElse(collector, 0L)) }
+    // after the rates, the full GC must not count as a pause of the steady state
+    System.gc()
+    ScalingSample(
+      steadySeconds = seconds,
+      cpuCores = (end.cpuNanos - start.cpuNanos) / 1e9 / seconds,
+      allocatedBytesPerSecond = (end.allocatedBytes - start.allocatedBytes) / seconds,
+      gcPauseMillisPerSecond = gcMillis.values.sum / seconds,
+      gcCollections = end.gcCollections.map { case (collector, count) => collector -> (count - start.gcCollections.getOrElse(collector, 0L)) },
+      gcPauseMillis = gcMillis,
+      liveHeapBytes = ManagementFactory.getMemoryMXBean.getHeapMemoryUsage.getUsed,
+      peakHeapBytes = peakHeap,
+      maxHeapBytes = ManagementFactory.getMemoryMXBean.getHeapMemoryUsage.getMax,
+      threads = ManagementFactory.getThreadMXBean.getThreadCount,
+      availableProcessors = Runtime.getRuntime.availableProcessors
+    )
+  }
+
+  private def snapshot(): Snapshot = {
+    val collectors = ManagementFactory.getGarbageCollectorMXBeans.asScala
+    Snapshot(
+      nanos = System.nanoTime,
+      cpuNanos = ManagementFactory.getOperatingSystemMXBean match {
+        case os: com.sun.management.OperatingSystemMXBean => os.getProcessCpuTime
+        case _                                            => 0L
+      },
+      allocatedBytes = ManagementFactory.getThreadMXBean match {
+        case threads: com.sun.management.ThreadMXBean => threads.getThreadAllocatedBytes(threads.getAllThreadIds).filter(_ > 0).sum
+        case _                                         => 0L
+      },
+      gcCollections = collectors.map(collector => collector.getName -> collector.getCollectionCount).toMap,
+      gcMillis = collectors.map(collector => collector.getName -> collector.getCollectionTime).toMap
+    )
+  }
+
+  private def heapPools = ManagementFactory.getMemoryPoolMXBeans.asScala.filter(_.getType == MemoryType.HEAP)
+
+  private def resetPeakHeap(): Unit = heapPools.foreach(_.resetPeakUsage())
+}
@@ -0,0 +1,261 @@
+package com.rudolfs.gatling.runner.search
+
+import java.lang.reflect.{ InvocationHandler, Method, Proxy }
+import java.nio.file.{ Files, Path }
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.rudolfs.gatling.runner.hdr.HistogramCodec
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.commons.util.{ Clock, DefaultClock }
+import io.gatling.core.Predef.configuration
+import io.gatling.core.controller.inject.open.OpenInjectionStep
+import org.HdrHistogram.{ Histogram, IntCountsHistogram }
+
+import scala.collection.AbstractIterator
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+
+object ThroughputSearch {
+
+  @volatile private var active: Option[ThroughputSearch] = None
+
+  /** The search of the running simulation, if its injection profile is a throughput search. */
+  def current: Option[ThroughputSearch] = active
+
+  /**
+    * The injection profile of a scenario: a throughput search when gatling.throughputSearch.enabled is set (e.g. with
+    * run.sh --throughputsearch), otherwise the given profile. `share` turns a total rate into the rate of this runner.
+    */
+  def injection(share: Double => Double)(profile: OpenInjectionStep): OpenInjectionStep = {
+    val settings = ThroughputSearchConfiguration.load(configuration.config)
+    if (settings.enabled) {
+      require(active.isEmpty, "Only one scenario of a simulation can run a throughput search")
+      val search = new ThroughputSearch(settings, share(1.0), new DefaultClock)
+      active = Some(search)
+      search.injectionStep
+    } else {
+      profile
+    }
+  }
+
+  /**
+    * An open injection step with arrival times decided at runtime. OpenInjectionStep is sealed (also for Java classes
+    * compiled by scalac), but compiles to a plain interface of which Gatling only calls chain and users, so the step is
+    * a dynamic proxy of that interface.
+    */
+  private def dynamicStep(chain: Iterator[FiniteDuration] => Iterator[FiniteDuration], users: Long): OpenInjectionStep = {
+    val handler = new InvocationHandler {
+      override def invoke(proxy: Any, method: Method, args: Array[AnyRef]): AnyRef =
+        method.getName match {
+          case "chain"    => chain(args(0).asInstanceOf[Iterator[FiniteDuration]])
+          case "users"    => Long.box(users)
+          case "equals"   => Boolean.box(proxy.asInstanceOf[AnyRef] eq args(0))
+          case "hashCode" => Int.box(System.identityHashCode(proxy.asInstanceOf[AnyRef]))
+          case "toString" => s"ThroughputSearch($users users at most)"
+          case other      => throw new UnsupportedOperationException(other)
+        }
+    }
+    Proxy.newProxyInstance(getClass.getClassLoader, Array(classOf[OpenInjectionStep]), handler).asInstanceOf[OpenInjectionStep]
+  }
+
+  final case class StepResult(rate: Double, p99: Long, errorPercent: Double, responsesPerSecond: Double, passed: Boolean)
+
+  private final class ResponseBucket {
+    val histogram = new IntCountsHistogram(HistogramCodec.SIGNIFICANT_DIGITS)
+    val ok = new LongAdder
+    val ko = new LongAdder
+
+    def record(responseTime: Long, failed: Boolean): Unit = {
+      histogram.synchronized(histogram.recordValue(math.max(0, responseTime)))
+      if (failed) ko.increment() else ok.increment()
+    }
+  }
+}
+
+/**
+  * Closed-loop search for the highest arrival rate that still meets the SLO (p99 response time and error percentage).
+  * The injection starts at startRate and raises the rate by rateIncrement after every step that meets the SLO. After the
+  * first step that violates it, the rate is bisected between the highest passing and the failing rate for the configured
+  * number of refinements. Then the injection stops, or holds the sustainable rate for holdDuration.
+  *
+  * Gatling pulls the arrival times of the injection profile one batch (a second) ahead, so the rate of the next step is
+  * decided about a second before the end of a step. A step is judged by the responses that ended in the whole seconds
+  * from the end of its settleDuration to that decision, the responses of its last second are not part of it. The
+  * responses are fed by the [[ThroughputSearchStatsEngine]] and kept per second of their end timestamp.
+  */
+final class ThroughputSearch(settings: ThroughputSearchConfiguration, share: Double, clock: Clock) extends StrictLogging {
+  import ThroughputSearch._
+
+  private val buckets = new ConcurrentHashMap[java.lang.Long, ResponseBucket]
+  @volatile private var stepResults = Vector.empty[StepResult]
+  @volatile private var sustainableRate: Option[Double] = None
+  @volatile private var finished = false
+
+  def record(startTimestamp: Long, endTimestamp: Long, failed: Boolean): Unit =
+    buckets.computeIfAbsent(endTimestamp / 1000, _ => new ResponseBucket).record(endTimestamp - startTimestamp, failed)
+
+  def injectionStep: OpenInjectionStep = {
+    // upper bound of the injected users, the search usually stops earlier
+    val rampSteps = ((settings.maxRate - settings.startRate) / settings.rateIncrement).toInt + 1
+    val rampUsers = (0 until rampSteps).map(step => settings.startRate + step * settings.rateIncrement).sum * settings.stepDuration.toSeconds
+    val otherUsers = settings.maxRate * (settings.refinements * settings.stepDuration.toSeconds + settings.holdDuration.toSeconds)
+
+    dynamicStep(
+      chained => {
+        val search = new SearchIterator
+        // the end of the search is only known once it finished, the following steps are shifted lazily
+        search ++ chained.map(_ + search.end)
+      },
+      math.ceil((rampUsers + otherUsers) * share).toLong
+    )
+  }
+
+  /** Writes the result of the search as JSON to throughput-search.json in the given directory. */
+  def writeReport(directory: Path): Unit = {
+    val mapper = new ObjectMapper
+    val report = mapper.createObjectNode()
+    report.put("finished", finished)
+    sustainableRate.foreach(report.put("sustainableRate", _))
+    report.put("share", share)
+    report.put("p99Millis", settings.p99.toMillis)
+    report.put("maxErrorPercent", settings.maxErrorPercent)
+    val steps = report.putArray("steps")
+    stepResults.foreach { step =>
+      steps
+        .addObject()
+        .put("rate", step.rate)
+        .put("p99Millis", step.p99)
+        .put("errorPercent", step.errorPercent)
+        .put("responsesPerSecond", step.responsesPerSecond)
+        .put("passed", step.passed)
+    }
+    Files.createDirectories(directory)
+    val file = directory.resolve("throughput-search.json")
+    mapper.writerWithDefaultPrettyPrinter.writeValue(file.toFile, report)
+    logger.info(s"Throughput search: report written to $file")
+  }
+
+  private def evaluate(rate: Double, fromMillis: Long, toMillis: Long): StepResult = {
+    val histogram = new Histogram(HistogramCodec.SIGNIFICANT_DIGITS)
+    var ok, ko = 0L
+    // the second of toMillis has not ended yet
+    val seconds = fromMillis / 1000 until toMillis / 1000
+    for (second <- seconds) {
+      Option(buckets.get(second)).foreach { bucket =>
+        bucket.histogram.synchronized(histogram.add(bucket.histogram))
+        ok += bucket.ok.sum
+        ko += bucket.ko.sum
+      }
+    }
+    buckets.keySet.asScala.filter(_ < toMillis / 1000).foreach(buckets.remove)
+
+    val responses = ok + ko
+    val p99 = histogram.getValueAtPercentile(99)
+    val errorPercent = if (responses == 0) 100.0 else ko * 100.0 / responses
+    val responsesPerSecond = responses.toDouble / math.max(1, seconds.size)
+    // without any response the rate can't be judged, the system under test most likely stalled
+    val passed = responses > 0 && p99 <= settings.p99.toMillis && errorPercent <= settings.maxErrorPercent
+    StepResult(rate, p99, errorPercent, responsesPerSecond, passed)
+  }
+
+  private sealed trait Phase
+  private case object Ramp extends Phase
+  private case object Refine extends Phase
+  private case object Hold extends Phase
+  private case object Done extends Phase
+
+  /** Arrival times (offsets from the start of the injection) at the rate of the current step, decided step by step. */
+  private final class SearchIterator extends AbstractIterator[FiniteDuration] {
+    private var phase: Phase = Ramp
+    private var wallStart = -1L
+    private var rate = settings.startRate
+    private var stepStart = 0.0
+    private var stepEnd = settings.stepDuration.toMillis / 1000.0
+    private var nextArrival = 0.0
+    // the arrivals are computed from their index, a sum of 1 / rate drifts below the step end by one extra arrival
+    private var arrivalIndex = 0L
+    private var highestPassed: Option[Double] = None
+    private var lowestFailed: Option[Double] = None
+    private var refinementsLeft = settings.refinements
+
+    def end: FiniteDuration = (stepEnd * 1e9).toLong.nanos
+
+    override def hasNext: Boolean = {
+      if (wallStart < 0) {
+        wallStart = clock.nowMillis
+        logger.info(s"Throughput search: starting at ${settings.startRate} users/s")
+      }
+      while (phase != Done && nextArrival >= stepEnd) {
+        completeStep()
+      }
+      phase != Done
+    }
+
+    override def next(): FiniteDuration = {
+      if (!hasNext) throw new NoSuchElementException("Throughput search finished")
+      val arrival = nextArrival
+      arrivalIndex += 1
+      nextArrival = stepStart + arrivalIndex / (rate * share)
+      (arrival * 1e9).toLong.nanos
+    }
+
+    private def completeStep(): Unit =
+      if (phase == Hold) {
+        phase = Done
+      } else {
+        val from = wallStart + ((stepStart + settings.settleDuration.toSeconds) * 1000).toLong
+        // when the injection lags behind, the pull happens after the end of the step, the next step isn't part of it
+        val result = evaluate(rate, from, math.min(clock.nowMillis, wallStart + (stepEnd * 1000).toLong))
+        stepResults :+= result
+        logger.info(
+          f"Throughput search: ${result.rate}%.2f users/s: p99 ${result.p99} ms, errors ${result.errorPercent}%.2f%%, " +
+            f"${result.responsesPerSecond}%.1f responses/s, ${if (result.passed) "passed" else "failed"}"
+        )
+        if (result.passed) highestPassed = Some(rate) else lowestFailed = Some(rate)
+
+        (phase, highestPassed, lowestFailed) match {
+          case (Ramp, _, None) if rate + settings.rateIncrement <= settings.maxRate => startStep(rate + settings.rateIncrement, settings.stepDuration)
+          case (Ramp, _, None)                                                    => finish("the maximum rate met the SLO")
+          case (_, None, Some(_))                                                 => finish("the start rate already violated the SLO")
+          case (_, Some(passed), Some(failed)) if refinementsLeft > 0 =>
+            refinementsLeft -= 1
+            phase = Refine
+            startStep((passed + failed) / 2, settings.stepDuration)
+          case _ => finish("the SLO was violated")
+        }
+      }
+
+    private def startStep(newRate: Double, duration: FiniteDuration): Unit = {
+      rate = newRate
+      stepStart = stepEnd
+      stepEnd = stepStart + duration.toMillis / 1000.0
+      nextArrival = stepStart
+      arrivalIndex = 0
+    }
+
+    private def finish(reason: String): Unit = {
+      sustainableRate = highestPassed
+      finished = true
+      highestPassed match {
+        case Some(sustainable) =>
+          val step = stepResults.filter(_.passed).maxBy(_.rate)
+          logger.info(
+            f"Throughput search: sustainable throughput $sustainable%.2f users/s (${step.responsesPerSecond}%.1f responses/s on this runner, " +
+              f"p99 ${step.p99} ms), $reason"
+          )
+        case None =>
+          logger.warn(s"Throughput search: no sustainable throughput, $reason")
+      }
+
+      highestPassed match {
+        case Some(sustainable) if settings.holdDuration > Duration.Zero =>
+          phase = Hold
+          startStep(sustainable, settings.holdDuration)
+        case _ =>
+          phase = Done
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.rudolfs.gatling.runner.search
+
+import com.typesafe.config.Config
+
+import scala.concurrent.duration._
+
+/**
+  * Settings of the gatling.throughputSearch section in gatling.conf. The rates are arrival rates in users per second
+  * over all shards of a run, every runner injects its share of them.
+  */
+final case class ThroughputSearchConfiguration(
+    enabled: Boolean,
+    startRate: Double,
+    rateIncrement: Double,
+    maxRate: Double,
+    stepDuration: FiniteDuration,
+    settleDuration: FiniteDuration,
+    p99: FiniteDuration,
+    maxErrorPercent: Double,
+    refinements: Int,
+    holdDuration: FiniteDuration
+) {
+  require(startRate > 0 && rateIncrement > 0 && maxRate >= startRate, "throughputSearch needs 0 < startRate <= maxRate and a positive rateIncrement")
+  require(settleDuration + 1.second < stepDuration, "throughputSearch.settleDuration must be at least a second shorter than the stepDuration")
+  require(refinements >= 0, "throughputSearch.refinements must not be negative")
+}
+
+object ThroughputSearchConfiguration {
+
+  def load(config: Config): ThroughputSearchConfiguration = {
+    val search = config.getConfig("gatling.throughputSearch")
+    ThroughputSearchConfiguration(
+      enabled = search.getBoolean("enabled"),
+      startRate = search.getDouble("startRate"),
+      rateIncrement = search.getDouble("rateIncrement"),
+      maxRate = search.getDouble("maxRate"),
+      stepDuration = search.getInt("stepDuration").seconds,
+      settleDuration = search.getInt("settleDuration").seconds,
+      p99 = search.getInt("p99").millis,
+      maxErrorPercent = search.getDouble("maxErrorPercent"),
+      refinements = search.getInt("refinements"),
+      holdDuration = search.getInt("holdDuration").seconds
+    )
+  }
+}
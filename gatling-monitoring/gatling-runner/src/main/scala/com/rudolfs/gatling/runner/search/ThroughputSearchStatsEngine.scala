@@ -0,0 +1,42 @@
+package com.rudolfs.gatling.runner.search
+
+import java.nio.file.Path
+
+import akka.actor.ActorRef
+import com.rudolfs.gatling.runner.stats.ForwardingStatsEngine
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.commons.stats.{ KO, Status }
+import io.gatling.core.session.Session
+import io.gatling.core.stats.StatsEngine
+
+import scala.util.control.NonFatal
+
+/**
+  * Feeds the responses of the run into the [[ThroughputSearch]] and writes its report to the run directory at the end.
+  */
+class ThroughputSearchStatsEngine(underlying: StatsEngine, search: ThroughputSearch, runDirectory: Path)
+    extends ForwardingStatsEngine(underlying)
+    with StrictLogging {
+
+  override def logResponse(
+      session: Session,
+      requestName: String,
+      startTimestamp: Long,
+      endTimestamp: Long,
+      status: Status,
+      responseCode: Option[String],
+      message: Option[String]
+  ): Unit = {
+    search.record(startTimestamp, endTimestamp, status == KO)
+    super.logResponse(session, requestName, startTimestamp, endTimestamp, status, responseCode, message)
+  }
+
+  override def stop(replyTo: ActorRef, exception: Option[Exception]): Unit = {
+    try {
+      search.writeReport(runDirectory)
+    } catch {
+      case NonFatal(e) => logger.error(s"Throughput search: could not write the report to $runDirectory", e)
+    }
+    super.stop(replyTo, exception)
+  }
+}
@@ -0,0 +1,40 @@
+package com.rudolfs.gatling.runner.sidechannel
+
+import java.util.concurrent.{ Executors, ScheduledExecutorService, TimeUnit }
+
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.commons.util.Clock
+
+import scala.concurrent.duration.FiniteDuration
+import scala.util.control.NonFatal
+
+/**
+  * Writes the points of a side channel every period from a daemon thread named threadName. Failed writes are logged
+  * as a failure to send the description and skipped, the next period writes the current points again. Periods
+  * without points write nothing.
+  */
+final class SideChannelReporter(writer: SideChannelWriter, threadName: String, description: String, period: FiniteDuration, clock: Clock)(
+    points: () => Seq[SideChannelPoint]
+) extends StrictLogging {
+
+  private val scheduler: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor { runnable =>
+    val thread = new Thread(runnable, threadName)
+    thread.setDaemon(true)
+    thread
+  }
+
+  def start(): Unit =
+    scheduler.scheduleAtFixedRate(() => report(), period.toMillis, period.toMillis, TimeUnit.MILLISECONDS)
+
+  /** Stops the periodic reports, call [[report]] afterwards to write the last period. */
+  def stop(): Unit = scheduler.shutdownNow()
+
+  def report(): Unit = synchronized {
+    try {
+      val current = points()
+      if (current.nonEmpty) writer.write(current, clock.nowSeconds)
+    } catch {
+      case NonFatal(e) => logger.warn(s"Could not send the $description: ${e.getMessage}")
+    }
+  }
+}
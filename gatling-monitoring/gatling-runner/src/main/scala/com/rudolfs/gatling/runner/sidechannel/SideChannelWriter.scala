@@ -0,0 +1,132 @@
+package com.rudolfs.gatling.runner.sidechannel
+
+import java.io.{ BufferedWriter, IOException, OutputStreamWriter }
+import java.net.{ InetSocketAddress, Socket }
+import java.nio.charset.StandardCharsets
+
+import com.rudolfs.gatling.runner.influxdb.{ InfluxDbDataWriter, InfluxDbDataWriterConfiguration, InfluxDbHttpSender, LineProtocolEncoder }
+
+/**
+  * A point of a measurement next to the metrics of Gatling, e.g. the series count or the telemetry of a runner. The
+  * measurement is relative to the root of the run, the tags follow the shard and simulation tags in this order.
+  * <p>
+  * A point with ownRoot is written to the measurement &lt;root&gt;_&lt;measurement&gt; instead of &lt;root&gt;.&lt;measurement&gt;. Its
+  * Graphite path starts with that root instead of &lt;root&gt;.&lt;simulation&gt;, so it can't collide with the path of a
+  * request or group of the same name.
+  */
+final case class SideChannelPoint(measurement: String, tags: Seq[(String, String)], fields: Seq[(String, Long)], ownRoot: Boolean)
+
+/**
+  * Writes [[SideChannelPoint]]s the same way the metrics of the run are written, to the graphite-relay or directly to
+  * InfluxDB. One writer is shared by all side channels of a runner and keeps its connection open between writes.
+  */
+sealed trait SideChannelWriter extends AutoCloseable {
+  @throws[IOException]
+  def write(points: Seq[SideChannelPoint], timestamp: Long): Unit
+
+  override def close(): Unit
+}
+
+object SideChannelWriter {
+
+  /** The InfluxDB writer when the runner writes its metrics to InfluxDB, the Graphite writer otherwise. */
+  def apply(
+      influxDbConfiguration: Option[InfluxDbDataWriterConfiguration],
+      host: String,
+      port: Int,
+      rootPathPrefix: String,
+      simulationId: String,
+      connectTimeoutMillis: Int
+  ): SideChannelWriter =
+    influxDbConfiguration match {
+      case Some(influxDb) => new InfluxDbSideChannelWriter(influxDb, rootPathPrefix, simulationId)
+      case None           => new GraphiteSideChannelWriter(host, port, rootPathPrefix, simulationId, connectTimeoutMillis)
+    }
+}
+
+/**
+  * Sends the points as plaintext Graphite lines &lt;rootPathPrefix&gt;.&lt;simulation&gt;.&lt;measurement&gt;.&lt;tag values&gt;.&lt;field&gt;,
+  * or &lt;root&gt;_&lt;measurement&gt;[.shards.&lt;index&gt;].&lt;simulation&gt;.&lt;tag values&gt;.&lt;field&gt; for points with their own root,
+  * which the templates in influxdb.conf store in the same measurements as the InfluxDB writer. The socket is opened on
+  * the first write and reopened on the write after a failed one.
+  */
+final class GraphiteSideChannelWriter(host: String, port: Int, rootPathPrefix: String, simulationId: String, connectTimeoutMillis: Int)
+    extends SideChannelWriter {
+
+  private val simulation = InfluxDbDataWriter.sanitize(simulationId)
+  private val (root, shards) = rootPathPrefix.span(_ != '.')
+  private var socket: Socket = _
+  private var writer: BufferedWriter = _
+
+  override def write(points: Seq[SideChannelPoint], timestamp: Long): Unit = synchronized {
+    try {
+      if (socket == null) connect()
+      points.foreach { point =>
+        val prefix = if (point.ownRoot) s"${root}_${point.measurement}$shards.$simulation" else s"$rootPathPrefix.$simulation.${point.measurement}"
+        val pointPath = (prefix +: point.tags.map { case (_, value) => InfluxDbDataWriter.sanitize(value) }).mkString(".")
+        point.fields.foreach { case (field, value) => writer.write(s"$pointPath.$field $value $timestamp\n") }
+      }
+      writer.flush()
+    } catch {
+      case e: IOException =>
+        close()
+        throw e
+    }
+  }
+
+  override def close(): Unit = synchronized {
+    if (socket != null) {
+      socket.close()
+      socket = null
+      writer = null
+    }
+  }
+
+  private def connect(): Unit = {
+    val newSocket = new Socket
+    try {
+      newSocket.connect(new InetSocketAddress(host, port), connectTimeoutMillis)
+      writer = new BufferedWriter(new OutputStreamWriter(newSocket.getOutputStream, StandardCharsets.UTF_8))
+      socket = newSocket
+    } catch {
+      case e: IOException =>
+        newSocket.close()
+        throw e
+    }
+  }
+}
+
+/**
+  * Writes the points in the line protocol to the HTTP API of InfluxDB, with the same measurements and tags the
+  * Graphite templates produce. The encoder and the sender are reused for every write.
+  */
+final class InfluxDbSideChannelWriter(configuration: InfluxDbDataWriterConfiguration, rootPathPrefix: String, simulationId: String)
+    extends SideChannelWriter {
+
+  private val simulation = InfluxDbDataWriter.sanitize(simulationId)
+  private val (root, shard) = InfluxDbDataWriter.measurementAndShard(rootPathPrefix)
+  private val encoder = new LineProtocolEncoder(4096)
+  private val sender = new InfluxDbHttpSender(
+    configuration.host,
+    configuration.port,
+    configuration.database,
+    configuration.batchSize,
+    configuration.timeout.toMillis.toInt
+  )
+
+  override def write(points: Seq[SideChannelPoint], timestamp: Long): Unit = synchronized {
+    encoder.reset()
+    points.foreach { point =>
+      encoder.measurement(if (point.ownRoot) s"${root}_${point.measurement}" else s"$root.${point.measurement}")
+      shard.foreach(encoder.tag("shard", _))
+      encoder.tag("simulation", simulation)
+      point.tags.foreach { case (key, value) => encoder.tag(key, InfluxDbDataWriter.sanitize(value)) }
+      point.fields.foreach { case (field, value) => encoder.field(field, value) }
+      encoder.end(timestamp)
+    }
+    sender.send(encoder)
+  }
+
+  // every write is a request of its own
+  override def close(): Unit = ()
+}
@@ -0,0 +1,26 @@
+package com.rudolfs.gatling.runner.startup
+
+import java.time.Instant
+
+import com.typesafe.scalalogging.StrictLogging
+
+/**
+  * Lets all runners of a sharded run start injecting at the same wall-clock instant. The run orchestrator launches
+  * the runner tasks with the start instant in GATLING_START_AT (epoch millis), every runner waits for it once its JVM
+  * has started, so the seconds between the starts of the Fargate tasks don't smear the ramp-up.
+  */
+object StartBarrier extends StrictLogging {
+  val StartAtProperty = "GATLING_START_AT"
+
+  /** Blocks until the start instant, returns immediately when no start instant is set. */
+  def await(): Unit =
+    sys.props.get(StartAtProperty).map(_.trim).filter(_.nonEmpty).map(_.toLong).filter(_ > 0).foreach { startAt =>
+      val waitMillis = startAt - System.currentTimeMillis
+      if (waitMillis > 0) {
+        logger.info(s"Start barrier: waiting $waitMillis ms for the start instant ${Instant.ofEpochMilli(startAt)}")
+        Thread.sleep(waitMillis)
+      } else {
+        logger.warn(s"Start barrier: the start instant ${Instant.ofEpochMilli(startAt)} passed ${-waitMillis} ms ago, starting immediately")
+      }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rudolfs.gatling.runner.startup
+
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.AtomicBoolean
+
+import com.rudolfs.gatling.runner.stats.ForwardingStatsEngine
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.commons.stats.Status
+import io.gatling.core.session.Session
+import io.gatling.core.stats.StatsEngine
+
+object StartupTimingStatsEngine {
+  /** Epoch millis at which run.sh was started, close to the start of the container. */
+  val ContainerStartProperty = "GATLING_CONTAINER_START_MILLIS"
+}
+
+/**
+  * Logs once how long it took from the start of the container to the first request sent, split into the time until
+  * the JVM started and the time the JVM needed (class loading, Scala/Gatling initialization) until the first request.
+  * The start timestamp of the first response is the moment the request was sent.
+  */
+class StartupTimingStatsEngine(underlying: StatsEngine) extends ForwardingStatsEngine(underlying) with StrictLogging {
+  import StartupTimingStatsEngine._
+
+  private val firstRequestSeen = new AtomicBoolean
+
+  override def logResponse(
+      session: Session,
+      requestName: String,
+      startTimestamp: Long,
+      endTimestamp: Long,
+      status: Status,
+      responseCode: Option[String],
+      message: Option[String]
+  ): Unit = {
+    if (!firstRequestSeen.get && firstRequestSeen.compareAndSet(false, true)) {
+      logStartup(startTimestamp)
+    }
+    super.logResponse(session, requestName, startTimestamp, endTimestamp, status, responseCode, message)
+  }
+
+  private def logStartup(firstRequestTimestamp: Long): Unit = {
+    val jvmStart = ManagementFactory.getRuntimeMXBean.getStartTime
+    sys.props.get(ContainerStartProperty).map(_.toLong) match {
+      case Some(containerStart) =>
+        logger.info(
+          s"Startup: first request sent ${firstRequestTimestamp - containerStart} ms after container start " +
+            s"(container to JVM ${jvmStart - containerStart} ms, JVM to first request ${firstRequestTimestamp - jvmStart} ms)"
+        )
+      case None =>
+        logger.info(s"Startup: first request sent ${firstRequestTimestamp - jvmStart} ms after JVM start")
+    }
+  }
+}
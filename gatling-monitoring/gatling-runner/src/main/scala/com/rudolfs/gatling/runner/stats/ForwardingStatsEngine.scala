@@ -0,0 +1,39 @@
+package com.rudolfs.gatling.runner.stats
+
+import akka.actor.ActorRef
+import io.gatling.commons.stats.Status
+import io.gatling.core.session.{ GroupBlock, Session }
+import io.gatling.core.stats.StatsEngine
+import io.gatling.core.stats.writer.UserEndMessage
+
+/**
+  * A StatsEngine that forwards every call to the underlying engine, the base of the engines that observe the
+  * statistics of a run next to the DataWriters (see [[io.gatling.app.GatlingRunner]]).
+  */
+abstract class ForwardingStatsEngine(underlying: StatsEngine) extends StatsEngine {
+
+  override def start(): Unit = underlying.start()
+
+  override def stop(replyTo: ActorRef, exception: Option[Exception]): Unit = underlying.stop(replyTo, exception)
+
+  override def logUserStart(session: Session): Unit = underlying.logUserStart(session)
+
+  override def logUserEnd(userMessage: UserEndMessage): Unit = underlying.logUserEnd(userMessage)
+
+  override def logResponse(
+      session: Session,
+      requestName: String,
+      startTimestamp: Long,
+      endTimestamp: Long,
+      status: Status,
+      responseCode: Option[String],
+      message: Option[String]
+  ): Unit = underlying.logResponse(session, requestName, startTimestamp, endTimestamp, status, responseCode, message)
+
+  override def logGroupEnd(session: Session, group: GroupBlock, exitTimestamp: Long): Unit = underlying.logGroupEnd(session, group, exitTimestamp)
+
+  override def logCrash(session: Session, requestName: String, error: String): Unit = underlying.logCrash(session, requestName, error)
+
+  override def reportUnbuildableRequest(session: Session, requestName: String, errorMessage: String): Unit =
+    underlying.reportUnbuildableRequest(session, requestName, errorMessage)
+}
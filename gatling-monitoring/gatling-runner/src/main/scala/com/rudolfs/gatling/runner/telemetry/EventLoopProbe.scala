@@ -0,0 +1,88 @@
+package com.rudolfs.gatling.runner.telemetry
+
+import java.util.concurrent.atomic.{ AtomicLong, LongAdder }
+import java.util.concurrent.{ Executors, TimeUnit }
+
+import io.gatling.core.scenario.Scenario
+import io.gatling.http.protocol.{ HttpComponents, HttpProtocol }
+import io.netty.channel.group.ChannelGroup
+import io.netty.util.concurrent.{ EventExecutor, EventExecutorGroup }
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration.FiniteDuration
+import scala.util.Try
+
+/**
+  * The lag of the event loops of Gatling's HTTP client, the time a task queued on an event loop waits until the loop
+  * runs it. Every probeInterval a probe task is queued on every event loop that has no pending probe. A loop that is
+  * busy with responses, TLS handshakes or checks runs the probe late, a blocked loop not at all, so a pending probe
+  * counts with its current age.
+  */
+final class EventLoopProbe(eventLoops: Seq[EventExecutor], val openConnections: () => Long, probeInterval: FiniteDuration) {
+
+  private val scheduler = Executors.newSingleThreadScheduledExecutor { runnable =>
+    val thread = new Thread(runnable, "event-loop-probe")
+    thread.setDaemon(true)
+    thread
+  }
+  // the queue time of the pending probe of every event loop, 0 when none is pending
+  private val pendingSince = eventLoops.map(_ => new AtomicLong)
+  private val maxLagNanos = new AtomicLong
+  private val lagNanos = new LongAdder
+  private val probes = new LongAdder
+
+  def start(): Unit =
+    scheduler.scheduleAtFixedRate(() => probe(), probeInterval.toMillis, probeInterval.toMillis, TimeUnit.MILLISECONDS)
+
+  def stop(): Unit = scheduler.shutdownNow()
+
+  /** The max and mean lag in milliseconds since the previous call. */
+  def lagMillis(): (Long, Long) = {
+    val now = System.nanoTime
+    val pendingLag = pendingSince.map(_.get).filter(_ != 0).map(now - _).foldLeft(0L)(math.max)
+    val max = math.max(maxLagNanos.getAndSet(0), pendingLag)
+    val count = probes.sumThenReset()
+    val mean = if (count == 0) pendingLag else lagNanos.sumThenReset() / count
+    (TimeUnit.NANOSECONDS.toMillis(max), TimeUnit.NANOSECONDS.toMillis(mean))
+  }
+
+  private def probe(): Unit =
+    eventLoops.zip(pendingSince).foreach {
+      case (eventLoop, pending) if !eventLoop.isShuttingDown && pending.compareAndSet(0, System.nanoTime) =>
+        val queued = pending.get
+        eventLoop.execute { () =>
+          val lag = System.nanoTime - queued
+          pending.set(0)
+          maxLagNanos.accumulateAndGet(lag, math.max(_, _))
+          lagNanos.add(lag)
+          probes.increment()
+        }
+      case _ =>
+    }
+}
+
+object EventLoopProbe {
+
+  /**
+    * The probe of the HTTP client of the simulation, if it uses the HTTP protocol. Gatling 3.3 doesn't expose its
+    * client, its event loops and open channels are read from the private fields of HttpEngine and DefaultHttpClient.
+    */
+  def forHttpClient(scenarios: List[Scenario], probeInterval: FiniteDuration): Option[EventLoopProbe] =
+    scenarios
+      .flatMap(_.ctx.protocolComponentsRegistry.componentsCache.get(HttpProtocol.HttpProtocolKey))
+      .collectFirst { case components: HttpComponents => components.httpEngine }
+      .flatMap { httpEngine =>
+        Try {
+          val httpClient = field(httpEngine, "httpClient")
+          val eventLoopGroup = field(httpClient, "eventLoopGroup").asInstanceOf[EventExecutorGroup]
+          val channelGroup = field(httpClient, "channelGroup").asInstanceOf[ChannelGroup]
+          new EventLoopProbe(eventLoopGroup.iterator.asScala.toVector, () => channelGroup.size.toLong, probeInterval)
+        }.toOption
+      }
+
+  private def field(instance: AnyRef, name: String): AnyRef = {
+    val field = instance.getClass.getDeclaredField(name)
+    field.setAccessible(true)
+    field.get(instance)
+  }
+}
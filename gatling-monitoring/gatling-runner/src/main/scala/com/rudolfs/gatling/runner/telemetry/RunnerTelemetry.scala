@@ -0,0 +1,159 @@
+package com.rudolfs.gatling.runner.telemetry
+
+import java.lang.management.ManagementFactory
+import java.nio.file.{ Files, Path, Paths }
+import java.util.concurrent.TimeUnit
+
+import com.rudolfs.gatling.runner.sidechannel.{ SideChannelPoint, SideChannelReporter, SideChannelWriter }
+import com.typesafe.scalalogging.StrictLogging
+import io.gatling.commons.util.Clock
+
+import scala.collection.JavaConverters._
+import scala.util.Try
+
+/**
+  * The state of the runner JVM in one period. Percentages are of the period (gc) or of the CPUs available to the JVM
+  * (cpu, cpuThrottled), all values are integers because the graphite-relay rounds its values.
+  */
+final case class RunnerSample(
+    cpuPercent: Long,
+    cpuThrottledPercent: Long,
+    gcPauseMillis: Long,
+    gcPercent: Long,
+    gcCount: Long,
+    heapUsed: Long,
+    heapMax: Long,
+    threads: Long,
+    eventLoopLagMax: Long,
+    eventLoopLagMean: Long,
+    connections: Long,
+    saturated: Boolean
+) {
+  def fields: Seq[(String, Long)] = Seq(
+    "cpuPercent" -> cpuPercent,
+    "cpuThrottledPercent" -> cpuThrottledPercent,
+    "gcPauseMillis" -> gcPauseMillis,
+    "gcPercent" -> gcPercent,
+    "gcCount" -> gcCount,
+    "heapUsed" -> heapUsed,
+    "heapMax" -> heapMax,
+    "threads" -> threads,
+    "eventLoopLagMax" -> eventLoopLagMax,
+    "eventLoopLagMean" -> eventLoopLagMean,
+    "connections" -> connections,
+    "saturated" -> (if (saturated) 1L else 0L)
+  )
+}
+
+/**
+  * Takes a [[RunnerSample]] from the platform MXBeans, the cgroup of the container and the event loop probe of the HTTP
+  * client. Every sample covers the time since the previous one.
+  */
+final class RunnerSampler(configuration: TelemetryConfiguration, eventLoopProbe: Option[EventLoopProbe]) {
+
+  private val memory = ManagementFactory.getMemoryMXBean
+  private val threads = ManagementFactory.getThreadMXBean
+  private val collectors = ManagementFactory.getGarbageCollectorMXBeans.asScala.toList
+  private val os = ManagementFactory.getOperatingSystemMXBean match {
+    case os: com.sun.management.OperatingSystemMXBean => Some(os)
+    case _                                            => None
+  }
+  private val processors = Runtime.getRuntime.availableProcessors
+  private val cgroupCpuStat = RunnerSampler.cgroupCpuStat
+
+  private var lastNanos = System.nanoTime
+  private var lastCpuNanos = cpuNanos
+  private var lastThrottledNanos = throttledNanos
+  private var lastGcMillis = collectors.map(_.getCollectionTime).sum
+  private var lastGcCount = collectors.map(_.getCollectionCount).sum
+
+  def sample(): RunnerSample = synchronized {
+    val now = System.nanoTime
+    val elapsed = math.max(now - lastNanos, 1)
+    val cpu = cpuNanos
+    val throttled = throttledNanos
+    val gcMillis = collectors.map(_.getCollectionTime).sum
+    val gcCount = collectors.map(_.getCollectionCount).sum
+    val (lagMax, lagMean) = eventLoopProbe.fold((0L, 0L))(_.lagMillis())
+
+    val cpuPercent = (cpu - lastCpuNanos) * 100 / (elapsed * processors)
+    val gcPauseMillis = gcMillis - lastGcMillis
+    val gcPercent = gcPauseMillis * 100 / math.max(TimeUnit.NANOSECONDS.toMillis(elapsed), 1)
+    val heap = memory.getHeapMemoryUsage
+    val sample = RunnerSample(
+      cpuPercent = cpuPercent,
+      // the wall time in which the cgroup had used up its CPU quota
+      cpuThrottledPercent = (throttled - lastThrottledNanos) * 100 / elapsed,
+      gcPauseMillis = gcPauseMillis,
+      gcPercent = gcPercent,
+      gcCount = gcCount - lastGcCount,
+      heapUsed = heap.getUsed,
+      heapMax = heap.getMax,
+      threads = threads.getThreadCount,
+      eventLoopLagMax = lagMax,
+      eventLoopLagMean = lagMean,
+      connections = eventLoopProbe.fold(0L)(_.openConnections()),
+      saturated = cpuPercent >= configuration.cpuPercentThreshold ||
+        gcPercent >= configuration.gcPercentThreshold ||
+        lagMax >= configuration.eventLoopLagThreshold.toMillis
+    )
+
+    lastNanos = now
+    lastCpuNanos = cpu
+    lastThrottledNanos = throttled
+    lastGcMillis = gcMillis
+    lastGcCount = gcCount
+    sample
+  }
+
+  private def cpuNanos: Long = os.fold(0L)(_.getProcessCpuTime)
+
+  private def throttledNanos: Long = cgroupCpuStat.fold(0L)(RunnerSampler.throttledNanos)
+}
+
+object RunnerSampler {
+
+  // cgroup v2 reports throttled_usec in cpu.stat of the cgroup root, v1 throttled_time in nanoseconds in the cpu controller
+  private val CpuStatFiles = Seq("/sys/fs/cgroup/cpu.stat", "/sys/fs/cgroup/cpu/cpu.stat", "/sys/fs/cgroup/cpu,cpuacct/cpu.stat")
+
+  private def cgroupCpuStat: Option[Path] = CpuStatFiles.map(Paths.get(_)).find(Files.isReadable)
+
+  private def throttledNanos(cpuStat: Path): Long =
+    Try {
+      Files.readAllLines(cpuStat).asScala.map(_.split(' ')).collectFirst {
+        case Array("throttled_usec", value) => value.toLong * 1000
+        case Array("throttled_time", value) => value.toLong
+      }
+    }.toOption.flatten.getOrElse(0L)
+}
+
+/**
+  * Sends a sample of the runner to the measurement gatling_runner, tagged with the runner, every period from the start of the
+  * injection until the run stops. Failed sends are logged and skipped, a saturated period is logged as a warning.
+  */
+final class RunnerTelemetryReporter(writer: SideChannelWriter, sampler: RunnerSampler, eventLoopProbe: Option[EventLoopProbe], configuration: TelemetryConfiguration, clock: Clock)
+    extends StrictLogging {
+
+  private val reporter =
+    new SideChannelReporter(writer, "runner-telemetry-reporter", s"telemetry of runner ${configuration.runner}", configuration.period, clock)(() => {
+      val sample = sampler.sample()
+      if (sample.saturated) {
+        logger.warn(s"Runner ${configuration.runner} is saturated, the response times of this period include its own delays: $sample")
+      }
+      // gatling_runner, outside the tree of the simulation where a request or group may be named runner
+      Seq(SideChannelPoint("runner", Seq("runner" -> configuration.runner), sample.fields, ownRoot = true))
+    })
+
+  def start(): Unit = {
+    eventLoopProbe.foreach(_.start())
+    sampler.sample()
+    reporter.start()
+    logger.info(s"Reporting the telemetry of runner ${configuration.runner} every ${configuration.period.toSeconds} s" +
+      (if (eventLoopProbe.isEmpty) ", without the event loops of the HTTP client" else ""))
+  }
+
+  def stop(): Unit = {
+    reporter.stop()
+    eventLoopProbe.foreach(_.stop())
+  }
+}
@@ -0,0 +1,48 @@
+package com.rudolfs.gatling.runner.telemetry
+
+import java.net.InetAddress
+
+import com.rudolfs.gatling.runner.influxdb.InfluxDbDataWriter
+import com.typesafe.config.Config
+
+import scala.concurrent.duration._
+import scala.util.Try
+
+/**
+  * Settings of the gatling.telemetry section in gatling.conf. The runner is saturated in a period when its CPU usage,
+  * its GC pauses or the lag of a Netty event loop reach one of the thresholds.
+  */
+final case class TelemetryConfiguration(
+    enabled: Boolean,
+    runner: String,
+    period: FiniteDuration,
+    probeInterval: FiniteDuration,
+    cpuPercentThreshold: Long,
+    eventLoopLagThreshold: FiniteDuration,
+    gcPercentThreshold: Long
+) {
+  require(runner.nonEmpty, "telemetry.runner must not be empty")
+  require(period > Duration.Zero, "telemetry.period must be positive")
+  require(probeInterval > Duration.Zero, "telemetry.probeInterval must be positive")
+}
+
+object TelemetryConfiguration {
+
+  def load(config: Config): TelemetryConfiguration = {
+    val telemetry = config.getConfig("gatling.telemetry")
+    val saturation = telemetry.getConfig("saturation")
+    TelemetryConfiguration(
+      enabled = telemetry.getBoolean("enabled"),
+      runner = InfluxDbDataWriter.sanitize(Some(telemetry.getString("runner")).filter(_.nonEmpty).getOrElse(hostName)),
+      period = telemetry.getInt("period").seconds,
+      probeInterval = telemetry.getInt("probeInterval").millis,
+      cpuPercentThreshold = saturation.getLong("cpuPercent"),
+      eventLoopLagThreshold = saturation.getInt("eventLoopLagMillis").millis,
+      gcPercentThreshold = saturation.getLong("gcPercent")
+    )
+  }
+
+  // the first label, e.g. ip-10-0-1-23 of a Fargate task or the container id of a docker container
+  private def hostName: String =
+    Try(InetAddress.getLocalHost.getHostName.takeWhile(_ != '.')).toOption.filter(_.nonEmpty).getOrElse("runner")
+}
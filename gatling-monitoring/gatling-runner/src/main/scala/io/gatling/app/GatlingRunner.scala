@@ -0,0 +1,217 @@
+package io.gatling.app
+
+import java.nio.file.Paths
+
+import akka.actor.{ Actor, ActorRef, ActorSystem, Props }
+import com.rudolfs.gatling.runner.cardinality._
+import com.rudolfs.gatling.runner.influxdb.{ InfluxDbDataWriter, InfluxDbDataWriterConfiguration }
+import com.rudolfs.gatling.runner.interruption._
+import com.rudolfs.gatling.runner.latency._
+import com.rudolfs.gatling.runner.report.{ LogUploadConfiguration, SimulationLogUploader }
+import com.rudolfs.gatling.runner.search.{ ThroughputSearch, ThroughputSearchStatsEngine }
+import com.rudolfs.gatling.runner.sidechannel.SideChannelWriter
+import com.rudolfs.gatling.runner.startup.{ StartBarrier, StartupTimingStatsEngine }
+import com.rudolfs.gatling.runner.telemetry._
+import com.typesafe.config.ConfigFactory
+import io.gatling.app.cli.ArgsParser
+import io.gatling.commons.util.{ Clock, DefaultClock }
+import io.gatling.core.CoreComponents
+import io.gatling.core.config.GatlingConfiguration
+import io.gatling.core.scenario.{ Scenario, SimulationParams }
+import io.gatling.core.stats.{ DataWritersStatsEngine, StatsEngine }
+import io.gatling.core.stats.writer.{ Init, LogFileDataWriter, RunMessage, ShortScenarioDescription }
+
+import scala.collection.mutable
+import scala.concurrent.Await
+import scala.concurrent.duration._
+import scala.util.Try
+
+/**
+  * Main class of the gatling-runner jar, a copy of [[io.gatling.app.Gatling]] that can run additional DataWriters
+  * next to the built-in ones. Gatling 3.3 only instantiates the writers it knows by name, so the stats engine is
+  * assembled here instead. This object lives in the io.gatling.app package because Runner is package private.
+  */
+object GatlingRunner {
+
+  private val ConnectTimeoutMillis = 2000
+
+  def main(args: Array[String]): Unit = sys.exit(fromArgs(args))
+
+  def fromArgs(args: Array[String]): Int =
+    new ArgsParser(args).parseArguments match {
+      case Left(overrides)   => start(overrides)
+      case Right(statusCode) => statusCode.code
+    }
+
+  private def start(overrides: mutable.Map[String, _]): Int = {
+    val configuration = GatlingConfiguration.load(overrides)
+    val influxDbConfiguration = InfluxDbDataWriterConfiguration.load(configuration.config)
+    val cardinalityConfiguration = CardinalityConfiguration.load(configuration.config)
+    val logUploadConfiguration = Some(LogUploadConfiguration.load(configuration.config)).filter(_.enabled)
+    val telemetryConfiguration = Some(TelemetryConfiguration.load(configuration.config)).filter(_.enabled)
+    val coordinatedOmissionConfiguration = Some(CoordinatedOmissionConfiguration.load(configuration.config)).filter(_.enabled)
+
+    val actorSystemConfiguration = ConfigFactory
+      .parseString(s"""${InfluxDbDataWriter.DispatcherName} { type = PinnedDispatcher, executor = thread-pool-executor }""")
+      .withFallback(GatlingConfiguration.loadActorSystemConfiguration())
+    val system = ActorSystem("GatlingSystem", actorSystemConfiguration)
+
+    try {
+      configuration.core.directory.reportsOnly match {
+        // -ro renders the report of existing logs like Gatling does, e.g. in the report worker
+        case Some(reportsOnly) => new RunResultProcessor(configuration).processRunResult(RunResult(reportsOnly, hasAssertions = true)).code
+        case None =>
+          val runner = new ExtendedRunner(
+            system,
+            new DefaultClock,
+            configuration,
+            influxDbConfiguration,
+            cardinalityConfiguration,
+            logUploadConfiguration,
+            telemetryConfiguration,
+            coordinatedOmissionConfiguration
+          )
+          val runResult = runner.run(None)
+          // with the log upload the report worker checks the assertions, the runner doesn't read its simulation.log again
+          val statusCode = new RunResultProcessor(configuration).processRunResult(runResult.copy(hasAssertions = runResult.hasAssertions && logUploadConfiguration.isEmpty)).code
+          if (runner.interrupted) InterruptionHandler.ExitCode else statusCode
+      }
+    } finally {
+      val whenTerminated = system.terminate()
+      Await.result(whenTerminated, configuration.core.shutdownTimeout.milliseconds)
+    }
+  }
+
+  private class ExtendedRunner(
+      system: ActorSystem,
+      clock: Clock,
+      configuration: GatlingConfiguration,
+      influxDbConfiguration: Option[InfluxDbDataWriterConfiguration],
+      cardinalityConfiguration: CardinalityConfiguration,
+      logUploadConfiguration: Option[LogUploadConfiguration],
+      telemetryConfiguration: Option[TelemetryConfiguration],
+      coordinatedOmissionConfiguration: Option[CoordinatedOmissionConfiguration]
+  ) extends Runner(system, clock, configuration) {
+
+    // created with the stats engine, when the simulation id is known
+    @volatile private var interruptionHandler: Option[InterruptionHandler] = None
+    @volatile private var logUploader: Option[SimulationLogUploader] = None
+    @volatile private var sideChannelWriter: Option[SideChannelWriter] = None
+    @volatile private var coordinatedOmissionStatsEngine: Option[CoordinatedOmissionStatsEngine] = None
+
+    def interrupted: Boolean = interruptionHandler.exists(_.isInterrupted)
+
+    override def newStatsEngine(simulationParams: SimulationParams, runMessage: RunMessage): StatsEngine = {
+      // same instantiation as DataWritersStatsEngine.apply for the built-in writers
+      val builtInWriters = configuration.data.dataWriters.map { dataWriter =>
+        val clazz = Class.forName(dataWriter.className).asInstanceOf[Class[Actor]]
+        system.actorOf(Props(clazz, clock, configuration), clazz.getName)
+      }
+
+      val influxDbWriter = influxDbConfiguration.map { influxDb =>
+        system.actorOf(
+          Props(new InfluxDbDataWriter(clock, configuration, influxDb)).withDispatcher(InfluxDbDataWriter.DispatcherName),
+          classOf[InfluxDbDataWriter].getName
+        )
+      }
+
+      // the log upload needs simulation.log, but the runner must not render the report a file writer in gatling.conf implies
+      val fileWriter = logUploadConfiguration.filterNot(_ => configuration.data.fileDataWriterEnabled).map { _ =>
+        system.actorOf(Props(classOf[LogFileDataWriter], clock, configuration), classOf[LogFileDataWriter].getName)
+      }
+
+      val dataWriters: Seq[ActorRef] = builtInWriters ++ influxDbWriter ++ fileWriter
+
+      logUploader = logUploadConfiguration.map { upload =>
+        val logFile = Paths.get(configuration.core.directory.results, runMessage.runId, "simulation.log")
+        val uploader = new SimulationLogUploader(upload.newClient(), upload.runId.getOrElse(runMessage.runId), upload.shardIndex, logFile, upload.chunkBytes, upload.chunkPeriod)
+        uploader.start()
+        uploader
+      }
+
+      val shortScenarioDescriptions = simulationParams.populationBuilders.map { populationBuilder =>
+        ShortScenarioDescription(populationBuilder.scenarioBuilder.name, populationBuilder.injectionProfile.totalUserCount)
+      }
+
+      // the truncation mark, the series count, the telemetry and the corrected response times take the same write path as the metrics
+      val graphite = configuration.data.graphite
+      val writer = SideChannelWriter(influxDbConfiguration, graphite.host, graphite.port, graphite.rootPathPrefix, runMessage.simulationId, ConnectTimeoutMillis)
+      sideChannelWriter = Some(writer)
+      interruptionHandler = Some(new InterruptionHandler(writer, clock))
+
+      val dataWritersStatsEngine: StatsEngine =
+        new DataWritersStatsEngine(Init(simulationParams.assertions, runMessage, shortScenarioDescriptions), dataWriters, system, clock)
+      coordinatedOmissionStatsEngine = coordinatedOmissionConfiguration.map(newCoordinatedOmissionStatsEngine(dataWritersStatsEngine, simulationParams, writer, _))
+
+      val statsEngine = new StartupTimingStatsEngine(
+        cardinalityStatsEngine(
+          coordinatedOmissionStatsEngine.getOrElse(dataWritersStatsEngine),
+          writer,
+          shortScenarioDescriptions.size
+        )
+      )
+
+      // the simulation registered its throughput search (if any) while it was loaded
+      ThroughputSearch.current.fold[StatsEngine](statsEngine) { search =>
+        new ThroughputSearchStatsEngine(statsEngine, search, Paths.get(configuration.core.directory.results, runMessage.runId))
+      }
+    }
+
+    // request names beyond the budget are collapsed before any DataWriter sees them
+    private def cardinalityStatsEngine(underlying: StatsEngine, writer: SideChannelWriter, scenarioCount: Int): StatsEngine = {
+      val limiter = new RequestNameLimiter(cardinalityConfiguration.maxRequestNames, cardinalityConfiguration.overflowRequestName)
+      val histograms = influxDbConfiguration.exists(_.histograms)
+      val statsEngine = new CardinalityStatsEngine(underlying, limiter, if (histograms) 2 else 1, scenarioCount)
+
+      if (cardinalityConfiguration.reported) {
+        statsEngine.reportTo(new SeriesCountReporter(writer, () => statsEngine.seriesCount, cardinalityConfiguration.reportPeriod, clock))
+      } else {
+        statsEngine
+      }
+    }
+
+    // sees the request names after the cardinality limit
+    private def newCoordinatedOmissionStatsEngine(
+        underlying: StatsEngine,
+        simulationParams: SimulationParams,
+        writer: SideChannelWriter,
+        coordinatedOmission: CoordinatedOmissionConfiguration
+    ): CoordinatedOmissionStatsEngine = {
+      val schedules = InjectionSchedule.of(simulationParams.populationBuilders)
+      val uncorrected = simulationParams.populationBuilders.map(_.scenarioBuilder.name).filterNot(schedules.contains)
+      if (uncorrected.nonEmpty) {
+        logger.warn(s"Scenarios ${uncorrected.mkString(", ")} have no deterministic open injection profile, their response times are not corrected for coordinated omission")
+      }
+      val statsEngine = new CoordinatedOmissionStatsEngine(underlying, schedules)
+      statsEngine.reportTo(new LatencyReporter(writer, statsEngine, coordinatedOmission.reportPeriod, clock))
+    }
+
+    // the simulation is loaded and the protocols are warmed up, wait for the common start instant of a sharded run
+    override def start(simulationParams: SimulationParams, scenarios: List[Scenario], coreComponents: CoreComponents): Try[_] = {
+      StartBarrier.await()
+      // the injector starts the open workloads right after this, the intended start times of the users are relative to it
+      coordinatedOmissionStatsEngine.foreach(_.injectionStarted(clock.nowMillis))
+      // a SIGTERM while users are injected stops the run cleanly instead of exiting the JVM
+      interruptionHandler.foreach(_.install(coreComponents.controller))
+      // the HTTP client of the scenarios exists once they are built
+      val telemetryReporter = for {
+        telemetry <- telemetryConfiguration
+        writer <- sideChannelWriter
+      } yield {
+        val eventLoopProbe = EventLoopProbe.forHttpClient(scenarios, telemetry.probeInterval)
+        new RunnerTelemetryReporter(writer, new RunnerSampler(telemetry, eventLoopProbe), eventLoopProbe, telemetry, clock)
+      }
+      telemetryReporter.foreach(_.start())
+      try {
+        super.start(simulationParams, scenarios, coreComponents)
+      } finally {
+        telemetryReporter.foreach(_.stop())
+        interruptionHandler.foreach(_.uninstall())
+        // the stats engine has stopped with the series count and the corrected response times of the last period
+        sideChannelWriter.foreach(_.close())
+        // the stats engine has stopped and the DataWriters have closed simulation.log
+        logUploader.foreach(_.finish(interrupted))
+      }
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package io.gatling.core.controller.inject.open
+
+import scala.concurrent.duration.FiniteDuration
+
+/**
+  * The start offsets of the users of open injection steps, built like [[UserStream]] builds them. This object lives in
+  * the io.gatling.core.controller.inject.open package because OpenInjectionStep.chain is package private.
+  */
+object InjectionOffsets {
+
+  def apply(steps: Iterable[OpenInjectionStep]): Iterator[FiniteDuration] =
+    steps.foldRight(Iterator.empty: Iterator[FiniteDuration])(_ chain _)
+}
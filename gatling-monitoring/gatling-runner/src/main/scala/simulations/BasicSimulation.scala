@@ -1,19 +1,21 @@
 package simulations
 
+import com.rudolfs.gatling.runner.search.ThroughputSearch
 import io.gatling.core.Predef._
 import io.gatling.http.Predef._
 
 import scala.concurrent.duration._
 
-class BasicSimulation extends Simulation {
-  val httpProtocol = http
-    .baseUrl("http://computer-database.gatling.io") // Here is the root for all relative URLs
+// the protocol and the scenario are shared with the ScalingSimulation
+object BasicSimulation {
+  def httpProtocol = http
+    .baseUrl(Target.baseUrl) // Here is the root for all relative URLs
     .acceptHeader("text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8") // Here are the common headers
     .acceptEncodingHeader("gzip, deflate")
     .acceptLanguageHeader("en-US,en;q=0.5")
     .userAgentHeader("Mozilla/5.0 (Macintosh; Intel Mac OS X 10.8; rv:16.0) Gecko/20100101 Firefox/16.0")
 
-  val scn = scenario("Scenario Name") // A scenario is a chain of requests and pauses
+  def scn = scenario("Scenario Name") // A scenario is a chain of requests and pauses
     .exec(http("request_1")
       .get("/"))
     .pause(7) // Note that Gatling has recorder real time pauses
@@ -47,6 +49,10 @@ class BasicSimulation extends Simulation {
       .formParam("""introduced""", """2012-05-30""")
       .formParam("""discontinued""", """""")
       .formParam("""company""", """37"""))
+}
+
+class BasicSimulation extends Simulation {
+  import BasicSimulation._
 
-  setUp(scn.inject(atOnceUsers(1)).protocols(httpProtocol))
+  setUp(scn.inject(ThroughputSearch.injection(Shard.rate)(atOnceUsers(Shard.users(1)))).protocols(httpProtocol))
 }
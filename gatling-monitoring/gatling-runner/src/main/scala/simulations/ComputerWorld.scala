@@ -2,21 +2,23 @@ package simulations
 
 import java.util.concurrent.ThreadLocalRandom
 
+import com.rudolfs.gatling.runner.search.ThroughputSearch
 import io.gatling.core.Predef._
 import io.gatling.http.Predef._
 
 import scala.concurrent.duration._
 
-class ComputerWorld extends Simulation {
+// the protocol and the scenario are shared with the ScalingSimulation
+object ComputerWorld {
 
-  val httpProtocol = http
-    .baseUrl("http://computer-database.gatling.io")
+  def httpProtocol = http
+    .baseUrl(Target.baseUrl)
     .acceptHeader("""text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8""")
     .acceptEncodingHeader("""gzip, deflate""")
     .acceptLanguageHeader("""en-gb,en;q=0.5""")
     .userAgentHeader("""Mozilla/5.0 (Macintosh; Intel Mac OS X 10.9; rv:31.0) Gecko/20100101 Firefox/31.0""")
 
-  val computerDbScn = scenario("Computer Scenario")
+  def computerDbScn = scenario("Computer Scenario")
     .exec(http("getComputers")
       .get("/computers")
       .check(
@@ -36,8 +38,13 @@ class ComputerWorld extends Simulation {
       .formParam("discontinued", "2017-10-10")
       .formParam("company", "")
       .check(substring("${homeComputer}")))
+}
+
+class ComputerWorld extends Simulation {
+  import ComputerWorld._
 
+  // run.sh --throughputsearch replaces the profile with a search for the sustainable rate
   setUp(computerDbScn.inject(
-    constantUsersPerSec(2) during (1 minute)
+    ThroughputSearch.injection(Shard.rate)(constantUsersPerSec(Shard.rate(2)) during (1 minute))
   ).protocols(httpProtocol))
 }
@@ -0,0 +1,41 @@
+package simulations
+
+import java.nio.file.Paths
+
+import com.rudolfs.gatling.runner.scaling.ScalingProbe
+import io.gatling.core.Predef._
+
+import scala.concurrent.duration._
+
+/**
+  * One level of the scaling suite (com.rudolfs.gatling.runner.benchmarks.ScalingSuite): the scenario of BasicSimulation or
+  * ComputerWorld with a constant number of concurrent users against the target of the suite. The users are ramped up
+  * first, then the ScalingProbe measures the steady state. The suite sets the GATLING_SCALING_* system properties.
+  */
+class ScalingSimulation extends Simulation {
+
+  private val scenarioName = sys.props.getOrElse("GATLING_SCALING_SCENARIO", "basic")
+  private val users = sys.props.getOrElse("GATLING_SCALING_USERS", "10").toInt
+  private val rampSeconds = sys.props.getOrElse("GATLING_SCALING_RAMP", "10").toInt
+  private val steadySeconds = sys.props.getOrElse("GATLING_SCALING_STEADY", "30").toInt
+  private val pauses = sys.props.getOrElse("GATLING_SCALING_PAUSES", "true").toBoolean
+  private val target = sys.props.getOrElse("GATLING_SCALING_TARGET", "http://localhost:8080")
+  private val output = Paths.get(sys.props.getOrElse("GATLING_SCALING_OUTPUT", "scaling.json"))
+
+  private val (scn, httpProtocol) = scenarioName match {
+    case "basic"         => (BasicSimulation.scn, BasicSimulation.httpProtocol)
+    case "computerworld" => (ComputerWorld.computerDbScn, ComputerWorld.httpProtocol)
+    case other           => throw new IllegalArgumentException(s"Unknown scaling scenario $other, expected basic or computerworld")
+  }
+
+  before(ScalingProbe.start(rampSeconds, steadySeconds))
+  after(ScalingProbe.finish(output))
+
+  // the users keep running a few seconds after the steady state, while the probe measures the live heap
+  private val population = scn.inject(
+    rampConcurrentUsers(0) to users during rampSeconds.seconds,
+    constantConcurrentUsers(users) during (steadySeconds + 5).seconds
+  ).protocols(httpProtocol.baseUrl(target))
+
+  setUp(if (pauses) population else population.disablePauses)
+}
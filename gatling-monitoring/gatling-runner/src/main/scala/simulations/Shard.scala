@@ -0,0 +1,19 @@
+package simulations
+
+/**
+  * Splits the injection profile of a simulation over several runners. Every runner is started with its own
+  * GATLING_SHARD_INDEX and the total GATLING_SHARD_COUNT (see run.sh) and injects its part of the load only.
+  */
+object Shard {
+  val index: Int = sys.props.getOrElse("GATLING_SHARD_INDEX", "0").toInt
+  val count: Int = sys.props.getOrElse("GATLING_SHARD_COUNT", "1").toInt
+
+  require(count > 0, s"GATLING_SHARD_COUNT must be positive but was $count")
+  require(index >= 0 && index < count, s"GATLING_SHARD_INDEX must be in [0, $count) but was $index")
+
+  /** The number of users this shard injects, the remainder of the division is spread over the first shards. */
+  def users(total: Int): Int = total / count + (if (index < total % count) 1 else 0)
+
+  /** The arrival rate (users per second) this shard injects. */
+  def rate(total: Double): Double = total / count
+}
@@ -0,0 +1,9 @@
+package simulations
+
+/**
+  * The system under test of the simulations: computer-database.gatling.io unless GATLING_BASE_URL (see run.sh) points
+  * them at another deployment of it, e.g. the stub-server for offline load tests.
+  */
+object Target {
+  val baseUrl: String = sys.props.getOrElse("GATLING_BASE_URL", "http://computer-database.gatling.io")
+}
@@ -0,0 +1,115 @@
+package com.rudolfs.gatling.runner.cardinality;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestNameLimiterTest {
+    private static final String OVERFLOW = "other";
+
+    @Test
+    void firstNamesWithinTheBudgetAreAdmitted() {
+        RequestNameLimiter limiter = new RequestNameLimiter(2, OVERFLOW);
+
+        assertEquals("request_1", limiter.limit("request_1"));
+        assertEquals("request_2", limiter.limit("request_2"));
+        assertEquals("request_1", limiter.limit("request_1"));
+
+        assertEquals(2, limiter.requestNames());
+        assertEquals(0, limiter.collapsedResponses());
+    }
+
+    @Test
+    void namesBeyondTheBudgetAreRecordedAsTheOverflowName() {
+        RequestNameLimiter limiter = new RequestNameLimiter(2, OVERFLOW);
+        limiter.limit("request_1");
+        limiter.limit("request_2");
+
+        assertEquals(OVERFLOW, limiter.limit("GET /orders/4711"));
+        assertEquals(OVERFLOW, limiter.limit("GET /orders/4712"));
+        assertEquals(OVERFLOW, limiter.limit("GET /orders/4711"));
+        assertEquals("request_2", limiter.limit("request_2"));
+
+        assertEquals(2, limiter.requestNames());
+        assertEquals(3, limiter.collapsedResponses());
+    }
+
+    @Test
+    void zeroMaxRequestNamesAdmitsEveryName() {
+        RequestNameLimiter limiter = new RequestNameLimiter(0, OVERFLOW);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals("GET /orders/" + i, limiter.limit("GET /orders/" + i));
+        }
+        assertEquals(0, limiter.collapsedResponses());
+    }
+
+    @Test
+    void concurrentFirstResponsesOfTheLastAdmittedNameAreNotCollapsed() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int run = 0; run < 500; run++) {
+                // one slot is left, all threads see the first response of the same new name at once
+                RequestNameLimiter limiter = new RequestNameLimiter(2, OVERFLOW);
+                limiter.limit("request_1");
+                CyclicBarrier barrier = new CyclicBarrier(threads);
+                List<Future<String>> names = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    names.add(executor.submit(() -> {
+                        barrier.await();
+                        return limiter.limit("request_2");
+                    }));
+                }
+
+                for (Future<String> name : names) {
+                    assertEquals("request_2", name.get());
+                }
+                assertEquals(2, limiter.requestNames());
+                assertEquals(0, limiter.collapsedResponses());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentNewNamesTakeExactlyTheBudget() throws Exception {
+        int threads = 8;
+        RequestNameLimiter limiter = new RequestNameLimiter(50, OVERFLOW);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> collapsed = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < threads; thread++) {
+                collapsed.add(executor.submit(() -> {
+                    barrier.await();
+                    int overflow = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (OVERFLOW.equals(limiter.limit("request_" + i))) {
+                            overflow++;
+                        }
+                    }
+                    return overflow;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> overflow : collapsed) {
+                total += overflow.get();
+            }
+
+            assertEquals(50, limiter.requestNames());
+            assertEquals(threads * 50, total);
+            assertEquals(total, limiter.collapsedResponses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
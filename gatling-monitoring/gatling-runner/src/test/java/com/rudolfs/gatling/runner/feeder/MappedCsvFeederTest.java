@@ -0,0 +1,145 @@
+package com.rudolfs.gatling.runner.feeder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedCsvFeederTest {
+    private static final int RECORDS = 300;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void partitionsAreDisjointAndCoverEveryLine() throws IOException {
+        Path file = write("users.csv", records(RECORDS));
+        byte[] bytes = Files.readAllBytes(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long dataStart = (Long) MappedCsvFeeder$.MODULE$.header(channel)._2();
+            for (int partitions : new int[]{1, 2, 3, 5, 8, 64, 1000}) {
+                long previousEnd = dataStart;
+                for (int partition = 0; partition < partitions; partition++) {
+                    Tuple2<Object, Object> range = MappedCsvFeeder$.MODULE$.partitionRange(channel, dataStart, partition, partitions);
+                    long start = (Long) range._1();
+                    long end = (Long) range._2();
+                    assertEquals(previousEnd, start, "partition " + partition + " of " + partitions);
+                    assertTrue(end >= start);
+                    assertTrue(end == bytes.length || bytes[(int) end - 1] == '\n', "partition " + partition + " of " + partitions);
+                    previousEnd = end;
+                }
+                assertEquals(bytes.length, previousEnd);
+            }
+        }
+    }
+
+    @Test
+    void partitionsFeedEveryRecordOnce() throws IOException {
+        Path file = write("users.csv", records(RECORDS));
+
+        for (int partitions : new int[]{1, 2, 3, 5, 8}) {
+            List<Integer> ids = new ArrayList<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                MappedCsvFeeder feeder = MappedCsvFeeder.apply(file.toString(), ',', '"').partition(partition, partitions).queue().apply();
+                while (feeder.hasNext()) {
+                    ids.add(Integer.valueOf((String) feeder.next().apply("id")));
+                }
+            }
+            Collections.sort(ids);
+
+            assertEquals(IntStream.range(0, RECORDS).boxed().collect(Collectors.toList()), ids, partitions + " partitions");
+        }
+    }
+
+    @Test
+    void randomRecordsAreUniformRegardlessOfTheLineLengths() throws IOException {
+        int records = 20;
+        int draws = 100_000;
+        Path file = write("users.csv", records(records));
+        MappedCsvFeeder feeder = MappedCsvFeeder.apply(file.toString(), ',', '"').random().apply();
+
+        int[] counts = new int[records];
+        for (int i = 0; i < draws; i++) {
+            counts[Integer.parseInt((String) feeder.next().apply("id"))]++;
+        }
+
+        // about 10 standard deviations, the record after a long line used to be drawn 100 times as often
+        double expected = (double) draws / records;
+        for (int id = 0; id < records; id++) {
+            assertTrue(Math.abs(counts[id] - expected) < 0.15 * expected, "record " + id + " was fed " + counts[id] + " times");
+        }
+    }
+
+    @Test
+    void randomOfBlankLinesHasNoRecord() throws IOException {
+        Path file = write("blank.csv", "id,payload\n\n\r\n\n");
+
+        assertFalse(MappedCsvFeeder.apply(file.toString(), ',', '"').random().apply().hasNext());
+    }
+
+    @Test
+    void sparseLineIndexLocatesEveryLine() throws IOException {
+        String content = records(1000);
+        Path file = write("users.csv", content);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long dataStart = (Long) MappedCsvFeeder$.MODULE$.header(channel)._2();
+            List<Long> lineStarts = new ArrayList<>();
+            for (int i = (int) dataStart; i < bytes.length; i++) {
+                if (i == dataStart || bytes[i - 1] == '\n') {
+                    lineStarts.add((long) i);
+                }
+            }
+
+            MappedCsvFeeder.LineIndex index = MappedCsvFeeder$.MODULE$.lineIndex(channel, dataStart, bytes.length, 4);
+
+            assertEquals(lineStarts.size(), index.lines());
+            assertEquals(1000, index.records());
+            assertTrue(index.stride() * 4L >= index.lines());
+            for (int line = 0; line < lineStarts.size(); line++) {
+                long position = index.offset(line);
+                for (int skip = index.skip(line); skip > 0; skip--) {
+                    while (bytes[(int) position] != '\n') {
+                        position++;
+                    }
+                    position++;
+                }
+                assertEquals(lineStarts.get(line).longValue(), position, "line " + line);
+            }
+        }
+    }
+
+    // records of alternately 2000 and 20 bytes, some with CRLF, a blank line after every 17th record and none at the end
+    private static String records(int records) {
+        StringBuilder csv = new StringBuilder("id,payload\n");
+        for (int id = 0; id < records; id++) {
+            csv.append(id).append(",\"").append(String.join("", Collections.nCopies(id % 2 == 0 ? 2000 : 20, "x"))).append('"');
+            csv.append(id % 3 == 0 ? "\r\n" : "\n");
+            if (id % 17 == 16) {
+                csv.append(id % 2 == 0 ? "\r\n" : "\n");
+            }
+        }
+        return csv.substring(0, csv.length() - 1);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
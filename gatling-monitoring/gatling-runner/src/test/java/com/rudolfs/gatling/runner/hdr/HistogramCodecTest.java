@@ -0,0 +1,71 @@
+package com.rudolfs.gatling.runner.hdr;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.IntCountsHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HistogramCodecTest {
+
+    @Test
+    void decodesWhatWasEncoded() {
+        IntCountsHistogram histogram = histogram(new Random(1), 10_000, 60_000);
+
+        Histogram decoded = HistogramCodec.decode(new HistogramCodec().encode(histogram));
+
+        assertEquals(histogram.getTotalCount(), decoded.getTotalCount());
+        assertEquals(histogram.getMinValue(), decoded.getMinValue());
+        assertEquals(histogram.getMaxValue(), decoded.getMaxValue());
+        histogram.recordedValues().forEach(value ->
+                assertEquals(value.getCountAtValueIteratedTo(), decoded.getCountAtValue(value.getValueIteratedTo())));
+    }
+
+    @Test
+    void reusesTheCodecForHistogramsOfAnySize() {
+        HistogramCodec codec = new HistogramCodec();
+        Random random = new Random(2);
+        IntCountsHistogram small = histogram(random, 10, 100);
+        IntCountsHistogram large = histogram(random, 100_000, 3_600_000);
+        IntCountsHistogram empty = new IntCountsHistogram(HistogramCodec.SIGNIFICANT_DIGITS);
+
+        assertEquals(small, HistogramCodec.decode(codec.encode(small)));
+        assertEquals(large, HistogramCodec.decode(codec.encode(large)));
+        assertEquals(small, HistogramCodec.decode(codec.encode(small)));
+        assertEquals(0, HistogramCodec.decode(codec.encode(empty)).getTotalCount());
+    }
+
+    @Test
+    void compressesLikeHdrHistogram() {
+        HistogramCodec codec = new HistogramCodec();
+        Random random = new Random(3);
+        for (int values : new int[]{0, 1, 100, 50_000}) {
+            IntCountsHistogram histogram = histogram(random, values, 120_000);
+            ByteBuffer expected = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int expectedLength = histogram.encodeIntoCompressedByteBuffer(expected);
+
+            int length = codec.compress(histogram);
+
+            assertArrayEquals(Arrays.copyOf(expected.array(), expectedLength), Arrays.copyOf(codec.compressed(), length));
+        }
+    }
+
+    @Test
+    void rejectsWhatIsNoHistogram() {
+        assertThrows(IllegalArgumentException.class, () -> HistogramCodec.decode("bm8gaGlzdG9ncmFt"));
+    }
+
+    static IntCountsHistogram histogram(Random random, int values, int maxMillis) {
+        IntCountsHistogram histogram = new IntCountsHistogram(HistogramCodec.SIGNIFICANT_DIGITS);
+        for (int i = 0; i < values; i++) {
+            histogram.recordValue(1 + random.nextInt(maxMillis));
+        }
+        return histogram;
+    }
+}
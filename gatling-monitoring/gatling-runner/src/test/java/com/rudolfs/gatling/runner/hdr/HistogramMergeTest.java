@@ -0,0 +1,66 @@
+package com.rudolfs.gatling.runner.hdr;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.IntCountsHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static scala.collection.JavaConverters.asScalaIterator;
+
+class HistogramMergeTest {
+    private static final int SHARDS = 7;
+
+    @Test
+    void mergedPercentilesEqualThePercentilesOfAllValues() {
+        Random random = new Random(3);
+        Histogram all = new Histogram(HistogramCodec.SIGNIFICANT_DIGITS);
+        List<IntCountsHistogram> shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(new IntCountsHistogram(HistogramCodec.SIGNIFICANT_DIGITS));
+        }
+        // every shard sees a different latency distribution, so averaging per shard percentiles would be off
+        for (int i = 0; i < 50_000; i++) {
+            int shard = random.nextInt(SHARDS);
+            long latency = 1 + (long) (Math.abs(random.nextGaussian()) * 50 * (shard + 1));
+            all.recordValue(latency);
+            shards.get(shard).recordValue(latency);
+        }
+
+        HistogramCodec codec = new HistogramCodec();
+        List<String> encoded = new ArrayList<>();
+        shards.forEach(shard -> encoded.add(codec.encode(shard)));
+        Histogram merged = HistogramMerge.merge(asScalaIterator(encoded.iterator()));
+
+        assertEquals(all.getTotalCount(), merged.getTotalCount());
+        assertEquals(all.getMaxValue(), merged.getMaxValue());
+        for (double percentile : new double[]{50.0, 95.0, 99.0}) {
+            assertEquals(all.getValueAtPercentile(percentile), merged.getValueAtPercentile(percentile), "p" + percentile);
+        }
+    }
+
+    @Test
+    void mergesWritePeriodsOfOneShard() {
+        Random random = new Random(4);
+        Histogram all = new Histogram(HistogramCodec.SIGNIFICANT_DIGITS);
+        HistogramCodec codec = new HistogramCodec();
+        List<String> periods = new ArrayList<>();
+        for (int period = 0; period < 60; period++) {
+            IntCountsHistogram histogram = HistogramCodecTest.histogram(random, 100 + random.nextInt(900), 1_000 * (period + 1));
+            all.add(histogram);
+            periods.add(codec.encode(histogram));
+        }
+
+        Histogram merged = HistogramMerge.merge(asScalaIterator(periods.iterator()));
+
+        assertEquals(all, merged);
+    }
+
+    @Test
+    void nothingToMergeIsAnEmptyHistogram() {
+        assertEquals(0, HistogramMerge.merge(asScalaIterator(new ArrayList<String>().iterator())).getTotalCount());
+    }
+}
@@ -0,0 +1,79 @@
+package com.rudolfs.gatling.runner.influxdb;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InfluxDbHttpSenderTest {
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private HttpServer influxDb;
+
+    @BeforeEach
+    void startInfluxDb() throws IOException {
+        influxDb = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        influxDb.createContext("/write", exchange -> {
+            queries.add(exchange.getRequestURI().getRawQuery());
+            try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+                bodies.add(read(in));
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        influxDb.start();
+    }
+
+    @AfterEach
+    void stopInfluxDb() {
+        influxDb.stop(0);
+    }
+
+    @Test
+    void sendsGzippedBatchesToTheUrlEncodedDatabase() throws IOException {
+        LineProtocolEncoder encoder = new LineProtocolEncoder(64);
+        for (int i = 0; i < 5; i++) {
+            encoder.measurement("gatling").tag("request", "allRequests").field("count", i).end(1_600_000_000L + i);
+        }
+        InfluxDbHttpSender sender = new InfluxDbHttpSender("localhost", influxDb.getAddress().getPort(), "gatling db&x", 2, 5000);
+
+        assertEquals(5, sender.send(encoder));
+
+        assertEquals(3, queries.size());
+        assertEquals("db=gatling+db%26x&precision=s", queries.get(0));
+        assertEquals(new String(encoder.array(), 0, encoder.size(), StandardCharsets.UTF_8), String.join("", bodies));
+    }
+
+    @Test
+    void closeReleasesTheDeflater() throws IOException {
+        byte[] points = "gatling count=1i 1600000000\n".getBytes(StandardCharsets.UTF_8);
+        InfluxDbHttpSender sender = new InfluxDbHttpSender("localhost", influxDb.getAddress().getPort(), "gatling", 2, 5000);
+        sender.compress(points, 0, points.length);
+
+        sender.close();
+
+        // an ended deflater rejects every further use
+        assertThrows(NullPointerException.class, () -> sender.compress(points, 0, points.length));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,47 @@
+package com.rudolfs.gatling.runner.influxdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineProtocolEncoderTest {
+
+    @Test
+    void encodesPointsInTheLineProtocol() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder(16);
+
+        encoder.measurement("gatling").tag("request", "Search page, a=b").tag("simulation", "basicsimulation")
+                .field("count", 12).field("min", -3).end(1_600_000_000L);
+        encoder.measurement("gatling.users").tag("request", "allUsers").field("active", 0).end(1_600_000_001L);
+
+        assertEquals("gatling,request=Search\\ page\\,\\ a\\=b,simulation=basicsimulation count=12,min=-3 1600000000\n"
+                + "gatling.users,request=allUsers active=0 1600000001\n", text(encoder));
+        assertEquals(2, encoder.pointCount());
+    }
+
+    @Test
+    void base64FieldEqualsTheBase64StringField() {
+        Random random = new Random(1);
+        for (int length = 0; length < 64; length++) {
+            byte[] bytes = new byte[length + 5];
+            random.nextBytes(bytes);
+            LineProtocolEncoder expected = new LineProtocolEncoder(16);
+            expected.measurement("gatling.histograms").field("count", 1)
+                    .field("hdr", Base64.getEncoder().encodeToString(Arrays.copyOfRange(bytes, 2, 2 + length))).end(1);
+            LineProtocolEncoder encoder = new LineProtocolEncoder(16);
+
+            encoder.measurement("gatling.histograms").field("count", 1).base64Field("hdr", bytes, 2, length).end(1);
+
+            assertEquals(text(expected), text(encoder), "length " + length);
+        }
+    }
+
+    private static String text(LineProtocolEncoder encoder) {
+        return new String(encoder.array(), 0, encoder.size(), StandardCharsets.UTF_8);
+    }
+}
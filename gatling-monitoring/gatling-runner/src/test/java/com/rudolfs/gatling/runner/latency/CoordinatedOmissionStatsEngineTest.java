@@ -0,0 +1,165 @@
+package com.rudolfs.gatling.runner.latency;
+
+import akka.actor.ActorRef;
+import io.gatling.commons.stats.OK$;
+import io.gatling.commons.stats.Status;
+import io.gatling.core.controller.inject.open.RampOpenInjection;
+import io.gatling.core.session.GroupBlock;
+import io.gatling.core.session.Session;
+import io.gatling.core.stats.StatsEngine;
+import io.gatling.core.stats.writer.UserEndMessage;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import scala.Option;
+import scala.Tuple2;
+import scala.collection.immutable.Map$;
+import scala.concurrent.duration.Duration;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static scala.collection.JavaConverters.asJavaIterable;
+import static scala.collection.JavaConverters.asScalaBuffer;
+
+/**
+ * The scenario "scheduled" ramps two users over one second, they are due at 0 ms and 500 ms after the start of the
+ * injection.
+ */
+class CoordinatedOmissionStatsEngineTest {
+    private static final long START = 1_600_000_000_000L;
+
+    private final CoordinatedOmissionStatsEngine engine = new CoordinatedOmissionStatsEngine(new NoOpStatsEngine(),
+            new scala.collection.immutable.Map.Map1<>("scheduled", new InjectionSchedule(asScalaBuffer(Collections.singletonList(
+                    new RampOpenInjection(2, Duration.create(1, TimeUnit.SECONDS)))))));
+
+    @Test
+    void lateUserAddsItsStartDelayToTheCorrectedResponseTimesOnly() {
+        engine.injectionStarted(START);
+        Session onTime = session("scheduled", 1, START);
+        Session late = session("scheduled", 2, START + 800);
+        engine.logUserStart(onTime);
+        engine.logUserStart(late);
+
+        respond(onTime, 50);
+        respond(late, 50);
+
+        Tuple2<Histogram, Histogram> histograms = histograms("request_1");
+        assertEquals(2, histograms._1().getTotalCount());
+        assertEquals(50, histograms._1().getMaxValue());
+        assertEquals(50, histograms._2().getMinValue());
+        // the second user was due at 500 ms and started 300 ms late
+        assertEquals(350, histograms._2().getMaxValue());
+        assertEquals(300, engine.maxStartDelayMillis());
+        assertEquals(350, histograms(CoordinatedOmissionStatsEngine.AllRequests())._2().getMaxValue());
+    }
+
+    @Test
+    void earlyUserHasNoStartDelay() {
+        engine.injectionStarted(START);
+        engine.logUserStart(session("scheduled", 1, START));
+        Session early = session("scheduled", 2, START + 400);
+        engine.logUserStart(early);
+
+        respond(early, 50);
+
+        assertEquals(50, histograms("request_1")._2().getMaxValue());
+        assertEquals(0, engine.maxStartDelayMillis());
+    }
+
+    @Test
+    void usersOfScenariosWithoutScheduleRecordTheSameRawAndCorrectedResponseTimes() {
+        engine.injectionStarted(START);
+        Session user = session("unscheduled", 1, START + 5_000);
+        engine.logUserStart(user);
+
+        respond(user, 20);
+        respond(user, 70);
+
+        Tuple2<Histogram, Histogram> histograms = histograms("request_1");
+        assertEquals(histograms._1(), histograms._2());
+        assertEquals(0, engine.maxStartDelayMillis());
+    }
+
+    @Test
+    void startDelayIsClearedWhenTheUserEnds() {
+        engine.injectionStarted(START);
+        engine.logUserStart(session("scheduled", 1, START));
+        Session late = session("scheduled", 2, START + 800);
+        engine.logUserStart(late);
+        respond(late, 50);
+        histograms("request_1");
+
+        engine.logUserEnd(new UserEndMessage(late, START + 900));
+        respond(late, 50);
+
+        Tuple2<Histogram, Histogram> histograms = histograms("request_1");
+        assertEquals(50, histograms._1().getMaxValue());
+        assertEquals(50, histograms._2().getMaxValue());
+    }
+
+    @Test
+    void usersThatStartBeforeTheInjectionStartedAreNotCorrected() {
+        Session user = session("scheduled", 1, START + 800);
+        engine.logUserStart(user);
+        engine.injectionStarted(START);
+
+        respond(user, 50);
+
+        assertEquals(50, histograms("request_1")._2().getMaxValue());
+    }
+
+    private void respond(Session session, long responseTime) {
+        long start = session.startDate() + 10;
+        engine.logResponse(session, "request_1", start, start + responseTime, OK$.MODULE$, Option.empty(), Option.empty());
+    }
+
+    private Tuple2<Histogram, Histogram> histograms(String requestName) {
+        LatencyRecorder recorder = null;
+        for (Tuple2<String, LatencyRecorder> entry : asJavaIterable(engine.latencyRecorders())) {
+            if (entry._1().equals(requestName)) {
+                recorder = entry._2();
+            }
+        }
+        assertNotNull(recorder, requestName);
+        return recorder.intervalHistograms();
+    }
+
+    private static Session session(String scenario, long userId, long startDate) {
+        return new Session(scenario, userId, startDate, Map$.MODULE$.empty(), 0, OK$.MODULE$,
+                Session.$lessinit$greater$default$7(), Session.$lessinit$greater$default$8());
+    }
+
+    private static final class NoOpStatsEngine implements StatsEngine {
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop(ActorRef replyTo, Option<Exception> exception) {
+        }
+
+        @Override
+        public void logUserStart(Session session) {
+        }
+
+        @Override
+        public void logUserEnd(UserEndMessage userMessage) {
+        }
+
+        @Override
+        public void logResponse(Session session, String requestName, long startTimestamp, long endTimestamp, Status status,
+                                Option<String> responseCode, Option<String> message) {
+        }
+
+        @Override
+        public void logGroupEnd(Session session, GroupBlock group, long exitTimestamp) {
+        }
+
+        @Override
+        public void logCrash(Session session, String requestName, String error) {
+        }
+    }
+}
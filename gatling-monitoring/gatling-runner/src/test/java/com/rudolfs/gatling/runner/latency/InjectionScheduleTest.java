@@ -0,0 +1,89 @@
+package com.rudolfs.gatling.runner.latency;
+
+import com.rudolfs.gatling.runner.search.ThroughputSearch;
+import com.rudolfs.gatling.runner.search.ThroughputSearchConfiguration;
+import io.gatling.core.controller.inject.InjectionProfile;
+import io.gatling.core.controller.inject.open.ConstantRateOpenInjection;
+import io.gatling.core.controller.inject.open.OpenInjectionProfile;
+import io.gatling.core.controller.inject.open.OpenInjectionStep;
+import io.gatling.core.controller.inject.open.PoissonOpenInjection;
+import io.gatling.core.controller.inject.open.RampOpenInjection;
+import io.gatling.core.protocol.Protocols;
+import io.gatling.core.structure.PopulationBuilder;
+import io.gatling.core.structure.ScenarioBuilder;
+import org.junit.jupiter.api.Test;
+import scala.Option;
+import scala.collection.immutable.List$;
+import scala.collection.immutable.Map$;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static scala.collection.JavaConverters.asScalaBuffer;
+import static scala.collection.JavaConverters.mapAsJavaMap;
+
+class InjectionScheduleTest {
+
+    @Test
+    void constantRateStartsAUserEveryIntervalOfTheRate() {
+        InjectionSchedule schedule = schedule(new ConstantRateOpenInjection(5, seconds(1)));
+
+        assertEquals(List.of(0L, 200L, 400L, 600L, 800L), offsets(schedule));
+    }
+
+    @Test
+    void rampSpreadsItsUsersOverItsDuration() {
+        InjectionSchedule schedule = schedule(new RampOpenInjection(4, seconds(2)));
+
+        assertEquals(List.of(0L, 500L, 1_000L, 1_500L), offsets(schedule));
+    }
+
+    @Test
+    void offsetsOfAStepStartAtTheEndOfThePreviousStep() {
+        InjectionSchedule schedule = schedule(new RampOpenInjection(2, seconds(1)), new ConstantRateOpenInjection(4, seconds(1)));
+
+        assertEquals(List.of(0L, 500L, 1_000L, 1_250L, 1_500L, 1_750L), offsets(schedule));
+    }
+
+    @Test
+    void onlyScenariosWithDeterministicOpenStepsHaveASchedule() {
+        ThroughputSearchConfiguration settings = new ThroughputSearchConfiguration(true, 10, 10, 50,
+                seconds(10), seconds(2), Duration.create(100, TimeUnit.MILLISECONDS), 1, 2, seconds(0));
+        OpenInjectionStep search = new ThroughputSearch(settings, 1.0, () -> 0L).injectionStep();
+
+        Map<String, InjectionSchedule> schedules = mapAsJavaMap(InjectionSchedule.of(asScalaBuffer(Arrays.asList(
+                population("ramp", new RampOpenInjection(4, seconds(2))),
+                population("poisson", new RampOpenInjection(4, seconds(2)), new PoissonOpenInjection(seconds(1), 1, 10, 3)),
+                population("search", search))).toList()));
+
+        assertEquals(List.of("ramp"), new ArrayList<>(schedules.keySet()));
+    }
+
+    private static InjectionSchedule schedule(OpenInjectionStep... steps) {
+        return new InjectionSchedule(asScalaBuffer(Arrays.asList(steps)));
+    }
+
+    private static PopulationBuilder population(String scenario, OpenInjectionStep... steps) {
+        InjectionProfile profile = new OpenInjectionProfile(asScalaBuffer(Arrays.asList(steps)));
+        return new PopulationBuilder(new ScenarioBuilder(scenario, List$.MODULE$.empty()), profile,
+                new Protocols(Map$.MODULE$.empty()), List$.MODULE$.empty(), Option.empty());
+    }
+
+    private static List<Long> offsets(InjectionSchedule schedule) {
+        List<Long> offsets = new ArrayList<>();
+        for (Option<Object> offset = schedule.nextOffsetMillis(); offset.isDefined(); offset = schedule.nextOffsetMillis()) {
+            offsets.add((Long) offset.get());
+        }
+        return offsets;
+    }
+
+    private static FiniteDuration seconds(long seconds) {
+        return Duration.create(seconds, TimeUnit.SECONDS);
+    }
+}
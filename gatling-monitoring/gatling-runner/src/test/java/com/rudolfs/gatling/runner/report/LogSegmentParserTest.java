@@ -0,0 +1,110 @@
+package com.rudolfs.gatling.runner.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.rudolfs.gatling.runner.report.SimulationLogs.assertSameStatistics;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogSegmentParserTest {
+    private static final long BASE_SECOND = 1_600_000_000L;
+
+    @Test
+    void parsesTheRecordsOfALog() {
+        // the last line has no newline
+        String log = String.join("\n",
+                "RUN\tsimulations.BasicSimulation\tbasicsimulation\t1600000000000\t \t3.3.1",
+                "USER\tscenario\t1\tSTART\t1600000000100\t0",
+                "REQUEST\t1\t\thome\t1600000000100\t1600000000150\tOK\t ",
+                "GROUP\t1\tcheckout\t1600000000150\t1600000001400\t1100\tKO",
+                "REQUEST\t1\tcheckout,payment\tpay\t1600000000200\t1600000001300\tKO\tstatus.find.is(200), but actually found 500",
+                "",
+                "ERROR\tConnection refused\t1600000001500",
+                "USER\tscenario\t1\tEND\t1600000000100\t1600000001600");
+        byte[] bytes = log.getBytes(StandardCharsets.UTF_8);
+        LogStatistics statistics = new LogStatistics(BASE_SECOND);
+
+        new LogSegmentParser(statistics).parse(ByteBuffer.wrap(bytes));
+
+        assertEquals("simulations.BasicSimulation", statistics.getSimulationClass());
+        assertEquals("basicsimulation", statistics.getSimulationId());
+        assertEquals("3.3.1", statistics.getGatlingVersion());
+        assertEquals(1, statistics.getRuns());
+        assertEquals(8, statistics.getLines());
+        assertEquals(bytes.length, statistics.getBytes());
+
+        assertEquals(2, statistics.getRequests().size());
+        LogStatistics.RequestStatistics home = statistics.getRequests().get("home");
+        assertEquals(1, home.getOk().getTotalCount());
+        assertEquals(50, home.getOk().getMaxValue());
+        assertEquals(0, home.getKo().getTotalCount());
+        LogStatistics.RequestStatistics pay = statistics.getRequests().get("checkout / payment / pay");
+        assertEquals(0, pay.getOk().getTotalCount());
+        assertEquals(1, pay.getKo().getTotalCount());
+        assertEquals(pay.getKo().highestEquivalentValue(1100), pay.getKo().getMaxValue());
+
+        assertEquals(1, statistics.getErrors().get("status.find.is(200), but actually found 500").longValue());
+        assertEquals(1, statistics.getErrors().get("Connection refused").longValue());
+
+        assertEquals(2, statistics.getSeconds());
+        assertEquals(1, statistics.okAt(0));
+        assertEquals(1, statistics.koAt(1));
+        assertEquals(1, statistics.usersStartedAt(0));
+        assertEquals(1, statistics.usersEndedAt(1));
+    }
+
+    @Test
+    void segmentsSplitAtAnyLineEndGiveTheStatisticsOfTheWholeLog() {
+        byte[] log = SimulationLogs.text(SimulationLogs.shard(0, 1, BASE_SECOND * 1000, 200, 1)).getBytes(StandardCharsets.UTF_8);
+        LogStatistics whole = new LogStatistics(BASE_SECOND);
+        new LogSegmentParser(whole).parse(ByteBuffer.wrap(log));
+
+        List<Integer> lineStarts = new ArrayList<>();
+        for (int i = 0; i < log.length; i++) {
+            if (log[i] == '\n') {
+                lineStarts.add(i + 1);
+            }
+        }
+        for (int step : new int[]{1, 2, 7, 50}) {
+            LogStatistics merged = new LogStatistics(BASE_SECOND);
+            int start = 0;
+            for (int i = step - 1; i < lineStarts.size(); i += step) {
+                merged.merge(parse(log, start, lineStarts.get(i)));
+                start = lineStarts.get(i);
+            }
+            merged.merge(parse(log, start, log.length));
+
+            assertSameStatistics(whole, merged);
+        }
+    }
+
+    @Test
+    void countsEveryRequestNameSeparately() {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            for (int j = 0; j <= i % 3; j++) {
+                log.append("REQUEST\t1\t\trequest-").append(i).append("\t1600000000000\t1600000000010\tOK\t \n");
+            }
+        }
+        LogStatistics statistics = new LogStatistics(BASE_SECOND);
+
+        new LogSegmentParser(statistics).parse(ByteBuffer.wrap(log.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(500, statistics.getRequests().size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i % 3 + 1, statistics.getRequests().get("request-" + i).getOk().getTotalCount());
+        }
+    }
+
+    private static LogStatistics parse(byte[] log, int start, int end) {
+        LogStatistics statistics = new LogStatistics(BASE_SECOND);
+        ByteBuffer segment = ByteBuffer.wrap(log);
+        segment.position(start).limit(end);
+        new LogSegmentParser(statistics).parse(segment);
+        return statistics;
+    }
+}
@@ -0,0 +1,84 @@
+package com.rudolfs.gatling.runner.report;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogStatisticsTest {
+    private static final long BASE_SECOND = 1_600_000_000L;
+    private static final long BASE_MILLIS = BASE_SECOND * 1000;
+
+    @Test
+    void mergeAddsTheStatisticsOfBothParts() {
+        LogStatistics first = new LogStatistics(BASE_SECOND);
+        first.recordRequest(first.request("home"), BASE_MILLIS, BASE_MILLIS + 20, true);
+        first.recordUser(BASE_MILLIS, true);
+        first.recordLines(2, 100);
+        LogStatistics second = new LogStatistics(BASE_SECOND);
+        second.recordRequest(second.request("home"), BASE_MILLIS + 2_000, BASE_MILLIS + 2_500, false);
+        second.recordRequest(second.request("search"), BASE_MILLIS, BASE_MILLIS + 30, true);
+        second.recordError("Connection refused", 1);
+        second.recordLines(3, 150);
+
+        LogStatistics merged = first.merge(second);
+
+        assertEquals(2, merged.getRequests().size());
+        assertEquals(1, merged.getRequests().get("home").getOk().getTotalCount());
+        assertEquals(1, merged.getRequests().get("home").getKo().getTotalCount());
+        assertEquals(2, merged.getRequests().get("home").getAll().getTotalCount());
+        assertEquals(3, merged.allRequests().getTotalCount());
+        assertEquals(3, merged.getSeconds());
+        assertEquals(2, merged.okAt(0));
+        assertEquals(1, merged.koAt(2));
+        assertEquals(1, merged.usersStartedAt(0));
+        assertEquals(0, merged.okAt(100));
+        assertEquals(1, merged.getErrors().get("Connection refused").longValue());
+        assertEquals(5, merged.getLines());
+        assertEquals(250, merged.getBytes());
+    }
+
+    @Test
+    void theEarliestRunDescribesTheMergedRun() {
+        LogStatistics first = new LogStatistics(BASE_SECOND);
+        first.recordRun("simulations.BasicSimulation", "shard-1", BASE_MILLIS + 500, "3.3.1");
+        LogStatistics second = new LogStatistics(BASE_SECOND);
+        second.recordRun("simulations.BasicSimulation", "shard-0", BASE_MILLIS, "3.3.1");
+
+        LogStatistics merged = first.merge(second);
+
+        assertEquals("shard-0", merged.getSimulationId());
+        assertEquals(2, merged.getRuns());
+    }
+
+    @Test
+    void timestampsBeforeTheBaseSecondCountInTheFirstSecond() {
+        LogStatistics statistics = new LogStatistics(BASE_SECOND);
+
+        statistics.recordRequest(statistics.request("home"), BASE_MILLIS - 5_000, BASE_MILLIS - 4_000, true);
+
+        assertEquals(1, statistics.getSeconds());
+        assertEquals(1, statistics.okAt(0));
+    }
+
+    @Test
+    void keepsAtMostTheMaximumNumberOfErrorMessages() {
+        LogStatistics first = new LogStatistics(BASE_SECOND);
+        LogStatistics second = new LogStatistics(BASE_SECOND);
+        for (int i = 0; i < LogStatistics.MAX_ERROR_MESSAGES + 50; i++) {
+            first.recordError("error " + i, 1);
+            second.recordError("error " + i, 2);
+        }
+
+        first.merge(second);
+
+        assertEquals(LogStatistics.MAX_ERROR_MESSAGES + 1, first.getErrors().size());
+        assertEquals(3, first.getErrors().get("error 0").longValue());
+        assertEquals(150, first.getErrors().get(LogStatistics.OTHER_ERRORS).longValue());
+    }
+
+    @Test
+    void rejectsStatisticsOfAnotherBaseSecond() {
+        assertThrows(IllegalArgumentException.class, () -> new LogStatistics(BASE_SECOND).merge(new LogStatistics(BASE_SECOND + 1)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.rudolfs.gatling.runner.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.rudolfs.gatling.runner.report.SimulationLogs.assertSameStatistics;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static scala.collection.JavaConverters.asScalaBuffer;
+import static scala.collection.JavaConverters.seqAsJavaList;
+
+class SimulationLogMergeTest {
+    private static final int SHARDS = 3;
+    private static final long RUN_START = 1_600_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void segmentsEndAfterANewlineAndCoverTheFiles() throws IOException {
+        List<Path> files = writeShards(false);
+
+        for (long segmentBytes : new long[]{1, 7, 100, 4096, Long.MAX_VALUE / 2}) {
+            List<SimulationLogMerge.Segment> segments = seqAsJavaList(SimulationLogMerge.segments(asScalaBuffer(files), segmentBytes));
+            for (Path file : files) {
+                byte[] bytes = Files.readAllBytes(file);
+                long position = 0;
+                for (SimulationLogMerge.Segment segment : segments) {
+                    if (segment.file().equals(file)) {
+                        assertEquals(position, segment.start());
+                        assertTrue(segment.end() > segment.start());
+                        assertTrue(segment.end() == bytes.length || bytes[(int) segment.end() - 1] == '\n');
+                        position = segment.end();
+                    }
+                }
+                assertEquals(bytes.length, position);
+            }
+        }
+    }
+
+    @Test
+    void statisticsDontDependOnTheSegmentSizeOrParallelism() throws IOException {
+        List<Path> files = writeShards(false);
+        LogStatistics expected = SimulationLogMerge.aggregate(asScalaBuffer(files), 1, Integer.MAX_VALUE);
+
+        // small segments end in the middle of most records, every segment is extended to the end of its line
+        for (long segmentBytes : new long[]{1, 13, 200, 4096}) {
+            assertSameStatistics(expected, SimulationLogMerge.aggregate(asScalaBuffer(files), 4, segmentBytes));
+        }
+        assertEquals(SHARDS, expected.getRuns());
+        assertEquals(RUN_START / 1000, expected.getBaseSecond());
+    }
+
+    @Test
+    void mergedLogIsOrderedLikeASortOfAllLines() throws IOException {
+        List<Path> files = writeShards(true);
+        Path mergedLog = directory.resolve("merged/simulation.log");
+
+        long lines = SimulationLogMerge.mergeLogs(asScalaBuffer(files), mergedLog);
+
+        List<String> expected = shards().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(line -> line.timestamp))
+                .map(line -> line.text)
+                .collect(Collectors.toList());
+        assertEquals(expected.size(), lines);
+        assertEquals(expected, Files.readAllLines(mergedLog, StandardCharsets.UTF_8));
+    }
+
+    private List<List<SimulationLogs.Line>> shards() {
+        List<List<SimulationLogs.Line>> shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(SimulationLogs.shard(shard, SHARDS, RUN_START, 50 + 20 * shard, shard));
+        }
+        return shards;
+    }
+
+    // the last shard log without a newline at its end, when asked for
+    private List<Path> writeShards(boolean lastLineUnterminated) throws IOException {
+        List<Path> files = new ArrayList<>();
+        List<List<SimulationLogs.Line>> shards = shards();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            String text = SimulationLogs.text(shards.get(shard));
+            if (lastLineUnterminated && shard == shards.size() - 1) {
+                text = text.substring(0, text.length() - 1);
+            }
+            files.add(Files.write(directory.resolve("shard-" + shard + ".log"), text.getBytes(StandardCharsets.UTF_8)));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,89 @@
+package com.rudolfs.gatling.runner.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Small simulation.log files in the format of Gatling 3.3, with the timestamp every line is ordered by.
+ */
+final class SimulationLogs {
+    static final String SIMULATION = "simulations.BasicSimulation";
+    static final String[] REQUESTS = {"home", "search", "Ünïcode näme"};
+
+    private SimulationLogs() {
+    }
+
+    static final class Line {
+        final String text;
+        final long timestamp;
+
+        Line(String text, long timestamp) {
+            this.text = text;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * The lines of one shard, strictly ordered by their timestamps. The timestamps of shard n are n modulo shards, so
+     * the lines of different shards never have the same timestamp.
+     */
+    static List<Line> shard(int shard, int shards, long runStart, int users, long seed) {
+        Random random = new Random(seed);
+        List<Line> lines = new ArrayList<>();
+        long time = runStart + shard;
+        lines.add(new Line(String.join("\t", "RUN", SIMULATION, "basicsimulation", String.valueOf(time), " ", "3.3.1"), time));
+        for (int user = 1; user <= users; user++) {
+            String userId = String.valueOf(shard * 1_000_000 + user);
+            time += shards * (1 + random.nextInt(400));
+            long userStart = time;
+            lines.add(new Line(String.join("\t", "USER", "scenario", userId, "START", String.valueOf(userStart), "0"), userStart));
+            for (String request : REQUESTS) {
+                long start = time;
+                time += shards * (1 + random.nextInt(300));
+                boolean ok = random.nextInt(10) > 0;
+                String groups = request.equals("search") ? "checkout,payment" : "";
+                lines.add(new Line(String.join("\t", "REQUEST", userId, groups, request, String.valueOf(start), String.valueOf(time),
+                        ok ? "OK" : "KO", ok ? " " : "status.find.is(200), but actually found 50" + random.nextInt(4)), time));
+            }
+            if (random.nextInt(20) == 0) {
+                time += shards;
+                lines.add(new Line(String.join("\t", "ERROR", "Connection refused", String.valueOf(time)), time));
+            }
+            time += shards;
+            lines.add(new Line(String.join("\t", "USER", "scenario", userId, "END", String.valueOf(userStart), String.valueOf(time)), time));
+        }
+        return lines;
+    }
+
+    static String text(List<Line> lines) {
+        StringBuilder text = new StringBuilder();
+        lines.forEach(line -> text.append(line.text).append('\n'));
+        return text.toString();
+    }
+
+    /**
+     * Asserts that both statistics have the same requests, response times, errors, per second counters and totals.
+     */
+    static void assertSameStatistics(LogStatistics expected, LogStatistics actual) {
+        assertEquals(expected.getRequests().keySet(), actual.getRequests().keySet());
+        expected.getRequests().forEach((name, request) -> {
+            assertEquals(request.getOk(), actual.getRequests().get(name).getOk(), name);
+            assertEquals(request.getKo(), actual.getRequests().get(name).getKo(), name);
+        });
+        assertEquals(expected.getErrors(), actual.getErrors());
+        assertEquals(expected.getSeconds(), actual.getSeconds());
+        for (int second = 0; second < expected.getSeconds(); second++) {
+            assertEquals(expected.okAt(second), actual.okAt(second));
+            assertEquals(expected.koAt(second), actual.koAt(second));
+            assertEquals(expected.usersStartedAt(second), actual.usersStartedAt(second));
+            assertEquals(expected.usersEndedAt(second), actual.usersEndedAt(second));
+        }
+        assertEquals(expected.getSimulationClass(), actual.getSimulationClass());
+        assertEquals(expected.getRuns(), actual.getRuns());
+        assertEquals(expected.getLines(), actual.getLines());
+        assertEquals(expected.getBytes(), actual.getBytes());
+    }
+}
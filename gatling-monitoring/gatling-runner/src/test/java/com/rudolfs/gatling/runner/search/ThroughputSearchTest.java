@@ -0,0 +1,184 @@
+package com.rudolfs.gatling.runner.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scala.collection.Iterator;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static scala.collection.JavaConverters.asScalaIterator;
+
+/**
+ * Drives the arrival times of the search like Gatling, which pulls them one second ahead, against a system under test
+ * that answers in 10 ms up to its capacity and in 500 ms beyond it. The steps last 10 s, the first 2 s of a step are
+ * not judged, the p99 must stay below 100 ms.
+ */
+class ThroughputSearchTest {
+    private static final long START = 1_600_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(START);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rampStopsAtTheFirstFailingStepAndBisects() {
+        ThroughputSearch search = search(2, 0);
+
+        drive(search, 36, 0);
+
+        // 40 users/s fail, the two refinements try 35 (passes) and 37.5 (fails)
+        assertEquals(List.of(10.0, 20.0, 30.0, 40.0, 35.0, 37.5), rates(report(search)));
+        assertEquals(List.of(true, true, true, false, true, false), passed(report(search)));
+        assertEquals(35.0, report(search).path("sustainableRate").asDouble());
+    }
+
+    @Test
+    void everyRefinementIsOneMidpoint() {
+        ThroughputSearch search = search(3, 0);
+
+        drive(search, 36, 0);
+
+        // 35 passes, 37.5 and 36.25 fail
+        assertEquals(List.of(10.0, 20.0, 30.0, 40.0, 35.0, 37.5, 36.25), rates(report(search)));
+        assertEquals(35.0, report(search).path("sustainableRate").asDouble());
+    }
+
+    @Test
+    void failingStartRateEndsWithoutSustainableRate() {
+        ThroughputSearch search = search(2, 20);
+
+        List<Long> arrivals = drive(search, 5, 0);
+
+        JsonNode report = report(search);
+        assertEquals(List.of(10.0), rates(report));
+        assertTrue(report.path("finished").asBoolean());
+        assertFalse(report.has("sustainableRate"));
+        // no hold without a sustainable rate
+        assertEquals(100, arrivals.size());
+    }
+
+    @Test
+    void passingMaximumRateEndsTheSearch() {
+        ThroughputSearch search = search(2, 0);
+
+        drive(search, 1_000, 0);
+
+        assertEquals(List.of(10.0, 20.0, 30.0, 40.0, 50.0), rates(report(search)));
+        assertEquals(50.0, report(search).path("sustainableRate").asDouble());
+    }
+
+    @Test
+    void holdReinjectsTheHighestPassingRate() {
+        ThroughputSearch search = search(2, 20);
+
+        List<Long> arrivals = drive(search, 36, 0);
+
+        // the search ends after six steps of 10 s, then 35 users/s are injected for 20 s
+        long held = arrivals.stream().filter(arrival -> arrival >= 60_000).count();
+        assertEquals(700, held, 1);
+        assertTrue(arrivals.get(arrivals.size() - 1) < 80_000);
+    }
+
+    @Test
+    void stepIsJudgedFromTheEndOfTheSettleDurationToTheDecision() {
+        ThroughputSearch search = search(0, 0);
+
+        // failures in the settle duration and in the last second, which ends after the decision, don't count
+        drive(search, 1_000, 9_000);
+
+        JsonNode step = report(search).path("steps").path(0);
+        assertTrue(step.path("passed").asBoolean(), step.toString());
+        assertEquals(0.0, step.path("errorPercent").asDouble());
+        // the whole seconds 2 to 7 of the step, the decision falls into second 8
+        assertEquals(10.0, step.path("responsesPerSecond").asDouble());
+        assertEquals(10, step.path("p99Millis").asLong());
+    }
+
+    @Test
+    void reportHoldsTheSettingsAndEveryStep() {
+        ThroughputSearch search = search(2, 0);
+
+        drive(search, 36, 0);
+
+        JsonNode report = report(search);
+        assertTrue(report.path("finished").asBoolean());
+        assertEquals(1.0, report.path("share").asDouble());
+        assertEquals(100, report.path("p99Millis").asLong());
+        assertEquals(1.0, report.path("maxErrorPercent").asDouble());
+        JsonNode failed = report.path("steps").path(3);
+        assertEquals(40.0, failed.path("rate").asDouble());
+        assertEquals(500, failed.path("p99Millis").asLong());
+        assertFalse(failed.path("passed").asBoolean());
+    }
+
+    private ThroughputSearch search(int refinements, int holdSeconds) {
+        ThroughputSearchConfiguration settings = new ThroughputSearchConfiguration(true, 10, 10, 50,
+                seconds(10), seconds(2), Duration.create(100, TimeUnit.MILLISECONDS), 1, refinements, seconds(holdSeconds));
+        return new ThroughputSearch(settings, 1.0, now::get);
+    }
+
+    /**
+     * Pulls all arrival times and records the response of every user. With failuresFrom, the responses that end from
+     * this offset of the first step (and in its settle duration) fail.
+     *
+     * @return the arrival offsets in millis
+     */
+    private List<Long> drive(ThroughputSearch search, double capacity, long failuresFrom) {
+        Iterator<FiniteDuration> arrivals = search.injectionStep().chain(asScalaIterator(Collections.<FiniteDuration>emptyIterator()));
+        List<Long> offsets = new ArrayList<>();
+        long previous = -1;
+        while (arrivals.hasNext()) {
+            long arrival = arrivals.next().toNanos();
+            long at = START + arrival / 1_000_000;
+            // Gatling pulls the arrivals of the next second one second ahead
+            now.set(Math.max(now.get(), at - 1_000));
+            double rate = previous < 0 ? 10 : 1e9 / (arrival - previous);
+            long end = at + (rate > capacity ? 500 : 10);
+            long offset = end - START;
+            boolean failed = failuresFrom > 0 && (offset < 2_000 || (offset >= failuresFrom && offset < 10_000));
+            search.record(at, end, failed);
+            offsets.add(arrival / 1_000_000);
+            previous = arrival;
+        }
+        return offsets;
+    }
+
+    private JsonNode report(ThroughputSearch search) {
+        search.writeReport(directory);
+        try {
+            return new ObjectMapper().readTree(directory.resolve("throughput-search.json").toFile());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<Double> rates(JsonNode report) {
+        List<Double> rates = new ArrayList<>();
+        report.path("steps").forEach(step -> rates.add(step.path("rate").asDouble()));
+        return rates;
+    }
+
+    private static List<Boolean> passed(JsonNode report) {
+        List<Boolean> passed = new ArrayList<>();
+        report.path("steps").forEach(step -> passed.add(step.path("passed").asBoolean()));
+        return passed;
+    }
+
+    private static FiniteDuration seconds(long seconds) {
+        return Duration.create(seconds, TimeUnit.SECONDS);
+    }
+}
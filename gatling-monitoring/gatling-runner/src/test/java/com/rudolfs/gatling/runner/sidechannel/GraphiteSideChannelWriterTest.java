@@ -0,0 +1,104 @@
+package com.rudolfs.gatling.runner.sidechannel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import scala.Tuple2;
+import scala.collection.Seq;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static scala.collection.JavaConverters.asScalaBuffer;
+
+class GraphiteSideChannelWriterTest {
+    private ServerSocket relay;
+    private GraphiteSideChannelWriter writer;
+
+    @BeforeEach
+    void startRelay() throws IOException {
+        relay = new ServerSocket(0);
+        writer = new GraphiteSideChannelWriter("localhost", relay.getLocalPort(), "gatling.shards.2", "my.simulation", 2000);
+    }
+
+    @AfterEach
+    void stopRelay() throws IOException {
+        writer.close();
+        relay.close();
+    }
+
+    @Test
+    void writesAllPointsOverOneConnection() throws IOException {
+        writer.write(points(cardinality(7)), 1_600_000_000L);
+        writer.write(points(latency("GET home.html")), 1_600_000_001L);
+
+        try (Socket connection = relay.accept();
+             BufferedReader lines = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals("gatling.shards.2.my-simulation.cardinality.series 7 1600000000", lines.readLine());
+            assertEquals("gatling_latency.shards.2.my-simulation.GET_home-html.raw.count 3 1600000001", lines.readLine());
+            writer.close();
+            assertNull(lines.readLine());
+        }
+    }
+
+    @Test
+    void writesPointsWithTheirOwnRootOutsideTheSimulation() throws IOException {
+        SideChannelPoint telemetry = new SideChannelPoint("runner", seq(Collections.singletonList(new Tuple2<>("runner", "runner-1"))),
+                seq(Collections.singletonList(new Tuple2<String, Object>("threads", 42L))), true);
+        writer.write(points(telemetry), 1_600_000_000L);
+
+        try (Socket connection = relay.accept();
+             BufferedReader lines = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals("gatling_runner.shards.2.my-simulation.runner-1.threads 42 1600000000", lines.readLine());
+        }
+    }
+
+    @Test
+    void reconnectsOnTheWriteAfterAFailedOne() throws IOException {
+        writer.write(points(cardinality(1)), 1_600_000_000L);
+        relay.accept().close();
+
+        // the writes after the close of the relay fill the socket buffer until the connection is reset
+        assertThrows(IOException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                writer.write(points(cardinality(2)), 1_600_000_001L);
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+        });
+        writer.write(points(cardinality(3)), 1_600_000_002L);
+
+        try (Socket connection = relay.accept();
+             BufferedReader lines = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals("gatling.shards.2.my-simulation.cardinality.series 3 1600000002", lines.readLine());
+        }
+    }
+
+    private static SideChannelPoint cardinality(long series) {
+        return new SideChannelPoint("cardinality", seq(Collections.emptyList()), seq(Collections.singletonList(new Tuple2<String, Object>("series", series))), false);
+    }
+
+    private static SideChannelPoint latency(String request) {
+        List<Tuple2<String, String>> tags = Arrays.asList(new Tuple2<>("request", request), new Tuple2<>("kind", "raw"));
+        return new SideChannelPoint("latency", seq(tags), seq(Collections.singletonList(new Tuple2<String, Object>("count", 3L))), true);
+    }
+
+    @SafeVarargs
+    private static <T> Seq<T> points(T... points) {
+        return seq(Arrays.asList(points));
+    }
+
+    private static <T> Seq<T> seq(List<T> list) {
+        return asScalaBuffer(list);
+    }
+}
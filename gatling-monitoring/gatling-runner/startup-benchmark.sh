@@ -0,0 +1,19 @@
+#!/bin/sh
+# Measures the time from container start to the first request sent by the gatling-runner image, with and without
+# the AppCDS archive. The start is taken on the host just before "docker run", so container creation is included.
+
+RUNS=${1:-5}
+IMAGE=${IMAGE:-gatling-runner}
+
+for appcds in false true; do
+    echo "GATLING_APPCDS=${appcds}"
+    for run in $(seq "${RUNS}"); do
+        start=$(date +%s%3N)
+        container=$(docker run -d -e GATLING_APPCDS="${appcds}" -e GATLING_CONTAINER_START_MILLIS="${start}" "${IMAGE}" -gh localhost)
+        until docker logs "${container}" 2>&1 | grep -q "Startup:"; do
+            sleep 0.2
+        done
+        docker logs "${container}" 2>&1 | grep -m1 "Startup:" | sed 's/.* - /  /'
+        docker rm -f "${container}" > /dev/null
+    done
+done
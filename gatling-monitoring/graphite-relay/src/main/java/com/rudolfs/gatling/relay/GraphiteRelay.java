@@ -0,0 +1,232 @@
+package com.rudolfs.gatling.relay;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.logging.Logger;
+
+/**
+ * Graphite plaintext relay between the gatling-runner shards and InfluxDB. All runner connections and the connection
+ * to InfluxDB are served by one non-blocking selector thread. The relay merges the metrics of all shards per second
+ * (see {@link MetricAggregator}) and forwards a single stream in one large write per flush, so InfluxDB ingests one
+ * series instead of one series per shard.
+ */
+public final class GraphiteRelay {
+    private static final Logger LOGGER = Logger.getLogger(GraphiteRelay.class.getName());
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final long STATISTICS_INTERVAL_MILLIS = 60_000;
+
+    private final RelayConfiguration configuration;
+    private final MetricAggregator aggregator = new MetricAggregator();
+    private final StringBuilder lines = new StringBuilder(READ_BUFFER_SIZE);
+    private final Selector selector;
+    private ByteBuffer pending = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private SocketChannel upstream;
+
+    public GraphiteRelay(RelayConfiguration configuration) throws IOException {
+        this.configuration = configuration;
+        this.selector = Selector.open();
+    }
+
+    public static void main(String[] args) throws IOException {
+        new GraphiteRelay(RelayConfiguration.fromEnvironment(System.getenv())).run();
+    }
+
+    public void run() throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(configuration.getListenPort()));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        LOGGER.info(String.format("Relaying Graphite from port %d to %s:%d", configuration.getListenPort(),
+                configuration.getTargetHost(), configuration.getTargetPort()));
+
+        long nextFlush = System.currentTimeMillis() + FLUSH_INTERVAL_MILLIS;
+        long nextStatistics = System.currentTimeMillis() + STATISTICS_INTERVAL_MILLIS;
+        while (!Thread.currentThread().isInterrupted()) {
+            selector.select(Math.max(1, nextFlush - System.currentTimeMillis()));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(server);
+                    } else if (key.isConnectable()) {
+                        finishConnect(key);
+                    } else if (key.isReadable()) {
+                        read(key);
+                    } else if (key.isWritable()) {
+                        write(key);
+                    }
+                } catch (IOException e) {
+                    close(key, e);
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            if (now >= nextFlush) {
+                flush(now / 1000 - configuration.getFlushDelaySeconds());
+                nextFlush = now + FLUSH_INTERVAL_MILLIS;
+            }
+            if (now >= nextStatistics) {
+                LOGGER.info(String.format("Received %d lines, forwarded %d lines, dropped %d late lines",
+                        aggregator.getReceivedLines(), aggregator.getForwardedLines(), aggregator.getLateLines()));
+                nextStatistics = now + STATISTICS_INTERVAL_MILLIS;
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel client = server.accept();
+        if (client != null) {
+            client.configureBlocking(false);
+            client.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(READ_BUFFER_SIZE));
+            LOGGER.info("Accepted runner connection from " + client.getRemoteAddress());
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel client = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read = client.read(buffer);
+        if (read < 0) {
+            key.cancel();
+            client.close();
+            return;
+        }
+        buffer.flip();
+        parseLines(buffer);
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            // a single line longer than the buffer can't be a Gatling metric
+            LOGGER.warning("Discarding oversized line from " + client.getRemoteAddress());
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Parses all complete "path value timestamp" lines, an incomplete last line stays in the buffer.
+     */
+    private void parseLines(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        int lineStart = buffer.position();
+        for (int i = lineStart; i < buffer.limit(); i++) {
+            if (bytes[i] == '\n') {
+                parseLine(bytes, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        buffer.position(lineStart);
+    }
+
+    private void parseLine(byte[] bytes, int start, int end) {
+        int pathEnd = indexOf(bytes, ' ', start, end);
+        int valueEnd = indexOf(bytes, ' ', pathEnd + 1, end);
+        if (pathEnd < 0 || valueEnd < 0) {
+            return;
+        }
+        try {
+            String path = new String(bytes, start, pathEnd - start, StandardCharsets.US_ASCII);
+            double value = Double.parseDouble(new String(bytes, pathEnd + 1, valueEnd - pathEnd - 1, StandardCharsets.US_ASCII));
+            long timestamp = Long.parseLong(new String(bytes, valueEnd + 1, trimEnd(bytes, valueEnd + 1, end) - valueEnd - 1, StandardCharsets.US_ASCII));
+            aggregator.record(path, value, timestamp);
+        } catch (NumberFormatException e) {
+            LOGGER.fine("Ignoring malformed line: " + new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void flush(long untilTimestamp) throws IOException {
+        lines.setLength(0);
+        if (aggregator.drainUntil(untilTimestamp, lines) > 0) {
+            enqueue(lines.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        if (pending.position() == 0) {
+            return;
+        }
+        if (upstream == null) {
+            connectUpstream();
+        } else if (upstream.isConnected()) {
+            upstream.keyFor(selector).interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void enqueue(byte[] merged) {
+        if (pending.position() + merged.length > configuration.getMaxPendingBytes()) {
+            LOGGER.warning(String.format("InfluxDB is not keeping up, dropping %d bytes of merged metrics", merged.length));
+            return;
+        }
+        if (pending.remaining() < merged.length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + merged.length));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        pending.put(merged);
+    }
+
+    private void connectUpstream() throws IOException {
+        upstream = SocketChannel.open();
+        upstream.configureBlocking(false);
+        upstream.connect(new InetSocketAddress(configuration.getTargetHost(), configuration.getTargetPort()));
+        upstream.register(selector, SelectionKey.OP_CONNECT);
+    }
+
+    private void finishConnect(SelectionKey key) throws IOException {
+        if (upstream.finishConnect()) {
+            LOGGER.info(String.format("Connected to %s:%d", configuration.getTargetHost(), configuration.getTargetPort()));
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        pending.flip();
+        upstream.write(pending);
+        pending.compact();
+        if (pending.position() == 0) {
+            key.interestOps(0);
+        }
+    }
+
+    private void close(SelectionKey key, IOException cause) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // already broken
+        }
+        if (key.channel() == upstream) {
+            // reconnect with the next flush, pending metrics are kept
+            LOGGER.warning(String.format("Lost connection to %s:%d: %s", configuration.getTargetHost(), configuration.getTargetPort(), cause.getMessage()));
+            upstream = null;
+        } else {
+            LOGGER.info("Closed runner connection: " + cause.getMessage());
+        }
+    }
+
+    private static int indexOf(byte[] bytes, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        int end = to;
+        while (end > from && (bytes[end - 1] == '\r' || bytes[end - 1] == ' ')) {
+            end--;
+        }
+        return end;
+    }
+}
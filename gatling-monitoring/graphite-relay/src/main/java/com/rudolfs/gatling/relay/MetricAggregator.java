@@ -0,0 +1,189 @@
+package com.rudolfs.gatling.relay;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Merges the Graphite metrics of all runner shards per second. A runner of a sharded run reports with the root path
+ * prefix {@code gatling.shards.<index>}, the relay removes the shard segments and combines the values of all shards
+ * into one series with the prefix {@code gatling}, the path that the non-sharded Graphite templates of InfluxDB expect.
+ * <p>
+ * Values are combined per field: counts and user numbers are summed, min and max are the min and max of all shards,
+ * the mean is weighted with the count of each shard. Percentiles and the standard deviation can't be merged from
+ * per-shard values, the relay forwards the maximum of the shards, the same upper bound the dashboards use. The series
+ * counts of the cardinality measurement are summed, every shard counts the series it writes itself. Only counts are
+ * forwarded as integers, means, rates and the other fields keep their fraction.
+ * The status of a runner (its truncation mark, and its telemetry under the root {@code gatling_runner}) belongs to its
+ * shard, these series keep the shard segments.
+ */
+public final class MetricAggregator {
+    private static final String SHARDS_SEGMENT = "shards";
+    private static final String NO_SHARD = "";
+    // <prefix>.<simulation>.run.<field> is written once per runner and not merged
+    private static final String RUN_STATUS_MEASUREMENT = "run";
+    // <root>_runner.shards.<index>.<simulation>.<runner>.<field> is the telemetry of a runner, also not merged
+    private static final String RUNNER_TELEMETRY_ROOT_SUFFIX = "_runner";
+    // <prefix>.<simulation>.cardinality.<field> holds the series counts of a shard
+    private static final String CARDINALITY_MEASUREMENT = "cardinality";
+
+    // second -> series path without field -> shard -> field -> value
+    private final NavigableMap<Long, Map<String, Map<String, Map<String, Double>>>> seconds = new TreeMap<>();
+    private long watermark = Long.MIN_VALUE;
+    private long receivedLines;
+    private long forwardedLines;
+    private long lateLines;
+
+    /**
+     * Records one Graphite line, lines of seconds that have already been forwarded are counted and dropped.
+     */
+    public void record(String path, double value, long timestamp) {
+        receivedLines++;
+        if (timestamp <= watermark) {
+            lateLines++;
+            return;
+        }
+        int fieldStart = path.lastIndexOf('.');
+        if (fieldStart < 0) {
+            return;
+        }
+        String series = path.substring(0, fieldStart);
+        String field = path.substring(fieldStart + 1);
+        String shard = NO_SHARD;
+
+        // gatling.shards.<index>.rest -> gatling.rest
+        int first = series.indexOf('.');
+        if (first > 0 && series.startsWith(SHARDS_SEGMENT + '.', first + 1) && !isRunnerTelemetry(series, first)) {
+            int shardStart = first + SHARDS_SEGMENT.length() + 2;
+            int shardEnd = series.indexOf('.', shardStart);
+            if (shardEnd > 0) {
+                String merged = series.substring(0, first) + series.substring(shardEnd);
+                if (!isSimulationMeasurement(merged, RUN_STATUS_MEASUREMENT)) {
+                    shard = series.substring(shardStart, shardEnd);
+                    series = merged;
+                }
+            }
+        }
+
+        seconds.computeIfAbsent(timestamp, t -> new HashMap<>())
+                .computeIfAbsent(series, s -> new HashMap<>())
+                .computeIfAbsent(shard, s -> new HashMap<>())
+                .put(field, value);
+    }
+
+    private static boolean isRunnerTelemetry(String series, int rootEnd) {
+        return series.startsWith(RUNNER_TELEMETRY_ROOT_SUFFIX, rootEnd - RUNNER_TELEMETRY_ROOT_SUFFIX.length());
+    }
+
+    /**
+     * Whether the series is exactly &lt;root&gt;.&lt;simulation&gt;.&lt;measurement&gt;. The simulation is sanitized and has no
+     * dots, the series of requests, groups and users have at least one segment more, so a request, group or scenario
+     * with the name of the measurement is not mistaken for it.
+     */
+    private static boolean isSimulationMeasurement(String series, String measurement) {
+        int simulationStart = series.indexOf('.') + 1;
+        int measurementStart = simulationStart > 0 ? series.indexOf('.', simulationStart) + 1 : 0;
+        return measurementStart > 0 && series.length() - measurementStart == measurement.length()
+                && series.startsWith(measurement, measurementStart);
+    }
+
+    /**
+     * Merges all seconds up to and including the given timestamp and appends them as Graphite lines to the output.
+     *
+     * @return the number of lines appended
+     */
+    public int drainUntil(long timestamp, StringBuilder output) {
+        int lines = 0;
+        Iterator<Map.Entry<Long, Map<String, Map<String, Map<String, Double>>>>> iterator = seconds.headMap(timestamp, true).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Map<String, Map<String, Map<String, Double>>>> second = iterator.next();
+            for (Map.Entry<String, Map<String, Map<String, Double>>> series : second.getValue().entrySet()) {
+                lines += appendMerged(series.getKey(), series.getValue(), second.getKey(), output);
+            }
+            iterator.remove();
+        }
+        watermark = Math.max(watermark, timestamp);
+        forwardedLines += lines;
+        return lines;
+    }
+
+    public long getReceivedLines() {
+        return receivedLines;
+    }
+
+    public long getForwardedLines() {
+        return forwardedLines;
+    }
+
+    public long getLateLines() {
+        return lateLines;
+    }
+
+    private static int appendMerged(String series, Map<String, Map<String, Double>> shards, long timestamp, StringBuilder output) {
+        boolean cardinality = isSimulationMeasurement(series, CARDINALITY_MEASUREMENT);
+        Map<String, Double> merged = new HashMap<>();
+        double weightedMean = 0;
+        double meanWeight = 0;
+        for (Map<String, Double> fields : shards.values()) {
+            for (Map.Entry<String, Double> field : fields.entrySet()) {
+                String name = field.getKey();
+                double value = field.getValue();
+                if (cardinality || isCount(name)) {
+                    merged.merge(name, value, Double::sum);
+                    continue;
+                }
+                switch (name) {
+                    case "min":
+                        merged.merge(name, value, Math::min);
+                        break;
+                    case "mean":
+                        double weight = fields.getOrDefault("count", 1.0);
+                        weightedMean += value * weight;
+                        meanWeight += weight;
+                        break;
+                    default:
+                        // max, stdDev and percentiles
+                        merged.merge(name, value, Math::max);
+                        break;
+                }
+            }
+        }
+        if (meanWeight > 0) {
+            merged.put("mean", weightedMean / meanWeight);
+        }
+        for (Map.Entry<String, Double> field : merged.entrySet()) {
+            output.append(series).append('.').append(field.getKey()).append(' ');
+            if (cardinality || isCount(field.getKey())) {
+                output.append(Math.round(field.getValue()));
+            } else {
+                appendValue(field.getValue(), output);
+            }
+            output.append(' ').append(timestamp).append('\n');
+        }
+        return merged.size();
+    }
+
+    private static boolean isCount(String field) {
+        switch (field) {
+            case "count":
+            case "active":
+            case "waiting":
+            case "done":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // whole values without a fraction, like the runners send them, the others in plain decimal notation
+    private static void appendValue(double value, StringBuilder output) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            output.append((long) value);
+        } else {
+            output.append(BigDecimal.valueOf(value).toPlainString());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.rudolfs.gatling.relay;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Settings of the relay, read from environment variables so they can be set in docker-compose and ECS task definitions.
+ */
+public final class RelayConfiguration {
+    private final int listenPort;
+    private final String targetHost;
+    private final int targetPort;
+    private final int flushDelaySeconds;
+    private final int maxPendingBytes;
+
+    private RelayConfiguration(Map<String, String> environment) {
+        this.listenPort = Integer.parseInt(environment.getOrDefault("RELAY_LISTEN_PORT", "2003"));
+        this.targetHost = Objects.requireNonNull(environment.get("RELAY_TARGET_HOST"), "RELAY_TARGET_HOST is required.");
+        this.targetPort = Integer.parseInt(environment.getOrDefault("RELAY_TARGET_PORT", "2003"));
+        this.flushDelaySeconds = Integer.parseInt(environment.getOrDefault("RELAY_FLUSH_DELAY_SECONDS", "2"));
+        this.maxPendingBytes = Integer.parseInt(environment.getOrDefault("RELAY_MAX_PENDING_BYTES", String.valueOf(16 * 1024 * 1024)));
+    }
+
+    public static RelayConfiguration fromEnvironment(Map<String, String> environment) {
+        return new RelayConfiguration(environment);
+    }
+
+    /**
+     * The port on which the runners send their Graphite plaintext metrics.
+     */
+    public int getListenPort() {
+        return listenPort;
+    }
+
+    /**
+     * The host of the Graphite listener of InfluxDB to which the merged metrics are forwarded.
+     */
+    public String getTargetHost() {
+        return targetHost;
+    }
+
+    public int getTargetPort() {
+        return targetPort;
+    }
+
+    /**
+     * How long the relay waits for the metrics of all shards of a second before it merges and forwards them.
+     */
+    public int getFlushDelaySeconds() {
+        return flushDelaySeconds;
+    }
+
+    /**
+     * Upper bound of the metrics that are buffered while InfluxDB is not reachable, further merged seconds are dropped.
+     */
+    public int getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+}
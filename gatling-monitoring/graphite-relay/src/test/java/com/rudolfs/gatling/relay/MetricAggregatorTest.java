@@ -0,0 +1,152 @@
+package com.rudolfs.gatling.relay;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricAggregatorTest {
+    private static final long SECOND = 1_600_000_000L;
+
+    private final MetricAggregator aggregator = new MetricAggregator();
+
+    @Test
+    void countsOfAllShardsAreSummedUnderThePathWithoutShard() {
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.count", 3, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.count", 5, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.users.scenario.active", 10, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.users.scenario.active", 12, SECOND);
+
+        assertEquals(List.of(
+                "gatling.my-simulation.request_1.ok.count 8 1600000000",
+                "gatling.my-simulation.users.scenario.active 22 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void minAndMaxAreTheMinAndMaxOfAllShards() {
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.min", 10, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.max", 100, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.min", 20, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.max", 200, SECOND);
+
+        assertEquals(List.of(
+                "gatling.my-simulation.request_1.ok.max 200 1600000000",
+                "gatling.my-simulation.request_1.ok.min 10 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void meanIsWeightedWithTheCountOfEachShard() {
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.count", 1, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.mean", 10, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.count", 3, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.mean", 30, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.request_2.ok.count", 1, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.request_2.ok.mean", 10, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_2.ok.count", 1, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_2.ok.mean", 11, SECOND);
+
+        assertEquals(List.of(
+                "gatling.my-simulation.request_1.ok.count 4 1600000000",
+                "gatling.my-simulation.request_1.ok.mean 25 1600000000",
+                "gatling.my-simulation.request_2.ok.count 2 1600000000",
+                "gatling.my-simulation.request_2.ok.mean 10.5 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void percentilesAndStandardDeviationAreTheMaximumOfAllShards() {
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.percentiles99", 120, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.stdDev", 4, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.percentiles99", 90, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.stdDev", 7, SECOND);
+
+        assertEquals(List.of(
+                "gatling.my-simulation.request_1.ok.percentiles99 120 1600000000",
+                "gatling.my-simulation.request_1.ok.stdDev 7 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void seriesCountsOfTheCardinalityMeasurementAreSummed() {
+        aggregator.record("gatling.shards.0.my-simulation.cardinality.series", 7, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.cardinality.requestNames", 3, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.cardinality.series", 5, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.cardinality.requestNames", 2, SECOND);
+
+        assertEquals(List.of(
+                "gatling.my-simulation.cardinality.requestNames 5 1600000000",
+                "gatling.my-simulation.cardinality.series 12 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void pathsWithoutShardArePassedThrough() {
+        aggregator.record("gatling.my-simulation.request_1.ok.count", 3, SECOND);
+        aggregator.record("gatling.my-simulation.request_1.ok.mean", 12.25, SECOND);
+
+        assertEquals(List.of(
+                "gatling.my-simulation.request_1.ok.count 3 1600000000",
+                "gatling.my-simulation.request_1.ok.mean 12.25 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void seriesOfARunnerKeepTheirShard() {
+        aggregator.record("gatling.shards.0.my-simulation.run.truncated", 1, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.run.truncated", 0, SECOND);
+        aggregator.record("gatling_runner.shards.0.my-simulation.runner-0.threads", 40, SECOND);
+        aggregator.record("gatling_runner.shards.1.my-simulation.runner-1.threads", 42, SECOND);
+
+        assertEquals(List.of(
+                "gatling.shards.0.my-simulation.run.truncated 1 1600000000",
+                "gatling.shards.1.my-simulation.run.truncated 0 1600000000",
+                "gatling_runner.shards.0.my-simulation.runner-0.threads 40 1600000000",
+                "gatling_runner.shards.1.my-simulation.runner-1.threads 42 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void requestsGroupsAndScenariosNamedLikeTheSideChannelsAreMerged() {
+        aggregator.record("gatling.shards.0.my-simulation.users.run.active", 10, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.users.run.active", 12, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.cardinality.request_1.ok.max", 100, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.cardinality.request_1.ok.max", 200, SECOND);
+        aggregator.record("gatling.shards.0.my-simulation.run.all.percentiles99", 120, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.run.all.percentiles99", 90, SECOND);
+
+        assertEquals(List.of(
+                "gatling.my-simulation.cardinality.request_1.ok.max 200 1600000000",
+                "gatling.my-simulation.run.all.percentiles99 120 1600000000",
+                "gatling.my-simulation.users.run.active 22 1600000000"), drainUntil(SECOND));
+    }
+
+    @Test
+    void onlySecondsUpToTheTimestampAreDrained() {
+        aggregator.record("gatling.my-simulation.request_1.ok.count", 3, SECOND);
+        aggregator.record("gatling.my-simulation.request_1.ok.count", 4, SECOND + 1);
+
+        assertEquals(List.of("gatling.my-simulation.request_1.ok.count 3 1600000000"), drainUntil(SECOND));
+        assertEquals(List.of("gatling.my-simulation.request_1.ok.count 4 1600000001"), drainUntil(SECOND + 1));
+    }
+
+    @Test
+    void linesBelowTheWatermarkAreCountedAndDropped() {
+        aggregator.record("gatling.shards.0.my-simulation.request_1.ok.count", 3, SECOND);
+        assertEquals(1, drainUntil(SECOND).size());
+
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.count", 5, SECOND);
+        aggregator.record("gatling.shards.1.my-simulation.request_1.ok.count", 5, SECOND - 1);
+
+        assertEquals(List.of(), drainUntil(SECOND + 1));
+        assertEquals(3, aggregator.getReceivedLines());
+        assertEquals(2, aggregator.getLateLines());
+        assertEquals(1, aggregator.getForwardedLines());
+    }
+
+    // the fields of a series are appended in no particular order
+    private List<String> drainUntil(long timestamp) {
+        StringBuilder output = new StringBuilder();
+        int lines = aggregator.drainUntil(timestamp, output);
+        List<String> sorted = output.length() == 0 ? List.of() : Arrays.asList(output.toString().split("\n"));
+        assertEquals(lines, sorted.size());
+        return sorted.stream().sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,75 @@
+#!/bin/sh
+
+# Measures the disk a directory of InfluxDB lives on and compares it with the provisioned figures of the volume:
+#   throughput   sequential 1 MiB writes with a final fsync, like a compaction writes a TSM file
+#   fsync writes 4 KiB writes with an fsync each, like the WAL commits every write (wal-fsync-delay = "0s")
+#   IOPS         random 16 KiB writes with 32 in flight (only when fio is installed, e.g. apk add fio)
+# Exits with 1 when a figure is below the given minimum, e.g. for a gp3 volume with 3000 IOPS and 125 MiB/s:
+#
+#   docker exec <influxdb container> /disk-check.sh /var/lib/influxdb 120 2800
+#   docker exec <influxdb container> /disk-check.sh /var/lib/influxdb/wal 120
+
+help_text() {
+    cat <<EOF
+    Usage: $0 DIRECTORY [MIN_THROUGHPUT_MIBS] [MIN_IOPS]
+        DIRECTORY              A directory on the volume to check, a test file is written and removed again.
+        MIN_THROUGHPUT_MIBS    (optional) The minimum sequential write throughput in MiB/s.
+        MIN_IOPS               (optional) The minimum random write IOPS, checked with fio only.
+    DISK_CHECK_SIZE_MIB (default 1024) is the size of the test file, it should exceed the write cache of the volume.
+EOF
+    exit 1
+}
+
+[ $# -ge 1 ] && [ -d "$1" ] || help_text
+
+DIRECTORY=$1
+MIN_THROUGHPUT_MIBS=${2:-0}
+MIN_IOPS=${3:-0}
+SIZE_MIB=${DISK_CHECK_SIZE_MIB:-1024}
+FSYNC_WRITES=500
+TEST_FILE="${DIRECTORY}/.disk-check.$$"
+failed=0
+
+trap 'rm -f "${TEST_FILE}"' EXIT
+
+now_millis() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# sequential throughput, the fsync at the end makes sure the data left the page cache
+start=$(now_millis)
+dd if=/dev/zero of="${TEST_FILE}" bs=1M count="${SIZE_MIB}" conv=fsync 2>/dev/null
+millis=$(( $(now_millis) - start ))
+throughput=$(( SIZE_MIB * 1000 / (millis > 0 ? millis : 1) ))
+echo "throughput:   ${throughput} MiB/s (${SIZE_MIB} MiB in ${millis} ms)"
+if [ "${throughput}" -lt "${MIN_THROUGHPUT_MIBS}" ]; then
+    echo "  below the minimum of ${MIN_THROUGHPUT_MIBS} MiB/s"
+    failed=1
+fi
+rm -f "${TEST_FILE}"
+
+# synchronous small writes, bound by the write latency of the volume rather than by its IOPS
+if dd if=/dev/zero of="${TEST_FILE}" bs=4k count=1 oflag=dsync 2>/dev/null; then
+    start=$(now_millis)
+    dd if=/dev/zero of="${TEST_FILE}" bs=4k count="${FSYNC_WRITES}" oflag=dsync 2>/dev/null
+    millis=$(( $(now_millis) - start ))
+    echo "fsync writes: $(( FSYNC_WRITES * 1000 / (millis > 0 ? millis : 1) ))/s ($(( millis * 1000 / FSYNC_WRITES )) us per write)"
+else
+    echo "fsync writes: skipped, dd has no oflag=dsync"
+fi
+rm -f "${TEST_FILE}"
+
+if command -v fio >/dev/null 2>&1; then
+    iops=$(fio --name=disk-check --filename="${TEST_FILE}" --rw=randwrite --bs=16k --size="${SIZE_MIB}M" --iodepth=32 \
+        --ioengine=libaio --direct=1 --runtime=30 --time_based --group_reporting --output-format=terse --terse-version=3 |
+        awk -F';' '{ print $49 }')
+    echo "IOPS:         ${iops} (random 16 KiB writes, 32 in flight)"
+    if [ "${iops}" -lt "${MIN_IOPS}" ]; then
+        echo "  below the minimum of ${MIN_IOPS} IOPS"
+        failed=1
+    fi
+elif [ "${MIN_IOPS}" -gt 0 ]; then
+    echo "IOPS:         skipped, fio is not installed"
+fi
+
+exit ${failed}
@@ -0,0 +1,57 @@
+#!/bin/sh
+
+# Writes GATLINGDB_GRAPHITE_LISTENERS [[graphite]] sections into influxdb.conf before influxd starts, on consecutive ports
+# from 2003 and with the batch settings GATLINGDB_GRAPHITE_BATCH_SIZE and GATLINGDB_GRAPHITE_BATCH_PENDING. A listener
+# collects the points of all its connections in one batcher, several listeners let several runners be ingested in parallel.
+# The first [[graphite]] section of influxdb.conf is the template of all listeners, so the script can run at every start.
+
+CONFIG=${INFLUXDB_CONFIG_PATH:-/etc/influxdb/influxdb.conf}
+LISTENERS=${GATLINGDB_GRAPHITE_LISTENERS:-1}
+BATCH_SIZE=${GATLINGDB_GRAPHITE_BATCH_SIZE:-5000}
+BATCH_PENDING=${GATLINGDB_GRAPHITE_BATCH_PENDING:-10}
+FIRST_PORT=2003
+
+case "${LISTENERS}${BATCH_SIZE}${BATCH_PENDING}" in
+    *[!0-9]*|'')
+        echo "graphite-listeners: GATLINGDB_GRAPHITE_LISTENERS, _BATCH_SIZE and _BATCH_PENDING must be numbers, keeping ${CONFIG}"
+        exit 1
+    ;;
+esac
+if [ "${LISTENERS}" -lt 1 ]; then
+    echo "graphite-listeners: GATLINGDB_GRAPHITE_LISTENERS must be at least 1, keeping ${CONFIG}"
+    exit 1
+fi
+
+awk -v listeners="${LISTENERS}" -v batch_size="${BATCH_SIZE}" -v batch_pending="${BATCH_PENDING}" -v first_port="${FIRST_PORT}" '
+    function flush_graphite(   i, j, line) {
+        for (i = 0; i < listeners; i++) {
+            for (j = 1; j <= section_lines; j++) {
+                line = section[j]
+                if (line ~ /^[ \t]*bind-address[ \t]*=/) {
+                    sub(/=.*/, "= \":" (first_port + i) "\"", line)
+                } else if (line ~ /^[ \t]*batch-size[ \t]*=/) {
+                    sub(/=.*/, "= " batch_size, line)
+                } else if (line ~ /^[ \t]*batch-pending[ \t]*=/) {
+                    sub(/=.*/, "= " batch_pending, line)
+                }
+                print line
+            }
+        }
+        written = 1
+    }
+    /^\[\[graphite\]\]/ { in_graphite = 1; if (!written && !templated) { templated = 1; collecting = 1 } else { collecting = 0 } }
+    /^\[/ && !/^\[\[graphite\]\]/ {
+        if (in_graphite && !written) flush_graphite()
+        in_graphite = 0; collecting = 0
+    }
+    {
+        if (in_graphite) {
+            if (collecting) section[++section_lines] = $0
+            next
+        }
+        print
+    }
+    END { if (in_graphite && !written) flush_graphite() }
+' "${CONFIG}" > "${CONFIG}.tmp" && mv "${CONFIG}.tmp" "${CONFIG}"
+
+echo "graphite-listeners: ${LISTENERS} listener(s) on ports ${FIRST_PORT}-$((FIRST_PORT + LISTENERS - 1)), batch-size ${BATCH_SIZE}, batch-pending ${BATCH_PENDING}"
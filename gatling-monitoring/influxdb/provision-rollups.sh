@@ -0,0 +1,89 @@
+#!/bin/sh
+
+# Provisions the retention policies and continuous queries of gatlingdb once InfluxDB accepts queries. Runs at every
+# start of the container, so a data volume that was created before (or with other retention durations) is updated as well.
+#
+#   raw         1s points written by the runners (default retention policy)
+#   rollup_10s  10s rollup of raw
+#   rollup_1m   1m rollup of rollup_10s
+#   rollup_5m   5m rollup of rollup_1m
+#   forever     rp_config, the time range lengths for which Grafana reads each tier
+
+DATABASE=gatlingdb
+RAW_RETENTION=${GATLINGDB_RAW_RETENTION:-7d}
+ROLLUP_10S_RETENTION=${GATLINGDB_ROLLUP_10S_RETENTION:-30d}
+ROLLUP_1M_RETENTION=${GATLINGDB_ROLLUP_1M_RETENTION:-90d}
+ROLLUP_5M_RETENTION=${GATLINGDB_ROLLUP_5M_RETENTION:-365d}
+
+influxql() {
+    influx -host 127.0.0.1 -port 8086 -database "${DATABASE}" -execute "$1"
+}
+
+# creates the retention policy or changes the durations of an existing one
+retention_policy() {
+    influxql "CREATE RETENTION POLICY \"$1\" ON \"${DATABASE}\" DURATION $2 REPLICATION 1 SHARD DURATION $3 $4" 2>/dev/null ||
+        influxql "ALTER RETENTION POLICY \"$1\" ON \"${DATABASE}\" DURATION $2 REPLICATION 1 SHARD DURATION $3 $4"
+}
+
+# (re)creates the continuous queries that roll measurement gatling, gatling.users, gatling.cardinality, gatling.run, gatling_runner and gatling_latency from one tier up to the next
+rollup() {
+    source=$1; target=$2; interval=$3; resample=$4
+    for measurement in gatling gatling.users gatling.cardinality gatling.run gatling_runner gatling_latency; do
+        case ${measurement} in
+            gatling)
+                fields='sum("count") AS "count", min("min") AS "min", max("max") AS "max", mean("mean") AS "mean", max("stdDev") AS "stdDev"'
+                fields="${fields}"', max("percentiles50") AS "percentiles50", max("percentiles75") AS "percentiles75"'
+                fields="${fields}"', max("percentiles95") AS "percentiles95", max("percentiles99") AS "percentiles99"'
+            ;;
+            gatling.users)
+                fields='max("active") AS "active", max("waiting") AS "waiting", max("done") AS "done"'
+            ;;
+            gatling.cardinality)
+                fields='max("series") AS "series", max("requestNames") AS "requestNames", max("collapsedResponses") AS "collapsedResponses"'
+            ;;
+            gatling.run)
+                fields='max("truncated") AS "truncated", max("injectedSeconds") AS "injectedSeconds"'
+            ;;
+            gatling_runner)
+                fields='max("cpuPercent") AS "cpuPercent", max("cpuThrottledPercent") AS "cpuThrottledPercent", sum("gcPauseMillis") AS "gcPauseMillis"'
+                fields="${fields}"', max("gcPercent") AS "gcPercent", sum("gcCount") AS "gcCount", max("heapUsed") AS "heapUsed", max("heapMax") AS "heapMax"'
+                fields="${fields}"', max("threads") AS "threads", max("eventLoopLagMax") AS "eventLoopLagMax", mean("eventLoopLagMean") AS "eventLoopLagMean"'
+                fields="${fields}"', max("connections") AS "connections", max("saturated") AS "saturated"'
+            ;;
+            gatling_latency)
+                fields='sum("count") AS "count", mean("mean") AS "mean", max("max") AS "max"'
+                fields="${fields}"', max("percentiles50") AS "percentiles50", max("percentiles75") AS "percentiles75"'
+                fields="${fields}"', max("percentiles95") AS "percentiles95", max("percentiles99") AS "percentiles99"'
+            ;;
+        esac
+        name="cq_$(echo "${measurement}" | tr '.' '_')_${target}"
+        influxql "DROP CONTINUOUS QUERY \"${name}\" ON \"${DATABASE}\"" >/dev/null 2>&1
+        influxql "CREATE CONTINUOUS QUERY \"${name}\" ON \"${DATABASE}\" RESAMPLE EVERY ${interval} FOR ${resample} BEGIN SELECT ${fields} \
+INTO \"${DATABASE}\".\"${target}\".\"${measurement}\" FROM \"${DATABASE}\".\"${source}\".\"${measurement}\" GROUP BY time(${interval}), * END"
+    done
+}
+
+until influxql "SHOW DATABASES" >/dev/null 2>&1; do
+    sleep 1
+done
+
+influxql "CREATE DATABASE \"${DATABASE}\""
+retention_policy raw "${RAW_RETENTION}" 1d DEFAULT
+retention_policy rollup_10s "${ROLLUP_10S_RETENTION}" 1d
+retention_policy rollup_1m "${ROLLUP_1M_RETENTION}" 7d
+retention_policy rollup_5m "${ROLLUP_5M_RETENTION}" 30d
+retention_policy forever INF 52w
+
+# the percentiles of a rollup are the maximum of the percentiles of its points, the dashboards plot maxima anyway
+rollup raw rollup_10s 10s 30s
+rollup rollup_10s rollup_1m 1m 2m
+rollup rollup_1m rollup_5m 5m 10m
+
+# Grafana reads the tier of the row for which min_range <= (to - from) < max_range (in millis), interval is the
+# resolution of the tier and the min interval of every panel.
+influxql "INSERT INTO forever rp_config,idx=1 rp=\"raw\",interval=\"1s\",min_range=0i,max_range=10800000i 0"
+influxql "INSERT INTO forever rp_config,idx=2 rp=\"rollup_10s\",interval=\"10s\",min_range=10800000i,max_range=86400000i 0"
+influxql "INSERT INTO forever rp_config,idx=3 rp=\"rollup_1m\",interval=\"1m\",min_range=86400000i,max_range=604800000i 0"
+influxql "INSERT INTO forever rp_config,idx=4 rp=\"rollup_5m\",interval=\"5m\",min_range=604800000i,max_range=9223372036854775807i 0"
+
+echo "provision-rollups: retention policies raw (${RAW_RETENTION}), rollup_10s (${ROLLUP_10S_RETENTION}), rollup_1m (${ROLLUP_1M_RETENTION}), rollup_5m (${ROLLUP_5M_RETENTION}) and continuous queries are in place"
@@ -0,0 +1,159 @@
+package com.rudolfs.gatling.stub;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Answers the routes of computer-database.gatling.io with pages that pass the checks of BasicSimulation and ComputerWorld.
+ * The pages are encoded once and every response shares their bytes, only the page of a created computer contains the
+ * name that was posted. The latency of a response is scheduled on the event loop of its connection, so a slow response
+ * doesn't occupy a thread and the server keeps up with many thousand concurrent requests.
+ */
+@ChannelHandler.Sharable
+final class ComputerDatabaseHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    private static final Logger LOGGER = Logger.getLogger(ComputerDatabaseHandler.class.getName());
+
+    private static final String COMPUTERS_PAGE_HEAD = "<html><head><title>Computers database</title></head><body>\n";
+    private static final String COMPUTERS_PAGE_BODY = "<h1>574 computers found</h1>\n"
+            + "<a class=\"btn success\" id=\"add\" href=\"/computers/new\">Add a new computer</a>\n"
+            + "<table class=\"computers\"><tbody>\n"
+            + "<tr><td><a href=\"/computers/6\">MacBook Pro</a></td><td>06 Jan 2006</td><td>-</td><td>Apple Inc.</td></tr>\n"
+            + "<tr><td><a href=\"/computers/7\">MacBook Pro 15.4 inch</a></td><td>-</td><td>-</td><td>Apple Inc.</td></tr>\n"
+            + "</tbody></table></body></html>";
+
+    private static final ByteBuf COMPUTERS_PAGE = page(COMPUTERS_PAGE_HEAD + COMPUTERS_PAGE_BODY);
+    private static final ByteBuf CREATED_PAGE_HEAD = page(COMPUTERS_PAGE_HEAD + "<div class=\"alert-message warning\">Done ! Computer ");
+    private static final ByteBuf CREATED_PAGE_TAIL = page(" has been created</div>\n" + COMPUTERS_PAGE_BODY);
+    private static final ByteBuf NEW_COMPUTER_PAGE = page("<html><head><title>Computers database</title></head><body>\n"
+            + "<h1>Add a computer</h1>\n"
+            + "<form action=\"/computers\" method=\"POST\"><input type=\"text\" id=\"name\" name=\"name\">"
+            + "<input type=\"submit\" value=\"Create this computer\"></form>\n"
+            + "</body></html>");
+    private static final ByteBuf COMPUTER_PAGE = page("<html><head><title>Computers database</title></head><body>\n"
+            + "<h1>Edit computer</h1>\n"
+            + "<form action=\"/computers/6\" method=\"POST\"><input type=\"text\" id=\"name\" name=\"name\" value=\"MacBook Pro\"></form>\n"
+            + "</body></html>");
+    private static final ByteBuf NOT_FOUND_PAGE = page("<html><body>Not found</body></html>");
+    private static final ByteBuf ERROR_PAGE = page("<html><body>Stub error</body></html>");
+
+    private final StubConfiguration configuration;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    ComputerDatabaseHandler(StubConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        requests.increment();
+        Route route = Route.of(request.method(), new QueryStringDecoder(request.uri()).path());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        FullHttpResponse response;
+        double errorRate = configuration.getErrorRate(route);
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            errors.increment();
+            response = response(HttpResponseStatus.valueOf(configuration.getErrorStatus()), ERROR_PAGE.duplicate());
+        } else if (route == Route.CREATE_COMPUTER) {
+            // the form is read now, the request is released when this method returns
+            response = response(HttpResponseStatus.OK, createdPage(request));
+        } else {
+            response = response(route);
+        }
+
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        long latencyMicros = configuration.getLatency(route).sampleMicros(random);
+        if (latencyMicros <= 0) {
+            write(ctx, response, keepAlive);
+        } else {
+            FullHttpResponse delayed = response;
+            ctx.executor().schedule(() -> write(ctx, delayed, keepAlive), latencyMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.log(Level.FINE, "Closing connection " + ctx.channel(), cause);
+        ctx.close();
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    private static void write(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive) {
+        if (!ctx.channel().isActive()) {
+            response.release();
+        } else if (keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            ctx.writeAndFlush(response, ctx.voidPromise());
+        } else {
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private static FullHttpResponse response(Route route) {
+        switch (route) {
+            case COMPUTERS:
+                return response(HttpResponseStatus.OK, COMPUTERS_PAGE.duplicate());
+            case NEW_COMPUTER:
+                return response(HttpResponseStatus.OK, NEW_COMPUTER_PAGE.duplicate());
+            case COMPUTER:
+                return response(HttpResponseStatus.OK, COMPUTER_PAGE.duplicate());
+            default:
+                return response(HttpResponseStatus.NOT_FOUND, NOT_FOUND_PAGE.duplicate());
+        }
+    }
+
+    private static FullHttpResponse response(HttpResponseStatus status, ByteBuf content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, content);
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset=utf-8")
+                .setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        return response;
+    }
+
+    private static ByteBuf createdPage(FullHttpRequest request) {
+        List<String> names = new QueryStringDecoder(request.content().toString(StandardCharsets.UTF_8), false)
+                .parameters().get("name");
+        String name = names == null || names.isEmpty() ? "" : escape(names.get(0));
+        return Unpooled.wrappedBuffer(CREATED_PAGE_HEAD.duplicate(),
+                Unpooled.copiedBuffer(name, StandardCharsets.UTF_8), CREATED_PAGE_TAIL.duplicate());
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    // a direct buffer that is never freed, the responses write duplicates of it
+    private static ByteBuf page(String html) {
+        byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        return Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes));
+    }
+}
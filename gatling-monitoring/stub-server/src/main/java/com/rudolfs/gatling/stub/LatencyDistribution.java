@@ -0,0 +1,124 @@
+package com.rudolfs.gatling.stub;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The distribution of the latency that the stub server adds before it answers a request. A distribution is configured
+ * as a spec of its name and parameters in milliseconds, separated by colons:
+ * <ul>
+ * <li>{@code none}: no latency</li>
+ * <li>{@code fixed:<millis>}</li>
+ * <li>{@code uniform:<min>:<max>}</li>
+ * <li>{@code normal:<mean>:<stddev>}, negative samples are cut off at 0</li>
+ * <li>{@code exponential:<mean>}</li>
+ * <li>{@code lognormal:<median>:<p99>}, the long tail of most real services</li>
+ * </ul>
+ */
+public abstract class LatencyDistribution {
+    // the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263478740408408;
+
+    public static final LatencyDistribution NONE = new LatencyDistribution("none") {
+        @Override
+        long sampleMicros(ThreadLocalRandom random) {
+            return 0;
+        }
+    };
+
+    private final String spec;
+
+    private LatencyDistribution(String spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Samples the latency of one response, in microseconds.
+     */
+    abstract long sampleMicros(ThreadLocalRandom random);
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        switch (parts[0]) {
+            case "none":
+                return NONE;
+            case "fixed": {
+                long micros = micros(parameter(spec, parts, 1, 1));
+                return new LatencyDistribution(spec) {
+                    @Override
+                    long sampleMicros(ThreadLocalRandom random) {
+                        return micros;
+                    }
+                };
+            }
+            case "uniform": {
+                long min = micros(parameter(spec, parts, 1, 2));
+                long max = micros(parameter(spec, parts, 2, 2));
+                require(min <= max, "The min of the uniform latency must not be greater than its max: " + spec);
+                return new LatencyDistribution(spec) {
+                    @Override
+                    long sampleMicros(ThreadLocalRandom random) {
+                        return min == max ? min : random.nextLong(min, max + 1);
+                    }
+                };
+            }
+            case "normal": {
+                double mean = parameter(spec, parts, 1, 2) * 1000;
+                double stddev = parameter(spec, parts, 2, 2) * 1000;
+                return new LatencyDistribution(spec) {
+                    @Override
+                    long sampleMicros(ThreadLocalRandom random) {
+                        return Math.max(0, Math.round(mean + stddev * random.nextGaussian()));
+                    }
+                };
+            }
+            case "exponential": {
+                double mean = parameter(spec, parts, 1, 1) * 1000;
+                return new LatencyDistribution(spec) {
+                    @Override
+                    long sampleMicros(ThreadLocalRandom random) {
+                        return Math.round(-mean * Math.log(1 - random.nextDouble()));
+                    }
+                };
+            }
+            case "lognormal": {
+                double median = parameter(spec, parts, 1, 2);
+                double p99 = parameter(spec, parts, 2, 2);
+                require(median > 0 && p99 >= median, "The lognormal latency needs 0 < median <= p99: " + spec);
+                double mu = Math.log(median * 1000);
+                double sigma = Math.log(p99 / median) / Z_99;
+                return new LatencyDistribution(spec) {
+                    @Override
+                    long sampleMicros(ThreadLocalRandom random) {
+                        return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution " + spec
+                        + ", expected none, fixed, uniform, normal, exponential or lognormal.");
+        }
+    }
+
+    private static double parameter(String spec, String[] parts, int index, int count) {
+        require(parts.length == count + 1, "The latency " + spec + " needs " + count + " parameter(s) in milliseconds.");
+        double millis = Double.parseDouble(parts[index]);
+        require(millis >= 0, "The parameters of the latency must not be negative: " + spec);
+        return millis;
+    }
+
+    private static long micros(double millis) {
+        return Math.round(millis * 1000);
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
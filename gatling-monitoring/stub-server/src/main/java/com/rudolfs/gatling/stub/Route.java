@@ -0,0 +1,36 @@
+package com.rudolfs.gatling.stub;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+/**
+ * The routes of computer-database.gatling.io that BasicSimulation and ComputerWorld request. Every route can have its
+ * own latency distribution and error rate, configured with the environment variables suffixed with its name.
+ */
+public enum Route {
+    /** GET / and GET /computers, with or without the search (f) and page (p) parameters. */
+    COMPUTERS,
+    /** GET /computers/new, the form to add a computer. */
+    NEW_COMPUTER,
+    /** GET /computers/&lt;id&gt;, the form to edit a computer. */
+    COMPUTER,
+    /** POST /computers, adds a computer and answers with the list and the name of the added computer. */
+    CREATE_COMPUTER,
+    NOT_FOUND;
+
+    public static Route of(HttpMethod method, String path) {
+        if (HttpMethod.GET.equals(method)) {
+            if ("/".equals(path) || "/computers".equals(path)) {
+                return COMPUTERS;
+            }
+            if ("/computers/new".equals(path)) {
+                return NEW_COMPUTER;
+            }
+            if (path.startsWith("/computers/")) {
+                return COMPUTER;
+            }
+        } else if (HttpMethod.POST.equals(method) && "/computers".equals(path)) {
+            return CREATE_COMPUTER;
+        }
+        return NOT_FOUND;
+    }
+}
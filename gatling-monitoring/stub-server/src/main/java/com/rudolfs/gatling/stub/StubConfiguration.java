@@ -0,0 +1,72 @@
+package com.rudolfs.gatling.stub;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of the stub server, read from environment variables so they can be set in docker-compose and ECS task
+ * definitions. The latency and the error rate apply to all routes, STUB_LATENCY_&lt;ROUTE&gt; and
+ * STUB_ERROR_RATE_&lt;ROUTE&gt; (e.g. STUB_LATENCY_CREATE_COMPUTER) override them for one {@link Route}.
+ */
+public final class StubConfiguration {
+    private final int listenPort;
+    private final int ioThreads;
+    private final int errorStatus;
+    private final Map<Route, LatencyDistribution> latencies = new EnumMap<>(Route.class);
+    private final Map<Route, Double> errorRates = new EnumMap<>(Route.class);
+
+    private StubConfiguration(Map<String, String> environment) {
+        this.listenPort = Integer.parseInt(environment.getOrDefault("STUB_LISTEN_PORT", "8080"));
+        this.ioThreads = Integer.parseInt(environment.getOrDefault("STUB_IO_THREADS", "0"));
+        this.errorStatus = Integer.parseInt(environment.getOrDefault("STUB_ERROR_STATUS", "500"));
+        String latency = environment.getOrDefault("STUB_LATENCY", "none");
+        String errorRate = environment.getOrDefault("STUB_ERROR_RATE", "0");
+        for (Route route : Route.values()) {
+            latencies.put(route, LatencyDistribution.parse(environment.getOrDefault("STUB_LATENCY_" + route, latency)));
+            double rate = Double.parseDouble(environment.getOrDefault("STUB_ERROR_RATE_" + route, errorRate));
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("The error rate of " + route + " must be in [0, 1] but was " + rate);
+            }
+            errorRates.put(route, rate);
+        }
+    }
+
+    public static StubConfiguration fromEnvironment(Map<String, String> environment) {
+        return new StubConfiguration(environment);
+    }
+
+    /**
+     * The port on which the stub server answers the requests of the runners.
+     */
+    public int getListenPort() {
+        return listenPort;
+    }
+
+    /**
+     * The number of event loop threads that serve the connections, 0 uses the Netty default of two per core.
+     */
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * The status of the responses that fail on purpose, see {@link #getErrorRate(Route)}.
+     */
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    /**
+     * The latency that is added before the response of the route is sent, without blocking the event loop.
+     */
+    public LatencyDistribution getLatency(Route route) {
+        return latencies.get(route);
+    }
+
+    /**
+     * The fraction (0 to 1) of the requests of the route that are answered with the error status.
+     */
+    public double getErrorRate(Route route) {
+        return errorRates.get(route);
+    }
+}
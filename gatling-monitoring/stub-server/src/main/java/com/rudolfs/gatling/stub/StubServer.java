@@ -0,0 +1,103 @@
+package com.rudolfs.gatling.stub;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stub of computer-database.gatling.io for offline load tests: serves the /computers routes of BasicSimulation and
+ * ComputerWorld (see {@link ComputerDatabaseHandler}) with a configurable latency distribution and error rate per route.
+ * The server uses the native epoll transport on Linux and NIO elsewhere, so that a single machine can push the runner,
+ * the metrics path and InfluxDB to saturation before the stub is.
+ */
+public final class StubServer {
+    private static final Logger LOGGER = Logger.getLogger(StubServer.class.getName());
+    private static final long STATISTICS_INTERVAL_SECONDS = 60;
+
+    private final StubConfiguration configuration;
+    private final ComputerDatabaseHandler handler;
+    private long lastRequests;
+    private long lastErrors;
+
+    public StubServer(StubConfiguration configuration) {
+        this.configuration = configuration;
+        this.handler = new ComputerDatabaseHandler(configuration);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new StubServer(StubConfiguration.fromEnvironment(System.getenv())).run();
+    }
+
+    public void run() throws InterruptedException {
+        boolean epoll = Epoll.isAvailable();
+        EventLoopGroup bossGroup = epoll ? new EpollEventLoopGroup(1) : new NioEventLoopGroup(1);
+        EventLoopGroup workerGroup = epoll
+                ? new EpollEventLoopGroup(configuration.getIoThreads())
+                : new NioEventLoopGroup(configuration.getIoThreads());
+        Class<? extends ServerChannel> channelClass = epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+        try {
+            Channel channel = new ServerBootstrap()
+                    .group(bossGroup, workerGroup)
+                    .channel(channelClass)
+                    .option(ChannelOption.SO_BACKLOG, 4096)
+                    .option(ChannelOption.SO_REUSEADDR, true)
+                    .childOption(ChannelOption.TCP_NODELAY, true)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(new HttpServerCodec(), new HttpServerExpectContinueHandler(),
+                                    new HttpObjectAggregator(1024 * 1024), handler);
+                        }
+                    })
+                    .bind(configuration.getListenPort()).sync().channel();
+            LOGGER.info(String.format("Serving computer-database on port %d with %s, latency %s, error rate %s (status %d)",
+                    configuration.getListenPort(), epoll ? "epoll" : "NIO", describe(configuration::getLatency),
+                    describe(configuration::getErrorRate), configuration.getErrorStatus()));
+
+            workerGroup.scheduleAtFixedRate(this::logStatistics, STATISTICS_INTERVAL_SECONDS, STATISTICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            channel.closeFuture().sync();
+        } finally {
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+        }
+    }
+
+    // runs on one event loop thread only
+    private void logStatistics() {
+        long requests = handler.getRequests();
+        long errors = handler.getErrors();
+        LOGGER.info(String.format("%.1f requests/s, %.1f errors/s in the last %d s, %d requests in total",
+                (requests - lastRequests) / (double) STATISTICS_INTERVAL_SECONDS,
+                (errors - lastErrors) / (double) STATISTICS_INTERVAL_SECONDS, STATISTICS_INTERVAL_SECONDS, requests));
+        lastRequests = requests;
+        lastErrors = errors;
+    }
+
+    // the setting of COMPUTERS, followed by the routes that override it
+    private static String describe(Function<Route, Object> setting) {
+        Object common = setting.apply(Route.COMPUTERS);
+        String overrides = Stream.of(Route.values())
+                .filter(route -> !setting.apply(route).toString().equals(common.toString()))
+                .map(route -> route + "=" + setting.apply(route))
+                .collect(Collectors.joining(", "));
+        return overrides.isEmpty() ? common.toString() : common + " (" + overrides + ")";
+    }
+}
@@ -0,0 +1,128 @@
+package com.rudolfs.gatling.stub;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComputerDatabaseHandlerTest {
+    private EmbeddedChannel channel;
+
+    @AfterEach
+    void close() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void computersPageIsTheSearchResult() {
+        ComputerDatabaseHandler handler = handler(Map.of());
+
+        FullHttpResponse response = exchange(get("/computers?f=macbook&p=1"));
+
+        assertEquals(HttpResponseStatus.OK, response.status());
+        String page = content(response);
+        assertTrue(page.contains("574 computers found"), page);
+        assertTrue(page.contains("href=\"/computers/6\""), page);
+        assertEquals(page.getBytes(StandardCharsets.UTF_8).length, response.headers().getInt(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals(1, handler.getRequests());
+        response.release();
+    }
+
+    @Test
+    void newComputerPageIsTheForm() {
+        handler(Map.of());
+
+        FullHttpResponse response = exchange(get("/computers/new"));
+
+        assertEquals(HttpResponseStatus.OK, response.status());
+        assertTrue(content(response).contains("<form action=\"/computers\" method=\"POST\">"));
+        response.release();
+    }
+
+    @Test
+    void createdPageHoldsTheEscapedName() {
+        handler(Map.of());
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/computers",
+                Unpooled.copiedBuffer("name=%3Cb%3EAmiga+%26+Co%3C%2Fb%3E&company=1", StandardCharsets.UTF_8));
+
+        FullHttpResponse response = exchange(request);
+
+        assertEquals(HttpResponseStatus.OK, response.status());
+        String page = content(response);
+        assertTrue(page.contains("Done ! Computer &lt;b&gt;Amiga &amp; Co&lt;/b&gt; has been created"), page);
+        assertEquals(page.getBytes(StandardCharsets.UTF_8).length, response.headers().getInt(HttpHeaderNames.CONTENT_LENGTH));
+        response.release();
+    }
+
+    @Test
+    void unknownRouteIsNotFound() {
+        handler(Map.of());
+
+        FullHttpResponse response = exchange(get("/unknown"));
+
+        assertEquals(HttpResponseStatus.NOT_FOUND, response.status());
+        response.release();
+    }
+
+    @Test
+    void errorRateOfARouteAnswersWithTheErrorStatus() {
+        ComputerDatabaseHandler handler = handler(Map.of("STUB_ERROR_RATE_NEW_COMPUTER", "1", "STUB_ERROR_STATUS", "503"));
+
+        FullHttpResponse failed = exchange(get("/computers/new"));
+        FullHttpResponse ok = exchange(get("/computers"));
+
+        assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, failed.status());
+        assertEquals(HttpResponseStatus.OK, ok.status());
+        assertEquals(2, handler.getRequests());
+        assertEquals(1, handler.getErrors());
+        failed.release();
+        ok.release();
+    }
+
+    @Test
+    void latencyDelaysTheResponseOnTheEventLoop() throws InterruptedException {
+        handler(Map.of("STUB_LATENCY", "fixed:20"));
+
+        channel.writeInbound(get("/computers"));
+        assertNull(channel.readOutbound());
+
+        Thread.sleep(50);
+        channel.runScheduledPendingTasks();
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, response.status());
+        response.release();
+    }
+
+    private ComputerDatabaseHandler handler(Map<String, String> environment) {
+        ComputerDatabaseHandler handler = new ComputerDatabaseHandler(StubConfiguration.fromEnvironment(environment));
+        channel = new EmbeddedChannel(handler);
+        return handler;
+    }
+
+    private FullHttpResponse exchange(FullHttpRequest request) {
+        channel.writeInbound(request);
+        return channel.readOutbound();
+    }
+
+    private static FullHttpRequest get(String uri) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+    }
+
+    private static String content(FullHttpResponse response) {
+        return response.content().toString(StandardCharsets.UTF_8);
+    }
+}
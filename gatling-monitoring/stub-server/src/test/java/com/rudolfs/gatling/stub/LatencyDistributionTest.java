@@ -0,0 +1,116 @@
+package com.rudolfs.gatling.stub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyDistributionTest {
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void noneAddsNoLatency() {
+        assertSame(LatencyDistribution.NONE, LatencyDistribution.parse("none"));
+        assertEquals(0, LatencyDistribution.NONE.sampleMicros(ThreadLocalRandom.current()));
+    }
+
+    @Test
+    void fixedAlwaysSamplesItsMillis() {
+        LatencyDistribution fixed = LatencyDistribution.parse(" Fixed:12.5 ");
+
+        assertEquals(12_500, fixed.sampleMicros(ThreadLocalRandom.current()));
+        assertEquals(" Fixed:12.5 ", fixed.toString());
+    }
+
+    @Test
+    void uniformSamplesBetweenItsMinAndMax() {
+        long[] samples = samples(LatencyDistribution.parse("uniform:5:10"));
+
+        assertEquals(5_000, samples[0]);
+        assertEquals(10_000, samples[SAMPLES - 1]);
+        assertEquals(7_500, mean(samples), 50);
+        assertEquals(3_000, LatencyDistribution.parse("uniform:3:3").sampleMicros(ThreadLocalRandom.current()));
+    }
+
+    @Test
+    void normalIsCutOffAtZero() {
+        long[] samples = samples(LatencyDistribution.parse("normal:50:10"));
+
+        assertEquals(50_000, mean(samples), 200);
+        assertEquals(0, samples(LatencyDistribution.parse("normal:0:10"))[0]);
+    }
+
+    @Test
+    void exponentialHasItsMean() {
+        long[] samples = samples(LatencyDistribution.parse("exponential:20"));
+
+        assertEquals(20_000, mean(samples), 400);
+        assertTrue(samples[0] >= 0);
+    }
+
+    @Test
+    void lognormalHasItsMedianAndP99() {
+        long[] samples = samples(LatencyDistribution.parse("lognormal:20:200"));
+
+        assertEquals(20_000, samples[SAMPLES / 2], 500);
+        assertEquals(200_000, samples[SAMPLES * 99 / 100], 10_000);
+    }
+
+    @Test
+    void rejectsTheWrongNumberOfParameters() {
+        assertRejected("fixed");
+        assertRejected("fixed:1:2");
+        assertRejected("uniform:5");
+        assertRejected("normal:50:10:1");
+        assertRejected("exponential");
+        assertRejected("lognormal:20");
+    }
+
+    @Test
+    void rejectsNegativeParameters() {
+        assertRejected("fixed:-1");
+        assertRejected("uniform:-5:10");
+        assertRejected("normal:50:-10");
+        assertRejected("exponential:-20");
+    }
+
+    @Test
+    void rejectsUniformMinAboveMax() {
+        assertRejected("uniform:10:5");
+    }
+
+    @Test
+    void rejectsLognormalMedianAboveP99() {
+        assertRejected("lognormal:200:20");
+        assertRejected("lognormal:0:20");
+    }
+
+    @Test
+    void rejectsUnknownDistributions() {
+        assertRejected("pareto:20");
+    }
+
+    // sorted
+    private static long[] samples(LatencyDistribution distribution) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = distribution.sampleMicros(random);
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static double mean(long[] samples) {
+        return Arrays.stream(samples).average().orElseThrow();
+    }
+
+    private static void assertRejected(String spec) {
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse(spec), spec);
+    }
+}
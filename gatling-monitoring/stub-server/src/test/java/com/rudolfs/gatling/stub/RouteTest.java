@@ -0,0 +1,25 @@
+package com.rudolfs.gatling.stub;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteTest {
+
+    @Test
+    void routesArePickedByMethodAndPath() {
+        assertEquals(Route.COMPUTERS, Route.of(HttpMethod.GET, "/"));
+        assertEquals(Route.COMPUTERS, Route.of(HttpMethod.GET, "/computers"));
+        assertEquals(Route.NEW_COMPUTER, Route.of(HttpMethod.GET, "/computers/new"));
+        assertEquals(Route.COMPUTER, Route.of(HttpMethod.GET, "/computers/6"));
+        assertEquals(Route.CREATE_COMPUTER, Route.of(HttpMethod.POST, "/computers"));
+    }
+
+    @Test
+    void otherMethodsAndPathsAreNotFound() {
+        assertEquals(Route.NOT_FOUND, Route.of(HttpMethod.POST, "/computers/new"));
+        assertEquals(Route.NOT_FOUND, Route.of(HttpMethod.DELETE, "/computers/6"));
+        assertEquals(Route.NOT_FOUND, Route.of(HttpMethod.GET, "/computer"));
+    }
+}